@@ -0,0 +1,62 @@
+package edu.carroll.doin_backend.web.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many passwords one core can hash and verify per second at each BCrypt cost, to pick
+ * {@code doin.passwords.bcrypt.strength} for a machine. Each step up in cost halves the throughput; the cost is
+ * usually set as high as the login latency the deployment can accept.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class PasswordHashBenchmark {
+    private static final String password = "benchmarkPassword1";
+
+    /**
+     * The BCrypt cost, as a base-2 logarithm of the number of rounds
+     */
+    @Param({"8", "10", "12", "14"})
+    public int cost;
+
+    private BCryptPasswordEncoder encoder;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        encoder = new BCryptPasswordEncoder(cost);
+        hash = encoder.encode(password);
+    }
+
+    /**
+     * What registering or changing a password costs
+     */
+    @Benchmark
+    public String hash() {
+        return encoder.encode(password);
+    }
+
+    /**
+     * What a login costs
+     */
+    @Benchmark
+    public boolean verify() {
+        return encoder.matches(password, hash);
+    }
+}
@@ -0,0 +1,304 @@
+package edu.carroll.doin_backend.web.cache;
+
+import edu.carroll.doin_backend.web.repository.EventRepository;
+import edu.carroll.doin_backend.web.util.EventCursor;
+import edu.carroll.doin_backend.web.util.IntHashSet;
+import edu.carroll.doin_backend.web.util.TransactionHooks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Every user's agenda: the upcoming events they created or joined, soonest first.
+ * <p>
+ * Each agenda is a set of {@link EventCursor} keys sorted by {@code (time, id)}, so the next few events of a user are
+ * read straight off its head instead of joining events to their joiners. Every upcoming event also remembers which
+ * agendas it is on, so once its time has passed, {@link #evictExpired()} takes it off all of them; until then, reads
+ * skip it.
+ * </p>
+ * <p>
+ * The agendas are loaded from the database once the application is ready (or on first use, if that comes sooner),
+ * and are then kept up to date write-through: the {@code EventService} must call
+ * {@link #addEvent(int, int, LocalDateTime)} for every event it creates and {@link #addJoiner(int, int)} for every
+ * user who joins one. If the surrounding transaction rolls back, the change to the agendas is undone with it.
+ * </p>
+ */
+@Component
+public class AgendaIndex {
+    private static final Logger log = LoggerFactory.getLogger(AgendaIndex.class);
+
+    /**
+     * Soonest first, with ties on time broken by the lower ID
+     */
+    private static final Comparator<EventCursor> SOONEST_FIRST = Comparator
+            .comparing(EventCursor::getTime)
+            .thenComparing(EventCursor::getId);
+
+    /**
+     * An upcoming event and the users whose agenda it is on.
+     */
+    private static final class Entry {
+        private final EventCursor key;
+        private final IntHashSet users = new IntHashSet();
+
+        private Entry(EventCursor key) {
+            this.key = key;
+        }
+    }
+
+    private final EventRepository eventRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * Every upcoming event, soonest first, so expired ones are found at the head
+     */
+    private final NavigableSet<EventCursor> upcoming = new TreeSet<>(SOONEST_FIRST);
+    /**
+     * Every upcoming event, by ID
+     */
+    private final Map<Integer, Entry> events = new HashMap<>();
+    /**
+     * Every user's upcoming events, by user ID
+     */
+    private final Map<Integer, NavigableSet<EventCursor>> agendas = new HashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * Constructs a new {@link AgendaIndex}.
+     *
+     * @param eventRepository the repository the agendas are loaded from
+     */
+    public AgendaIndex(EventRepository eventRepository) {
+        this.eventRepository = eventRepository;
+    }
+
+    /**
+     * Loads the agendas once the application has started, so the first request doesn't pay for it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ensureLoaded();
+    }
+
+    /**
+     * Gets a user's next events.
+     *
+     * @param userId the ID of the user
+     * @param limit  the most events to return
+     * @return the IDs of the events the user created or joined that have not started yet, soonest first
+     */
+    public int[] upcoming(int userId, int limit) {
+        if (limit <= 0) {
+            return new int[0];
+        }
+        ensureLoaded();
+        EventCursor now = new EventCursor(LocalDateTime.now(), Integer.MAX_VALUE);
+        int[] found = new int[limit];
+        int n = 0;
+        lock.readLock().lock();
+        try {
+            NavigableSet<EventCursor> agenda = agendas.get(userId);
+            if (agenda != null) {
+                // events that have started but were not evicted yet are skipped
+                Iterator<EventCursor> it = agenda.tailSet(now, false).iterator();
+                while (n < limit && it.hasNext()) {
+                    found[n++] = it.next().getId();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        log.trace("upcoming: {} events for user {}", n, userId);
+        return n == limit ? found : Arrays.copyOf(found, n);
+    }
+
+    /**
+     * Puts a newly created event on its creator's agenda. Events without a time, or whose time has passed, are
+     * ignored. The event is removed again if the current transaction rolls back.
+     *
+     * @param eventId   the ID of the event
+     * @param creatorId the ID of the user who created it
+     * @param time      when the event takes place
+     */
+    public void addEvent(int eventId, int creatorId, LocalDateTime time) {
+        if (time == null || !time.isAfter(LocalDateTime.now())) {
+            return;
+        }
+        ensureLoaded();
+        lock.writeLock().lock();
+        try {
+            put(eventId, time, creatorId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        TransactionHooks.onRollback(() -> {
+            lock.writeLock().lock();
+            try {
+                Entry entry = events.get(eventId);
+                if (entry != null) {
+                    evict(entry);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Puts an event on the agenda of a user who joined it. Events that are not upcoming are ignored. The user is
+     * taken off the event again if the current transaction rolls back.
+     *
+     * @param eventId the ID of the event
+     * @param userId  the ID of the user who joined
+     */
+    public void addJoiner(int eventId, int userId) {
+        ensureLoaded();
+        final boolean added;
+        lock.writeLock().lock();
+        try {
+            Entry entry = events.get(eventId);
+            added = entry != null && attend(entry, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!added) {
+            return;
+        }
+        TransactionHooks.onRollback(() -> {
+            lock.writeLock().lock();
+            try {
+                Entry entry = events.get(eventId);
+                if (entry != null && entry.users.remove(userId)) {
+                    removeFromAgenda(userId, entry.key);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Takes every event whose time has passed off the agendas it is on.
+     */
+    @Scheduled(initialDelayString = "${doin.events.agenda.evict-interval-ms:60000}",
+            fixedDelayString = "${doin.events.agenda.evict-interval-ms:60000}")
+    public void evictExpired() {
+        if (!loaded) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int evicted = 0;
+        lock.writeLock().lock();
+        try {
+            while (!upcoming.isEmpty() && !upcoming.first().getTime().isAfter(now)) {
+                Entry entry = events.get(upcoming.first().getId());
+                if (entry == null) {
+                    upcoming.pollFirst();
+                } else {
+                    evict(entry);
+                }
+                evicted++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (evicted > 0) {
+            log.debug("evictExpired: evicted {} events that have started", evicted);
+        }
+    }
+
+    /**
+     * Tracks an upcoming event and puts it on a user's agenda. The caller must hold the write lock.
+     *
+     * @param eventId the ID of the event
+     * @param time    when the event takes place
+     * @param userId  the ID of the user who created or joined it
+     */
+    private void put(int eventId, LocalDateTime time, int userId) {
+        Entry entry = events.get(eventId);
+        if (entry == null) {
+            // truncated to the database's precision, so runtime and loaded events sort alike
+            entry = new Entry(new EventCursor(time.truncatedTo(ChronoUnit.MICROS), eventId));
+            events.put(eventId, entry);
+            upcoming.add(entry.key);
+        }
+        attend(entry, userId);
+    }
+
+    /**
+     * Puts an event on a user's agenda. The caller must hold the write lock.
+     *
+     * @param entry  the event
+     * @param userId the ID of the user
+     * @return {@code true} if it was not already on it
+     */
+    private boolean attend(Entry entry, int userId) {
+        if (!entry.users.add(userId)) {
+            return false;
+        }
+        agendas.computeIfAbsent(userId, id -> new TreeSet<>(SOONEST_FIRST)).add(entry.key);
+        return true;
+    }
+
+    /**
+     * Stops tracking an event and takes it off every agenda. The caller must hold the write lock.
+     */
+    private void evict(Entry entry) {
+        upcoming.remove(entry.key);
+        events.remove(entry.key.getId());
+        entry.users.forEach(userId -> removeFromAgenda(userId, entry.key));
+    }
+
+    /**
+     * Takes an event off a user's agenda, dropping the agenda once it is empty. The caller must hold the write lock.
+     */
+    private void removeFromAgenda(int userId, EventCursor key) {
+        NavigableSet<EventCursor> agenda = agendas.get(userId);
+        if (agenda != null && agenda.remove(key) && agenda.isEmpty()) {
+            agendas.remove(userId);
+        }
+    }
+
+    /**
+     * Loads every upcoming event with its creator and joiners from the database the first time the agendas are used.
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            List<Object[]> rows = eventRepository.findUpcomingCreators(now);
+            for (Object[] row : rows) {
+                put((Integer) row[0], (LocalDateTime) row[1], (Integer) row[2]);
+            }
+            rows = eventRepository.findUpcomingJoiners(now);
+            for (Object[] row : rows) {
+                put((Integer) row[0], (LocalDateTime) row[1], (Integer) row[2]);
+            }
+            loaded = true;
+            log.info("ensureLoaded: indexed {} upcoming events on {} agendas", events.size(), agendas.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
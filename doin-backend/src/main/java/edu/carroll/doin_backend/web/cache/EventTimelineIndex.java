@@ -0,0 +1,419 @@
+package edu.carroll.doin_backend.web.cache;
+
+import edu.carroll.doin_backend.web.enums.Visibility;
+import edu.carroll.doin_backend.web.repository.EventRepository;
+import edu.carroll.doin_backend.web.util.EventCursor;
+import edu.carroll.doin_backend.web.util.TransactionHooks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Materialized home timelines, so a user's feed of public events and their friends' events is read without an
+ * {@code OR ... IN (friends)} query.
+ * <p>
+ * Events are kept as {@link EventCursor} keys sorted by {@code (time, id)}, newest first. Public events go into a
+ * single global stream. Every other event is fanned out on write: it is appended to the timeline of its creator and
+ * of each of the creator's confirmed friends. Reading a feed merges the public stream with the user's own timeline,
+ * two sorted lists, and stops as soon as enough events have been found.
+ * </p>
+ * <p>
+ * The index is loaded from the {@code events} table once the application is ready (or on first use, if that comes
+ * sooner), and is then kept up to date write-through: the {@code EventService} must call
+ * {@link #add(int, int, LocalDateTime, Visibility)} for every event it creates, and the {@code FriendService} must
+ * call {@link #addFriendship(int, int)} and {@link #removeFriendship(int, int)} after confirming or removing a
+ * friendship, which backfill or prune the two users' timelines. If the surrounding transaction rolls back, the
+ * change to the index is undone with it. Events without a time are never part of a feed.
+ * </p>
+ * <p>
+ * The public stream and every timeline only keep their newest {@code doin.events.timeline.max-entries} events, so
+ * the index stays the same size however many events pile up. Each remembers the newest event it had to drop; a feed
+ * slice that would reach that far is not answered from the index, and the caller reads it from the database instead.
+ * An event dropped from a timeline is not brought back when a newer one is removed again, so a timeline may hold
+ * fewer events than it could, but never claims to hold more than it does.
+ * </p>
+ */
+@Component
+public class EventTimelineIndex {
+    private static final Logger log = LoggerFactory.getLogger(EventTimelineIndex.class);
+
+    /**
+     * Newest first, with ties on time broken by the higher ID, the same order as the cursor queries
+     */
+    private static final Comparator<EventCursor> NEWEST_FIRST = Comparator
+            .comparing(EventCursor::getTime, Comparator.reverseOrder())
+            .thenComparing(EventCursor::getId, Comparator.reverseOrder());
+
+    /**
+     * The newest events of a stream or timeline, and the newest event that was dropped from it to stay within
+     * {@link #maxEntries}. The window holds every event of its stream that is newer than that one.
+     */
+    private final class Window {
+        private final NavigableSet<EventCursor> entries = new TreeSet<>(NEWEST_FIRST);
+        /**
+         * The newest event dropped from the window, or {@code null} if it never dropped one
+         */
+        private EventCursor horizon;
+
+        private void add(EventCursor key) {
+            entries.add(key);
+            trim();
+        }
+
+        /**
+         * Adds every event of another window; this window then only holds every event down to the newer of the two
+         * horizons.
+         */
+        private void addAll(Window other) {
+            entries.addAll(other.entries);
+            horizon = newer(horizon, other.horizon);
+            trim();
+        }
+
+        private void trim() {
+            while (entries.size() > maxEntries) {
+                horizon = newer(horizon, entries.pollLast());
+            }
+        }
+    }
+
+    private final EventRepository eventRepository;
+    private final FriendGraphIndex friendGraph;
+    private final int maxEntries;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * The newest public events
+     */
+    private final Window publicStream = new Window();
+    /**
+     * The newest non-public events of each creator, by their ID; used to backfill and prune timelines
+     */
+    private final Map<Integer, Window> restrictedByCreator = new HashMap<>();
+    /**
+     * The newest non-public events each user may see: their own and their friends', by user ID
+     */
+    private final Map<Integer, Window> timelines = new HashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * Constructs a new {@link EventTimelineIndex}.
+     *
+     * @param eventRepository the repository events are loaded from
+     * @param friendGraph     the friendship graph events are fanned out along
+     * @param maxEntries      the most events the public stream and each timeline keep
+     */
+    public EventTimelineIndex(EventRepository eventRepository, FriendGraphIndex friendGraph,
+                              @Value("${doin.events.timeline.max-entries:1000}") int maxEntries) {
+        this.eventRepository = eventRepository;
+        this.friendGraph = friendGraph;
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * Loads the timelines once the application has started, so the first feed request doesn't pay for it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ensureLoaded();
+    }
+
+    /**
+     * Reads a slice of a user's home feed: public events and their own and their friends' other events.
+     *
+     * @param userId the ID of the user
+     * @param after  the last event already sent, or {@link EventCursor#FIRST}
+     * @param limit  the most events to return
+     * @return the events strictly after the cursor, newest first, or {@code null} if the slice reaches past the
+     * events the index keeps and must be read from the database
+     */
+    public List<EventCursor> feed(int userId, EventCursor after, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        ensureLoaded();
+        List<EventCursor> found = new ArrayList<>(limit);
+        lock.readLock().lock();
+        try {
+            Window timeline = timelines.get(userId);
+            // the merged feed holds every event down to the newer of the two horizons
+            EventCursor horizon = timeline == null ? publicStream.horizon : newer(publicStream.horizon, timeline.horizon);
+            Iterator<EventCursor> pub = publicStream.entries.tailSet(after, false).iterator();
+            Iterator<EventCursor> own = timeline == null
+                    ? Collections.emptyIterator()
+                    : timeline.entries.tailSet(after, false).iterator();
+            EventCursor nextPub = pub.hasNext() ? pub.next() : null;
+            EventCursor nextOwn = own.hasNext() ? own.next() : null;
+            // an event is either public or not, so the two lists never hold the same event
+            while (found.size() < limit && (nextPub != null || nextOwn != null)) {
+                EventCursor next;
+                if (nextOwn == null || (nextPub != null && NEWEST_FIRST.compare(nextPub, nextOwn) < 0)) {
+                    next = nextPub;
+                    nextPub = pub.hasNext() ? pub.next() : null;
+                } else {
+                    next = nextOwn;
+                    nextOwn = own.hasNext() ? own.next() : null;
+                }
+                if (horizon != null && NEWEST_FIRST.compare(next, horizon) >= 0) {
+                    break;
+                }
+                found.add(next);
+            }
+            if (found.size() < limit && horizon != null) {
+                // older events were dropped, so the index can't tell what comes next
+                log.trace("feed: slice after {}|{} for user {} reaches past the timeline", after.getTime(), after.getId(), userId);
+                return null;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        log.trace("feed: {} events after {}|{} for user {}", found.size(), after.getTime(), after.getId(), userId);
+        return found;
+    }
+
+    /**
+     * Adds a newly created event to the public stream, or fans it out to the timelines of its creator and their
+     * friends. The event is removed again if the current transaction rolls back.
+     *
+     * @param eventId    the ID of the event
+     * @param creatorId  the ID of the user who created it
+     * @param time       when the event takes place; events without a time are ignored
+     * @param visibility who may see the event
+     */
+    public void add(int eventId, int creatorId, LocalDateTime time, Visibility visibility) {
+        if (time == null) {
+            return;
+        }
+        ensureLoaded();
+        EventCursor key = key(time, eventId);
+        final int[] targets;
+        lock.writeLock().lock();
+        try {
+            targets = put(key, creatorId, visibility);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.trace("add: event {} fanned out to {} timelines", eventId, targets.length);
+        TransactionHooks.onRollback(() -> {
+            lock.writeLock().lock();
+            try {
+                if (visibility == Visibility.PUBLIC) {
+                    publicStream.entries.remove(key);
+                } else {
+                    removeFrom(restrictedByCreator, creatorId, Collections.singleton(key));
+                    for (int target : targets) {
+                        removeFrom(timelines, target, Collections.singleton(key));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Backfills the timelines of two users who have just become friends with each other's non-public events.
+     *
+     * @param a the ID of one user
+     * @param b the ID of the other user
+     */
+    public void addFriendship(int a, int b) {
+        ensureLoaded();
+        lock.writeLock().lock();
+        try {
+            link(a, b);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        TransactionHooks.onRollback(() -> {
+            lock.writeLock().lock();
+            try {
+                unlink(a, b);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Prunes each other's non-public events from the timelines of two users who are no longer friends.
+     *
+     * @param a the ID of one user
+     * @param b the ID of the other user
+     */
+    public void removeFriendship(int a, int b) {
+        ensureLoaded();
+        lock.writeLock().lock();
+        try {
+            unlink(a, b);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        TransactionHooks.onRollback(() -> {
+            lock.writeLock().lock();
+            try {
+                link(a, b);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Indexes an event. The caller must hold the write lock.
+     *
+     * @param key        the event's key
+     * @param creatorId  the ID of the user who created it
+     * @param visibility who may see the event
+     * @return the IDs of the users whose timeline the event was added to
+     */
+    private int[] put(EventCursor key, int creatorId, Visibility visibility) {
+        if (visibility == Visibility.PUBLIC) {
+            publicStream.add(key);
+            return new int[0];
+        }
+        restrictedByCreator.computeIfAbsent(creatorId, id -> new Window()).add(key);
+        int[] friends = friendGraph.confirmed(creatorId);
+        int[] targets = new int[friends.length + 1];
+        targets[0] = creatorId;
+        System.arraycopy(friends, 0, targets, 1, friends.length);
+        for (int target : targets) {
+            timelines.computeIfAbsent(target, id -> new Window()).add(key);
+        }
+        return targets;
+    }
+
+    /**
+     * Copies each user's non-public events into the other's timeline. The caller must hold the write lock.
+     */
+    private void link(int a, int b) {
+        copyInto(b, a);
+        copyInto(a, b);
+    }
+
+    /**
+     * Removes each user's non-public events from the other's timeline. The caller must hold the write lock.
+     */
+    private void unlink(int a, int b) {
+        Window fromA = restrictedByCreator.get(a);
+        Window fromB = restrictedByCreator.get(b);
+        if (fromB != null) {
+            removeFrom(timelines, a, fromB.entries);
+        }
+        if (fromA != null) {
+            removeFrom(timelines, b, fromA.entries);
+        }
+    }
+
+    /**
+     * Adds every non-public event of a creator to a user's timeline. The caller must hold the write lock.
+     *
+     * @param creatorId the ID of the user whose events are copied
+     * @param userId    the ID of the user whose timeline receives them
+     */
+    private void copyInto(int creatorId, int userId) {
+        Window events = restrictedByCreator.get(creatorId);
+        if (events != null && (!events.entries.isEmpty() || events.horizon != null)) {
+            timelines.computeIfAbsent(userId, id -> new Window()).addAll(events);
+        }
+    }
+
+    /**
+     * Removes events from one of the windows in a map, dropping the window once it is empty and never dropped an
+     * event. The caller must hold the write lock.
+     *
+     * @param windows the map of windows
+     * @param owner   the key of the window to remove from
+     * @param events  the events to remove
+     */
+    private static void removeFrom(Map<Integer, Window> windows, int owner, Iterable<EventCursor> events) {
+        Window window = windows.get(owner);
+        if (window == null) {
+            return;
+        }
+        for (EventCursor event : events) {
+            window.entries.remove(event);
+        }
+        if (window.entries.isEmpty() && window.horizon == null) {
+            windows.remove(owner);
+        }
+    }
+
+    /**
+     * @return the newer of two events, either of which may be {@code null}
+     */
+    private static EventCursor newer(EventCursor a, EventCursor b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || NEWEST_FIRST.compare(a, b) <= 0 ? a : b;
+    }
+
+    /**
+     * Builds the key of an event. Times are truncated to the database's microsecond precision, so events created at
+     * runtime sort exactly like events loaded back from the table.
+     *
+     * @param time    when the event takes place
+     * @param eventId the ID of the event
+     * @return the event's key
+     */
+    private static EventCursor key(LocalDateTime time, int eventId) {
+        return new EventCursor(time.truncatedTo(ChronoUnit.MICROS), eventId);
+    }
+
+    /**
+     * Reads a time column of a native query, which drivers return either as a {@link Timestamp} or as a
+     * {@link LocalDateTime}.
+     */
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+
+    /**
+     * Loads the newest events of the public stream and of every creator from the database the first time the index
+     * is used, instead of every event ever created.
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            // one more than is kept, so a window that had to drop events learns its horizon from the extra one
+            int perWindow = maxEntries + 1;
+            for (Object[] row : eventRepository.findNewestPublicTimelineEntries(PageRequest.of(0, perWindow))) {
+                put(key((LocalDateTime) row[2], (Integer) row[0]), (Integer) row[1], Visibility.PUBLIC);
+            }
+            // a timeline keeps the newest events of its user and their friends, so each creator's newest are enough
+            for (Object[] row : eventRepository.findNewestRestrictedTimelineEntries(perWindow)) {
+                put(key(toLocalDateTime(row[2]), ((Number) row[0]).intValue()), ((Number) row[1]).intValue(),
+                        Visibility.valueOf(row[3].toString()));
+            }
+            loaded = true;
+            log.info("ensureLoaded: indexed {} public events and {} timelines", publicStream.entries.size(), timelines.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package edu.carroll.doin_backend.web.cache;
+
+import edu.carroll.doin_backend.web.enums.FriendshipStatus;
+import edu.carroll.doin_backend.web.repository.FriendRepository;
+import edu.carroll.doin_backend.web.util.IntHashSet;
+import edu.carroll.doin_backend.web.util.TransactionHooks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory copy of the friendship graph, so friend lists and friendship statuses are answered without touching
+ * the database.
+ * <p>
+ * Every user with at least one friendship has an adjacency entry holding three {@link IntHashSet}s of user IDs:
+ * confirmed friends, requests they sent and requests they received. The graph is loaded from the
+ * {@code friendships} table once the application is ready (or on first use, if that comes sooner), and is then kept
+ * up to date write-through by the {@code FriendService}, which must call {@link #setPending(int, int)},
+ * {@link #setConfirmed(int, int)} or {@link #remove(int, int)} after every change it saves. If the surrounding
+ * transaction rolls back, the change to the index is undone with it.
+ * </p>
+ */
+@Component
+public class FriendGraphIndex {
+    private static final Logger log = LoggerFactory.getLogger(FriendGraphIndex.class);
+
+    /**
+     * The users two hops away from someone in the friendship graph, with how many friends each has in common with
+     * them. Entries are sorted by user ID.
+     */
+    public static final class FriendsOfFriends {
+        private static final FriendsOfFriends EMPTY = new FriendsOfFriends(new int[0], new int[0], 0);
+
+        private final int[] userIds;
+        private final int[] mutualCounts;
+        private final int size;
+
+        private FriendsOfFriends(int[] userIds, int[] mutualCounts, int size) {
+            this.userIds = userIds;
+            this.mutualCounts = mutualCounts;
+            this.size = size;
+        }
+
+        /**
+         * @return the number of users found
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param i the index of the entry, from 0 to {@link #size()} - 1
+         * @return the ID of the user at that index
+         */
+        public int userId(int i) {
+            return userIds[i];
+        }
+
+        /**
+         * @param i the index of the entry, from 0 to {@link #size()} - 1
+         * @return how many friends the user at that index has in common with the starting user
+         */
+        public int mutualCount(int i) {
+            return mutualCounts[i];
+        }
+    }
+
+    /**
+     * The friendships of a single user.
+     */
+    private static final class Adjacency {
+        private final IntHashSet confirmed = new IntHashSet();
+        private final IntHashSet pendingOut = new IntHashSet();
+        private final IntHashSet pendingIn = new IntHashSet();
+
+        private boolean isEmpty() {
+            return confirmed.isEmpty() && pendingOut.isEmpty() && pendingIn.isEmpty();
+        }
+    }
+
+    private final FriendRepository friendRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Adjacency> graph = new HashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * Constructs a new {@link FriendGraphIndex}.
+     *
+     * @param friendRepository the repository the graph is loaded from
+     */
+    public FriendGraphIndex(FriendRepository friendRepository) {
+        this.friendRepository = friendRepository;
+    }
+
+    /**
+     * Loads the graph once the application has started, so the first friend request doesn't pay for it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ensureLoaded();
+    }
+
+    /**
+     * Gets the IDs of a user's confirmed friends.
+     *
+     * @param userId the ID of the user
+     * @return the IDs of the user's friends, in no particular order
+     */
+    public int[] confirmed(int userId) {
+        return read(userId, FriendshipStatus.CONFIRMED, true);
+    }
+
+    /**
+     * Gets the IDs of every user with at least the given number of confirmed friends.
+     *
+     * @param minDegree the fewest friends a user needs to be included
+     * @return the IDs of those users, in no particular order
+     */
+    public int[] usersWithDegreeAtLeast(int minDegree) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            int[] found = new int[graph.size()];
+            int n = 0;
+            for (Map.Entry<Integer, Adjacency> entry : graph.entrySet()) {
+                if (entry.getValue().confirmed.size() >= minDegree) {
+                    found[n++] = entry.getKey();
+                }
+            }
+            return Arrays.copyOf(found, n);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the IDs of the users a user has sent a friend request to.
+     *
+     * @param userId the ID of the user
+     * @return the IDs of the users the request went to, in no particular order
+     */
+    public int[] pendingOut(int userId) {
+        return read(userId, FriendshipStatus.PENDING, true);
+    }
+
+    /**
+     * Gets the IDs of the users that have sent a user a friend request.
+     *
+     * @param userId the ID of the user
+     * @return the IDs of the users the requests came from, in no particular order
+     */
+    public int[] pendingIn(int userId) {
+        return read(userId, FriendshipStatus.PENDING, false);
+    }
+
+    /**
+     * Finds every friend of a user's friends in one pass over their adjacency sets.
+     * <p>
+     * The neighbours of each friend are appended to a single int buffer, skipping the user and their direct
+     * friends, then the buffer is sorted so each candidate's occurrences are adjacent: the length of a run is the
+     * number of mutual friends. Nothing is boxed and no user or friendship is loaded.
+     * </p>
+     *
+     * @param userId the ID of the user
+     * @return the friends of friends who are not already friends with the user, sorted by ID
+     */
+    public FriendsOfFriends friendsOfFriends(int userId) {
+        ensureLoaded();
+        int[] buffer;
+        int n = 0;
+        lock.readLock().lock();
+        try {
+            Adjacency self = graph.get(userId);
+            if (self == null || self.confirmed.isEmpty()) {
+                return FriendsOfFriends.EMPTY;
+            }
+            int[] friends = self.confirmed.toArray();
+            int total = 0;
+            for (int friend : friends) {
+                Adjacency adjacency = graph.get(friend);
+                if (adjacency != null) {
+                    total += adjacency.confirmed.size();
+                }
+            }
+            buffer = new int[total];
+            for (int friend : friends) {
+                Adjacency adjacency = graph.get(friend);
+                if (adjacency == null) {
+                    continue;
+                }
+                for (int candidate : adjacency.confirmed.toArray()) {
+                    if (candidate != userId && !self.confirmed.contains(candidate)) {
+                        buffer[n++] = candidate;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (n == 0) {
+            return FriendsOfFriends.EMPTY;
+        }
+        Arrays.sort(buffer, 0, n);
+        // collapse runs of the same ID in place: IDs to the front of buffer, counts alongside
+        int[] counts = new int[n];
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            if (size > 0 && buffer[size - 1] == buffer[i]) {
+                counts[size - 1]++;
+            } else {
+                buffer[size] = buffer[i];
+                counts[size] = 1;
+                size++;
+            }
+        }
+        return new FriendsOfFriends(buffer, counts, size);
+    }
+
+    /**
+     * Gets the status of the friendship between two users, whichever of them sent the request.
+     *
+     * @param a the ID of one user
+     * @param b the ID of the other user
+     * @return {@link FriendshipStatus#CONFIRMED}, {@link FriendshipStatus#PENDING} or
+     * {@link FriendshipStatus#NOTADDED}
+     */
+    public FriendshipStatus statusBetween(int a, int b) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return statusUnlocked(a, b);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the status of the friendship between one user and each of several others, taking the lock only once.
+     *
+     * @param userId    the ID of the user
+     * @param targetIds the IDs of the other users
+     * @return the status with each target, at the same index as in {@code targetIds}
+     */
+    public FriendshipStatus[] statusesBetween(int userId, int[] targetIds) {
+        ensureLoaded();
+        FriendshipStatus[] statuses = new FriendshipStatus[targetIds.length];
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < targetIds.length; i++) {
+                statuses[i] = statusUnlocked(userId, targetIds[i]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return statuses;
+    }
+
+    /**
+     * Checks if one user has sent another a friend request that is still pending.
+     *
+     * @param from the ID of the user who would have sent the request
+     * @param to   the ID of the user who would have received it
+     * @return {@code true} if the request is pending, {@code false} otherwise
+     */
+    public boolean isPending(int from, int to) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return isPendingUnlocked(from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records that one user sent another a friend request.
+     *
+     * @param from the ID of the user who sent the request
+     * @param to   the ID of the user who received it
+     */
+    public void setPending(int from, int to) {
+        update(from, to, FriendshipStatus.PENDING);
+    }
+
+    /**
+     * Records that two users are now friends.
+     *
+     * @param a the ID of one user
+     * @param b the ID of the other user
+     */
+    public void setConfirmed(int a, int b) {
+        update(a, b, FriendshipStatus.CONFIRMED);
+    }
+
+    /**
+     * Records that two users no longer have any friendship, pending or confirmed.
+     *
+     * @param a the ID of one user
+     * @param b the ID of the other user
+     */
+    public void remove(int a, int b) {
+        update(a, b, FriendshipStatus.NOTADDED);
+    }
+
+    /**
+     * Reads one of a user's adjacency sets.
+     *
+     * @param userId   the ID of the user
+     * @param status   {@link FriendshipStatus#CONFIRMED} or {@link FriendshipStatus#PENDING}
+     * @param outgoing for pending requests, {@code true} for sent and {@code false} for received
+     * @return a copy of the set's IDs
+     */
+    private int[] read(int userId, FriendshipStatus status, boolean outgoing) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            Adjacency adjacency = graph.get(userId);
+            if (adjacency == null) {
+                return new int[0];
+            }
+            if (status == FriendshipStatus.CONFIRMED) {
+                return adjacency.confirmed.toArray();
+            }
+            return outgoing ? adjacency.pendingOut.toArray() : adjacency.pendingIn.toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the edge between two users, and arranges for the old edge to come back if the transaction rolls back.
+     *
+     * @param from   the ID of the user who sent the request (only meaningful for pending edges)
+     * @param to     the ID of the other user
+     * @param status the new status: CONFIRMED, PENDING or NOTADDED to remove the edge
+     */
+    private void update(int from, int to, FriendshipStatus status) {
+        ensureLoaded();
+        final FriendshipStatus previous;
+        final boolean previousForward;
+        lock.writeLock().lock();
+        try {
+            previous = statusUnlocked(from, to);
+            previousForward = isPendingUnlocked(from, to);
+            apply(from, to, status);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.trace("update: friendship {} -> {} changed from {} to {}", from, to, previous, status);
+        TransactionHooks.onRollback(() -> {
+            lock.writeLock().lock();
+            try {
+                if (previous == FriendshipStatus.PENDING && !previousForward) {
+                    apply(to, from, previous);
+                } else {
+                    apply(from, to, previous);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Sets the edge between two users. The caller must hold the write lock.
+     *
+     * @param from   the ID of the user who sent the request
+     * @param to     the ID of the other user
+     * @param status the new status: CONFIRMED, PENDING or NOTADDED to remove the edge
+     */
+    private void apply(int from, int to, FriendshipStatus status) {
+        Adjacency a = graph.computeIfAbsent(from, id -> new Adjacency());
+        Adjacency b = graph.computeIfAbsent(to, id -> new Adjacency());
+        a.confirmed.remove(to);
+        a.pendingOut.remove(to);
+        a.pendingIn.remove(to);
+        b.confirmed.remove(from);
+        b.pendingOut.remove(from);
+        b.pendingIn.remove(from);
+        if (status == FriendshipStatus.CONFIRMED) {
+            a.confirmed.add(to);
+            b.confirmed.add(from);
+        } else if (status == FriendshipStatus.PENDING) {
+            a.pendingOut.add(to);
+            b.pendingIn.add(from);
+        }
+        // don't keep entries around for users who no longer have any friendships
+        if (a.isEmpty()) {
+            graph.remove(from);
+        }
+        if (b.isEmpty()) {
+            graph.remove(to);
+        }
+    }
+
+    /**
+     * {@link #statusBetween(int, int)} for callers that already hold a lock.
+     */
+    private FriendshipStatus statusUnlocked(int a, int b) {
+        Adjacency adjacency = graph.get(a);
+        if (adjacency == null) {
+            return FriendshipStatus.NOTADDED;
+        }
+        if (adjacency.confirmed.contains(b)) {
+            return FriendshipStatus.CONFIRMED;
+        }
+        if (adjacency.pendingOut.contains(b) || adjacency.pendingIn.contains(b)) {
+            return FriendshipStatus.PENDING;
+        }
+        return FriendshipStatus.NOTADDED;
+    }
+
+    /**
+     * {@link #isPending(int, int)} for callers that already hold a lock.
+     */
+    private boolean isPendingUnlocked(int from, int to) {
+        Adjacency adjacency = graph.get(from);
+        return adjacency != null && adjacency.pendingOut.contains(to);
+    }
+
+    /**
+     * Loads every friendship from the database the first time the index is used.
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            List<Object[]> edges = friendRepository.findAllEdges();
+            for (Object[] edge : edges) {
+                apply((Integer) edge[0], (Integer) edge[1], (FriendshipStatus) edge[2]);
+            }
+            loaded = true;
+            log.info("ensureLoaded: loaded {} friendships for {} users", edges.size(), graph.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
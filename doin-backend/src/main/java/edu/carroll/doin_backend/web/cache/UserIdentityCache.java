@@ -0,0 +1,302 @@
+package edu.carroll.doin_backend.web.cache;
+
+import edu.carroll.doin_backend.web.dto.ImageRefDTO;
+import edu.carroll.doin_backend.web.model.User;
+import edu.carroll.doin_backend.web.repository.LoginRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, concurrent cache of who each user is: their ID, username and profile picture reference.
+ * <p>
+ * Lookups by lowercase username or by ID are answered from memory once warm, so the frequent
+ * {@link LoginRepository#findByUsernameIgnoreCase(String)} query only runs on a miss. Entries are loaded from the
+ * database on demand; loads inside a transaction are only cached once that transaction commits, so rows that get
+ * rolled back are never remembered. Callers that save a {@link User} must {@link #invalidate(User)} it.
+ * </p>
+ */
+@Component
+public class UserIdentityCache {
+
+    /**
+     * What the cache knows about a user.
+     */
+    public static final class Identity {
+        private final Integer id;
+        private final String username;
+        private final ImageRefDTO profilePicture;
+
+        /**
+         * Constructs a new {@link Identity}.
+         *
+         * @param id             the ID of the user
+         * @param username       the username of the user, in its original case
+         * @param profilePicture a reference to the user's profile picture, may be {@code null}
+         */
+        public Identity(Integer id, String username, ImageRefDTO profilePicture) {
+            this.id = id;
+            this.username = username;
+            this.profilePicture = profilePicture;
+        }
+
+        /**
+         * @return the ID of the user
+         */
+        public Integer getId() {
+            return id;
+        }
+
+        /**
+         * @return the username of the user, in its original case
+         */
+        public String getUsername() {
+            return username;
+        }
+
+        /**
+         * @return a reference to the user's profile picture, or {@code null} if they have none
+         */
+        public ImageRefDTO getProfilePicture() {
+            return profilePicture;
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(UserIdentityCache.class);
+
+    private final LoginRepository loginRepository;
+    private final int maxEntries;
+    private final Map<String, Integer> idsByUsername = new ConcurrentHashMap<>();
+    private final Map<Integer, Identity> identitiesById = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructs a new {@link UserIdentityCache}.
+     *
+     * @param loginRepository the repository users are loaded from on a miss
+     * @param maxEntries      the most users to remember at once, from the application properties
+     */
+    public UserIdentityCache(LoginRepository loginRepository,
+                             @Value("${doin.cache.users.max-entries:10000}") int maxEntries) {
+        this.loginRepository = loginRepository;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Finds the user with the given username, ignoring case.
+     *
+     * @param username the username to look up
+     * @return the user's {@link Identity}, or {@code null} if no user (or more than one) has that username
+     */
+    public Identity findByUsername(String username) {
+        if (username == null) {
+            return null;
+        }
+        Integer id = idsByUsername.get(normalize(username));
+        if (id != null) {
+            Identity cached = identitiesById.get(id);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+        List<User> users = loginRepository.findByUsernameIgnoreCase(username);
+        if (users.size() != 1) {
+            log.debug("findByUsername: {} users found for username {}", users.size(), username);
+            return null;
+        }
+        return remember(users.get(0));
+    }
+
+    /**
+     * Finds the user with the given ID.
+     *
+     * @param id the ID to look up
+     * @return the user's {@link Identity}, or {@code null} if no user has that ID
+     */
+    public Identity findById(Integer id) {
+        if (id == null) {
+            return null;
+        }
+        Identity cached = identitiesById.get(id);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        Optional<User> user = loginRepository.findById(id);
+        return user.map(this::remember).orElse(null);
+    }
+
+    /**
+     * Finds the users with the given IDs, loading every one that isn't cached with a single query.
+     *
+     * @param ids the IDs to look up
+     * @return the identities that were found, by ID; IDs with no user are left out
+     */
+    public Map<Integer, Identity> findAllById(Collection<Integer> ids) {
+        Map<Integer, Identity> found = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : ids) {
+            if (id == null) {
+                continue;
+            }
+            Identity cached = identitiesById.get(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        hits.add(found.size());
+        misses.add(missing.size());
+        if (!missing.isEmpty()) {
+            for (User user : loginRepository.findAllById(missing)) {
+                found.put(user.getId(), remember(user));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Forgets a user, so their next lookup reads the database again. Call this whenever a {@link User} is saved.
+     * Inside a transaction, the user is forgotten again once it completes, so a concurrent lookup cannot put the
+     * old state back in the meantime.
+     *
+     * @param user the user that changed
+     */
+    public void invalidate(User user) {
+        if (user == null) {
+            return;
+        }
+        evict(user.getId(), user.getUsername());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            final Integer id = user.getId();
+            final String username = user.getUsername();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(id, username);
+                }
+            });
+        }
+    }
+
+    /**
+     * Gets how many lookups were answered from memory.
+     *
+     * @return the number of cache hits since startup
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets how many lookups had to read the database.
+     *
+     * @return the number of cache misses since startup
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets how many users are cached.
+     *
+     * @return the number of cached users
+     */
+    public int size() {
+        return identitiesById.size();
+    }
+
+    /**
+     * Forgets every cached user.
+     */
+    public void clear() {
+        idsByUsername.clear();
+        identitiesById.clear();
+    }
+
+    /**
+     * Caches a user that was just loaded, deferring it until commit when a transaction is active.
+     *
+     * @param user the loaded user
+     * @return the user's {@link Identity}
+     */
+    private Identity remember(User user) {
+        final Identity identity = new Identity(user.getId(), user.getUsername(), ImageRefDTO.of(user.getProfilePicture()));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    store(identity);
+                }
+            });
+        } else {
+            store(identity);
+        }
+        return identity;
+    }
+
+    /**
+     * Puts an identity in both maps, making room first if the cache is full.
+     *
+     * @param identity the identity to cache
+     */
+    private void store(Identity identity) {
+        if (identitiesById.size() >= maxEntries) {
+            // no recency tracking: dropping an arbitrary entry is enough to stay bounded
+            Iterator<Identity> it = identitiesById.values().iterator();
+            if (it.hasNext()) {
+                Identity evicted = it.next();
+                evict(evicted.getId(), evicted.getUsername());
+            }
+        }
+        identitiesById.put(identity.getId(), identity);
+        idsByUsername.put(normalize(identity.getUsername()), identity.getId());
+    }
+
+    /**
+     * Removes a user from both maps.
+     *
+     * @param id       the ID of the user, may be {@code null}
+     * @param username the username of the user, may be {@code null}
+     */
+    private void evict(Integer id, String username) {
+        if (id != null) {
+            Identity removed = identitiesById.remove(id);
+            if (removed != null) {
+                idsByUsername.remove(normalize(removed.getUsername()), id);
+            }
+        }
+        if (username != null) {
+            idsByUsername.remove(normalize(username));
+        }
+    }
+
+    /**
+     * Normalizes a username for case-insensitive lookups.
+     *
+     * @param username the username
+     * @return the lowercase username
+     */
+    private static String normalize(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,393 @@
+package edu.carroll.doin_backend.web.cache;
+
+import edu.carroll.doin_backend.web.repository.LoginRepository;
+import edu.carroll.doin_backend.web.util.IntHashSet;
+import edu.carroll.doin_backend.web.util.TransactionHooks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory index for finding users by any part of their username, ignoring case.
+ * <p>
+ * Every lowercase username is split into its trigrams (each run of three characters), and each trigram keeps an
+ * {@link IntHashSet} of the IDs of users whose username contains it. A search for three or more characters only
+ * checks the users in the smallest posting list of the query's trigrams. Shorter searches first take the usernames
+ * that start with the query from a sorted array, with a binary search; those outrank every other match, so only if
+ * there are too few of them are the users in the query's own posting list checked, since every single character
+ * and pair of characters has one too. Either way, no query reaches the database, and only the best matches asked
+ * for are kept, in a bounded heap, instead of sorting every match.
+ * </p>
+ * <p>
+ * The index is loaded from the {@code users} table once the application is ready (or on first use, if that comes
+ * sooner). The {@code UserService} must call {@link #add(int, String)} for every user it registers; if the
+ * registering transaction rolls back, the user is removed again.
+ * </p>
+ */
+@Component
+public class UsernameSearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(UsernameSearchIndex.class);
+    private static final int GRAM = 3;
+
+    /**
+     * A username that matched a search, and how well.
+     */
+    private static final class Match {
+        private final int userId;
+        private final String username;
+        private final int rank;
+
+        private Match(int userId, String username, String query) {
+            this.userId = userId;
+            this.username = username;
+            this.rank = username.equals(query) ? 0 : username.startsWith(query) ? 1 : 2;
+        }
+    }
+
+    /**
+     * Exact matches first, then prefix matches, then everything else; shorter and alphabetically earlier usernames
+     * come first within each group
+     */
+    private static final Comparator<Match> BEST_FIRST = Comparator
+            .comparingInt((Match m) -> m.rank)
+            .thenComparingInt(m -> m.username.length())
+            .thenComparing(m -> m.username);
+    private static final Comparator<Match> WORST_FIRST = BEST_FIRST.reversed();
+
+    private final LoginRepository loginRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * Every user's lowercase username, by user ID
+     */
+    private final Map<Integer, String> usernames = new HashMap<>();
+    /**
+     * The IDs of the users whose username contains each trigram, keyed by {@link #gram(String, int)}
+     */
+    private final Map<Long, IntHashSet> postings = new HashMap<>();
+    /**
+     * The IDs of the users whose username contains each single character and pair of characters, keyed by
+     * {@link #shortGram(String, int, int)}; searched for queries shorter than a trigram
+     */
+    private final Map<Long, IntHashSet> shortPostings = new HashMap<>();
+    /**
+     * The first {@link #sortedSize} entries hold every lowercase username in order, with the ID of its user at the
+     * same position of {@link #sortedIds}; searched for the usernames starting with a short query
+     */
+    private String[] sortedNames = new String[0];
+    private int[] sortedIds = new int[0];
+    private int sortedSize;
+    private volatile boolean loaded;
+
+    /**
+     * Constructs a new {@link UsernameSearchIndex}.
+     *
+     * @param loginRepository the repository usernames are loaded from
+     */
+    public UsernameSearchIndex(LoginRepository loginRepository) {
+        this.loginRepository = loginRepository;
+    }
+
+    /**
+     * Loads the index once the application has started, so the first search doesn't pay for it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ensureLoaded();
+    }
+
+    /**
+     * Finds the users whose username contains the given text, ignoring case.
+     *
+     * @param query the text to look for
+     * @param limit the most users to return
+     * @return the IDs of the best matches, best first: exact matches, then prefix matches, then shorter usernames
+     */
+    public int[] search(String query, int limit) {
+        if (query == null || query.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+        ensureLoaded();
+        final String normalized = normalize(query);
+        // the worst of the best matches so far is on top, so it is the one a better match replaces
+        PriorityQueue<Match> best = new PriorityQueue<>(WORST_FIRST);
+        int matches = 0;
+        lock.readLock().lock();
+        try {
+            if (normalized.length() < GRAM) {
+                for (int i = lowerBound(normalized); i < sortedSize && sortedNames[i].startsWith(normalized); i++) {
+                    offer(best, new Match(sortedIds[i], sortedNames[i], normalized), limit);
+                    matches++;
+                }
+                // prefix matches outrank the rest, so the others are only needed if there are too few of them
+                IntHashSet posting = shortPostings.get(shortGram(normalized, 0, normalized.length()));
+                if (best.size() < limit && posting != null) {
+                    for (int userId : posting.toArray()) {
+                        String username = usernames.get(userId);
+                        if (username != null && !username.startsWith(normalized)) {
+                            offer(best, new Match(userId, username, normalized), limit);
+                            matches++;
+                        }
+                    }
+                }
+            } else {
+                IntHashSet smallest = null;
+                for (int i = 0; i + GRAM <= normalized.length(); i++) {
+                    IntHashSet posting = postings.get(gram(normalized, i));
+                    if (posting == null) {
+                        // some trigram of the query is in no username at all
+                        return new int[0];
+                    }
+                    if (smallest == null || posting.size() < smallest.size()) {
+                        smallest = posting;
+                    }
+                }
+                for (int userId : smallest.toArray()) {
+                    String username = usernames.get(userId);
+                    if (username != null && username.contains(normalized)) {
+                        offer(best, new Match(userId, username, normalized), limit);
+                        matches++;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // the heap gives up the worst match first, so the array is filled from the back
+        int[] found = new int[best.size()];
+        for (int i = found.length - 1; i >= 0; i--) {
+            found[i] = best.poll().userId;
+        }
+        log.trace("search: {} of {} matches returned for {}", found.length, matches, query);
+        return found;
+    }
+
+    /**
+     * Keeps a match if it is among the best {@code limit} seen so far.
+     *
+     * @param best  the best matches so far, worst on top
+     * @param match the match
+     * @param limit the most matches to keep
+     */
+    private static void offer(PriorityQueue<Match> best, Match match, int limit) {
+        if (best.size() < limit) {
+            best.add(match);
+        } else if (BEST_FIRST.compare(match, best.peek()) < 0) {
+            best.poll();
+            best.add(match);
+        }
+    }
+
+    /**
+     * Adds a newly registered user to the index, removing them again if the current transaction rolls back.
+     *
+     * @param userId   the ID of the user
+     * @param username the user's username
+     */
+    public void add(int userId, String username) {
+        ensureLoaded();
+        lock.writeLock().lock();
+        try {
+            put(userId, normalize(username));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        TransactionHooks.onRollback(() -> {
+            lock.writeLock().lock();
+            try {
+                remove(userId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Indexes a username. The caller must hold the write lock.
+     *
+     * @param userId   the ID of the user
+     * @param username the lowercase username
+     */
+    private void put(int userId, String username) {
+        remove(userId);
+        putGrams(userId, username);
+        int at = lowerBound(username);
+        while (at < sortedSize && sortedNames[at].equals(username) && sortedIds[at] < userId) {
+            at++;
+        }
+        if (sortedSize == sortedNames.length) {
+            int capacity = Math.max(16, sortedSize * 2);
+            sortedNames = Arrays.copyOf(sortedNames, capacity);
+            sortedIds = Arrays.copyOf(sortedIds, capacity);
+        }
+        System.arraycopy(sortedNames, at, sortedNames, at + 1, sortedSize - at);
+        System.arraycopy(sortedIds, at, sortedIds, at + 1, sortedSize - at);
+        sortedNames[at] = username;
+        sortedIds[at] = userId;
+        sortedSize++;
+    }
+
+    /**
+     * Adds a username to the map and the posting lists of its trigrams, but not to the sorted array. The caller must
+     * hold the write lock.
+     *
+     * @param userId   the ID of the user
+     * @param username the lowercase username
+     */
+    private void putGrams(int userId, String username) {
+        usernames.put(userId, username);
+        for (int i = 0; i + GRAM <= username.length(); i++) {
+            postings.computeIfAbsent(gram(username, i), g -> new IntHashSet()).add(userId);
+        }
+        for (int length = 1; length < GRAM; length++) {
+            for (int i = 0; i + length <= username.length(); i++) {
+                shortPostings.computeIfAbsent(shortGram(username, i, length), g -> new IntHashSet()).add(userId);
+            }
+        }
+    }
+
+    /**
+     * Removes a user from the index. The caller must hold the write lock.
+     *
+     * @param userId the ID of the user
+     */
+    private void remove(int userId) {
+        String username = usernames.remove(userId);
+        if (username == null) {
+            return;
+        }
+        for (int i = 0; i + GRAM <= username.length(); i++) {
+            Long key = gram(username, i);
+            IntHashSet posting = postings.get(key);
+            if (posting != null && posting.remove(userId) && posting.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+        for (int length = 1; length < GRAM; length++) {
+            for (int i = 0; i + length <= username.length(); i++) {
+                Long key = shortGram(username, i, length);
+                IntHashSet posting = shortPostings.get(key);
+                if (posting != null && posting.remove(userId) && posting.isEmpty()) {
+                    shortPostings.remove(key);
+                }
+            }
+        }
+        for (int i = lowerBound(username); i < sortedSize && sortedNames[i].equals(username); i++) {
+            if (sortedIds[i] == userId) {
+                System.arraycopy(sortedNames, i + 1, sortedNames, i, sortedSize - i - 1);
+                System.arraycopy(sortedIds, i + 1, sortedIds, i, sortedSize - i - 1);
+                sortedNames[--sortedSize] = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Finds where a username is, or would be, in the sorted array. The caller must hold the lock.
+     *
+     * @param username the lowercase username, or a prefix of one
+     * @return the position of the first username that is not less than it
+     */
+    private int lowerBound(String username) {
+        int low = 0;
+        int high = sortedSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedNames[mid].compareTo(username) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Rebuilds the sorted array from every indexed username in one sort. The caller must hold the write lock.
+     */
+    private void sortUsernames() {
+        Integer[] ids = usernames.keySet().toArray(new Integer[0]);
+        Arrays.sort(ids, Comparator.comparing((Integer id) -> usernames.get(id)).thenComparing(id -> id));
+        sortedNames = new String[Math.max(16, ids.length)];
+        sortedIds = new int[sortedNames.length];
+        for (int i = 0; i < ids.length; i++) {
+            sortedNames[i] = usernames.get(ids[i]);
+            sortedIds[i] = ids[i];
+        }
+        sortedSize = ids.length;
+    }
+
+    /**
+     * Packs the three characters starting at an offset into a single key, so no substring has to be created.
+     *
+     * @param text   the text
+     * @param offset where the trigram starts
+     * @return the trigram's key
+     */
+    private static long gram(String text, int offset) {
+        return ((long) text.charAt(offset) << 32) | ((long) text.charAt(offset + 1) << 16) | text.charAt(offset + 2);
+    }
+
+    /**
+     * Packs a single character or a pair of characters into a key; the length is part of it, so a single character
+     * never shares a key with a pair.
+     *
+     * @param text   the text
+     * @param offset where the characters start
+     * @param length how many characters, 1 or 2
+     * @return the key
+     */
+    private static long shortGram(String text, int offset, int length) {
+        long chars = length == 1 ? text.charAt(offset) : ((long) text.charAt(offset) << 16) | text.charAt(offset + 1);
+        return ((long) length << 32) | chars;
+    }
+
+    /**
+     * Normalizes a username for case-insensitive matching.
+     *
+     * @param username the username
+     * @return the lowercase username
+     */
+    private static String normalize(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Loads every username from the database the first time the index is used.
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            List<Object[]> rows = loginRepository.findAllUsernames();
+            for (Object[] row : rows) {
+                if (row[1] != null) {
+                    putGrams((Integer) row[0], normalize((String) row[1]));
+                }
+            }
+            // sorted once, instead of shifting the array for every username
+            sortUsernames();
+            loaded = true;
+            log.info("ensureLoaded: indexed {} usernames with {} trigrams and {} shorter grams", usernames.size(),
+                    postings.size(), shortPostings.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
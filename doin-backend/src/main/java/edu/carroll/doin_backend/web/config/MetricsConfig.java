@@ -0,0 +1,110 @@
+package edu.carroll.doin_backend.web.config;
+
+import edu.carroll.doin_backend.web.cache.UserIdentityCache;
+import edu.carroll.doin_backend.web.metrics.QueryCounter;
+import edu.carroll.doin_backend.web.security.JwtTokenService;
+import edu.carroll.doin_backend.web.security.LoginThrottle;
+import edu.carroll.doin_backend.web.security.VerifiedTokenCache;
+import edu.carroll.doin_backend.web.service.ImageGarbageCollector;
+import edu.carroll.doin_backend.web.service.ImageService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration class for the application's own metrics.
+ * <p>
+ * Spring Boot already records request latency ({@code http.server.requests}), repository method timings
+ * ({@code spring.data.repository.invocations}) and connection and thread pool usage. This class adds what it can't see:
+ * the SQL statements each request runs, how well the in-memory caches are doing, and how many bytes image deduplication
+ * and garbage collection save. Cache lookups are published as {@code cache.gets}, tagged with the cache's name and
+ * {@code result=hit} or {@code result=miss}, so a hit rate is {@code hit / (hit + miss)}.
+ * </p>
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Lets Hibernate count every statement it prepares, for the per-request counts.
+     *
+     * @return a customizer that installs a {@link QueryCounter}
+     */
+    @Bean
+    public HibernatePropertiesCustomizer queryCounterCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCounter());
+    }
+
+    /**
+     * Publishes the size and hit counts of the user identity cache and the verified token cache, and the number of
+     * usernames and addresses the login throttle is counting.
+     *
+     * @param identityCache the cache of user identities
+     * @param tokenService  the token service that owns the verified token cache
+     * @param loginThrottle the login throttle
+     * @return a binder that registers the meters
+     */
+    @Bean
+    public MeterBinder cacheMetrics(UserIdentityCache identityCache, JwtTokenService tokenService,
+                                    LoginThrottle loginThrottle) {
+        return registry -> {
+            FunctionCounter.builder("cache.gets", identityCache, UserIdentityCache::hits)
+                    .tag("cache", "users").tag("result", "hit")
+                    .description("Lookups answered from the cache")
+                    .register(registry);
+            FunctionCounter.builder("cache.gets", identityCache, UserIdentityCache::misses)
+                    .tag("cache", "users").tag("result", "miss")
+                    .description("Lookups that had to load the entry")
+                    .register(registry);
+            Gauge.builder("cache.size", identityCache, UserIdentityCache::size)
+                    .tag("cache", "users")
+                    .description("Entries in the cache")
+                    .register(registry);
+
+            VerifiedTokenCache tokens = tokenService.getVerifiedTokenCache();
+            FunctionCounter.builder("cache.gets", tokens, VerifiedTokenCache::hits)
+                    .tag("cache", "tokens").tag("result", "hit")
+                    .description("Lookups answered from the cache")
+                    .register(registry);
+            FunctionCounter.builder("cache.gets", tokens, VerifiedTokenCache::misses)
+                    .tag("cache", "tokens").tag("result", "miss")
+                    .description("Lookups that had to load the entry")
+                    .register(registry);
+            Gauge.builder("cache.size", tokens, VerifiedTokenCache::size)
+                    .tag("cache", "tokens")
+                    .description("Entries in the cache")
+                    .register(registry);
+
+            Gauge.builder("doin.login.throttle.counters", loginThrottle, LoginThrottle::size)
+                    .description("Usernames and client addresses whose login attempts are being counted")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Publishes the bytes image deduplication has saved and the bytes garbage collection has reclaimed.
+     *
+     * @param imageService     the image service, which sums the bytes saved by deduplication
+     * @param garbageCollector the image garbage collector, which counts the bytes it reclaimed
+     * @return a binder that registers the meters
+     */
+    @Bean
+    public MeterBinder imageMetrics(ImageService imageService, ImageGarbageCollector garbageCollector) {
+        return registry -> {
+            // a single SUM over the blob table, run on each scrape
+            Gauge.builder("doin.images.dedup.saved", imageService, ImageService::getDedupSavedBytes)
+                    .baseUnit(BaseUnits.BYTES)
+                    .description("Bytes not stored again because identical image bytes were already stored")
+                    .register(registry);
+            FunctionCounter.builder("doin.images.gc.reclaimed", garbageCollector,
+                            ImageGarbageCollector::getReclaimedBytes)
+                    .baseUnit(BaseUnits.BYTES)
+                    .description("Bytes reclaimed by image garbage collection since startup")
+                    .register(registry);
+        };
+    }
+}
@@ -1,6 +1,7 @@
 package edu.carroll.doin_backend.web.config;
 
 import edu.carroll.doin_backend.web.security.JwtTokenFilter;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -53,6 +54,7 @@ public class SecurityConfig {
                         .requestMatchers("/api/register").permitAll() // Allow unauthenticated access to /api/register
                         .requestMatchers("/api/forgot-password").permitAll() // Allow unauthenticated access to /api/forgot-password
                         .requestMatchers("/api/change-password").permitAll() // Allow unauthenticated access to /api/forgot-password
+                        .requestMatchers(EndpointRequest.to("health", "prometheus")).permitAll() // Allow health checks and metric scrapes, served on the management port
                         .anyRequest().authenticated() // Require authentication for all other requests
                 )
                 .cors(withDefaults()) // Enable CORS support
@@ -0,0 +1,36 @@
+package edu.carroll.doin_backend.web.controller;
+
+import edu.carroll.doin_backend.web.exception.ServiceBusyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Turns exceptions that mean "try again later" into the matching HTTP responses for every controller.
+ */
+@RestControllerAdvice
+public class ApiExceptionHandler {
+    private static final Logger log = LoggerFactory.getLogger(ApiExceptionHandler.class);
+    /**
+     * How many seconds a client is asked to wait before retrying a request the server was too busy for
+     */
+    private static final String BUSY_RETRY_AFTER_SECONDS = "1";
+
+    /**
+     * Answers a request that was turned away because a bounded pool was full.
+     *
+     * @param e the exception that was thrown
+     * @return a {@code 503 Service Unavailable} response with a {@code Retry-After} header
+     */
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<String> handleServiceBusy(ServiceBusyException e) {
+        log.warn("handleServiceBusy: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, BUSY_RETRY_AFTER_SECONDS)
+                .body("Server busy, try again");
+    }
+}
@@ -1,5 +1,6 @@
 package edu.carroll.doin_backend.web.controller;
 
+import edu.carroll.doin_backend.web.dto.CursorSliceDTO;
 import edu.carroll.doin_backend.web.dto.EventDTO;
 import edu.carroll.doin_backend.web.security.TokenService;
 import edu.carroll.doin_backend.web.service.EventService;
@@ -22,11 +23,19 @@ import java.util.List;
  * This controller provides endpoints to perform CRUD operations on events.
  * It utilizes the {@link EventService} to interact with event data and perform necessary operations.
  * </p>
+ * <p>
+ * The {@code feed} endpoints page through events by time with a cursor, so creating an event without a time is
+ * rejected; such an event could never be reached through them.
+ * </p>
  */
 @RestController
 @RequestMapping("/api/events")
 public class EventController {
     private static final Logger logger = LoggerFactory.getLogger(EventController.class);
+    /**
+     * The most events a single cursor slice may hold
+     */
+    static final int MAX_SLICE_SIZE = 100;
     private final TokenService tokenService;
     private final EventService eventService;
 
@@ -37,6 +46,10 @@ public class EventController {
 
     /**
      * Retrieves all events with pagination.
+     * <p>
+     * Every page queries the events of all the user's friends. The home feed uses {@link #getAllFeed} instead,
+     * which is served from the materialized timelines.
+     * </p>
      *
      * @param page       the page number to retrieve
      * @param size       the size of the page
@@ -102,6 +115,82 @@ public class EventController {
         return userEvents;
     }
 
+    /**
+     * Retrieves a slice of all events visible to the authenticated user, newest first, using a cursor instead of
+     * a page number.
+     *
+     * @param cursor     the cursor returned with the previous slice, or nothing for the first slice
+     * @param size       the most events to return, at most {@value #MAX_SLICE_SIZE}
+     * @param authHeader the authorization header containing the user's token
+     * @return a {@link ResponseEntity} with the slice of events, or bad request if the cursor or size is invalid
+     */
+    @GetMapping("/feed")
+    public ResponseEntity<CursorSliceDTO<EventDTO>> getAllFeed(@RequestParam(required = false) String cursor,
+                                                               @RequestParam(defaultValue = "10") int size,
+                                                               @RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader) {
+        Integer userId = tokenService.getUserId(authHeader);
+        logger.info("Fetching event feed for userId {} - Size: {}", userId, size);
+        if (size < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(eventService.getAll(userId, cursor, Math.min(size, MAX_SLICE_SIZE)));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid event feed cursor {} from userId {}", cursor, userId);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Retrieves a slice of public events, newest first, using a cursor instead of a page number.
+     *
+     * @param cursor the cursor returned with the previous slice, or nothing for the first slice
+     * @param size   the most events to return, at most {@value #MAX_SLICE_SIZE}
+     * @return a {@link ResponseEntity} with the slice of events, or bad request if the cursor or size is invalid
+     */
+    @GetMapping("/public/feed")
+    public ResponseEntity<CursorSliceDTO<EventDTO>> getPublicFeed(@RequestParam(required = false) String cursor,
+                                                                  @RequestParam(defaultValue = "10") int size) {
+        logger.info("Fetching public event feed - Size: {}", size);
+        if (size < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(eventService.getPublicEvents(cursor, Math.min(size, MAX_SLICE_SIZE)));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid public event feed cursor {}", cursor);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Retrieves a slice of the events created by a specific user, newest first, using a cursor instead of a page
+     * number.
+     *
+     * @param id         the ID of the user whose events to retrieve
+     * @param cursor     the cursor returned with the previous slice, or nothing for the first slice
+     * @param size       the most events to return, at most {@value #MAX_SLICE_SIZE}
+     * @param authHeader the authorization header containing the user's token
+     * @return a {@link ResponseEntity} with the slice of events, or bad request if the cursor or size is invalid
+     */
+    @GetMapping("/users/{id}/feed")
+    public ResponseEntity<CursorSliceDTO<EventDTO>> getUserFeed(@PathVariable Integer id,
+                                                                @RequestParam(required = false) String cursor,
+                                                                @RequestParam(defaultValue = "10") int size,
+                                                                @RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader) {
+        Integer userId = tokenService.getUserId(authHeader);
+        logger.info("Fetching event feed of user ID {} for userId {} - Size: {}", id, userId, size);
+        if (size < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(eventService.getUserEvents(id, userId, cursor, Math.min(size, MAX_SLICE_SIZE)));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid event feed cursor {} from userId {}", cursor, userId);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     /**
      * Retrieves upcoming events for the authenticated user.
      *
@@ -147,7 +236,7 @@ public class EventController {
      *
      * @param event      the event data to create
      * @param authHeader the authorization header containing the user's token
-     * @return the created {@link EventDTO}
+     * @return the created {@link EventDTO}, or {@code null} if the user is not the creator or the event has no time
      */
     @PostMapping()
     public EventDTO create(@RequestBody EventDTO event, @RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader) {
@@ -160,6 +249,10 @@ public class EventController {
         }
         // Save and return the created event
         EventDTO createdEvent = eventService.add(event);
+        if (createdEvent == null) {
+            logger.warn("Event creation by userId {} was rejected", userId);
+            return null;
+        }
         logger.debug("Created event with ID {}", createdEvent.getId());
         return createdEvent;
     }
@@ -4,9 +4,12 @@ import edu.carroll.doin_backend.web.dto.FriendshipDTO;
 import edu.carroll.doin_backend.web.dto.ValidateResult;
 import edu.carroll.doin_backend.web.security.TokenService;
 import edu.carroll.doin_backend.web.service.FriendService;
+import edu.carroll.doin_backend.web.service.FriendSuggestionService;
 import edu.carroll.doin_backend.web.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -43,16 +46,25 @@ public class FriendController {
      */
     private final UserService userService;
 
+    /**
+     * A {@link FriendSuggestionService} for ranking people the user may know
+     */
+    private final FriendSuggestionService suggestionService;
+
     /**
      * Constructor for a new FriendController
      *
-     * @param friendService The service responsible for friend operations.
-     * @param tokenService  The service responsible for token validation.
+     * @param friendService     The service responsible for friend operations.
+     * @param tokenService      The service responsible for token validation.
+     * @param userService       The service responsible for finding users.
+     * @param suggestionService The service responsible for ranking friend suggestions.
      */
-    public FriendController(FriendService friendService, TokenService tokenService, UserService userService) {
+    public FriendController(FriendService friendService, TokenService tokenService, UserService userService,
+                            FriendSuggestionService suggestionService) {
         this.friendService = friendService;
         this.tokenService = tokenService;
         this.userService = userService;
+        this.suggestionService = suggestionService;
     }
 
     /**
@@ -83,6 +95,35 @@ public class FriendController {
         return ResponseEntity.ok(friends);
     }
 
+    /**
+     * Retrieves a page of ranked friend suggestions for the authenticated user, best first.
+     *
+     * @param page       the page number to retrieve
+     * @param size       the size of the page
+     * @param authHeader The authorization header containing the JWT token.
+     * @return A {@link ResponseEntity} containing a {@link Page} of {@link FriendshipDTO} ranked by how well the
+     * user is connected to them, or an empty page if authentication fails.
+     */
+    @GetMapping("/suggestions")
+    public ResponseEntity<Page<FriendshipDTO>> getSuggestions(@RequestParam(defaultValue = "0") int page,
+                                                              @RequestParam(defaultValue = "10") int size,
+                                                              @RequestHeader("Authorization") String authHeader) {
+        log.trace("getSuggestions: validating authHeader, extracting jwtToken and username");
+        ValidateResult tokenResult = validateTokenAndGetUsername(authHeader);
+        if (!tokenResult.isValid()) {
+            log.warn("getSuggestions: invalid jwtToken or authHeader");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Page.empty());
+        }
+        final String username = tokenResult.getMessage();
+        if (page < 0 || size < 1) {
+            log.warn("getSuggestions: invalid page {} or size {}", page, size);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Page.empty());
+        }
+        Page<FriendshipDTO> suggestions = suggestionService.getSuggestions(username, PageRequest.of(page, size));
+        log.trace("getSuggestions: username {} returned {} suggestions", username, suggestions.getNumberOfElements());
+        return ResponseEntity.ok(suggestions);
+    }
+
     /**
      * Retrieves a user by their specific username.
      *
@@ -0,0 +1,245 @@
+package edu.carroll.doin_backend.web.controller;
+
+import edu.carroll.doin_backend.web.enums.ImageSize;
+import edu.carroll.doin_backend.web.model.Image;
+import edu.carroll.doin_backend.web.security.TokenService;
+import edu.carroll.doin_backend.web.service.EventService;
+import edu.carroll.doin_backend.web.service.ImageService;
+import edu.carroll.doin_backend.web.storage.ImageHandle;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * REST controller for downloading images.
+ * <p>
+ * Images are served as raw bytes with a strong ETag built from their content hash, so browsers can cache them and
+ * revalidate with {@code If-None-Match}. Single byte ranges are supported through the {@code Range} header. When the
+ * servlet container supports it, the bytes are handed to the container's sendfile support; otherwise they are
+ * copied with {@link FileChannel#transferTo(long, long, WritableByteChannel)}.
+ * </p>
+ * <p>
+ * A {@code ?size=} parameter (one of {@link ImageSize}) selects a scaled-down rendition instead of the original.
+ * </p>
+ */
+@RestController
+@RequestMapping("/api/images")
+public class ImageController {
+    private static final Logger logger = LoggerFactory.getLogger(ImageController.class);
+    /**
+     * An image's bytes never change for a given ID, so clients may cache it for as long as they like.
+     */
+    private static final String CACHE_CONTROL = CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable().getHeaderValue();
+    /**
+     * Used when the original stands in for a rendition that is still being generated, so the client asks again later.
+     */
+    private static final String CACHE_CONTROL_PENDING = CacheControl.noCache().cachePrivate().getHeaderValue();
+    /**
+     * Request attributes used by Tomcat's sendfile support.
+     */
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    /**
+     * Below this many bytes, sendfile costs more than it saves (same threshold as Tomcat's DefaultServlet).
+     */
+    private static final long SENDFILE_MIN_BYTES = 48 * 1024;
+
+    private final ImageService imageService;
+    private final EventService eventService;
+    private final TokenService tokenService;
+
+    public ImageController(ImageService imageService, EventService eventService, TokenService tokenService) {
+        this.imageService = imageService;
+        this.eventService = eventService;
+        this.tokenService = tokenService;
+    }
+
+    /**
+     * Streams the bytes of an image.
+     *
+     * @param id         the ID of the image to download
+     * @param size       the rendition to download, or {@code null} for the original
+     * @param authHeader the authorization header containing the user's token
+     * @param request    the HTTP request, read for the {@code If-None-Match} and {@code Range} headers
+     * @param response   the HTTP response the image is written to
+     * @throws IOException if the image cannot be read or written
+     */
+    @GetMapping("/{id}")
+    public void getImage(@PathVariable Long id,
+                         @RequestParam(required = false) String size,
+                         @RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        Integer userId = tokenService.getUserId(authHeader);
+        logger.info("Fetching image with ID {} (size {}) for user ID {}", id, size, userId);
+        ImageSize requestedSize = ImageSize.fromParam(size);
+        if (size != null && requestedSize == null) {
+            logger.warn("Unknown image size {} requested for image with ID {}", size, id);
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+        // Missing and forbidden images look the same, so image IDs can't be probed
+        ImageHandle handle = imageService.get(id, requestedSize);
+        if (handle == null || !eventService.canViewImage(id, userId)) {
+            logger.warn("Image with ID {} not found for user ID {}", id, userId);
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        Image image = handle.getImage();
+        String etag = handle.getSize() == null
+                ? "\"" + image.getHash() + "\""
+                : "\"" + image.getHash() + "." + handle.getSize().name().toLowerCase() + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, isPendingRendition(requestedSize, handle) ? CACHE_CONTROL_PENDING : CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        // The client already has these bytes
+        if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            logger.debug("Image with ID {} not modified", id);
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        Resource content = handle.getContent();
+        long length = content.contentLength();
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                // Multiple ranges are allowed to be answered with the whole image
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                    if (start >= length || start > end) {
+                        throw new IllegalArgumentException("Range starts past the end of the image");
+                    }
+                    response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                }
+            } catch (IllegalArgumentException e) {
+                logger.warn("Unsatisfiable range {} for image with ID {}", rangeHeader, id);
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+        }
+
+        response.setContentType(handle.getContentType() != null ? handle.getContentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setContentLengthLong(end - start + 1);
+        writeBody(content, start, end - start + 1, request, response);
+        logger.debug("Sent {} bytes of image with ID {}", end - start + 1, id);
+    }
+
+    /**
+     * Writes a slice of the image to the response without copying it through a heap buffer when possible.
+     *
+     * @param content  the image's bytes
+     * @param start    the first byte to write
+     * @param count    the number of bytes to write
+     * @param request  the HTTP request, used to check for sendfile support
+     * @param response the HTTP response to write to
+     * @throws IOException if the image cannot be read or written
+     */
+    private void writeBody(Resource content, long start, long count,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (count <= 0) {
+            return;
+        }
+        if (!content.isFile()) {
+            try (InputStream in = content.getInputStream()) {
+                StreamUtils.copyRange(in, response.getOutputStream(), start, start + count - 1);
+            }
+            return;
+        }
+        File file = content.getFile();
+        // Let the container send the file straight from the page cache to the socket
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED)) && count >= SENDFILE_MIN_BYTES) {
+            request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    /**
+     * Checks if the original image is standing in for a rendition that should exist but has not been generated yet.
+     * Originals no larger than the requested rendition are the final answer and may be cached like any other.
+     *
+     * @param requested the rendition the client asked for, or {@code null} for the original
+     * @param handle    the handle that was found
+     * @return {@code true} if the client should not cache this response for long, {@code false} otherwise
+     */
+    private static boolean isPendingRendition(ImageSize requested, ImageHandle handle) {
+        if (requested == null || handle.getSize() != null) {
+            return false;
+        }
+        Image image = handle.getImage();
+        if (image.getWidth() == null || image.getHeight() == null) {
+            // dimensions are unknown when ImageIO cannot read the image, and then no rendition will ever exist
+            return false;
+        }
+        return Math.max(image.getWidth(), image.getHeight()) > requested.getMaxEdge();
+    }
+
+    /**
+     * Checks an {@code If-None-Match} header against the image's ETag.
+     *
+     * @param ifNoneMatch the value of the {@code If-None-Match} header, may be {@code null}
+     * @param etag        the quoted ETag of the image
+     * @return {@code true} if the header matches the ETag, {@code false} otherwise
+     */
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            // weak comparison is what If-None-Match calls for
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals("*") || trimmed.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,10 +1,14 @@
 package edu.carroll.doin_backend.web.controller;
 
 import edu.carroll.doin_backend.web.dto.*;
+import edu.carroll.doin_backend.web.exception.ServiceBusyException;
+import edu.carroll.doin_backend.web.security.LoginThrottle;
 import edu.carroll.doin_backend.web.security.TokenService;
 import edu.carroll.doin_backend.web.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -27,16 +31,22 @@ public class LoginController {
      * A {@link UserService} for functions relating to the User repository
      */
     private final UserService userService;
+    /**
+     * A {@link LoginThrottle} that turns away login floods before any password is verified
+     */
+    private final LoginThrottle loginThrottle;
 
     /**
      * Constructor for a new LoginController
      *
-     * @param tokenService the service responsible for token validations.
-     * @param userService  the service responsible for user and login operations
+     * @param tokenService  the service responsible for token validations.
+     * @param userService   the service responsible for user and login operations
+     * @param loginThrottle the throttle limiting login attempts per username and client address
      */
-    public LoginController(TokenService tokenService, UserService userService) {
+    public LoginController(TokenService tokenService, UserService userService, LoginThrottle loginThrottle) {
         this.tokenService = tokenService;
         this.userService = userService;
+        this.loginThrottle = loginThrottle;
     }
 
     /**
@@ -44,18 +54,30 @@ public class LoginController {
      * upon successful authentication. Logs the process at various steps, including
      * attempts, successes, and errors.
      *
-     * @param login A {@link LoginDTO} object containing the user's login information
-     *              (username and password).
+     * @param login   A {@link LoginDTO} object containing the user's login information
+     *                (username and password).
+     * @param request the HTTP request, used for the client's address
      * @return A {@link ResponseEntity} containing a {@link TokenDTO} with the generated
-     * JWT token if login is successful, or a 401 Unauthorized status if
+     * JWT token if login is successful, a 429 Too Many Requests status if the username or
+     * client made too many attempts recently, or a 401 Unauthorized status if
      * login fails or an error occurs.
      */
     @PostMapping("/login")
-    public ResponseEntity<TokenDTO> loginAttempt(@RequestBody LoginDTO login) {
+    public ResponseEntity<TokenDTO> loginAttempt(@RequestBody LoginDTO login, HttpServletRequest request) {
         log.info("LoginController: user {} attempting login", login.getUsername());
+        // checked before the password is, so a flood of attempts never reaches BCrypt
+        if (!loginThrottle.tryAcquire(login.getUsername(), request.getRemoteAddr())) {
+            log.warn("LoginController: too many login attempts for user {} from {}", login.getUsername(), request.getRemoteAddr());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(loginThrottle.retryAfterSeconds()))
+                    .body(null);
+        }
         boolean isValidUser = false;
         try {
             isValidUser = userService.validateCredentials(login.getUsername(), login.getPassword());
+        } catch (ServiceBusyException e) {
+            // not a failed login: let it through to be answered with 503 so the client retries
+            throw e;
         } catch (Exception e) {
             log.error("LoginController: user {} login errored {}", login.getUsername(), e.getStackTrace());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
@@ -63,6 +85,7 @@ public class LoginController {
         // if the user is validated by our loginService...
         if (isValidUser) {
             log.info("LoginController: user {} successfully logged in, generating JWT-Tokens", login.getUsername());
+            loginThrottle.reset(login.getUsername());
             // generate new token and store it in DTO
             UserDTO user = userService.findUser(null, login.getUsername());
             final String token = tokenService.generateToken(user.getUsername(), user.getId());
@@ -0,0 +1,47 @@
+package edu.carroll.doin_backend.web.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for one slice of a feed paginated by cursor instead of by page number.
+ * <p>
+ * Unlike a page, a slice does not know how many items the feed holds in total, so no count query is needed to
+ * build it. To get the next slice, pass {@link #getNextCursor()} back as the {@code cursor} parameter.
+ * </p>
+ *
+ * @param <T> the type of the items in the slice
+ */
+public class CursorSliceDTO<T> {
+    private final List<T> content;
+    private final String nextCursor;
+
+    /**
+     * Constructs a new {@code CursorSliceDTO}.
+     *
+     * @param content    the items in this slice
+     * @param nextCursor the token to fetch the following slice with, or {@code null} if this is the last slice
+     */
+    public CursorSliceDTO(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Gets the items in this slice.
+     *
+     * @return the items, in feed order
+     */
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * Gets the token to fetch the following slice with.
+     *
+     * @return the opaque cursor token, or {@code null} if there is nothing after this slice
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+}
@@ -3,7 +3,6 @@ package edu.carroll.doin_backend.web.dto;
 import edu.carroll.doin_backend.web.enums.Visibility;
 import edu.carroll.doin_backend.web.model.Event;
 import edu.carroll.doin_backend.web.model.EventType;
-import edu.carroll.doin_backend.web.model.Image;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -56,15 +55,25 @@ public class EventDTO {
     private String description;
 
     /**
-     * The list of images associated with the event.
+     * References to the images associated with the event.
      */
-    private List<Image> images = new ArrayList<>();
+    private List<ImageRefDTO> images = new ArrayList<>();
 
     /**
      * The list of users who have joined the event.
      */
     private List<UserDTO> joiners = new ArrayList<>();
 
+    /**
+     * The number of users who have joined the event.
+     */
+    private int joinerCount;
+
+    /**
+     * The most users that may join the event, or {@code null} for no limit.
+     */
+    private Integer capacity;
+
     /**
      * The timestamp when the event was created.
      */
@@ -88,7 +97,9 @@ public class EventDTO {
         this.time = event.getTime();
         this.description = event.getDescription();
         this.joiners = event.getJoiners().stream().map(UserDTO::new).toList();
-        this.images = event.getImages();
+        this.images = event.getImages().stream().map(ImageRefDTO::new).toList();
+        this.joinerCount = event.getJoinerCount();
+        this.capacity = event.getCapacity();
         this.createdAt = event.getCreatedAt();
     }
 
@@ -132,20 +143,56 @@ public class EventDTO {
     }
 
     /**
-     * Gets the list of images associated with the event.
+     * Gets the number of users who have joined the event.
+     *
+     * @return the number of joiners.
+     */
+    public int getJoinerCount() {
+        return joinerCount;
+    }
+
+    /**
+     * Sets the number of users who have joined the event.
+     *
+     * @param joinerCount the number of joiners.
+     */
+    public void setJoinerCount(int joinerCount) {
+        this.joinerCount = joinerCount;
+    }
+
+    /**
+     * Gets the most users that may join the event.
+     *
+     * @return the capacity, or {@code null} if any number of users may join.
+     */
+    public Integer getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets the most users that may join the event.
+     *
+     * @param capacity the capacity, or {@code null} for no limit.
+     */
+    public void setCapacity(Integer capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets references to the images associated with the event.
      *
-     * @return the list of images for the event.
+     * @return the list of image references for the event.
      */
-    public List<Image> getImages() {
+    public List<ImageRefDTO> getImages() {
         return images;
     }
 
     /**
-     * Sets the list of images associated with the event.
+     * Sets references to the images associated with the event.
      *
-     * @param images the list of images to set for the event.
+     * @param images the list of image references to set for the event.
      */
-    public void setImages(List<Image> images) {
+    public void setImages(List<ImageRefDTO> images) {
         this.images = images;
     }
 
@@ -288,7 +335,7 @@ public class EventDTO {
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof EventDTO eventDTO)) return false;
-        return Objects.equals(eventType, eventDTO.eventType) && visibility == eventDTO.visibility && Objects.equals(creator, eventDTO.creator) && Objects.equals(location, eventDTO.location) && Objects.equals(time, eventDTO.time) && Objects.equals(description, eventDTO.description) && Objects.equals(images, eventDTO.images) && Objects.equals(joiners, eventDTO.joiners) && Objects.equals(createdAt, eventDTO.createdAt);
+        return Objects.equals(eventType, eventDTO.eventType) && visibility == eventDTO.visibility && Objects.equals(creator, eventDTO.creator) && Objects.equals(location, eventDTO.location) && Objects.equals(time, eventDTO.time) && Objects.equals(description, eventDTO.description) && Objects.equals(images, eventDTO.images) && Objects.equals(joiners, eventDTO.joiners) && Objects.equals(capacity, eventDTO.capacity) && Objects.equals(createdAt, eventDTO.createdAt);
     }
 
     /**
@@ -301,6 +348,6 @@ public class EventDTO {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(eventType, visibility, creator, location, time, description, images, joiners, createdAt);
+        return Objects.hash(eventType, visibility, creator, location, time, description, images, joiners, capacity, createdAt);
     }
 }
@@ -1,7 +1,6 @@
 package edu.carroll.doin_backend.web.dto;
 
 import edu.carroll.doin_backend.web.enums.FriendshipStatus;
-import edu.carroll.doin_backend.web.model.Image;
 import edu.carroll.doin_backend.web.model.User;
 
 import java.util.Objects;
@@ -19,7 +18,8 @@ public class FriendshipDTO {
     private int id;
     private String username;
     private FriendshipStatus status;
-    private Image profilePic;
+    private ImageRefDTO profilePic;
+    private int mutualFriends;
 
     /**
      * Constructs a new {@code FriendshipDTO} with specified values for all fields.
@@ -27,9 +27,9 @@ public class FriendshipDTO {
      * @param id         the unique identifier of the friend
      * @param username   the username of the friend
      * @param status     the friendship status with the current user
-     * @param profilePic the profile picture of the friend
+     * @param profilePic a reference to the profile picture of the friend, may be {@code null}
      */
-    public FriendshipDTO(int id, String username, FriendshipStatus status, Image profilePic) {
+    public FriendshipDTO(int id, String username, FriendshipStatus status, ImageRefDTO profilePic) {
         this.id = id;
         this.username = username;
         this.status = status;
@@ -97,23 +97,42 @@ public class FriendshipDTO {
     }
 
     /**
-     * Returns the profile picture of the friend.
+     * Returns a reference to the profile picture of the friend.
      *
-     * @return the profile picture
+     * @return the profile picture reference, or {@code null} if the friend has none
      */
-    public Image getProfilePic() {
+    public ImageRefDTO getProfilePic() {
         return profilePic;
     }
 
     /**
-     * Sets the profile picture of the friend.
+     * Sets the reference to the profile picture of the friend.
      *
-     * @param profilePic the friend's profile picture
+     * @param profilePic the friend's profile picture reference
      */
-    public void setProfilePic(Image profilePic) {
+    public void setProfilePic(ImageRefDTO profilePic) {
         this.profilePic = profilePic;
     }
 
+    /**
+     * Returns how many confirmed friends the friend has in common with the current user. This is only filled in
+     * for friends of friends, and is 0 otherwise.
+     *
+     * @return the number of mutual friends
+     */
+    public int getMutualFriends() {
+        return mutualFriends;
+    }
+
+    /**
+     * Sets how many confirmed friends the friend has in common with the current user.
+     *
+     * @param mutualFriends the number of mutual friends
+     */
+    public void setMutualFriends(int mutualFriends) {
+        this.mutualFriends = mutualFriends;
+    }
+
     /**
      * Indicates whether some other object is "equal to" this one by comparing friend ID,
      * username, and friendship status.
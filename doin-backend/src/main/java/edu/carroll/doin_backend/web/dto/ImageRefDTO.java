@@ -0,0 +1,177 @@
+package edu.carroll.doin_backend.web.dto;
+
+import edu.carroll.doin_backend.web.model.Image;
+
+import java.util.Objects;
+
+/**
+ * Data Transfer Object (DTO) referencing an image without carrying its bytes.
+ * <p>
+ * Clients use the {@code url} to download the image from the image endpoint, where it can be cached by the
+ * browser, instead of receiving the image embedded in every event or user response. The dimensions let clients lay
+ * out the image before it has loaded, and the hash changes whenever the bytes do. Every field is small and fixed
+ * in size, so a response's size depends only on how many images it references.
+ * </p>
+ */
+public class ImageRefDTO {
+    /**
+     * The path every image is downloaded from, followed by the image's ID.
+     */
+    public static final String URL_PREFIX = "/api/images/";
+
+    private Long id;
+    private String url;
+    private Integer width;
+    private Integer height;
+    private String hash;
+
+    /**
+     * Constructs an ImageRefDTO referencing the given image.
+     *
+     * @param image the {@link Image} to reference.
+     */
+    public ImageRefDTO(Image image) {
+        this.id = image.getId();
+        this.url = URL_PREFIX + image.getId();
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.hash = image.getHash();
+    }
+
+    public ImageRefDTO() {
+    }
+
+    /**
+     * Creates an ImageRefDTO for an image that may not exist.
+     *
+     * @param image the {@link Image} to reference, may be {@code null}.
+     * @return the reference, or {@code null} if {@code image} is {@code null}.
+     */
+    public static ImageRefDTO of(Image image) {
+        return image == null ? null : new ImageRefDTO(image);
+    }
+
+    /**
+     * Creates an {@link Image} holding only this reference's ID, to link an existing image to an entity.
+     *
+     * @return an {@link Image} with only its ID set.
+     */
+    public Image toImage() {
+        Image image = new Image();
+        image.setId(id);
+        return image;
+    }
+
+    /**
+     * Gets the ID of the referenced image.
+     *
+     * @return the image ID.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Sets the ID of the referenced image.
+     *
+     * @param id the image ID to set.
+     */
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the URL the referenced image can be downloaded from.
+     *
+     * @return the download URL of the image.
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Sets the URL the referenced image can be downloaded from.
+     *
+     * @param url the download URL to set.
+     */
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Gets the width of the referenced image.
+     *
+     * @return the width in pixels, or {@code null} if unknown.
+     */
+    public Integer getWidth() {
+        return width;
+    }
+
+    /**
+     * Sets the width of the referenced image.
+     *
+     * @param width the width in pixels to set.
+     */
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    /**
+     * Gets the height of the referenced image.
+     *
+     * @return the height in pixels, or {@code null} if unknown.
+     */
+    public Integer getHeight() {
+        return height;
+    }
+
+    /**
+     * Sets the height of the referenced image.
+     *
+     * @param height the height in pixels to set.
+     */
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    /**
+     * Gets the hex-encoded SHA-256 hash of the referenced image's bytes.
+     *
+     * @return the hash of the image.
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Sets the hex-encoded SHA-256 hash of the referenced image's bytes.
+     *
+     * @param hash the hash to set.
+     */
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    /**
+     * Compares this ImageRefDTO to another object for equality.
+     *
+     * @param o the object to compare this ImageRefDTO to.
+     * @return true if the other object is an ImageRefDTO referencing the same image; false otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ImageRefDTO that)) return false;
+        return Objects.equals(id, that.id) && Objects.equals(url, that.url);
+    }
+
+    /**
+     * Returns the hash code for this ImageRefDTO.
+     *
+     * @return the hash code based on the id and url of the image.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, url);
+    }
+}
@@ -1,6 +1,5 @@
 package edu.carroll.doin_backend.web.dto;
 
-import edu.carroll.doin_backend.web.model.Image;
 import edu.carroll.doin_backend.web.model.User;
 
 import java.util.Objects;
@@ -14,7 +13,7 @@ import java.util.Objects;
 public class UserDTO {
     private Integer id;
     private String username;
-    private Image profilePicture;
+    private ImageRefDTO profilePicture;
 
     /**
      * Constructs a UserDTO based on a User entity.
@@ -25,7 +24,7 @@ public class UserDTO {
     public UserDTO(User user) {
         this.id = user.getId();
         this.username = user.getUsername();
-        this.profilePicture = user.getProfilePicture();
+        this.profilePicture = ImageRefDTO.of(user.getProfilePicture());
     }
 
     public UserDTO() {
@@ -34,18 +33,18 @@ public class UserDTO {
     /**
      * Gets the profile picture of the user.
      *
-     * @return the profile picture image associated with the user.
+     * @return a reference to the profile picture associated with the user.
      */
-    public Image getProfilePicture() {
+    public ImageRefDTO getProfilePicture() {
         return profilePicture;
     }
 
     /**
      * Sets the profile picture of the user.
      *
-     * @param profilePictureId the new profile picture image to associate with the user.
+     * @param profilePictureId a reference to the new profile picture to associate with the user.
      */
-    public void setProfilePicture(Image profilePictureId) {
+    public void setProfilePicture(ImageRefDTO profilePictureId) {
         this.profilePicture = profilePictureId;
     }
 
@@ -0,0 +1,40 @@
+package edu.carroll.doin_backend.web.enums;
+
+/**
+ * The fixed renditions generated for every uploaded image, each bounded by a maximum edge length in pixels.
+ */
+public enum ImageSize {
+    AVATAR(64),
+    CARD(320),
+    VIEW(1080);
+
+    private final int maxEdge;
+
+    ImageSize(int maxEdge) {
+        this.maxEdge = maxEdge;
+    }
+
+    /**
+     * Gets the length of the longest edge of this rendition.
+     *
+     * @return the maximum width or height in pixels
+     */
+    public int getMaxEdge() {
+        return maxEdge;
+    }
+
+    /**
+     * Looks up a rendition by name, ignoring case, as it appears in a {@code ?size=} parameter.
+     *
+     * @param name the name of the rendition, such as {@code "card"}
+     * @return the matching {@link ImageSize}, or {@code null} if there is none
+     */
+    public static ImageSize fromParam(String name) {
+        for (ImageSize size : values()) {
+            if (size.name().equalsIgnoreCase(name)) {
+                return size;
+            }
+        }
+        return null;
+    }
+}
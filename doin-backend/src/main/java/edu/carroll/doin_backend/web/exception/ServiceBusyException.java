@@ -0,0 +1,11 @@
+package edu.carroll.doin_backend.web.exception;
+
+/**
+ * Thrown when a bounded pool of work is full and a request is turned away instead of queued, so the client can be
+ * answered with {@code 503 Service Unavailable} right away.
+ */
+public class ServiceBusyException extends RuntimeException {
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,51 @@
+package edu.carroll.doin_backend.web.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread while counting is switched on.
+ * <p>
+ * Hibernate calls {@link #inspect(String)} for every statement it prepares, so the count includes the statements
+ * behind lazy loads and batch fetches, not just explicit queries. Counting is per thread: a request is counted by
+ * calling {@link #start()} before it is handled and {@link #stop()} afterwards, on the same thread.
+ * </p>
+ */
+public class QueryCounter implements StatementInspector {
+    /**
+     * The running count of the current thread, or {@code null} while it isn't counting
+     */
+    private static final ThreadLocal<int[]> count = new ThreadLocal<>();
+
+    /**
+     * Starts counting statements on the current thread, from zero.
+     */
+    public static void start() {
+        count.set(new int[1]);
+    }
+
+    /**
+     * Stops counting statements on the current thread.
+     *
+     * @return how many statements were prepared since {@link #start()}, or {@code 0} if counting wasn't started
+     */
+    public static int stop() {
+        int[] counted = count.get();
+        count.remove();
+        return counted == null ? 0 : counted[0];
+    }
+
+    /**
+     * Counts a statement and leaves it unchanged.
+     *
+     * @param sql the statement about to be prepared
+     * @return the same statement
+     */
+    @Override
+    public String inspect(String sql) {
+        int[] counted = count.get();
+        if (counted != null) {
+            counted[0]++;
+        }
+        return sql;
+    }
+}
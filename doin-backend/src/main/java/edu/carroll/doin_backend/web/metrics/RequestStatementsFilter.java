@@ -0,0 +1,62 @@
+package edu.carroll.doin_backend.web.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Records how many SQL statements each request triggers, as the {@code doin.requests.statements} distribution,
+ * tagged with the request's method and URI pattern like {@code http.server.requests}.
+ * <p>
+ * It runs before every other filter, so statements run while authenticating the request are counted too. A sudden
+ * rise for one endpoint usually means an N+1 query crept in.
+ * </p>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestStatementsFilter extends OncePerRequestFilter {
+    /**
+     * The URI tag of requests that no controller handled, the same as {@code http.server.requests} uses
+     */
+    private static final String UNKNOWN_URI = "UNKNOWN";
+
+    private final MeterRegistry registry;
+
+    /**
+     * Constructs a new {@link RequestStatementsFilter}.
+     *
+     * @param registry the registry the statement counts are recorded in
+     */
+    public RequestStatementsFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryCounter.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            int statements = QueryCounter.stop();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("doin.requests.statements")
+                    .description("SQL statements run while handling a request")
+                    .baseUnit("statements")
+                    .tag("method", request.getMethod())
+                    .tag("uri", pattern == null ? UNKNOWN_URI : pattern.toString())
+                    .register(registry)
+                    .record(statements);
+        }
+    }
+}
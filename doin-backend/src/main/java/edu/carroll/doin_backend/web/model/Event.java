@@ -1,12 +1,15 @@
 package edu.carroll.doin_backend.web.model;
 
 import edu.carroll.doin_backend.web.dto.EventDTO;
+import edu.carroll.doin_backend.web.dto.ImageRefDTO;
 import edu.carroll.doin_backend.web.enums.Visibility;
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Represents an event in the system.
@@ -20,8 +23,21 @@ import java.util.List;
  * </p>
  */
 @Entity
-@Table(name = "events")
+@NamedEntityGraph(name = Event.FEED_GRAPH, attributeNodes = {
+        @NamedAttributeNode(value = "creator", subgraph = "creator"),
+        @NamedAttributeNode("eventType")
+}, subgraphs = @NamedSubgraph(name = "creator", attributeNodes = @NamedAttributeNode("profilePicture")))
+@Table(name = "events", indexes = {
+        @Index(name = "idx_events_time_id", columnList = "time, id"),
+        @Index(name = "idx_events_creator_time_id", columnList = "creator_id, time, id")
+})
 public class Event {
+    /**
+     * The entity graph for loading events into lists: the creator and their profile picture are joined, and the
+     * images and joiners are left to be batch-fetched
+     */
+    public static final String FEED_GRAPH = "Event.feed";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
@@ -53,16 +69,37 @@ public class Event {
             joinColumns = @JoinColumn(name = "event_id"),
             inverseJoinColumns = @JoinColumn(name = "image_id")
     )
+    @BatchSize(size = 100)
     private List<Image> images = new ArrayList<>();
 
+    /**
+     * How many images are attached, kept alongside {@link #images} so the upload limit is checked without loading them
+     */
+    @Column(name = "image_count", nullable = false)
+    private int imageCount;
+
     @ManyToMany
     @JoinTable(
             name = "event_joiners",
             joinColumns = @JoinColumn(name = "event_id"),
-            inverseJoinColumns = @JoinColumn(name = "user_id")
+            inverseJoinColumns = @JoinColumn(name = "user_id"),
+            uniqueConstraints = @UniqueConstraint(name = "uk_event_joiners_event_user", columnNames = {"event_id", "user_id"})
     )
+    @BatchSize(size = 100)
     private List<User> joiners = new ArrayList<>();
 
+    /**
+     * How many users have joined, kept alongside {@link #joiners} so joining never has to load the list
+     */
+    @Column(name = "joiner_count", nullable = false)
+    private int joinerCount;
+
+    /**
+     * The most users that may join, or {@code null} for no limit
+     */
+    @Column
+    private Integer capacity;
+
     @Column
     private LocalDateTime createdAt;
 
@@ -82,7 +119,11 @@ public class Event {
         this.location = event.getLocation();
         this.time = event.getTime();
         this.description = event.getDescription();
-        this.images = event.getImages();
+        this.capacity = event.getCapacity();
+        if (event.getImages() != null) {
+            this.images = event.getImages().stream().map(ImageRefDTO::toImage).collect(Collectors.toList());
+            this.imageCount = this.images.size();
+        }
         createdAt = event.getCreatedAt();
     }
 
@@ -257,6 +298,60 @@ public class Event {
         this.joiners = joiners;
     }
 
+    /**
+     * Retrieves how many images are attached to the event.
+     *
+     * @return the number of images
+     */
+    public int getImageCount() {
+        return imageCount;
+    }
+
+    /**
+     * Sets how many images are attached to the event.
+     *
+     * @param imageCount the number of images
+     */
+    public void setImageCount(int imageCount) {
+        this.imageCount = imageCount;
+    }
+
+    /**
+     * Retrieves how many users have joined the event.
+     *
+     * @return the number of joiners
+     */
+    public int getJoinerCount() {
+        return joinerCount;
+    }
+
+    /**
+     * Sets how many users have joined the event.
+     *
+     * @param joinerCount the number of joiners
+     */
+    public void setJoinerCount(int joinerCount) {
+        this.joinerCount = joinerCount;
+    }
+
+    /**
+     * Retrieves the most users that may join the event.
+     *
+     * @return the capacity, or {@code null} if any number of users may join
+     */
+    public Integer getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets the most users that may join the event.
+     *
+     * @param capacity the capacity, or {@code null} for no limit
+     */
+    public void setCapacity(Integer capacity) {
+        this.capacity = capacity;
+    }
+
     /**
      * Retrieves the date and time when the event was created.
      *
@@ -285,18 +380,20 @@ public class Event {
      */
     public void addImage(Image image) {
         this.images.add(image);
+        this.imageCount++;
     }
 
     /**
      * Adds a user as a joiner (participant) of the event.
      * <p>
-     * This method adds a user to the list of joiners for the event.
+     * This method adds a user to the list of joiners for the event and counts them in {@link #getJoinerCount()}.
      * </p>
      *
      * @param user the {@link User} to add as a joiner for the event
      */
     public void addJoiner(User user) {
         this.joiners.add(user);
+        this.joinerCount++;
     }
 
     /**
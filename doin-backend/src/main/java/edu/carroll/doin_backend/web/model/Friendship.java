@@ -13,7 +13,10 @@ import java.time.LocalDateTime;
  * </p>
  */
 @Entity
-@Table(name = "friendships")
+@Table(name = "friendships", indexes = {
+        @Index(name = "idx_friendships_user_friend", columnList = "user_id, friend_id"),
+        @Index(name = "idx_friendships_friend_user", columnList = "friend_id, user_id")
+})
 public class Friendship {
 
     @Id
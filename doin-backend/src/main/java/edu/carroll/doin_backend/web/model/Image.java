@@ -1,18 +1,23 @@
 package edu.carroll.doin_backend.web.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
 
 /**
  * Represents an image stored in the system.
  * <p>
- * This entity contains information about an image, including its name, data (image content),
- * and the timestamp when the image was created. The image data is stored as a large text field (LONGTEXT).
+ * This entity only holds metadata about an image: its name, the SHA-256 hash that addresses its bytes in the
+ * {@link edu.carroll.doin_backend.web.storage.ImageStore}, its size, MIME type, dimensions, and the timestamp
+ * when the image was created. The image bytes themselves are never stored in the database; images saved before
+ * the store existed, with their bytes in the old {@code data} column, are moved into it by the
+ * {@link edu.carroll.doin_backend.web.service.LegacyImageMigration}.
  * </p>
  */
 @Entity
-@Table(name = "images")
+@Table(name = "images", indexes = @Index(name = "idx_images_hash", columnList = "hash"))
+@BatchSize(size = 100)
 public class Image {
 
     @Id
@@ -20,9 +25,16 @@ public class Image {
     private Long id;
     @Column
     private String name;
-    @Lob
-    @Column(columnDefinition = "LONGTEXT", nullable = false)
-    private String data;
+    @Column(nullable = false, length = 64)
+    private String hash;
+    @Column(name = "size_bytes", nullable = false)
+    private Long size;
+    @Column(name = "content_type")
+    private String contentType;
+    @Column
+    private Integer width;
+    @Column
+    private Integer height;
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
 
@@ -63,28 +75,96 @@ public class Image {
     }
 
     /**
-     * Gets the image data (content) as a string.
+     * Gets the hex-encoded SHA-256 hash of the image's bytes.
      * <p>
-     * The image data is stored as a large text field (LONGTEXT) and may contain a base64-encoded representation
-     * of the image content.
+     * The hash is the address of the image's bytes in the {@link edu.carroll.doin_backend.web.storage.ImageStore}.
      * </p>
      *
-     * @return the image data.
+     * @return the content hash of the image.
      */
-    public String getData() {
-        return data;
+    public String getHash() {
+        return hash;
     }
 
     /**
-     * Sets the image data (content).
-     * <p>
-     * The image data should be a base64-encoded string representing the image content.
-     * </p>
+     * Sets the hex-encoded SHA-256 hash of the image's bytes.
+     *
+     * @param hash the content hash to set.
+     */
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    /**
+     * Gets the size of the image in bytes.
+     *
+     * @return the size of the image in bytes.
+     */
+    public Long getSize() {
+        return size;
+    }
+
+    /**
+     * Sets the size of the image in bytes.
+     *
+     * @param size the size to set.
+     */
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    /**
+     * Gets the MIME type of the image (e.g., {@code image/png}).
+     *
+     * @return the MIME type of the image.
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Sets the MIME type of the image.
+     *
+     * @param contentType the MIME type to set.
+     */
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    /**
+     * Gets the width of the image in pixels.
+     *
+     * @return the width of the image, or {@code null} if it could not be determined.
+     */
+    public Integer getWidth() {
+        return width;
+    }
+
+    /**
+     * Sets the width of the image in pixels.
+     *
+     * @param width the width to set.
+     */
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    /**
+     * Gets the height of the image in pixels.
+     *
+     * @return the height of the image, or {@code null} if it could not be determined.
+     */
+    public Integer getHeight() {
+        return height;
+    }
+
+    /**
+     * Sets the height of the image in pixels.
      *
-     * @param data the image data to set.
+     * @param height the height to set.
      */
-    public void setData(String data) {
-        this.data = data;
+    public void setHeight(Integer height) {
+        this.height = height;
     }
 
     /**
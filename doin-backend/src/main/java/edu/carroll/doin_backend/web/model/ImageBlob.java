@@ -0,0 +1,115 @@
+package edu.carroll.doin_backend.web.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents one blob of bytes in the {@link edu.carroll.doin_backend.web.storage.ImageStore}.
+ * <p>
+ * Identical uploads share a single blob, so every {@link Image} row whose hash matches counts as a reference to it.
+ * The reference count tells how many copies deduplication avoided storing.
+ * </p>
+ */
+@Entity
+@Table(name = "image_blobs")
+public class ImageBlob {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+    @Column(name = "size_bytes", nullable = false)
+    private Long size;
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    public ImageBlob() {
+    }
+
+    /**
+     * Constructs a new ImageBlob with a single reference.
+     *
+     * @param hash the hex-encoded SHA-256 hash of the blob.
+     * @param size the number of bytes in the blob.
+     */
+    public ImageBlob(String hash, Long size) {
+        this.hash = hash;
+        this.size = size;
+        this.refCount = 1;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    /**
+     * Gets the hex-encoded SHA-256 hash that addresses the blob.
+     *
+     * @return the hash of the blob.
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Sets the hex-encoded SHA-256 hash that addresses the blob.
+     *
+     * @param hash the hash to set for the blob.
+     */
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    /**
+     * Gets the size of the blob.
+     *
+     * @return the number of bytes in the blob.
+     */
+    public Long getSize() {
+        return size;
+    }
+
+    /**
+     * Sets the size of the blob.
+     *
+     * @param size the number of bytes in the blob.
+     */
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    /**
+     * Gets the number of images that reference the blob.
+     *
+     * @return the reference count of the blob.
+     */
+    public Integer getRefCount() {
+        return refCount;
+    }
+
+    /**
+     * Sets the number of images that reference the blob.
+     *
+     * @param refCount the reference count to set.
+     */
+    public void setRefCount(Integer refCount) {
+        this.refCount = refCount;
+    }
+
+    /**
+     * Gets the timestamp when the blob was first stored.
+     *
+     * @return the creation timestamp of the blob.
+     */
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Sets the timestamp when the blob was first stored.
+     *
+     * @param createdAt the creation timestamp to set.
+     */
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -1,6 +1,7 @@
 package edu.carroll.doin_backend.web.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 
 /**
  * Represents a security question used for user authentication.
@@ -10,6 +11,7 @@ import jakarta.persistence.*;
  */
 @Entity
 @Table(name = "security_questions")
+@BatchSize(size = 100)
 public class SecurityQuestion {
 
     /**
@@ -3,6 +3,7 @@ package edu.carroll.doin_backend.web.model;
 import edu.carroll.doin_backend.web.dto.RegisterDTO;
 import edu.carroll.doin_backend.web.dto.UserDTO;
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
@@ -18,6 +19,7 @@ import java.util.List;
  */
 @Entity
 @Table(name = "users")
+@BatchSize(size = 100)
 public class User implements UserDetails {
 
     @Id
@@ -52,7 +54,7 @@ public class User implements UserDetails {
     public User(UserDTO user) {
         this.id = user.getId();
         this.username = user.getUsername();
-        this.profilePicture = user.getProfilePicture();
+        this.profilePicture = user.getProfilePicture() == null ? null : user.getProfilePicture().toImage();
     }
 
     /**
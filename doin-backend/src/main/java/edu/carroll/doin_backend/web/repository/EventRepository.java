@@ -4,10 +4,16 @@ import edu.carroll.doin_backend.web.enums.Visibility;
 import edu.carroll.doin_backend.web.model.Event;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -18,24 +24,40 @@ import java.util.Set;
  * for retrieving events based on specific criteria.
  * </p>
  *
+ * <p>
+ * Queries that feed event lists fetch each event's creator in the same statement through the
+ * {@link Event#FEED_GRAPH} entity graph; the images and joiners are batch-fetched for the whole page when the DTOs
+ * are built, so a page costs the same few statements whatever its size.
+ * </p>
+ *
  * @see JpaRepository
  * @see Event
  */
 public interface EventRepository extends JpaRepository<Event, Integer> {
 
     /**
-     * Retrieves a list of upcoming events that the specified user has joined or created.
-     * Only future events (based on current timestamp) are returned.
+     * Retrieves every event that has not started yet with its creator, to build the users' agendas.
+     * <p>
+     * Each row is {@code [eventId (Integer), time (LocalDateTime), creatorId (Integer)]}.
+     * </p>
      *
-     * @param userId the ID of the user
-     * @return a list of {@link Event} objects representing upcoming events
+     * @param now the current time
+     * @return one row per upcoming event
      */
-    @Query("SELECT e " +
-            "FROM Event e " +
-            "LEFT JOIN e.joiners j " +
-            "WHERE (j.id = :userId OR e.creator.id = :userId) AND e.time > CURRENT_TIMESTAMP " +
-            "ORDER BY e.time ASC")
-    List<Event> getUpcomingEvents(@Param("userId") Integer userId);
+    @Query("SELECT e.id, e.time, e.creator.id FROM Event e WHERE e.time > :now")
+    List<Object[]> findUpcomingCreators(@Param("now") LocalDateTime now);
+
+    /**
+     * Retrieves every joiner of every event that has not started yet, to build the users' agendas.
+     * <p>
+     * Each row is {@code [eventId (Integer), time (LocalDateTime), joinerId (Integer)]}.
+     * </p>
+     *
+     * @param now the current time
+     * @return one row per joiner of an upcoming event
+     */
+    @Query("SELECT e.id, e.time, j.id FROM Event e JOIN e.joiners j WHERE e.time > :now")
+    List<Object[]> findUpcomingJoiners(@Param("now") LocalDateTime now);
 
     /**
      * Retrieves a paginated list of public events or events created by the user's friends.
@@ -44,6 +66,7 @@ public interface EventRepository extends JpaRepository<Event, Integer> {
      * @param pageable  the pagination information
      * @return a {@link Page} of {@link Event} objects representing public or friends' events
      */
+    @EntityGraph(Event.FEED_GRAPH)
     @Query("SELECT e FROM Event e " +
             "WHERE e.visibility = 'PUBLIC' " +
             "OR e.creator.id IN :friendIds")
@@ -58,6 +81,7 @@ public interface EventRepository extends JpaRepository<Event, Integer> {
      * @param pageable   the pagination information
      * @return a {@link Page} of {@link Event} objects representing the user's events
      */
+    @EntityGraph(Event.FEED_GRAPH)
     @Query("SELECT e FROM Event e " +
             "WHERE e.creator.id = :userId " +
             "AND (e.visibility = :visibility OR :visibility = 'PRIVATE')")
@@ -71,6 +95,7 @@ public interface EventRepository extends JpaRepository<Event, Integer> {
      * @param pageable the pagination information
      * @return a {@link Page} of {@link Event} objects representing public events
      */
+    @EntityGraph(Event.FEED_GRAPH)
     @Query("SELECT e FROM Event e WHERE e.visibility = 'PUBLIC'")
     Page<Event> findAllPublicEvents(Pageable pageable);
 
@@ -83,4 +108,244 @@ public interface EventRepository extends JpaRepository<Event, Integer> {
      */
     @Query("SELECT e FROM Event e WHERE e.creator.id = :userId")
     Page<Event> findAllPublicEvents(@Param("userId") Integer userId, Pageable pageable);
-}
\ No newline at end of file
+
+    /**
+     * Retrieves every event the specified image is attached to.
+     *
+     * @param imageId the ID of the image
+     * @return a list of {@link Event} objects that include the image
+     */
+    @Query("SELECT e FROM Event e JOIN e.images i WHERE i.id = :imageId")
+    List<Event> findAllByImageId(@Param("imageId") Long imageId);
+
+    /**
+     * Counts, for each of the given users, how many events they have joined together with another user.
+     * <p>
+     * Each row is {@code [userId (Integer), sharedEvents (Long)]}; users with no shared events are left out.
+     * </p>
+     *
+     * @param userId       the ID of the user whose joined events are compared against
+     * @param candidateIds the IDs of the users to count shared events for
+     * @return one row per candidate that shares at least one joined event
+     */
+    @Query("SELECT j.id, COUNT(e) FROM Event e JOIN e.joiners j " +
+            "WHERE j.id IN :candidateIds " +
+            "AND e.id IN (SELECT e2.id FROM Event e2 JOIN e2.joiners u WHERE u.id = :userId) " +
+            "GROUP BY j.id")
+    List<Object[]> countSharedJoinedEvents(@Param("userId") Integer userId,
+                                           @Param("candidateIds") Collection<Integer> candidateIds);
+
+    /**
+     * Retrieves the public events that come after a cursor in a feed ordered by time, newest first.
+     * <p>
+     * This is keyset pagination: the query seeks straight to {@code (cursorTime, cursorId)} on the
+     * {@code (time, id)} index instead of skipping an offset, and returns a {@link Slice} so no count query runs.
+     * Events without a time are never part of a cursor feed.
+     * </p>
+     *
+     * @param cursorTime the time of the last event already sent
+     * @param cursorId   the ID of the last event already sent
+     * @param pageable   how many events to return; must not be sorted, the query orders by time and ID
+     * @return a {@link Slice} of {@link Event} objects after the cursor
+     */
+    @EntityGraph(Event.FEED_GRAPH)
+    @Query("SELECT e FROM Event e WHERE e.visibility = 'PUBLIC' " +
+            "AND (e.time < :cursorTime OR (e.time = :cursorTime AND e.id < :cursorId)) " +
+            "ORDER BY e.time DESC, e.id DESC")
+    Slice<Event> findPublicEventsBefore(@Param("cursorTime") LocalDateTime cursorTime,
+                                        @Param("cursorId") Integer cursorId,
+                                        Pageable pageable);
+
+    /**
+     * Retrieves the non-public events created by any of the given users that come after a cursor, newest first.
+     * <p>
+     * Past the events the timelines keep, the home feed merges this with
+     * {@link #findPublicEventsBefore(LocalDateTime, Integer, Pageable)}: each of the two seeks along its own index,
+     * where a single {@code visibility = 'PUBLIC' OR creator IN (...)} query could use neither.
+     * </p>
+     *
+     * @param creatorIds the IDs of the users whose events to include
+     * @param cursorTime the time of the last event already sent
+     * @param cursorId   the ID of the last event already sent
+     * @param pageable   how many events to return; must not be sorted
+     * @return a {@link Slice} of {@link Event} objects after the cursor
+     */
+    @EntityGraph(Event.FEED_GRAPH)
+    @Query("SELECT e FROM Event e WHERE e.creator.id IN :creatorIds AND e.visibility <> 'PUBLIC' " +
+            "AND (e.time < :cursorTime OR (e.time = :cursorTime AND e.id < :cursorId)) " +
+            "ORDER BY e.time DESC, e.id DESC")
+    Slice<Event> findRestrictedEventsBefore(@Param("creatorIds") Set<Integer> creatorIds,
+                                            @Param("cursorTime") LocalDateTime cursorTime,
+                                            @Param("cursorId") Integer cursorId,
+                                            Pageable pageable);
+
+    /**
+     * Retrieves the events created by a user that come after a cursor, newest first. If the visibility is
+     * 'PRIVATE', private events of the user are included too.
+     *
+     * @param userId     the ID of the user whose events to retrieve
+     * @param visibility the visibility filter for events
+     * @param cursorTime the time of the last event already sent
+     * @param cursorId   the ID of the last event already sent
+     * @param pageable   how many events to return; must not be sorted
+     * @return a {@link Slice} of {@link Event} objects after the cursor
+     * @see #findPublicEventsBefore(LocalDateTime, Integer, Pageable)
+     */
+    @EntityGraph(Event.FEED_GRAPH)
+    @Query("SELECT e FROM Event e WHERE e.creator.id = :userId " +
+            "AND (e.visibility = :visibility OR :visibility = 'PRIVATE') " +
+            "AND (e.time < :cursorTime OR (e.time = :cursorTime AND e.id < :cursorId)) " +
+            "ORDER BY e.time DESC, e.id DESC")
+    Slice<Event> findUserEventsBefore(@Param("userId") Integer userId,
+                                      @Param("visibility") Visibility visibility,
+                                      @Param("cursorTime") LocalDateTime cursorTime,
+                                      @Param("cursorId") Integer cursorId,
+                                      Pageable pageable);
+
+    /**
+     * Retrieves what the event timelines need to know about the newest public events.
+     * <p>
+     * Each row is {@code [eventId (Integer), creatorId (Integer), time (LocalDateTime)]}.
+     * </p>
+     *
+     * @param pageable how many events to return, as the page size of the first page; must not be sorted
+     * @return one row per event, newest first
+     */
+    @Query("SELECT e.id, e.creator.id, e.time FROM Event e WHERE e.visibility = 'PUBLIC' AND e.time IS NOT NULL " +
+            "ORDER BY e.time DESC, e.id DESC")
+    List<Object[]> findNewestPublicTimelineEntries(Pageable pageable);
+
+    /**
+     * Retrieves what the event timelines need to know about the newest non-public events of every creator.
+     * <p>
+     * Each row is {@code [eventId (Number), creatorId (Number), time (Timestamp or LocalDateTime),
+     * visibility (String)]}; the columns come back as the driver reads them, since the query is native.
+     * </p>
+     *
+     * @param perCreator the most events to return for each creator
+     * @return up to {@code perCreator} rows per creator, newest first within each creator
+     */
+    @Query(value = "SELECT r.id, r.creator_id, r.time, r.visibility FROM (" +
+            "SELECT e.id, e.creator_id, e.time, e.visibility, " +
+            "ROW_NUMBER() OVER (PARTITION BY e.creator_id ORDER BY e.time DESC, e.id DESC) AS n " +
+            "FROM events e WHERE e.visibility <> 'PUBLIC' AND e.time IS NOT NULL) r " +
+            "WHERE r.n <= :perCreator", nativeQuery = true)
+    List<Object[]> findNewestRestrictedTimelineEntries(@Param("perCreator") int perCreator);
+
+    /**
+     * Retrieves the events with the given IDs along with their creators, in no particular order.
+     *
+     * @param ids the IDs of the events
+     * @return the events that exist
+     */
+    @EntityGraph(Event.FEED_GRAPH)
+    List<Event> findAllByIdIn(Collection<Integer> ids);
+
+    /**
+     * Takes a place at an event for a user, in one statement that also checks they may join.
+     * <p>
+     * The joiner count is only incremented if the event exists, has not started, was not created by the user, still
+     * has room and does not already include the user. Updating the row locks it, so concurrent joins of the same
+     * event are serialized and can neither overfill it nor lose an increment. The caller must then
+     * {@link #insertJoiner(Integer, Integer) insert the joiner} in the same transaction.
+     * </p>
+     *
+     * @param eventId the ID of the event
+     * @param userId  the ID of the user joining
+     * @param now     the current time; events at or before it can no longer be joined
+     * @return 1 if a place was taken, 0 if the user may not join
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE events SET joiner_count = joiner_count + 1 " +
+            "WHERE id = :eventId AND time > :now AND creator_id <> :userId " +
+            "AND (capacity IS NULL OR joiner_count < capacity) " +
+            "AND NOT EXISTS (SELECT 1 FROM event_joiners j WHERE j.event_id = :eventId AND j.user_id = :userId)",
+            nativeQuery = true)
+    int reserveJoinerSlot(@Param("eventId") Integer eventId,
+                          @Param("userId") Integer userId,
+                          @Param("now") LocalDateTime now);
+
+    /**
+     * Adds a user to an event's joiners without loading the event. The unique {@code (event_id, user_id)} constraint
+     * rejects a duplicate that slipped past {@link #reserveJoinerSlot(Integer, Integer, LocalDateTime)}.
+     *
+     * @param eventId the ID of the event
+     * @param userId  the ID of the user joining
+     * @return the number of rows inserted
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO event_joiners (event_id, user_id) VALUES (:eventId, :userId)", nativeQuery = true)
+    int insertJoiner(@Param("eventId") Integer eventId, @Param("userId") Integer userId);
+
+    /**
+     * Takes an image slot at an event for a user, in one statement that also checks they may add an image.
+     * <p>
+     * The image count is only incremented if the event exists, has started, has fewer than {@code maxImages} images,
+     * and was created or joined by the user. Neither the event nor its images are loaded, and updating the row locks
+     * it, so concurrent uploads can never go over the limit. The caller must then
+     * {@link #insertEventImage(Integer, Long) attach the image}, or {@link #releaseImageSlot(Integer) give the slot
+     * back} if it could not be stored.
+     * </p>
+     *
+     * @param eventId   the ID of the event
+     * @param userId    the ID of the user adding the image
+     * @param now       the current time; images can only be added to events at or before it
+     * @param maxImages the most images an event may have
+     * @return 1 if a slot was taken, 0 if the user may not add an image
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE events SET image_count = image_count + 1 " +
+            "WHERE id = :eventId AND time <= :now AND image_count < :maxImages " +
+            "AND (creator_id = :userId " +
+            "OR EXISTS (SELECT 1 FROM event_joiners j WHERE j.event_id = :eventId AND j.user_id = :userId))",
+            nativeQuery = true)
+    int reserveImageSlot(@Param("eventId") Integer eventId,
+                         @Param("userId") Integer userId,
+                         @Param("now") LocalDateTime now,
+                         @Param("maxImages") int maxImages);
+
+    /**
+     * Gives back an image slot taken by {@link #reserveImageSlot(Integer, Integer, LocalDateTime, int)}.
+     *
+     * @param eventId the ID of the event
+     * @return the number of rows updated
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE events SET image_count = image_count - 1 WHERE id = :eventId AND image_count > 0",
+            nativeQuery = true)
+    int releaseImageSlot(@Param("eventId") Integer eventId);
+
+    /**
+     * Attaches an image to an event without loading the event or its other images.
+     *
+     * @param eventId the ID of the event
+     * @param imageId the ID of the image
+     * @return the number of rows inserted
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO event_images (event_id, image_id) VALUES (:eventId, :imageId)", nativeQuery = true)
+    int insertEventImage(@Param("eventId") Integer eventId, @Param("imageId") Long imageId);
+
+    /**
+     * Recounts the joiners of every event whose {@code joiner_count} disagrees with its {@code event_joiners} rows,
+     * such as events created before the column existed.
+     *
+     * @return the number of events corrected
+     */
+    @Modifying
+    @Query("UPDATE Event e SET e.joinerCount = SIZE(e.joiners) WHERE e.joinerCount <> SIZE(e.joiners)")
+    int reconcileJoinerCounts();
+
+    /**
+     * Recounts the images of every event whose {@code image_count} disagrees with its {@code event_images} rows,
+     * such as events created before the column existed or an upload that failed half way.
+     *
+     * @return the number of events corrected
+     */
+    @Modifying
+    @Query("UPDATE Event e SET e.imageCount = SIZE(e.images) WHERE e.imageCount <> SIZE(e.images)")
+    int reconcileImageCounts();
+}
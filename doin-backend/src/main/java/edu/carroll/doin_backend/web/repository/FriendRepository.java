@@ -7,6 +7,8 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -71,4 +73,35 @@ public interface FriendRepository extends JpaRepository<Friendship, Integer> {
      */
     Friendship findByUserAndFriend(User user, User friend);
 
+    /**
+     * Retrieves every friendship as a bare edge, without loading either user.
+     * <p>
+     * Each row is {@code [userId (Integer), friendId (Integer), status (FriendshipStatus)]}; this is what the
+     * in-memory friendship graph is built from.
+     * </p>
+     *
+     * @return one row per friendship
+     */
+    @Query("SELECT f.user.id, f.friend.id, f.status FROM Friendship f")
+    List<Object[]> findAllEdges();
+
+    /**
+     * Retrieves when each friendship between one group of users and another was confirmed.
+     * <p>
+     * Each row is {@code [userId (Integer), friendId (Integer), confirmedAt (LocalDateTime)]}, in whichever
+     * direction the friendship was stored.
+     * </p>
+     *
+     * @param status       the status of the friendships, normally CONFIRMED
+     * @param candidateIds the IDs of the users on one side
+     * @param friendIds    the IDs of the users on the other side
+     * @return one row per friendship between the two groups that has a confirmation time
+     */
+    @Query("SELECT f.user.id, f.friend.id, f.confirmedAt FROM Friendship f " +
+            "WHERE f.status = :status AND f.confirmedAt IS NOT NULL " +
+            "AND ((f.user.id IN :candidateIds AND f.friend.id IN :friendIds) " +
+            "OR (f.friend.id IN :candidateIds AND f.user.id IN :friendIds))")
+    List<Object[]> findConfirmedAtBetween(@Param("status") FriendshipStatus status,
+                                          @Param("candidateIds") Collection<Integer> candidateIds,
+                                          @Param("friendIds") Collection<Integer> friendIds);
 }
@@ -0,0 +1,73 @@
+package edu.carroll.doin_backend.web.repository;
+
+import edu.carroll.doin_backend.web.model.ImageBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repository interface for managing {@link ImageBlob} entities, keyed by their content hash.
+ *
+ * @see JpaRepository
+ * @see ImageBlob
+ */
+public interface ImageBlobRepository extends JpaRepository<ImageBlob, String> {
+
+    /**
+     * Adds a reference to a blob, creating its row with a single reference if it is new, in one atomic statement.
+     * Concurrent uploads of the same new bytes therefore never both insert, nor overwrite each other's count.
+     *
+     * @param hash      the hash of the blob
+     * @param size      the number of bytes in the blob, used if the row is created
+     * @param createdAt when the blob was first stored, used if the row is created
+     * @return the number of rows affected
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO image_blobs (hash, size_bytes, ref_count, created_at) " +
+            "VALUES (:hash, :size, 1, :createdAt) " +
+            "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1", nativeQuery = true)
+    int addReference(@Param("hash") String hash, @Param("size") Long size,
+                     @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Reads a blob's reference count straight from the table. Right after {@link #addReference}, the row is locked
+     * by the current transaction, so a count of 1 means this transaction created it.
+     *
+     * @param hash the hash of the blob
+     * @return the reference count, or {@code null} if there is no such blob
+     */
+    @Query(value = "SELECT ref_count FROM image_blobs WHERE hash = :hash", nativeQuery = true)
+    Integer findRefCount(@Param("hash") String hash);
+
+    /**
+     * Removes a reference from a blob.
+     *
+     * @param hash the hash of the blob
+     * @return the number of rows updated
+     */
+    @Modifying
+    @Query("UPDATE ImageBlob b SET b.refCount = b.refCount - 1 WHERE b.hash = :hash")
+    int decrementRefCount(@Param("hash") String hash);
+
+    /**
+     * Deletes the blob row once no image references it any more.
+     *
+     * @param hash the hash of the blob
+     * @return the number of rows deleted
+     */
+    @Modifying
+    @Query("DELETE FROM ImageBlob b WHERE b.hash = :hash AND b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("hash") String hash);
+
+    /**
+     * Sums the bytes that would have been stored again without deduplication: every reference past the first
+     * costs one more copy of the blob.
+     *
+     * @return the number of bytes saved by deduplication
+     */
+    @Query("SELECT COALESCE(SUM((b.refCount - 1) * b.size), 0) FROM ImageBlob b WHERE b.refCount > 1")
+    long sumDedupSavedBytes();
+}
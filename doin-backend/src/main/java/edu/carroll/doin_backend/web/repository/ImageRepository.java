@@ -1,7 +1,14 @@
 package edu.carroll.doin_backend.web.repository;
 
 import edu.carroll.doin_backend.web.model.Image;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for managing {@link Image} entities.
@@ -14,4 +21,34 @@ import org.springframework.data.jpa.repository.JpaRepository;
  * @see Image
  */
 public interface ImageRepository extends JpaRepository<Image, Long> {
-}
\ No newline at end of file
+
+    /**
+     * Finds any image that was uploaded with the given bytes.
+     *
+     * @param hash the hex-encoded SHA-256 hash of the image's bytes
+     * @return an {@link Optional} containing one image with that hash, or empty if none exists
+     */
+    Optional<Image> findFirstByHash(String hash);
+
+    /**
+     * Checks if any image still uses the given bytes.
+     *
+     * @param hash the hex-encoded SHA-256 hash of the bytes
+     * @return {@code true} if at least one image has that hash, {@code false} otherwise
+     */
+    boolean existsByHash(String hash);
+
+    /**
+     * Finds images that no event and no user points to, walking the table in ID order so a scan can be resumed.
+     *
+     * @param afterId  only images with an ID greater than this are returned
+     * @param cutoff   only images created before this are returned, so fresh uploads can still be linked
+     * @param pageable the batch size, as the page size of the first page
+     * @return the next batch of unreferenced images, in ascending ID order
+     */
+    @Query("SELECT i FROM Image i WHERE i.id > :afterId AND i.createdAt < :cutoff " +
+            "AND NOT EXISTS (SELECT e.id FROM Event e JOIN e.images ei WHERE ei.id = i.id) " +
+            "AND NOT EXISTS (SELECT u.id FROM User u WHERE u.profilePicture.id = i.id) " +
+            "ORDER BY i.id")
+    List<Image> findUnreferenced(@Param("afterId") Long afterId, @Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+}
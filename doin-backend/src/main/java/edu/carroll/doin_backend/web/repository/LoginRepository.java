@@ -2,6 +2,10 @@ package edu.carroll.doin_backend.web.repository;
 
 import edu.carroll.doin_backend.web.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -29,19 +33,16 @@ public interface LoginRepository extends JpaRepository<User, Integer> {
     List<User> findByUsernameIgnoreCase(String username);
 
     /**
-     * Finds a list of users whose username containing the given username, ignoring case.
+     * Retrieves every user's ID and username, without loading the rest of the user.
      * <p>
-     * This method is autogenerated by Spring Data JPA. It finds users where their username
-     * contains the provided substring, regardless of case. This allows partial
-     * matching of usernames, making it useful for search functionalities where a
-     * user might enter part of a username and still find relevant results.
+     * Each row is {@code [id (Integer), username (String)]}; this is what the in-memory username search index is
+     * built from.
      * </p>
      *
-     * @param username the substring to search for in usernames, case-insensitive.
-     * @return a list of {@link User} objects whose username contains the given substring,
-     * ignoring case.
+     * @return one row per user
      */
-    List<User> findByUsernameLikeIgnoreCase(String username);
+    @Query("SELECT u.id, u.username FROM User u")
+    List<Object[]> findAllUsernames();
 
     /**
      * Finds a user by their username.
@@ -57,4 +58,26 @@ public interface LoginRepository extends JpaRepository<User, Integer> {
      */
     Optional<User> findByUsername(String username);
 
+    /**
+     * Checks whether an image is some user's current profile picture.
+     *
+     * @param imageId the ID of the image
+     * @return {@code true} if at least one user's profile picture is the image
+     */
+    boolean existsByProfilePictureId(Long imageId);
+
+    /**
+     * Replaces a user's password hash, but only if it is still the one that was read. Nothing else about the user
+     * is written, so a password reset or profile change made in the meantime is never undone.
+     *
+     * @param id      the ID of the user
+     * @param oldHash the hash that was read and verified
+     * @param newHash the hash to store instead
+     * @return the number of rows updated: 0 if the hash changed since it was read
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.passwordHash = :newHash WHERE u.id = :id AND u.passwordHash = :oldHash")
+    int replacePasswordHash(@Param("id") Integer id, @Param("oldHash") String oldHash,
+                            @Param("newHash") String newHash);
 }
@@ -0,0 +1,70 @@
+package edu.carroll.doin_backend.web.security;
+
+import java.security.Principal;
+import java.util.Objects;
+
+/**
+ * The principal of an authenticated request, built straight from the signed claims of its JWT.
+ * <p>
+ * It only holds what the token vouches for, the user's ID and username, so no database query is needed to
+ * authenticate a request.
+ * </p>
+ */
+public class AuthenticatedUser implements Principal {
+    private final Integer id;
+    private final String username;
+
+    /**
+     * Constructs a new {@link AuthenticatedUser}.
+     *
+     * @param id       the ID of the user, from the token's {@code id} claim
+     * @param username the username of the user, from the token's {@code username} claim
+     */
+    public AuthenticatedUser(Integer id, String username) {
+        this.id = id;
+        this.username = username;
+    }
+
+    /**
+     * Gets the ID of the authenticated user.
+     *
+     * @return the user's ID
+     */
+    public Integer getId() {
+        return id;
+    }
+
+    /**
+     * Gets the username of the authenticated user.
+     *
+     * @return the user's username
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AuthenticatedUser that)) return false;
+        return Objects.equals(id, that.id) && Objects.equals(username, that.username);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, username);
+    }
+
+    @Override
+    public String toString() {
+        return "AuthenticatedUser: " + username + " (" + id + ")";
+    }
+}
@@ -1,7 +1,5 @@
 package edu.carroll.doin_backend.web.security;
 
-import edu.carroll.doin_backend.web.model.User;
-import edu.carroll.doin_backend.web.repository.LoginRepository;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -24,7 +22,9 @@ import static org.apache.logging.log4j.util.Strings.isEmpty;
  * Filter for processing JWT authentication tokens.
  * <p>
  * This filter checks the presence of a JWT in the Authorization header, validates it,
- * and sets the authentication in the SecurityContext if the token is valid.
+ * and sets the authentication in the SecurityContext if the token is valid. The principal is an
+ * {@link AuthenticatedUser} built from the token's signed claims, so authenticating a request does not
+ * query the database.
  * </p>
  */
 @Component
@@ -33,26 +33,22 @@ public class JwtTokenFilter extends OncePerRequestFilter {
     private static final Logger log = LoggerFactory.getLogger(JwtTokenFilter.class);
 
     private final TokenService jwtTokenUtil;
-    private final LoginRepository loginRepository;
 
     /**
      * Constructs a new instance of {@link JwtTokenFilter}.
      *
-     * @param jwtTokenUtil    the service for handling JWT operations
-     * @param loginRepository the repository for accessing user login data
+     * @param jwtTokenUtil the service for handling JWT operations
      */
-    public JwtTokenFilter(TokenService jwtTokenUtil,
-                          LoginRepository loginRepository) {
+    public JwtTokenFilter(TokenService jwtTokenUtil) {
         this.jwtTokenUtil = jwtTokenUtil;
-        this.loginRepository = loginRepository;
     }
 
     /**
      * Filters requests to process JWT authentication.
      * <p>
      * This method extracts the JWT token from the Authorization header,
-     * validates it, and if valid, retrieves the associated user details
-     * from the repository and sets the authentication context.
+     * validates it, and if valid, sets the authentication context to the
+     * user named by the token's claims.
      * </p>
      *
      * @param request  the HTTP request
@@ -92,31 +88,17 @@ public class JwtTokenFilter extends OncePerRequestFilter {
         final String token = header.split(" ")[1].trim();
         log.debug("JWT token has been processed.");
 
-        // Validate the JWT token
-        if (!jwtTokenUtil.validateToken(token)) {
+        // Validate the JWT token and build the principal from its claims
+        final AuthenticatedUser principal = jwtTokenUtil.authenticate(token);
+        if (principal == null) {
             log.warn("Invalid JWT token.");
             chain.doFilter(request, response);
             return;
         }
 
-        // Retrieve user details from the repository
-        List<User> userDetailsList = loginRepository
-                .findByUsernameIgnoreCase(jwtTokenUtil.getUsername(token));
-
-        User userDetails = (userDetailsList != null && !userDetailsList.isEmpty())
-                ? userDetailsList.get(0)
-                : null;
-
-        // If no user details found, continue the filter chain
-        if (userDetails == null) {
-            log.warn("No user details found for the username extracted from token.");
-            chain.doFilter(request, response);
-            return;
-        }
-
         // Create authentication token and set it in the security context
         UsernamePasswordAuthenticationToken authentication =
-                new UsernamePasswordAuthenticationToken(userDetails, null, List.of());
+                new UsernamePasswordAuthenticationToken(principal, null, List.of());
 
         authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
         log.info("User authenticated successfully.");
@@ -6,15 +6,16 @@ import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTCreationException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
-import edu.carroll.doin_backend.web.model.User;
-import edu.carroll.doin_backend.web.repository.LoginRepository;
+import edu.carroll.doin_backend.web.cache.UserIdentityCache;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
-import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This service provides utility methods for creating and validating JWT (JSON Web Tokens) for user authentication.
@@ -25,6 +26,16 @@ import java.util.List;
  * <p>
  * The service is used to generate a token when a user logs in, and to validate the token when making authenticated requests.
  * </p>
+ * <p>
+ * The signing algorithm and verifier are built once at startup. Tokens that pass verification are remembered in a
+ * {@link VerifiedTokenCache} until they expire, so repeat requests with the same token skip the HMAC check and JSON
+ * parsing and are answered with a single map lookup.
+ * </p>
+ * <p>
+ * Revocation goes through a small in-memory deny list of user ID to revocation time: tokens issued to that user
+ * before the revocation are rejected. An entry is dropped once every token it could match has expired, so the list
+ * only ever holds users revoked within the last token lifetime.
+ * </p>
  */
 @Service
 public class JwtTokenService implements TokenService {
@@ -45,19 +56,56 @@ public class JwtTokenService implements TokenService {
      * The issuer of the tokens (in this case the issuer is doin)
      */
     private static final String issuer = "doin";
+    /**
+     * A claim holding the issue time in milliseconds, since the standard {@code iat} claim only has whole seconds
+     */
+    private static final String ISSUED_AT_MS_CLAIM = "iatMs";
+    /**
+     * The most verified tokens to remember at once, from the application properties
+     */
+    @Value("${jwt.cache.max-entries:10000}")
+    private int maxCachedTokens;
+    /**
+     * The algorithm tokens are signed with, built once from the secret key
+     */
+    private Algorithm algorithm;
+    /**
+     * The verifier every token is checked with, built once from {@link #algorithm}
+     */
+    private JWTVerifier verifier;
+    /**
+     * Tokens that already passed verification
+     */
+    private VerifiedTokenCache verifiedTokens;
+    /**
+     * When each revoked user's tokens were revoked, in epoch milliseconds
+     */
+    private final Map<Integer, Long> revokedAt = new ConcurrentHashMap<>();
 
     /**
-     * a {@link LoginRepository} that interacts with {@link User} entities
+     * a {@link UserIdentityCache} to check that a token's user exists
      */
-    private final LoginRepository loginRepository;
+    private final UserIdentityCache identityCache;
 
     /**
      * A constructor to make a JwtTokenService
      *
-     * @param loginRepository the repository containing all Users for the site
+     * @param identityCache the cache of all Users for the site
+     */
+    public JwtTokenService(UserIdentityCache identityCache) {
+        this.identityCache = identityCache;
+    }
+
+    /**
+     * Builds the signing algorithm, the verifier and the cache once the secret key has been injected.
      */
-    public JwtTokenService(LoginRepository loginRepository) {
-        this.loginRepository = loginRepository;
+    @PostConstruct
+    void init() {
+        algorithm = Algorithm.HMAC256(SECRET_KEY);
+        verifier = JWT.require(algorithm)
+                .withIssuer(issuer)
+                .build();
+        verifiedTokens = new VerifiedTokenCache(maxCachedTokens);
     }
 
     /**
@@ -70,14 +118,16 @@ public class JwtTokenService implements TokenService {
     public String generateToken(String username, Integer id) {
         // try to create a JWT token, catch errors
         try {
+            final long now = System.currentTimeMillis();
             return JWT.create()
                     .withSubject(username)
                     .withClaim("username", username)
                     .withClaim("id", id)
-                    .withIssuedAt(new Date())
-                    .withExpiresAt(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
+                    .withClaim(ISSUED_AT_MS_CLAIM, now)
+                    .withIssuedAt(new Date(now))
+                    .withExpiresAt(new Date(now + EXPIRATION_TIME))
                     .withIssuer(issuer)
-                    .sign(Algorithm.HMAC256(SECRET_KEY));
+                    .sign(algorithm);
         } catch (JWTCreationException e) {
             log.error("TokenServiceImpl: generating a token resulted in a JWTCreationException: {}", e.toString());
             return null;
@@ -98,51 +148,124 @@ public class JwtTokenService implements TokenService {
      */
     @Override
     public boolean validateToken(String token) {
-        log.trace("JwtTokenServiceImpl - validating token for username: {}", getUsername(token));
+        return verify(token) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AuthenticatedUser authenticate(String token) {
+        VerifiedTokenCache.Entry entry = verify(token);
+        return entry == null ? null : new AuthenticatedUser(entry.getUserId(), entry.getUsername());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void revokeUser(Integer userId) {
+        if (userId == null) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        revokedAt.put(userId, now);
+        // tokens issued before now - EXPIRATION_TIME are expired anyway, so their entries can go
+        revokedAt.values().removeIf(time -> time < now - EXPIRATION_TIME);
+        log.info("TokenServiceImpl: revoked tokens for user ID {}", userId);
+    }
+
+    /**
+     * Extract the username from the JWT Token.
+     *
+     * @param token - the token to extract the username from
+     * @return - the username that was stored in the token.
+     */
+    @Override
+    public String getUsername(String token) {
+        VerifiedTokenCache.Entry entry = verifiedTokens.get(token);
+        if (entry != null) {
+            return entry.getUsername();
+        }
+        return JWT.decode(token).getClaim("username").asString();
+    }
+
+    @Override
+    public Integer getUserId(String token) {
+        String bare = token.substring(7);
+        VerifiedTokenCache.Entry entry = verifiedTokens.get(bare);
+        if (entry != null) {
+            return entry.getUserId();
+        }
+        return JWT.decode(bare).getClaim("id").asInt();
+    }
+
+    /**
+     * Gets the cache of verified tokens, so its size and hit rate can be published as metrics.
+     *
+     * @return the cache of verified tokens
+     */
+    public VerifiedTokenCache getVerifiedTokenCache() {
+        return verifiedTokens;
+    }
+
+    /**
+     * Verifies a token, answering from the cache when the same token was verified before.
+     *
+     * @param token the JWT Token to verify
+     * @return the token's claims, or {@code null} if the token is invalid, expired, revoked, or its user does not exist
+     */
+    private VerifiedTokenCache.Entry verify(String token) {
+        VerifiedTokenCache.Entry cached = verifiedTokens.get(token);
+        if (cached != null) {
+            log.trace("TokenServiceImpl: validate token - cache hit for username: {}", cached.getUsername());
+            return isRevoked(cached) ? null : cached;
+        }
         try {
-            JWTVerifier verifier = JWT.require(Algorithm.HMAC256(SECRET_KEY))
-                    .withIssuer(issuer)
-                    .build();
             // using the JWTVerifier's built-in verification method
             DecodedJWT jwt = verifier.verify(token);
             String tokenUsername = jwt.getClaim("username").asString();
+            log.trace("JwtTokenServiceImpl - validating token for username: {}", tokenUsername);
             if (tokenUsername == null) {
                 log.warn("TokenServiceImpl: validate token - null username");
-                return false;
+                return null;
             }
-            List<User> users = loginRepository.findByUsernameIgnoreCase(tokenUsername);
-            if (users.isEmpty()) {
-                log.warn("TokenServiceImpl: validate token  - no users with token's username");
-                return false;
+            if (identityCache.findByUsername(tokenUsername) == null) {
+                log.warn("TokenServiceImpl: validate token - no single user with token's username");
+                return null;
             }
-            if (users.size() > 1) {
-                log.warn("TokenServiceImpl: validate token - too many users found");
-                return false;
+            Long issuedAtMs = jwt.getClaim(ISSUED_AT_MS_CLAIM).asLong();
+            VerifiedTokenCache.Entry entry = new VerifiedTokenCache.Entry(token, tokenUsername,
+                    jwt.getClaim("id").asInt(),
+                    issuedAtMs != null ? issuedAtMs : jwt.getIssuedAt() == null ? 0 : jwt.getIssuedAt().getTime(),
+                    jwt.getExpiresAt() == null ? System.currentTimeMillis() + EXPIRATION_TIME : jwt.getExpiresAt().getTime());
+            if (isRevoked(entry)) {
+                log.warn("TokenServiceImpl: validate token - token was revoked for username: {}", tokenUsername);
+                return null;
             }
-            return true;
+            verifiedTokens.put(entry);
+            return entry;
         } catch (JWTVerificationException e) {
             log.warn("TokenServiceImpl: validate token - JWTVerificationException: {}", e.toString());
             // Token is invalid
-            return false;
+            return null;
         } catch (Exception e) {
             log.warn("TokenServiceImpl: validate token - UNKNOWN error: {}", e.toString());
-            return false;
+            return null;
         }
     }
 
     /**
-     * Extract the username from the JWT Token.
+     * Checks a token against the deny list.
      *
-     * @param token - the token to extract the username from
-     * @return - the username that was stored in the token.
+     * @param entry the claims of the token
+     * @return {@code true} if the token was issued before its user's tokens were revoked, {@code false} otherwise
      */
-    @Override
-    public String getUsername(String token) {
-        return JWT.decode(token).getClaim("username").asString();
-    }
-
-    @Override
-    public Integer getUserId(String token) {
-        return JWT.decode(token.substring(7)).getClaim("id").asInt();
+    private boolean isRevoked(VerifiedTokenCache.Entry entry) {
+        if (entry.getUserId() == null) {
+            return false;
+        }
+        Long revoked = revokedAt.get(entry.getUserId());
+        return revoked != null && entry.getIssuedAtMillis() < revoked;
     }
 }
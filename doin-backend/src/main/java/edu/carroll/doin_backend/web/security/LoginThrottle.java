@@ -0,0 +1,325 @@
+package edu.carroll.doin_backend.web.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Limits how many login attempts a username and a client address can make in a sliding window, so a flood of
+ * attempts is turned away before any password is verified.
+ * <p>
+ * Every username (lowercased, like the lookup it guards) and every client address has its own counter. A counter is
+ * a ring of {@link #SLOTS} slots, each covering a tenth of the window; a slot holds the number of the time slice it
+ * counts and its count packed into one {@code long}, so counting an attempt is a single compare-and-set and no lock
+ * is ever taken. The attempts in the window are the sum of the slots whose slice is still in it.
+ * </p>
+ * <p>
+ * Counters that see no attempts for a whole window are expired with a timing wheel: each counter is filed under the
+ * slice it goes stale in, and {@link #expire()} only looks at the counters filed under the slices that have passed,
+ * instead of scanning all of them. A counter that was used in the meantime is simply filed again further on.
+ * </p>
+ * <p>
+ * The client address is the one the servlet container reports. Behind a reverse proxy it should be configured to
+ * trust the proxy's forwarded headers, e.g. with {@code server.forward-headers-strategy}.
+ * </p>
+ */
+@Component
+public class LoginThrottle {
+    private static final Logger log = LoggerFactory.getLogger(LoginThrottle.class);
+
+    /**
+     * How many slices the window is split into
+     */
+    static final int SLOTS = 10;
+    /**
+     * Low bits of a slot that hold its count; the bits above hold the number of the slice it counts
+     */
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final String USERNAME_PREFIX = "u:";
+    private static final String ADDRESS_PREFIX = "a:";
+
+    /**
+     * Recent attempts for one username or address.
+     */
+    private static final class Counter {
+        private final AtomicLongArray slots = new AtomicLongArray(SLOTS);
+        /**
+         * The last slice an attempt was counted in
+         */
+        private volatile long lastSlice;
+
+        private Counter(long slice) {
+            this.lastSlice = slice;
+        }
+
+        /**
+         * @return the number of attempts in the window ending with the given slice
+         */
+        private long count(long slice) {
+            long total = 0;
+            for (int i = 0; i < SLOTS; i++) {
+                long packed = slots.get(i);
+                if ((packed >>> COUNT_BITS) > slice - SLOTS) {
+                    total += packed & COUNT_MASK;
+                }
+            }
+            return total;
+        }
+
+        /**
+         * Counts one attempt in the given slice, unless the window already holds {@code limit} attempts. The slot
+         * of the current slice is the only one attempts are added to, so a single compare-and-set on it both checks
+         * and counts: concurrent attempts can never take the window past the limit.
+         *
+         * @return {@code true} if the attempt was counted, {@code false} if the limit was reached
+         */
+        private boolean tryIncrement(long slice, int limit) {
+            int i = (int) (slice % SLOTS);
+            while (true) {
+                long packed = slots.get(i);
+                boolean current = (packed >>> COUNT_BITS) == slice;
+                long others = 0;
+                for (int j = 0; j < SLOTS; j++) {
+                    long other = slots.get(j);
+                    if (j != i && (other >>> COUNT_BITS) > slice - SLOTS) {
+                        others += other & COUNT_MASK;
+                    }
+                }
+                long own = current ? packed & COUNT_MASK : 0;
+                if (others + own >= limit || own == COUNT_MASK) {
+                    return false;
+                }
+                // a slot still holding an older slice starts over
+                long next = current ? packed + 1 : (slice << COUNT_BITS) | 1;
+                if (slots.compareAndSet(i, packed, next)) {
+                    break;
+                }
+            }
+            if (slice > lastSlice) {
+                lastSlice = slice;
+            }
+            return true;
+        }
+
+        /**
+         * Takes back an attempt counted by {@link #tryIncrement(long, int)} in the given slice.
+         */
+        private void decrement(long slice) {
+            int i = (int) (slice % SLOTS);
+            while (true) {
+                long packed = slots.get(i);
+                if ((packed >>> COUNT_BITS) != slice || (packed & COUNT_MASK) == 0) {
+                    return;
+                }
+                if (slots.compareAndSet(i, packed, packed - 1)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private final long sliceMillis;
+    private final int maxPerUsername;
+    private final int maxPerAddress;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    /**
+     * The timing wheel: the keys of the counters that go stale in each slice, by slice modulo its length. One more
+     * bucket than there are slots, so a counter filed a full window ahead never lands in the bucket being expired
+     */
+    private final List<Queue<String>> wheel = new ArrayList<>(SLOTS + 1);
+    /**
+     * The last slice whose bucket was expired; none yet, so the first run visits every bucket
+     */
+    private final AtomicLong expiredSlice = new AtomicLong();
+
+    /**
+     * Constructs a new {@link LoginThrottle}.
+     *
+     * @param windowSeconds  how far back attempts are counted
+     * @param maxPerUsername the most attempts one username may get in the window
+     * @param maxPerAddress  the most attempts one client address may make in the window
+     */
+    public LoginThrottle(@Value("${doin.login.throttle.window-seconds:300}") int windowSeconds,
+                         @Value("${doin.login.throttle.max-per-username:10}") int maxPerUsername,
+                         @Value("${doin.login.throttle.max-per-address:50}") int maxPerAddress) {
+        this.sliceMillis = Math.max(1, windowSeconds * 1000L / SLOTS);
+        this.maxPerUsername = maxPerUsername;
+        this.maxPerAddress = maxPerAddress;
+        for (int i = 0; i <= SLOTS; i++) {
+            wheel.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    /**
+     * Counts a login attempt, unless the username or the client address has already used up its attempts.
+     *
+     * @param username the username being logged in to; may be {@code null}
+     * @param address  the client's address; may be {@code null}
+     * @return {@code true} if the attempt may go ahead, {@code false} if it must be turned away
+     */
+    public boolean tryAcquire(String username, String address) {
+        return tryAcquire(username, address, System.currentTimeMillis());
+    }
+
+    /**
+     * Counts a login attempt at the given time; see {@link #tryAcquire(String, String)}.
+     */
+    boolean tryAcquire(String username, String address, long nowMillis) {
+        long slice = sliceOf(nowMillis);
+        String userKey = username == null ? null : USERNAME_PREFIX + normalize(username);
+        String addressKey = address == null ? null : ADDRESS_PREFIX + address;
+        // turned-away attempts are not counted, so a flood doesn't keep pushing the lockout back, and they never
+        // create a counter, so a throttled client spraying usernames can't grow the map; the address goes first
+        if (exhausted(addressKey, slice, maxPerAddress) || exhausted(userKey, slice, maxPerUsername)) {
+            log.debug("tryAcquire: throttling login for username {} from {}", username, address);
+            return false;
+        }
+        Counter addr = addressKey == null ? null : counter(addressKey, slice);
+        if (addr != null && !addr.tryIncrement(slice, maxPerAddress)) {
+            log.debug("tryAcquire: throttling login for username {} from {}", username, address);
+            return false;
+        }
+        Counter user = userKey == null ? null : counter(userKey, slice);
+        if (user != null && !user.tryIncrement(slice, maxPerUsername)) {
+            if (addr != null) {
+                addr.decrement(slice);
+            }
+            log.debug("tryAcquire: throttling login for username {} from {}", username, address);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Forgets the attempts counted against a username after it logged in successfully. Attempts from the client's
+     * address still count.
+     *
+     * @param username the username that was logged in to
+     */
+    public void reset(String username) {
+        if (username != null) {
+            counters.remove(USERNAME_PREFIX + normalize(username));
+        }
+    }
+
+    /**
+     * Gets how long a client that was turned away should wait before trying again.
+     *
+     * @return the length of one slice of the window, in whole seconds
+     */
+    public long retryAfterSeconds() {
+        return Math.max(1, (sliceMillis + 999) / 1000);
+    }
+
+    /**
+     * Gets how many usernames and addresses are being counted.
+     *
+     * @return the number of live counters
+     */
+    public int size() {
+        return counters.size();
+    }
+
+    /**
+     * Drops the counters that have seen no attempts for a whole window.
+     */
+    @Scheduled(initialDelayString = "${doin.login.throttle.expire-interval-ms:30000}",
+            fixedDelayString = "${doin.login.throttle.expire-interval-ms:30000}")
+    public void expire() {
+        expire(System.currentTimeMillis());
+    }
+
+    /**
+     * Drops stale counters as of the given time; see {@link #expire()}.
+     */
+    void expire(long nowMillis) {
+        long now = sliceOf(nowMillis);
+        long from = expiredSlice.get();
+        if (now <= from || !expiredSlice.compareAndSet(from, now)) {
+            // nothing new to expire, or another call is already doing it
+            return;
+        }
+        // every bucket is visited at most once, however long it has been since the last run
+        long start = Math.max(from + 1, now - SLOTS);
+        int dropped = 0;
+        for (long slice = start; slice <= now; slice++) {
+            Queue<String> bucket = wheel.get((int) (slice % wheel.size()));
+            // drained first, since live counters may be filed back into this same bucket
+            List<String> due = new ArrayList<>();
+            for (String key; (key = bucket.poll()) != null; ) {
+                due.add(key);
+            }
+            for (String key : due) {
+                Counter counter = counters.get(key);
+                if (counter == null) {
+                    continue;
+                }
+                long staleAt = counter.lastSlice + SLOTS;
+                if (staleAt <= now) {
+                    if (counters.remove(key, counter)) {
+                        dropped++;
+                    }
+                } else {
+                    file(key, staleAt);
+                }
+            }
+        }
+        if (dropped > 0) {
+            log.debug("expire: dropped {} idle login counters, {} left", dropped, counters.size());
+        }
+    }
+
+    /**
+     * Checks, without creating a counter, whether a key has already used up its attempts.
+     *
+     * @return {@code true} if the key has a counter at or over the limit
+     */
+    private boolean exhausted(String key, long slice, int limit) {
+        if (key == null) {
+            return false;
+        }
+        Counter counter = counters.get(key);
+        return counter != null ? counter.count(slice) >= limit : limit <= 0;
+    }
+
+    /**
+     * Gets the counter for a key, creating it and filing it on the wheel if it is new.
+     */
+    private Counter counter(String key, long slice) {
+        return counters.computeIfAbsent(key, k -> {
+            file(k, slice + SLOTS);
+            return new Counter(slice);
+        });
+    }
+
+    /**
+     * Files a counter's key under the slice it goes stale in.
+     */
+    private void file(String key, long staleAt) {
+        wheel.get((int) (staleAt % wheel.size())).add(key);
+    }
+
+    private long sliceOf(long millis) {
+        return millis / sliceMillis;
+    }
+
+    /**
+     * Usernames are looked up ignoring case, so they are counted that way too.
+     */
+    private static String normalize(String username) {
+        return username.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,8 +1,32 @@
 package edu.carroll.doin_backend.web.security;
 
+import edu.carroll.doin_backend.web.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Service class for handling password hashing and validation using BCrypt.
  * <p>
@@ -10,26 +34,124 @@ import org.springframework.stereotype.Service;
  * It provides methods to hash raw passwords and validate hashed passwords against stored values.
  * </p>
  * <p>
+ * Every hash and verification costs around 100 ms of CPU, so the work is not done on the request thread. It runs on a
+ * fixed pool sized to the number of cores, behind a bounded queue; the request thread waits for its result. When the
+ * queue is full the call fails right away with a {@link ServiceBusyException}, which is answered with
+ * {@code 503 Service Unavailable}, so a burst of logins can't tie up every request thread. The queue depth, the time
+ * spent hashing and verifying, and the number of rejected calls are published as metrics.
+ * </p>
+ * <p>
+ * Hashes are stored with the id of the algorithm that made them, e.g. {@code {bcrypt}$2a$10$...}, so the algorithm
+ * ({@code bcrypt}, or {@code pbkdf2} as an alternative) and the BCrypt cost can be changed per deployment. Hashes
+ * stored before ids were added are read as BCrypt. {@link #needsRehash(String)} tells a caller that has just verified
+ * a password whether its hash was made with other settings, so it can be replaced transparently.
+ * </p>
+ * <p>
  * The structure of this service was influenced by the blog post from Auth0 on BCrypt hashing:
  * <a href="https://auth0.com/blog/hashing-in-action-understanding-bcrypt/#How-does--bcrypt">Auth0 Blog</a>
  * </p>
  */
 @Service
 public class PasswordBCryptService implements PasswordService {
+    private static final Logger log = LoggerFactory.getLogger(PasswordBCryptService.class);
+
     /**
-     * The {@link BCryptPasswordEncoder} instance used to hash and validate passwords.
+     * The id of the BCrypt algorithm, also used for hashes stored without an id
+     */
+    public static final String BCRYPT = "bcrypt";
+    /**
+     * The id of the PBKDF2 algorithm
+     */
+    public static final String PBKDF2 = "pbkdf2";
+
+    /**
+     * The {@link DelegatingPasswordEncoder} instance used to hash and validate passwords.
      * <p>
-     * This field leverages BCrypt's secure hashing algorithm with automatic salting. It is used to
-     * generate password hashes during user registration or password change and to verify raw
-     * passwords against stored hashes during login or validation processes.
+     * New hashes are made with the configured algorithm, BCrypt by default, which uses automatic salting. It is used
+     * to generate password hashes during user registration or password change and to verify raw passwords against
+     * stored hashes, whichever algorithm made them, during login or validation processes.
      * </p>
      */
-    private final BCryptPasswordEncoder hasher = new BCryptPasswordEncoder();
+    private final DelegatingPasswordEncoder hasher;
+    /**
+     * The id of the algorithm new hashes are made with
+     */
+    private final String algorithm;
+    /**
+     * The cost new BCrypt hashes are made with, as a base-2 logarithm of the number of rounds
+     */
+    private final int bcryptStrength;
+    /**
+     * A fixed pool with a bounded queue that all hashing and verification runs on
+     */
+    private final ThreadPoolExecutor executor;
+    private final Timer hashTimer;
+    private final Timer verifyTimer;
+    private final Counter rejected;
 
     /**
      * Constructs a new {@link PasswordBCryptService} using {@link BCryptPasswordEncoder}.
+     *
+     * @param algorithm      the id of the algorithm new hashes are made with, {@code bcrypt} or {@code pbkdf2}
+     * @param bcryptStrength the cost of new BCrypt hashes, between 4 and 31
+     * @param threads        how many passwords are hashed or verified at once; {@code 0} uses one thread per core
+     * @param queueSize      how many calls may wait for a thread before new ones are rejected
+     * @param registry       the registry the pool's metrics are published to
+     * @throws IllegalArgumentException if the algorithm is unknown or the cost is out of range
      */
-    public PasswordBCryptService() {
+    public PasswordBCryptService(@Value("${doin.passwords.algorithm:bcrypt}") String algorithm,
+                                 @Value("${doin.passwords.bcrypt.strength:10}") int bcryptStrength,
+                                 @Value("${doin.passwords.threads:0}") int threads,
+                                 @Value("${doin.passwords.queue:64}") int queueSize,
+                                 MeterRegistry registry) {
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        encoders.put(BCRYPT, bcrypt);
+        encoders.put(PBKDF2, Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        if (!encoders.containsKey(algorithm)) {
+            throw new IllegalArgumentException("Unknown password algorithm: " + algorithm);
+        }
+        this.algorithm = algorithm;
+        this.bcryptStrength = bcryptStrength;
+        this.hasher = new DelegatingPasswordEncoder(algorithm, encoders);
+        // hashes stored before ids were added are plain BCrypt
+        this.hasher.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread t = new Thread(r, "password-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("doin.passwords.queue.depth", executor, e -> e.getQueue().size())
+                .description("Password hashes and verifications waiting for a thread")
+                .register(registry);
+        Gauge.builder("doin.passwords.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashes and verifications running right now")
+                .register(registry);
+        this.hashTimer = Timer.builder("doin.passwords.work")
+                .description("Time spent hashing or verifying a password, excluding time in the queue")
+                .tag("operation", "hash")
+                .register(registry);
+        this.verifyTimer = Timer.builder("doin.passwords.work")
+                .description("Time spent hashing or verifying a password, excluding time in the queue")
+                .tag("operation", "verify")
+                .register(registry);
+        this.rejected = Counter.builder("doin.passwords.rejected")
+                .description("Password hashes and verifications turned away because the queue was full")
+                .register(registry);
+        log.info("PasswordBCryptService: {} (BCrypt cost {}) on {} threads, queue of {}",
+                algorithm, bcryptStrength, poolSize, queueSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
     }
 
     /**
@@ -41,28 +163,101 @@ public class PasswordBCryptService implements PasswordService {
      * @param rawPassword the raw password to be hashed.
      * @return the hashed and salted password.
      * @throws IllegalArgumentException if the {@code rawPassword} is {@code null}.
+     * @throws ServiceBusyException     if too many passwords are already waiting to be hashed or verified.
      */
     @Override
     public String hashPassword(String rawPassword) throws IllegalArgumentException {
         if (rawPassword == null) {
             throw new IllegalArgumentException("rawPassword parameter cannot be null");
         }
-        return hasher.encode(rawPassword);
+        return run(() -> hashTimer.record(() -> hasher.encode(rawPassword)));
     }
 
     /**
      * Validates the raw password against a stored hashed password.
      * <p>
-     * This method uses BCrypt's built-in {@link BCryptPasswordEncoder#matches(CharSequence, String)} method,
-     * which compares the raw password with the stored hash and automatically considers salting.
+     * This method uses the built-in {@link PasswordEncoder#matches(CharSequence, String)} method of the algorithm
+     * that made the stored hash, which compares the raw password with it and automatically considers salting.
      * </p>
      *
      * @param rawPassword    the raw password to validate.
      * @param hashedPassword the stored hashed password to compare against.
      * @return {@code true} if the raw password matches the stored hash, {@code false} otherwise.
+     * @throws ServiceBusyException if too many passwords are already waiting to be hashed or verified.
      */
     @Override
     public boolean validatePassword(String rawPassword, String hashedPassword) {
-        return hasher.matches(rawPassword, hashedPassword);
+        if (rawPassword == null || hashedPassword == null) {
+            return false;
+        }
+        return run(() -> verifyTimer.record(() -> hasher.matches(rawPassword, hashedPassword)));
+    }
+
+    /**
+     * Checks whether a stored hash was made with a different algorithm than the configured one, or, for BCrypt, with
+     * a different cost. Hashes stored without an algorithm id always need it, so the id gets added.
+     *
+     * @param hashedPassword the stored hashed password
+     * @return {@code true} if the password should be hashed again, {@code false} otherwise
+     */
+    @Override
+    public boolean needsRehash(String hashedPassword) {
+        if (hashedPassword == null) {
+            return false;
+        }
+        String prefix = "{" + algorithm + "}";
+        if (!hashedPassword.startsWith(prefix)) {
+            return true;
+        }
+        return BCRYPT.equals(algorithm) && bcryptCost(hashedPassword.substring(prefix.length())) != bcryptStrength;
+    }
+
+    /**
+     * Reads the cost out of a BCrypt hash, which looks like {@code $2a$10$...}.
+     *
+     * @param hash the hash, without an algorithm id
+     * @return the cost, or {@code -1} if the hash is not BCrypt
+     */
+    private static int bcryptCost(String hash) {
+        int start = hash.indexOf('$', 1);
+        if (!hash.startsWith("$2") || start < 0 || hash.length() < start + 3) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(hash.substring(start + 1, start + 3));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Runs password work on the pool and waits for its result.
+     *
+     * @param work the hash or verification to run
+     * @param <T>  the type of the result
+     * @return the result of the work
+     * @throws ServiceBusyException if the queue is full, or the calling thread is interrupted while waiting
+     */
+    private <T> T run(Callable<T> work) {
+        final Future<T> future;
+        try {
+            future = executor.submit(work);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("run: password queue is full ({} waiting), rejecting", executor.getQueue().size());
+            throw new ServiceBusyException("Too many password checks in progress");
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Interrupted while waiting for a password check");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
     }
 }
@@ -25,4 +25,13 @@ public interface PasswordService {
      * @return true if the raw password matches the hashed password; false otherwise
      */
     boolean validatePassword(String rawPassword, String hashedPassword);
-}
\ No newline at end of file
+
+    /**
+     * Checks whether a stored hash was made with a different algorithm or cost than new hashes are, so it should be
+     * replaced the next time the raw password is known.
+     *
+     * @param hashedPassword the stored hashed password
+     * @return true if the password should be hashed again; false otherwise
+     */
+    boolean needsRehash(String hashedPassword);
+}
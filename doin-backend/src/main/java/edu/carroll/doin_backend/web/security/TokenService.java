@@ -41,4 +41,20 @@ public interface TokenService {
      * @return the user ID associated with the token
      */
     Integer getUserId(String token);
-}
\ No newline at end of file
+
+    /**
+     * Validates the given token and builds the principal it vouches for.
+     *
+     * @param token the token to authenticate
+     * @return the {@link AuthenticatedUser} named by the token, or {@code null} if the token is invalid or revoked
+     */
+    AuthenticatedUser authenticate(String token);
+
+    /**
+     * Revokes every token issued to a user so far, for example after their password changes.
+     * Tokens issued afterwards are not affected.
+     *
+     * @param userId the ID of the user whose tokens to revoke
+     */
+    void revokeUser(Integer userId);
+}
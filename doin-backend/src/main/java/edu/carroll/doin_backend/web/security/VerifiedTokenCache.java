@@ -0,0 +1,192 @@
+package edu.carroll.doin_backend.web.security;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of tokens whose signature has already been verified.
+ * <p>
+ * Entries are keyed by the token's signature segment, which is unique per token, and remember the claims that were
+ * read during verification. Every entry expires together with its token, so a cache hit never extends a token's
+ * life. Once the cache is full, expired entries are purged and new tokens are only cached if room was freed.
+ * </p>
+ */
+public class VerifiedTokenCache {
+
+    /**
+     * The claims of a verified token.
+     */
+    public static final class Entry {
+        private final String token;
+        private final String username;
+        private final Integer userId;
+        private final long issuedAtMillis;
+        private final long expiresAtMillis;
+
+        /**
+         * Constructs a new {@link Entry}.
+         *
+         * @param token           the full token, compared on lookup so only that exact token can hit
+         * @param username        the username claim
+         * @param userId          the id claim
+         * @param issuedAtMillis  when the token was issued, in epoch milliseconds
+         * @param expiresAtMillis when the token expires, in epoch milliseconds
+         */
+        public Entry(String token, String username, Integer userId, long issuedAtMillis, long expiresAtMillis) {
+            this.token = token;
+            this.username = username;
+            this.userId = userId;
+            this.issuedAtMillis = issuedAtMillis;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        /**
+         * @return the username claim
+         */
+        public String getUsername() {
+            return username;
+        }
+
+        /**
+         * @return the id claim
+         */
+        public Integer getUserId() {
+            return userId;
+        }
+
+        /**
+         * @return when the token was issued, in epoch milliseconds
+         */
+        public long getIssuedAtMillis() {
+            return issuedAtMillis;
+        }
+
+        /**
+         * @return when the token expires, in epoch milliseconds
+         */
+        public long getExpiresAtMillis() {
+            return expiresAtMillis;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructs a new {@link VerifiedTokenCache}.
+     *
+     * @param maxEntries the most tokens to remember at once
+     */
+    public VerifiedTokenCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Looks up a token that was verified before and has not expired since.
+     *
+     * @param token the full token
+     * @return the cached claims, or {@code null} if the token was never verified or has expired
+     */
+    public Entry get(String token) {
+        String key = signatureOf(token);
+        if (key == null) {
+            return null;
+        }
+        Entry entry = entries.get(key);
+        if (entry == null || !entry.token.equals(token)) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAtMillis <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry;
+    }
+
+    /**
+     * Remembers a token that was just verified.
+     *
+     * @param entry the claims of the verified token
+     */
+    public void put(Entry entry) {
+        String key = signatureOf(entry.token);
+        if (key == null) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            purgeExpired();
+            if (entries.size() >= maxEntries) {
+                // still full of live tokens: verify this one again next time rather than grow without bound
+                return;
+            }
+        }
+        entries.put(key, entry);
+    }
+
+    /**
+     * Forgets every cached token.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Gets how many tokens are cached.
+     *
+     * @return the number of cached tokens, including any that expired but were not purged yet
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets how many lookups found a verified token.
+     *
+     * @return the number of cache hits since the cache was created
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets how many lookups of a well-formed token found nothing, so the token had to be verified.
+     *
+     * @return the number of cache misses since the cache was created
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Removes every entry whose token has expired.
+     */
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            if (it.next().expiresAtMillis <= now) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Gets the signature segment of a token, the part after the last dot.
+     *
+     * @param token the full token
+     * @return the signature segment, or {@code null} if the token is not a three-part JWT
+     */
+    private static String signatureOf(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.lastIndexOf('.');
+        return dot < 0 || dot == token.length() - 1 ? null : token.substring(dot + 1);
+    }
+}
@@ -1,5 +1,6 @@
 package edu.carroll.doin_backend.web.service;
 
+import edu.carroll.doin_backend.web.dto.CursorSliceDTO;
 import edu.carroll.doin_backend.web.dto.EventDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -42,7 +43,48 @@ public interface EventService {
     Page<EventDTO> getAll(Integer userId, Pageable pageable);
 
     /**
-     * Retrieves a list of upcoming events for a specific user.
+     * Retrieves a slice of public events, newest first, starting after a cursor.
+     * <p>
+     * Unlike {@link #getPublicEvents(Pageable)}, this never counts the events and never skips rows, so every slice
+     * costs the same no matter how deep into the feed it is. Events are ordered by time, then ID; the cursor seeks
+     * past an event's time, so only events with a time are paged through, which is why {@link #add(EventDTO)}
+     * rejects an event without one.
+     * </p>
+     *
+     * @param cursor the cursor returned with the previous slice, or {@code null} for the first slice
+     * @param size   the most events to return
+     * @return a {@link CursorSliceDTO} of {@link EventDTO} objects with the cursor for the next slice
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    CursorSliceDTO<EventDTO> getPublicEvents(String cursor, int size);
+
+    /**
+     * Retrieves a slice of the events created by a specific user, newest first, starting after a cursor.
+     *
+     * @param userId    the unique identifier of the user whose events are being retrieved.
+     * @param reqUserId the unique identifier of the requesting user.
+     * @param cursor    the cursor returned with the previous slice, or {@code null} for the first slice
+     * @param size      the most events to return
+     * @return a {@link CursorSliceDTO} of {@link EventDTO} objects with the cursor for the next slice
+     * @throws IllegalArgumentException if the cursor is malformed
+     * @see #getPublicEvents(String, int)
+     */
+    CursorSliceDTO<EventDTO> getUserEvents(Integer userId, Integer reqUserId, String cursor, int size);
+
+    /**
+     * Retrieves a slice of all events visible to the given user, newest first, starting after a cursor.
+     *
+     * @param userId the unique identifier of the requesting user.
+     * @param cursor the cursor returned with the previous slice, or {@code null} for the first slice
+     * @param size   the most events to return
+     * @return a {@link CursorSliceDTO} of {@link EventDTO} objects with the cursor for the next slice
+     * @throws IllegalArgumentException if the cursor is malformed
+     * @see #getPublicEvents(String, int)
+     */
+    CursorSliceDTO<EventDTO> getAll(Integer userId, String cursor, int size);
+
+    /**
+     * Retrieves the next events a specific user created or joined, soonest first, up to a configured limit.
      *
      * @param userId the unique identifier of the user.
      * @return a list of {@link EventDTO} objects representing upcoming events.
@@ -61,14 +103,22 @@ public interface EventService {
 
     /**
      * Adds a new event to the system.
+     * <p>
+     * Every event must have a time: the feeds page through events by time, so an event without one is rejected.
+     * </p>
      *
      * @param event the {@link EventDTO} object representing the event to add.
-     * @return the {@link EventDTO} object representing the newly added event.
+     * @return the {@link EventDTO} object representing the newly added event, or {@code null} if it has no time.
      */
     EventDTO add(EventDTO event);
 
     /**
      * Allows a user to join an event.
+     * <p>
+     * A user may not join an event that has passed, that they created, that they already joined, or that has reached
+     * its capacity. If a concurrent join of the same user gets in first, this join is rolled back and reports
+     * {@code false}.
+     * </p>
      *
      * @param userId  the unique identifier of the user joining the event.
      * @param eventId the unique identifier of the event to join.
@@ -87,4 +137,18 @@ public interface EventService {
      * @throws IllegalArgumentException if the event ID or user ID is invalid, or if the file is null.
      */
     boolean addImage(Integer eventId, Integer userId, MultipartFile file);
-}
\ No newline at end of file
+
+    /**
+     * Checks if a user is allowed to view an image.
+     * <p>
+     * Users' current profile pictures are visible to every user. Event images follow the visibility of their events:
+     * the user must be able to see at least one event the image is attached to. Any other image, such as a replaced
+     * profile picture that has not been deleted yet, is visible to no one.
+     * </p>
+     *
+     * @param imageId the unique identifier of the image.
+     * @param userId  the unique identifier of the requesting user.
+     * @return {@code true} if the user may view the image; {@code false} otherwise.
+     */
+    boolean canViewImage(Long imageId, Integer userId);
+}
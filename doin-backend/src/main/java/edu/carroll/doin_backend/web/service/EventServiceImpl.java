@@ -1,21 +1,39 @@
 package edu.carroll.doin_backend.web.service;
 
+import edu.carroll.doin_backend.web.cache.AgendaIndex;
+import edu.carroll.doin_backend.web.cache.EventTimelineIndex;
+import edu.carroll.doin_backend.web.dto.CursorSliceDTO;
 import edu.carroll.doin_backend.web.dto.EventDTO;
 import edu.carroll.doin_backend.web.enums.FriendshipStatus;
 import edu.carroll.doin_backend.web.enums.Visibility;
 import edu.carroll.doin_backend.web.model.Event;
 import edu.carroll.doin_backend.web.model.Image;
-import edu.carroll.doin_backend.web.model.User;
 import edu.carroll.doin_backend.web.repository.EventRepository;
+import edu.carroll.doin_backend.web.repository.LoginRepository;
+import edu.carroll.doin_backend.web.util.EventCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -24,15 +42,33 @@ import java.util.Set;
 public class EventServiceImpl implements EventService {
 
     private static final Logger logger = LoggerFactory.getLogger(EventServiceImpl.class);
+    /**
+     * The most images an event may have
+     */
+    private static final int MAX_IMAGES = 6;
 
     private final EventRepository eventRepository;
+    private final LoginRepository loginRepository;
     private final ImageService imageService;
     private final FriendService friendService;
-
-    public EventServiceImpl(EventRepository eventRepository, ImageService imageService, FriendService friendService) {
+    private final EventTimelineIndex timelineIndex;
+    private final AgendaIndex agendaIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxUpcoming;
+
+    public EventServiceImpl(EventRepository eventRepository, LoginRepository loginRepository,
+                            ImageService imageService, FriendService friendService,
+                            EventTimelineIndex timelineIndex, AgendaIndex agendaIndex,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${doin.events.upcoming.max-results:50}") int maxUpcoming) {
         this.eventRepository = eventRepository;
+        this.loginRepository = loginRepository;
         this.imageService = imageService;
         this.friendService = friendService;
+        this.timelineIndex = timelineIndex;
+        this.agendaIndex = agendaIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.maxUpcoming = maxUpcoming;
     }
 
     @Override
@@ -93,14 +129,124 @@ public class EventServiceImpl implements EventService {
         return eventDTOPage;
     }
 
+    @Override
+    /**
+     * {@inheritDoc}
+     */
+    public CursorSliceDTO<EventDTO> getPublicEvents(String cursor, int size) {
+        EventCursor after = EventCursor.decode(cursor);
+        logger.info("Retrieving public events after cursor {}|{}, size: {}", after.getTime(), after.getId(), size);
+        Slice<Event> slice = eventRepository.findPublicEventsBefore(after.getTime(), after.getId(), PageRequest.of(0, size));
+        return toCursorSlice(slice);
+    }
+
+    @Override
+    /**
+     * {@inheritDoc}
+     */
+    public CursorSliceDTO<EventDTO> getUserEvents(Integer userId, Integer reqUserId, String cursor, int size) {
+        EventCursor after = EventCursor.decode(cursor);
+        logger.info("Retrieving events of user {} after cursor {}|{}, size: {}", userId, after.getTime(), after.getId(), size);
+        Set<Integer> friends = friendService.findFriendIdsByUserId(reqUserId, FriendshipStatus.CONFIRMED);
+        // Show private events only if the user is the requester or a friend
+        Visibility visibility = userId.equals(reqUserId) || friends.contains(userId) ? Visibility.PRIVATE : Visibility.PUBLIC;
+        Slice<Event> slice = eventRepository.findUserEventsBefore(userId, visibility, after.getTime(), after.getId(), PageRequest.of(0, size));
+        return toCursorSlice(slice);
+    }
+
+    @Override
+    /**
+     * {@inheritDoc}
+     */
+    public CursorSliceDTO<EventDTO> getAll(Integer userId, String cursor, int size) {
+        EventCursor after = EventCursor.decode(cursor);
+        logger.info("Retrieving events for user {} after cursor {}|{}, size: {}", userId, after.getTime(), after.getId(), size);
+        // one extra entry tells whether another slice follows
+        List<EventCursor> entries = timelineIndex.feed(userId, after, size + 1);
+        if (entries == null) {
+            // the slice reaches past the newest events the timelines keep, so it is read from both indexes
+            Set<Integer> friends = friendService.findFriendIdsByUserId(userId, FriendshipStatus.CONFIRMED);
+            friends.add(userId); // Include user's own events
+            PageRequest first = PageRequest.of(0, size);
+            Slice<Event> pub = eventRepository.findPublicEventsBefore(after.getTime(), after.getId(), first);
+            Slice<Event> restricted = eventRepository.findRestrictedEventsBefore(friends, after.getTime(), after.getId(), first);
+            return toCursorSlice(mergeNewestFirst(pub, restricted, first));
+        }
+        boolean more = entries.size() > size;
+        if (more) {
+            entries = entries.subList(0, size);
+        }
+        List<EventDTO> content = loadInOrder(entries.stream().map(EventCursor::getId).toList());
+        String nextCursor = more ? entries.get(entries.size() - 1).encode() : null;
+        logger.info("Successfully retrieved {} events from the timeline, more: {}", content.size(), more);
+        return new CursorSliceDTO<>(content, nextCursor);
+    }
+
+    /**
+     * Merges two slices of events ordered by time and ID, newest first, into one slice of the same size.
+     *
+     * @param a        one slice
+     * @param b        the other slice, holding none of the events of the first
+     * @param pageable the size of the merged slice
+     * @return the newest events of both, with another slice following if either had more
+     */
+    private static Slice<Event> mergeNewestFirst(Slice<Event> a, Slice<Event> b, Pageable pageable) {
+        List<Event> merged = new ArrayList<>(a.getNumberOfElements() + b.getNumberOfElements());
+        merged.addAll(a.getContent());
+        merged.addAll(b.getContent());
+        merged.sort(Comparator.comparing(Event::getTime).thenComparing(Event::getId).reversed());
+        int size = pageable.getPageSize();
+        boolean more = a.hasNext() || b.hasNext() || merged.size() > size;
+        return new SliceImpl<>(merged.subList(0, Math.min(size, merged.size())), pageable, more);
+    }
+
+    /**
+     * Converts a slice of events into a {@link CursorSliceDTO}, with a cursor at its last event if more follow.
+     *
+     * @param slice the slice of events, ordered by time and ID
+     * @return the slice as DTOs
+     */
+    private CursorSliceDTO<EventDTO> toCursorSlice(Slice<Event> slice) {
+        List<Event> events = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext() && !events.isEmpty()) {
+            Event last = events.get(events.size() - 1);
+            nextCursor = new EventCursor(last.getTime(), last.getId()).encode();
+        }
+        logger.info("Successfully retrieved {} events, more: {}", events.size(), slice.hasNext());
+        return new CursorSliceDTO<>(events.stream().map(EventDTO::new).toList(), nextCursor);
+    }
+
     @Override
     /**
      * {@inheritDoc}
      */
     public List<EventDTO> getUpcomingEvents(Integer userId) {
-        List<Event> events = eventRepository.getUpcomingEvents(userId);
-        // Convert Event list to EventDTO list
-        return events.stream().map(EventDTO::new).toList();
+        if (userId == null)
+            return List.of();
+
+        // The agenda already holds the user's next events in order, so only those few are loaded
+        int[] ids = agendaIndex.upcoming(userId, maxUpcoming);
+        List<EventDTO> events = loadInOrder(Arrays.stream(ids).boxed().toList());
+        logger.info("Successfully retrieved {} upcoming events for user {}", events.size(), userId);
+        return events;
+    }
+
+    /**
+     * Loads events by ID in a single query and converts them to DTOs in the order the IDs were given.
+     *
+     * @param ids the IDs of the events, in the order to return them
+     * @return the DTOs of the events that still exist
+     */
+    private List<EventDTO> loadInOrder(List<Integer> ids) {
+        if (ids.isEmpty())
+            return List.of();
+
+        Map<Integer, Event> byId = new HashMap<>();
+        for (Event event : eventRepository.findAllByIdIn(ids)) {
+            byId.put(event.getId(), event);
+        }
+        return ids.stream().map(byId::get).filter(Objects::nonNull).map(EventDTO::new).toList();
     }
 
     @Override
@@ -138,6 +284,12 @@ public class EventServiceImpl implements EventService {
     public EventDTO add(EventDTO event) {
         logger.info("Adding new event: {}", event);
 
+        // Feeds and timelines page by time, and an event without one would never appear in them
+        if (event.getTime() == null) {
+            logger.warn("Rejecting new event without a time");
+            return null;
+        }
+
         // Truncate description if it exceeds 255 characters
         if (event.getDescription() != null && event.getDescription().length() > 255) {
             event.setDescription(event.getDescription().substring(0, 255));
@@ -148,7 +300,17 @@ public class EventServiceImpl implements EventService {
             event.setVisibility(Visibility.PUBLIC);
         }
 
+        // A capacity below one would make the event impossible to join, so treat it as no limit
+        if (event.getCapacity() != null && event.getCapacity() < 1) {
+            logger.warn("Ignoring capacity {} for new event", event.getCapacity());
+            event.setCapacity(null);
+        }
+
         Event newEvent = eventRepository.save(new Event(event));
+        if (newEvent.getCreator() != null && newEvent.getCreator().getId() != null) {
+            timelineIndex.add(newEvent.getId(), newEvent.getCreator().getId(), newEvent.getTime(), newEvent.getVisibility());
+            agendaIndex.addEvent(newEvent.getId(), newEvent.getCreator().getId(), newEvent.getTime());
+        }
         logger.info("Successfully added event with ID: {}", newEvent.getId());
         return new EventDTO(newEvent);
     }
@@ -159,27 +321,43 @@ public class EventServiceImpl implements EventService {
      */
     public boolean joinUser(Integer eventId, Integer userId) {
         logger.info("User with ID {} joining event with ID {}", userId, eventId);
-        Optional<Event> existingOpt = eventRepository.findById(eventId);
 
-        if (existingOpt.isEmpty())
-            return false;
-
-        Event existing = existingOpt.get();
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            // The event must exist, not have passed, have room, and not be created or already joined by the user;
+            // the database checks all of it while taking the place, so neither the event nor its joiners are loaded
+            if (eventRepository.reserveJoinerSlot(eventId, userId, LocalDateTime.now()) == 0) {
+                logger.warn("User with ID {} may not join event with ID {}", userId, eventId);
+                return false;
+            }
+
+            // Add user as a joiner
+            try {
+                eventRepository.insertJoiner(eventId, userId);
+            } catch (DataIntegrityViolationException e) {
+                // A concurrent join of the same user got in first; undo the place taken instead of failing the request
+                logger.warn("User with ID {} already joined event with ID {}", userId, eventId);
+                status.setRollbackOnly();
+                return false;
+            }
+            agendaIndex.addJoiner(eventId, userId);
+            logger.info("User with ID {} successfully joined event with ID {}", userId, eventId);
+            return true;
+        }));
+    }
 
-        // Prevent joining if the event has passed, user is the creator, or already a joiner
-        if (existing.getTime().isBefore(LocalDateTime.now()) ||
-                existing.getCreator().getId().equals(userId) ||
-                existing.getJoiners().stream().anyMatch(a -> Objects.equals(a.getId(), userId))) {
-            return false;
+    /**
+     * Corrects the joiner and image counts of any event they disagree with, once the application has started. This
+     * fills in the counts for events that were created before they were stored, and repairs an image count left
+     * behind by an upload that failed half way.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void reconcileCounts() {
+        int joiners = eventRepository.reconcileJoinerCounts();
+        int images = eventRepository.reconcileImageCounts();
+        if (joiners > 0 || images > 0) {
+            logger.info("Corrected the joiner count of {} events and the image count of {} events", joiners, images);
         }
-
-        // Add user as a joiner
-        User user = new User();
-        user.setId(userId);
-        existing.addJoiner(user);
-        eventRepository.save(existing);
-        logger.info("User with ID {} successfully joined event with ID {}", userId, eventId);
-        return true;
     }
 
     @Override
@@ -189,22 +367,6 @@ public class EventServiceImpl implements EventService {
     public boolean addImage(Integer eventId, Integer userId, MultipartFile file) {
         logger.info("Adding image to event with ID {} by user with ID {}", eventId, userId);
 
-        Optional<Event> eventOpt = eventRepository.findById(eventId);
-        if (eventOpt.isEmpty()) {
-            logger.warn("Event not found with ID: {}", eventId);
-            return false;
-        }
-
-        Event event = eventOpt.get();
-
-        // Check if the user is allowed to add an image
-        if (event.getTime().isAfter(LocalDateTime.now()) || event.getImages().size() > 5 ||
-                !(Objects.equals(event.getCreator().getId(), userId) ||
-                        event.getJoiners().stream().anyMatch(j -> Objects.equals(j.getId(), userId)))) {
-            logger.warn("User is not allowed to add image to this event");
-            return false;
-        }
-
         // Validate uploaded file is an image
         String contentType = file.getContentType();
         if (contentType == null || !contentType.startsWith("image/")) {
@@ -220,16 +382,45 @@ public class EventServiceImpl implements EventService {
             return false;
         }
 
+        // Check the event exists, has started, has room, and the user created or joined it, while taking the slot
+        if (eventRepository.reserveImageSlot(eventId, userId, LocalDateTime.now(), MAX_IMAGES) == 0) {
+            logger.warn("User is not allowed to add image to this event");
+            return false;
+        }
+
         try {
             // Save image and add to event
             Image img = imageService.save(file);
-            event.addImage(img);
-            eventRepository.save(event);
+            eventRepository.insertEventImage(eventId, img.getId());
             logger.info("Successfully added image to event with ID {}", eventId);
             return true;
         } catch (Exception e) {
             logger.error("Failed to add image to event with ID {} due to exception: {}", eventId, e.getMessage());
+            eventRepository.releaseImageSlot(eventId);
             return false;
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    /**
+     * {@inheritDoc}
+     */
+    public boolean canViewImage(Long imageId, Integer userId) {
+        List<Event> events = eventRepository.findAllByImageId(imageId);
+        Set<Integer> friends = null;
+        for (Event event : events) {
+            // Same rules as getById: public, created by the requesting user, or created by a friend
+            if (event.getVisibility() == Visibility.PUBLIC || event.getCreator().getId().equals(userId))
+                return true;
+            if (friends == null)
+                friends = friendService.findFriendIdsByUserId(userId, FriendshipStatus.CONFIRMED);
+            if (friends.contains(event.getCreator().getId()))
+                return true;
+        }
+        // Current profile pictures are visible to everyone; any other image outside a visible event is not
+        if (loginRepository.existsByProfilePictureId(imageId))
+            return true;
+        logger.warn("User with ID {} is not allowed to view image with ID {}", userId, imageId);
+        return false;
+    }
+}
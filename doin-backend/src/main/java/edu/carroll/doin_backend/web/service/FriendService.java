@@ -4,6 +4,8 @@ import edu.carroll.doin_backend.web.dto.FriendshipDTO;
 import edu.carroll.doin_backend.web.dto.ValidateResult;
 import edu.carroll.doin_backend.web.enums.FriendshipStatus;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -47,6 +49,16 @@ public interface FriendService {
 
     Set<Integer> findFriendIdsByUserId(Integer userId, FriendshipStatus status);
 
+    /**
+     * Resolves the friendship status between a user and many other users at once, in either direction.
+     *
+     * @param userId    the ID of the current user
+     * @param targetIds the IDs of the users to get the status with
+     * @return a {@link Map} from each target ID to its {@link FriendshipStatus}: {@code IS_SELF} for the user
+     * themselves and {@code NOTADDED} when there is no friendship
+     */
+    Map<Integer, FriendshipStatus> getStatuses(Integer userId, Collection<Integer> targetIds);
+
     /**
      * Retrieves the list of friend requests for the specified user.
      *
@@ -1,5 +1,9 @@
 package edu.carroll.doin_backend.web.service;
 
+import edu.carroll.doin_backend.web.cache.EventTimelineIndex;
+import edu.carroll.doin_backend.web.cache.FriendGraphIndex;
+import edu.carroll.doin_backend.web.cache.UserIdentityCache;
+import edu.carroll.doin_backend.web.cache.UsernameSearchIndex;
 import edu.carroll.doin_backend.web.dto.FriendshipDTO;
 import edu.carroll.doin_backend.web.dto.ValidateResult;
 import edu.carroll.doin_backend.web.enums.FriendshipStatus;
@@ -9,6 +13,7 @@ import edu.carroll.doin_backend.web.repository.FriendRepository;
 import edu.carroll.doin_backend.web.repository.LoginRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
@@ -29,6 +34,12 @@ import java.util.*;
  * </p>
  * <p>
  * All operations rely on data persistence through repositories such as {@code loginRepo} and {@code friendRepo}.
+ * Users are resolved through the {@link UserIdentityCache}, and only referenced by ID in friendship queries, so a
+ * friend operation needs no user query once the cache is warm.
+ * </p>
+ * <p>
+ * Friend lists and friendship statuses are read from the {@link FriendGraphIndex}, which this service keeps up to
+ * date after every friendship it saves or deletes; the database is only queried to change a friendship.
  * </p>
  */
 @Service
@@ -48,27 +59,64 @@ public class FriendServiceImpl implements FriendService {
      */
     private final LoginRepository loginRepo;
 
+    /**
+     * A {@link UserIdentityCache} to resolve usernames and IDs without querying the database.
+     */
+    private final UserIdentityCache identityCache;
+
+    /**
+     * A {@link FriendGraphIndex} holding every friendship in memory.
+     */
+    private final FriendGraphIndex friendGraph;
+
+    /**
+     * A {@link UsernameSearchIndex} for finding users by part of their username.
+     */
+    private final UsernameSearchIndex searchIndex;
+
+    /**
+     * An {@link EventTimelineIndex} whose home timelines are backfilled and pruned as friendships change.
+     */
+    private final EventTimelineIndex timelineIndex;
+
+    /**
+     * The most users a username search returns.
+     */
+    private final int maxSearchResults;
+
     /**
      * Constructor to initialize FriendServiceImpl with the necessary repositories.
      *
      * @param friendRepository The repository for managing Friendship entities.
      * @param loginRepository  The repository for managing User entities.
-     *                         =
+     * @param identityCache    The cache used to resolve users by username or ID.
+     * @param friendGraph      The in-memory index of friendships, updated after every change.
+     * @param searchIndex      The in-memory index used to search usernames.
+     * @param timelineIndex    The in-memory event timelines, updated after every confirmed or removed friendship.
+     * @param maxSearchResults The most users a username search returns, from the application properties.
      */
-    public FriendServiceImpl(FriendRepository friendRepository, LoginRepository loginRepository) {
+    public FriendServiceImpl(FriendRepository friendRepository, LoginRepository loginRepository,
+                             UserIdentityCache identityCache, FriendGraphIndex friendGraph,
+                             UsernameSearchIndex searchIndex, EventTimelineIndex timelineIndex,
+                             @Value("${doin.search.users.max-results:50}") int maxSearchResults) {
         this.friendRepo = friendRepository;
         this.loginRepo = loginRepository;
+        this.identityCache = identityCache;
+        this.friendGraph = friendGraph;
+        this.searchIndex = searchIndex;
+        this.timelineIndex = timelineIndex;
+        this.maxSearchResults = maxSearchResults;
     }
 
     /**
      * Retrieves the set of mutual friends (friends of friends) for a given user.
      * <p>
      * The method first validates the username. If the username is invalid, it returns an empty set.
-     * If valid, it fetches the user's direct friends, then retrieves and aggregates each friend's friends
-     * (excluding the initial user from the result).
+     * If valid, it walks two hops through the {@link FriendGraphIndex}, excluding the user and their direct friends,
+     * and reports how many friends each result has in common with the user.
      * </p>
      * <p>
-     * If an error occurs during processing (e.g., repository access failure), it logs a warning and returns an empty set.
+     * If an error occurs during processing, it logs a warning and returns an empty set.
      * </p>
      *
      * @param userUsername The username of the user whose mutual friends are being retrieved.
@@ -79,32 +127,32 @@ public class FriendServiceImpl implements FriendService {
     public Set<FriendshipDTO> getFriendsOfFriends(String userUsername) {
         log.trace("getFriendsOfFriends: getting the friends of friends for username {}", userUsername);
         log.trace("getFriendsOfFriends: validating username {}", userUsername);
-        if (!isValidExistingUsername(userUsername)) {
+        final UserIdentityCache.Identity current = identityCache.findByUsername(userUsername);
+        if (current == null) {
             log.warn("getFriendsOfFriends: invalid username {}", userUsername);
             return new HashSet<>();
         }
-        // get the user that was found with the valid username
-        User initialUser = loginRepo.findByUsernameIgnoreCase(userUsername).get(0);
         // get the friends of friends
-        log.trace("getFriendsOfFriends: getting friends from friendsRepository for username {}", userUsername);
+        log.trace("getFriendsOfFriends: walking the friend graph for username {}", userUsername);
         try {
-            Set<FriendshipDTO> immediateFriends = getFriends(userUsername);
+            FriendGraphIndex.FriendsOfFriends found = friendGraph.friendsOfFriends(current.getId());
             Set<FriendshipDTO> mutualFriends = new HashSet<>();
-            for (FriendshipDTO friend : immediateFriends) {
-                Set<FriendshipDTO> friendFriends = getFriends(friend.getUsername());
-                for (FriendshipDTO friendFriend : friendFriends) {
-                    friendFriend.setStatus(FriendshipStatus.NOTADDED);
-                    mutualFriends.add(friendFriend);
+            for (int i = 0; i < found.size(); i++) {
+                UserIdentityCache.Identity friend = identityCache.findById(found.userId(i));
+                if (friend == null) {
+                    continue;
                 }
+                // not friends yet, but one of them may have sent a request already
+                FriendshipDTO dto = new FriendshipDTO(friend.getId(), friend.getUsername(),
+                        friendGraph.statusBetween(current.getId(), friend.getId()), friend.getProfilePicture());
+                dto.setMutualFriends(found.mutualCount(i));
+                mutualFriends.add(dto);
             }
-            mutualFriends.removeIf(friend -> friend.getUsername().equalsIgnoreCase(userUsername));
-            log.info("getFriendsOfFriends: found {} friends for username {}", mutualFriends.size(), userUsername);
-
-            log.info("FriendController: returning {} mutual friends for user: {}", mutualFriends.size(), userUsername);
+            log.info("getFriendsOfFriends: found {} friends of friends for username {}", mutualFriends.size(), userUsername);
             return mutualFriends;
         } catch (Exception e) {
             // if there are any Exceptions, return an empty Set
-            log.warn("getFriendsOfFriends: error while getting friends of friends for username {}", userUsername);
+            log.warn("getFriendsOfFriends: error while getting friends of friends for username {}", userUsername, e);
             return new HashSet<>();
         }
     }
@@ -122,6 +170,10 @@ public class FriendServiceImpl implements FriendService {
      * </ul>
      * Returns an empty set if usernames are invalid or no matches are found.
      * </p>
+     * <p>
+     * Matches come from the {@link UsernameSearchIndex}, so the {@code users} table is never scanned. Only the best
+     * {@code maxSearchResults} matches are returned, in order: exact, then prefix, then shorter usernames.
+     * </p>
      *
      * @param userUsername   the username of the user performing the search.
      * @param usernameToFind the partial or full username to search for.
@@ -131,34 +183,32 @@ public class FriendServiceImpl implements FriendService {
     @Override
     public Set<FriendshipDTO> getUser(String userUsername, String usernameToFind) {
         log.trace("getUser: validating user username {}", userUsername);
-        if (!isValidExistingUsername(userUsername)) {
+        final UserIdentityCache.Identity current = identityCache.findByUsername(userUsername);
+        if (current == null) {
             log.warn("getUser: invalid user username {}", userUsername);
             return new HashSet<>();
         }
-        log.trace("getUser: getting the current User {}", userUsername);
-        final User currentUser = loginRepo.findByUsernameIgnoreCase(userUsername).get(0);
 
-        final Set<FriendshipDTO> foundUsers = new HashSet<>();
+        // keep the ranking of the search index
+        final Set<FriendshipDTO> foundUsers = new LinkedHashSet<>();
         log.trace("getUser: finding all Users with a username containing {} and ignoring case", usernameToFind);
-        List<User> listFriends = loginRepo.findByUsernameLikeIgnoreCase("%" + usernameToFind + "%");
-        log.trace("getUser: found {} Users", listFriends.size());
+        int[] matches = searchIndex.search(usernameToFind, maxSearchResults);
+        log.trace("getUser: found {} Users", matches.length);
+        // the friendship is either user -> friend, friend -> user, NOTADDED, or IS_SELF if found themselves
+        List<Integer> foundIds = new ArrayList<>(matches.length);
+        for (int match : matches) {
+            foundIds.add(match);
+        }
+        Map<Integer, UserIdentityCache.Identity> identities = identityCache.findAllById(foundIds);
+        Map<Integer, FriendshipStatus> statuses = getStatuses(current.getId(), foundIds);
 
-        for (User friend : listFriends) {
-            log.trace("getUser: adding friend {} to found users for user {}", friend.getId(), userUsername);
-            FriendshipStatus currentStatus;
-            if (friend.getUsername().equalsIgnoreCase(userUsername)) {
-                // if found themselves, set the status to IS_SELF
-                currentStatus = FriendshipStatus.IS_SELF;
-            } else {
-                // if friend is not the current user
-                // the friendship is either user -> friend, friend -> user, or NOTADDED
-                if (friendRepo.existsFriendshipByUserAndFriend(currentUser, friend)) {
-                    currentStatus = statusBetween(currentUser, friend);
-                } else {
-                    currentStatus = statusBetween(friend, currentUser);
-                }
+        for (Integer friendId : foundIds) {
+            UserIdentityCache.Identity friend = identities.get(friendId);
+            if (friend == null) {
+                continue;
             }
-            foundUsers.add(new FriendshipDTO(friend.getId(), friend.getUsername(), currentStatus, friend.getProfilePicture()));
+            log.trace("getUser: adding friend {} to found users for user {}", friendId, userUsername);
+            foundUsers.add(new FriendshipDTO(friend.getId(), friend.getUsername(), statuses.get(friendId), friend.getProfilePicture()));
         }
         log.trace("getUser: found {} unique Users adding creating FriendshipDTOs and now returning the Set", foundUsers.size());
         return foundUsers;
@@ -179,20 +229,17 @@ public class FriendServiceImpl implements FriendService {
     @Override
     public Set<FriendshipDTO> getFriends(String userUsername) {
         log.trace("getFriends: validating user username {}", userUsername);
-        if (!isValidExistingUsername(userUsername)) {
+        final UserIdentityCache.Identity current = identityCache.findByUsername(userUsername);
+        if (current == null) {
             log.warn("getFriends: invalid user username {}", userUsername);
             return new HashSet<>();
         }
-        final User currentUser = loginRepo.findByUsernameIgnoreCase(userUsername).get(0);
-        // find all friendships both ways (currentUser = Friend and = User)
+        // confirmed friendships are stored both ways, so this covers currentUser = Friend and = User
         log.trace("getFriends: getting friends for user {}", userUsername);
-        // user -> friend
-        Set<Friendship> foundFriends = friendRepo.findByFriendAndStatus(currentUser, FriendshipStatus.CONFIRMED);
-        // friend -> user
-        foundFriends.addAll(friendRepo.findByUserAndStatus(currentUser, FriendshipStatus.CONFIRMED));
-        log.trace("getFriends: found {} friends for user {}", foundFriends.size(), userUsername);
-        // convert Friendships into FriendshipDTO using the helper method
-        return convertFriendshipIntoDTOS(currentUser, foundFriends);
+        int[] friendIds = friendGraph.confirmed(current.getId());
+        log.trace("getFriends: found {} friends for user {}", friendIds.length, userUsername);
+        // convert the IDs into FriendshipDTO using the helper method
+        return convertIdsIntoDTOS(friendIds, FriendshipStatus.CONFIRMED);
     }
 
     /**
@@ -205,39 +252,30 @@ public class FriendServiceImpl implements FriendService {
      */
     @Override
     public Set<FriendshipDTO> getFriendsOf(String userUsername, Integer otherID) {
-        final Optional<User> otherUser = loginRepo.findById(otherID);
+        final UserIdentityCache.Identity otherUser = identityCache.findById(otherID);
         // make sure the otherUser exists if it doesn't than return an empty set
-        if (otherUser.isEmpty()) {
+        if (otherUser == null) {
             log.warn("getFriendsOf: invalid user ID {}", otherID);
             return new HashSet<>();
         }
-        // get the otherUser from the Optional above
-        final String otherUsername = otherUser.get().getUsername();
+        final String otherUsername = otherUser.getUsername();
         // get the current user based on the userUsername
-        if (!isValidExistingUsername(userUsername)) {
+        final UserIdentityCache.Identity current = identityCache.findByUsername(userUsername);
+        if (current == null) {
             log.warn("getFriendsOf: invalid user username {}", userUsername);
             return new HashSet<>();
         }
-        final User currentUser = loginRepo.findByUsernameIgnoreCase(userUsername).get(0);
         log.trace("getFriendsOf: found current user {}", userUsername);
         log.trace("getFriendsOf: getting friends for user {}", otherUsername);
         Set<FriendshipDTO> otherFriends = getFriends(otherUsername);
-        // for each friend, check the status between the current user and that friend
+        // for each friend, check the status between the current user and that friend, all at once
+        List<Integer> friendIds = new ArrayList<>(otherFriends.size());
         for (FriendshipDTO friend : otherFriends) {
-            // if the friend is the current user, set the status appropriately
-            if (friend.getUsername().equalsIgnoreCase(userUsername)) {
-                friend.setStatus(FriendshipStatus.IS_SELF);
-                continue;
-            }
-            // the friend's User model by the username
-            final User tempFriend = loginRepo.findByUsernameIgnoreCase(friend.getUsername()).get(0);
-            // if the friendship exists from User -> friend, use that
-            if (friendRepo.existsFriendshipByUserAndFriend(currentUser, tempFriend)) {
-                friend.setStatus(statusBetween(currentUser, tempFriend));
-            } else {
-                // if it doesn't exist, statusBetween already handles it
-                friend.setStatus(statusBetween(tempFriend, currentUser));
-            }
+            friendIds.add(friend.getId());
+        }
+        Map<Integer, FriendshipStatus> statuses = getStatuses(current.getId(), friendIds);
+        for (FriendshipDTO friend : otherFriends) {
+            friend.setStatus(statuses.get(friend.getId()));
         }
         log.info("getFriendsOf: found {} friends for user {}", otherFriends.size(), otherUsername);
         return otherFriends;
@@ -246,11 +284,60 @@ public class FriendServiceImpl implements FriendService {
     @Override
     public Set<Integer> findFriendIdsByUserId(Integer userId, FriendshipStatus status) {
         log.trace("getting Friends: for user {}", userId);
-        Set<Integer> foundFriends = friendRepo.findFriendIdsByUserId(userId, status);
+        Set<Integer> foundFriends = new HashSet<>();
+        if (userId == null) {
+            return foundFriends;
+        }
+        if (status == FriendshipStatus.CONFIRMED) {
+            for (int id : friendGraph.confirmed(userId)) {
+                foundFriends.add(id);
+            }
+        } else if (status == FriendshipStatus.PENDING) {
+            // pending requests in either direction
+            for (int id : friendGraph.pendingOut(userId)) {
+                foundFriends.add(id);
+            }
+            for (int id : friendGraph.pendingIn(userId)) {
+                foundFriends.add(id);
+            }
+        }
         log.trace("findFriendIdsByUserId: found {} friends for user {}", foundFriends.size(), userId);
         return foundFriends;
     }
 
+    /**
+     * Resolves the friendship status between a user and many other users at once.
+     * <p>
+     * Every status is read from the {@link FriendGraphIndex} under a single lock, so resolving the statuses of a
+     * whole search result costs no queries at all. Both directions of a friendship are covered.
+     * </p>
+     *
+     * @param userId    the ID of the current user
+     * @param targetIds the IDs of the users to get the status with
+     * @return a {@link Map} from each target ID to its {@link FriendshipStatus}
+     */
+    @Override
+    public Map<Integer, FriendshipStatus> getStatuses(Integer userId, Collection<Integer> targetIds) {
+        Map<Integer, FriendshipStatus> statuses = new HashMap<>();
+        if (userId == null || targetIds == null || targetIds.isEmpty()) {
+            return statuses;
+        }
+        int[] ids = new int[targetIds.size()];
+        int n = 0;
+        for (Integer targetId : targetIds) {
+            if (targetId != null) {
+                ids[n++] = targetId;
+            }
+        }
+        ids = Arrays.copyOf(ids, n);
+        FriendshipStatus[] found = friendGraph.statusesBetween(userId, ids);
+        for (int i = 0; i < n; i++) {
+            statuses.put(ids[i], ids[i] == userId ? FriendshipStatus.IS_SELF : found[i]);
+        }
+        log.trace("getStatuses: resolved {} statuses for user {}", statuses.size(), userId);
+        return statuses;
+    }
+
     /**
      * Retrieves a set of pending friend requests for the specified user, identified by {@code userUsername}.
      * <p>
@@ -267,18 +354,18 @@ public class FriendServiceImpl implements FriendService {
     public Set<FriendshipDTO> getFriendRequests(String userUsername) {
         log.debug("getFriendRequests: validating user username {}", userUsername);
 
-        if (!isValidExistingUsername(userUsername)) {
+        final UserIdentityCache.Identity current = identityCache.findByUsername(userUsername);
+        if (current == null) {
             log.warn("getFriendRequests: invalid user username {}", userUsername);
             return Collections.emptySet();
         }
 
         log.debug("getFriendRequests: validated user username {}", userUsername);
-        User currentUser = loginRepo.findByUsernameIgnoreCase(userUsername).get(0);
 
         log.debug("getFriendRequests: fetching all incoming requests for user: {}", userUsername);
-        Set<Friendship> incomingRequests = friendRepo.findByFriendAndStatus(currentUser, FriendshipStatus.PENDING);
-        // convert Friendships into FriendshipDTO using the helper method
-        Set<FriendshipDTO> requests = convertFriendshipIntoDTOS(currentUser, incomingRequests);
+        int[] incomingRequests = friendGraph.pendingIn(current.getId());
+        // convert the IDs into FriendshipDTO using the helper method
+        Set<FriendshipDTO> requests = convertIdsIntoDTOS(incomingRequests, FriendshipStatus.PENDING);
         log.debug("getFriendRequests: returning {} FriendshipDTOs for user {}", requests.size(), userUsername);
         return requests;
     }
@@ -304,34 +391,33 @@ public class FriendServiceImpl implements FriendService {
     public ValidateResult addFriend(String userUsername, String friendUsername) {
         log.trace("addFriend: adding friend {} for user {}", friendUsername, userUsername);
         // Validate user username
-        if (!isValidExistingUsername(userUsername)) {
+        final UserIdentityCache.Identity userIdentity = identityCache.findByUsername(userUsername);
+        if (userIdentity == null) {
             log.warn("addFriend: invalid user username {}", userUsername);
             return new ValidateResult(false, "invalid user username");
         }
         // Validate friend username
-        if (!isValidExistingUsername(friendUsername)) {
+        final UserIdentityCache.Identity friendIdentity = identityCache.findByUsername(friendUsername);
+        if (friendIdentity == null) {
             log.warn("addFriend: invalid friend username {}", friendUsername);
             return new ValidateResult(false, "invalid friend username");
         }
-        // Fetching user and friend from repository
-        User user = loginRepo.findByUsernameIgnoreCase(userUsername).get(0);
-        User friend = loginRepo.findByUsernameIgnoreCase(friendUsername).get(0);
 
-        if (user.equals(friend)) {
+        if (userIdentity.getId().equals(friendIdentity.getId())) {
             log.info("addFriend: user {} cannot add themselves as a friend", userUsername);
             return new ValidateResult(false, "You cannot add yourself as a friend");
         }
+        // only the IDs are needed to query friendships, so no user has to be loaded
+        User user = loginRepo.getReferenceById(userIdentity.getId());
+        User friend = loginRepo.getReferenceById(friendIdentity.getId());
 
         // Check friendship status
-        FriendshipStatus friendToUserStatus = statusBetween(friend, user);
-        FriendshipStatus currentStatus = statusBetween(user, friend);
-
-        if (friendToUserStatus == FriendshipStatus.CONFIRMED || currentStatus == FriendshipStatus.CONFIRMED) {
+        if (friendGraph.statusBetween(user.getId(), friend.getId()) == FriendshipStatus.CONFIRMED) {
             log.error("addFriend: user {} is already friends with {}", userUsername, friendUsername);
             return new ValidateResult(false, "You are already friends with " + friendUsername);
         }
         // if friend to user is already PENDING: confirm friendship
-        if (friendToUserStatus == FriendshipStatus.PENDING) {
+        if (friendGraph.isPending(friend.getId(), user.getId())) {
             log.debug("addFriend: friend {} has already sent a request to user {}", friendUsername, userUsername);
             log.trace("addFriend: setting Friendship.Status to CONFIRMED between friend {} and user {}", friendUsername, userUsername);
             Friendship friendship = friendRepo.findByUserAndFriend(friend, user);
@@ -340,11 +426,13 @@ public class FriendServiceImpl implements FriendService {
             // Set confirmedAt to current date/time
             friendship.setConfirmedAt(LocalDate.now().atTime(0, 0));
             friendRepo.save(friendship);
+            friendGraph.setConfirmed(friend.getId(), user.getId());
+            timelineIndex.addFriendship(friend.getId(), user.getId());
             log.trace("addFriend: CONFIRMED Friendship saved between user {} and friend {}", userUsername, friendUsername);
             return new ValidateResult(true, "You are now friends with " + friendUsername);
         }
         // if user to friend is already pending, don't make another friendship
-        if (currentStatus == FriendshipStatus.PENDING) {
+        if (friendGraph.isPending(user.getId(), friend.getId())) {
             log.warn("addFriend: user {} has already sent a request to friend {}", userUsername, friendUsername);
             return new ValidateResult(false, "You have already sent a request to " + friendUsername);
         }
@@ -352,6 +440,7 @@ public class FriendServiceImpl implements FriendService {
         // Create new friendship
         Friendship newFriendship = new Friendship(user, friend, FriendshipStatus.PENDING);
         friendRepo.save(newFriendship);
+        friendGraph.setPending(user.getId(), friend.getId());
 
         log.info("addFriend: user {} has sent a friend request to {}", userUsername, friendUsername);
         return new ValidateResult(true, userUsername + " has sent a friend request to " + friendUsername);
@@ -377,35 +466,41 @@ public class FriendServiceImpl implements FriendService {
     public ValidateResult removeFriend(String userUsername, String friendUsername) {
         log.trace("removeFriend: removing friend {} for user {}", friendUsername, userUsername);
         log.trace("removeFriend: validating user username {}", userUsername);
-        if (!isValidExistingUsername(userUsername)) {
+        final UserIdentityCache.Identity userIdentity = identityCache.findByUsername(userUsername);
+        if (userIdentity == null) {
             log.warn("removeFriend: invalid user username {}", userUsername);
             return new ValidateResult(false, "invalid user username");
         }
         log.trace("removeFriend: validating friend username {}", friendUsername);
-        if (!isValidExistingUsername(friendUsername)) {
+        final UserIdentityCache.Identity friendIdentity = identityCache.findByUsername(friendUsername);
+        if (friendIdentity == null) {
             log.warn("removeFriend: invalid friend username {}", friendUsername);
             return new ValidateResult(false, "invalid friend username");
         }
-        User user = loginRepo.findByUsernameIgnoreCase(userUsername).get(0);
-        User friend = loginRepo.findByUsernameIgnoreCase(friendUsername).get(0);
-        if (user.equals(friend)) {
+        if (userIdentity.getId().equals(friendIdentity.getId())) {
             log.warn("removeFriend: user {} and friend {} are the same", userUsername, friendUsername);
-            return new ValidateResult(false, "user and friend are the same: " + user.getUsername() + " and " + friend.getUsername());
+            return new ValidateResult(false, "user and friend are the same: " + userIdentity.getUsername() + " and " + friendIdentity.getUsername());
         }
+        User user = loginRepo.getReferenceById(userIdentity.getId());
+        User friend = loginRepo.getReferenceById(friendIdentity.getId());
         // make sure it exists (either direction)
-        Friendship currentFriendship;
-        // check Friendship from user to friend
-        if (friendRepo.existsFriendshipByUserAndFriend(user, friend)) {
-            log.trace("removeFriend: user {} is friends with friend {}", userUsername, friendUsername);
-            currentFriendship = friendRepo.findByUserAndFriend(user, friend);
-        } else if (friendRepo.existsFriendshipByUserAndFriend(friend, user)) {
-            log.trace("removeFriend: friend {} is friends with user {}", friendUsername, friendUsername);
-            currentFriendship = friendRepo.findByUserAndFriend(friend, user);
-        } else {
+        if (friendGraph.statusBetween(user.getId(), friend.getId()) == FriendshipStatus.NOTADDED) {
             log.warn("removeFriend: user {} and friend {} are not friends", userUsername, friendUsername);
             return new ValidateResult(false, "user and friend are not friends");
         }
+        // check Friendship from user to friend, then from friend to user
+        Friendship currentFriendship = friendRepo.findByUserAndFriend(user, friend);
+        if (currentFriendship == null) {
+            log.trace("removeFriend: friend {} is friends with user {}", friendUsername, userUsername);
+            currentFriendship = friendRepo.findByUserAndFriend(friend, user);
+        }
+        if (currentFriendship == null) {
+            log.warn("removeFriend: no friendship row between user {} and friend {}", userUsername, friendUsername);
+            return new ValidateResult(false, "user and friend are not friends");
+        }
         friendRepo.delete(currentFriendship);
+        friendGraph.remove(user.getId(), friend.getId());
+        timelineIndex.removeFriendship(user.getId(), friend.getId());
         return new ValidateResult(true, "user " + userUsername + " and friend " + friendUsername + " are no longer friends");
     }
 
@@ -433,91 +528,24 @@ public class FriendServiceImpl implements FriendService {
     }
 
     /**
-     * Validates whether a given username exists in the database and is unique.
-     * <p>
-     * This method checks if the username exists in the database and ensures that
-     * there is exactly one user with that username. It handles any exceptions
-     * that may occur during the database query.
-     * </p>
-     *
-     * @param username the username to check.
-     * @return {@code true} if the username exists and is unique in the database;
-     * {@code false} if the username is not found, is associated with more than
-     * one user, or if an error occurs during validation.
-     */
-    private boolean isValidExistingUsername(String username) {
-        try {
-            List<User> foundUsers = loginRepo.findByUsernameIgnoreCase(username);
-            // make sure the user exists in the repo
-            if (foundUsers == null || foundUsers.isEmpty()) {
-                log.warn("validateUsername: no users found for username {}", username);
-                return false;
-            }
-            // make sure that only 1 user with the username
-            if (foundUsers.size() > 1) {
-                log.warn("validateUsername: more than one user found for username {}", username);
-                return false;
-            }
-            // should be 1 existing user with the username
-            log.trace("validateUsername: only {} User found with username {}", foundUsers.size(), username);
-            return true;
-        } catch (Exception e) {
-            log.error("validateUsername: error while validating username {} - {}", username, e.getStackTrace());
-            return false;
-        }
-    }
-
-    /**
-     * Checks the current friendship status ({@link FriendshipStatus}) between two users.
+     * Converts a set of user IDs from the {@link FriendGraphIndex} into a set of {@link FriendshipDTO} objects.
      * <p>
-     * This method checks whether a friendship exists between the given {@code user}
-     * and {@code friend}, and returns the current status of their relationship.
-     * If no relationship exists, the status returned is {@link FriendshipStatus#NOTADDED}.
+     * Each ID is resolved through the {@link UserIdentityCache}; IDs of users that no longer exist are skipped.
      * </p>
      *
-     * @param user   the first user in the relationship check.
-     * @param friend the second user in the relationship check.
-     * @return the {@link FriendshipStatus} between the two users,
-     * or {@link FriendshipStatus#NOTADDED} if no friendship exists.
+     * @param userIds the IDs of the users to convert
+     * @param status  the status every returned friendship has with the current user
+     * @return a {@link Set} of {@link FriendshipDTO} objects, one per existing user
      */
-    private FriendshipStatus statusBetween(User user, User friend) {
-        log.debug("statusBetween: checking if there is a status between user {} and user {}", user, friend);
-        // if there is no relationship return NOTADDED
-        if (!friendRepo.existsFriendshipByUserAndFriend(user, friend)) {
-            return FriendshipStatus.NOTADDED;
-        }
-        // there is a current friendship, return the current status
-        return friendRepo.findByUserAndFriend(user, friend).getStatus();
-    }
-
-    /**
-     * Converts a set of {@link Friendship} objects into a set of {@link FriendshipDTO} objects.
-     * <p>
-     * This method iterates over a set of {@link Friendship} entities, determines the status of
-     * each friendship with respect to the specified {@code user}, and creates corresponding
-     * {@link FriendshipDTO} objects for each friendship.
-     * </p>
-     *
-     * @param user    the current user whose friendship status will be checked.
-     * @param friends the set of {@link Friendship} objects to be converted.
-     * @return a {@link Set} of {@link FriendshipDTO} objects, representing the converted friendships.
-     */
-    private Set<FriendshipDTO> convertFriendshipIntoDTOS(User user, Set<Friendship> friends) {
+    private Set<FriendshipDTO> convertIdsIntoDTOS(int[] userIds, FriendshipStatus status) {
         Set<FriendshipDTO> friendDTOs = new HashSet<>();
-        for (Friendship friendship : friends) {
-            User friend;
-            // is user = Friendship's 'friend' or are they the 'user'
-            if (friendship.getFriend().equals(user)) {
-                // the 'user' is NOT the current user, the current user is the 'friend'
-                friend = friendship.getUser();
-                FriendshipStatus status = statusBetween(friend, user);
-                friendDTOs.add(new FriendshipDTO(friend.getId(), friend.getUsername(), status, friend.getProfilePicture()));
-            } else {
-                // the 'user' is the 'user', friend is 'friend'
-                friend = friendship.getFriend();
-                FriendshipStatus status = statusBetween(user, friend);
-                friendDTOs.add(new FriendshipDTO(friend.getId(), friend.getUsername(), status, friend.getProfilePicture()));
+        for (int userId : userIds) {
+            UserIdentityCache.Identity friend = identityCache.findById(userId);
+            if (friend == null) {
+                log.warn("convertIdsIntoDTOS: no user found for ID {}", userId);
+                continue;
             }
+            friendDTOs.add(new FriendshipDTO(friend.getId(), friend.getUsername(), status, friend.getProfilePicture()));
         }
         return friendDTOs;
     }
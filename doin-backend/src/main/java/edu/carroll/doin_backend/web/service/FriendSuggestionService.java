@@ -0,0 +1,27 @@
+package edu.carroll.doin_backend.web.service;
+
+import edu.carroll.doin_backend.web.dto.FriendshipDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * The {@code FriendSuggestionService} interface provides methods for suggesting people a user may know, ranked by
+ * how strongly they are connected to the user.
+ */
+public interface FriendSuggestionService {
+
+    /**
+     * Gets a page of ranked friend suggestions for a user.
+     * <p>
+     * Candidates are the user's friends of friends. Each is scored by the number of mutual friends, the number of
+     * events both have joined, and how recently the candidate became friends with one of the user's friends. Only
+     * the best-scoring candidates are kept, so later pages may run out before every friend of a friend is listed.
+     * </p>
+     *
+     * @param userUsername the username of the user to suggest friends for
+     * @param pageable     the page of suggestions to return; any sort is ignored
+     * @return a {@link Page} of {@link FriendshipDTO} objects in ranked order, with
+     * {@link FriendshipDTO#getMutualFriends()} filled in, or an empty page if the username is invalid
+     */
+    Page<FriendshipDTO> getSuggestions(String userUsername, Pageable pageable);
+}
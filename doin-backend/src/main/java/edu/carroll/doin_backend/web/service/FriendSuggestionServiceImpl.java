@@ -0,0 +1,258 @@
+package edu.carroll.doin_backend.web.service;
+
+import edu.carroll.doin_backend.web.cache.FriendGraphIndex;
+import edu.carroll.doin_backend.web.cache.UserIdentityCache;
+import edu.carroll.doin_backend.web.dto.FriendshipDTO;
+import edu.carroll.doin_backend.web.enums.FriendshipStatus;
+import edu.carroll.doin_backend.web.repository.EventRepository;
+import edu.carroll.doin_backend.web.repository.FriendRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementation of the {@link FriendSuggestionService} interface that ranks friends of friends.
+ * <p>
+ * Ranking happens in two bounded passes. First the candidates with the most mutual friends are picked from the
+ * {@link FriendGraphIndex}, keeping at most {@code candidatePool} of them in a min-heap. Only those are then looked
+ * up in the database for shared events and friendship dates, scored, and the best are kept in a second heap sized
+ * to the page being asked for. Users with many friends have their ranking computed in the background instead, and
+ * their requests are answered from that.
+ * </p>
+ */
+@Service
+public class FriendSuggestionServiceImpl implements FriendSuggestionService {
+    private static final Logger log = LoggerFactory.getLogger(FriendSuggestionServiceImpl.class);
+
+    /**
+     * Points for each friend the candidate has in common with the user
+     */
+    static final double MUTUAL_FRIEND_WEIGHT = 10.0;
+    /**
+     * Points for each event both the candidate and the user have joined
+     */
+    static final double SHARED_EVENT_WEIGHT = 5.0;
+    /**
+     * Points for a friendship with one of the user's friends confirmed just now, halving every half-life
+     */
+    static final double RECENCY_WEIGHT = 10.0;
+    static final double RECENCY_HALF_LIFE_DAYS = 14.0;
+
+    /**
+     * A scored candidate.
+     */
+    private static final class Suggestion {
+        private final int userId;
+        private final int mutualFriends;
+        private double score;
+
+        private Suggestion(int userId, int mutualFriends) {
+            this.userId = userId;
+            this.mutualFriends = mutualFriends;
+        }
+    }
+
+    /**
+     * A user's ranked suggestions, best first, and how many candidates they were picked from.
+     */
+    private static final class Ranking {
+        private final List<Suggestion> suggestions;
+        private final int candidates;
+
+        private Ranking(List<Suggestion> suggestions, int candidates) {
+            this.suggestions = suggestions;
+            this.candidates = candidates;
+        }
+    }
+
+    /**
+     * Orders candidates by mutual friends alone, most first, breaking ties by user ID
+     */
+    private static final Comparator<Suggestion> MOST_MUTUAL_FIRST = Comparator
+            .comparingInt((Suggestion s) -> -s.mutualFriends)
+            .thenComparingInt(s -> s.userId);
+    /**
+     * Orders candidates by score, highest first, then by mutual friends and user ID
+     */
+    private static final Comparator<Suggestion> BEST_FIRST = Comparator
+            .comparingDouble((Suggestion s) -> -s.score)
+            .thenComparing(MOST_MUTUAL_FIRST);
+
+    private final FriendGraphIndex friendGraph;
+    private final UserIdentityCache identityCache;
+    private final FriendRepository friendRepo;
+    private final EventRepository eventRepo;
+    /**
+     * The most suggestions a user can page through
+     */
+    private final int maxResults;
+    /**
+     * How many candidates, by mutual friends, are scored against the database
+     */
+    private final int candidatePool;
+    /**
+     * Users with at least this many friends have their suggestions computed in the background
+     */
+    private final int heavyDegree;
+    private final Map<Integer, Ranking> precomputed = new ConcurrentHashMap<>();
+
+    public FriendSuggestionServiceImpl(FriendGraphIndex friendGraph,
+                                       UserIdentityCache identityCache,
+                                       FriendRepository friendRepo,
+                                       EventRepository eventRepo,
+                                       @Value("${doin.friends.suggestions.max-results:100}") int maxResults,
+                                       @Value("${doin.friends.suggestions.candidate-pool:500}") int candidatePool,
+                                       @Value("${doin.friends.suggestions.heavy-degree:200}") int heavyDegree) {
+        this.friendGraph = friendGraph;
+        this.identityCache = identityCache;
+        this.friendRepo = friendRepo;
+        this.eventRepo = eventRepo;
+        this.maxResults = maxResults;
+        this.candidatePool = Math.max(candidatePool, maxResults);
+        this.heavyDegree = heavyDegree;
+    }
+
+    @Override
+    /**
+     * {@inheritDoc}
+     */
+    public Page<FriendshipDTO> getSuggestions(String userUsername, Pageable pageable) {
+        final UserIdentityCache.Identity current = identityCache.findByUsername(userUsername);
+        if (current == null) {
+            log.warn("getSuggestions: invalid username {}", userUsername);
+            return Page.empty(pageable);
+        }
+        final int userId = current.getId();
+        final long offset = pageable.getOffset();
+        final int end = (int) Math.min(maxResults, offset + pageable.getPageSize());
+        Ranking ranking = precomputed.get(userId);
+        if (ranking == null) {
+            ranking = rank(userId, end);
+        } else {
+            log.debug("getSuggestions: using precomputed suggestions for user {}", userId);
+        }
+
+        List<FriendshipDTO> content = new ArrayList<>();
+        for (int i = (int) Math.min(offset, end); i < Math.min(end, ranking.suggestions.size()); i++) {
+            Suggestion suggestion = ranking.suggestions.get(i);
+            // precomputed rankings may be a few minutes old
+            FriendshipStatus status = friendGraph.statusBetween(userId, suggestion.userId);
+            UserIdentityCache.Identity friend = identityCache.findById(suggestion.userId);
+            if (status == FriendshipStatus.CONFIRMED || friend == null) {
+                continue;
+            }
+            FriendshipDTO dto = new FriendshipDTO(friend.getId(), friend.getUsername(), status, friend.getProfilePicture());
+            dto.setMutualFriends(suggestion.mutualFriends);
+            content.add(dto);
+        }
+        log.info("getSuggestions: returning {} suggestions for user {}", content.size(), userId);
+        return new PageImpl<>(content, pageable, Math.min(ranking.candidates, maxResults));
+    }
+
+    /**
+     * Recomputes the suggestions of every user with many friends, so their requests don't have to.
+     */
+    @Scheduled(initialDelayString = "${doin.friends.suggestions.initial-delay-ms:60000}",
+            fixedDelayString = "${doin.friends.suggestions.refresh-interval-ms:600000}")
+    public void refreshHeavyUsers() {
+        int[] heavyUsers = friendGraph.usersWithDegreeAtLeast(heavyDegree);
+        Map<Integer, Ranking> fresh = new HashMap<>();
+        for (int userId : heavyUsers) {
+            fresh.put(userId, rank(userId, maxResults));
+        }
+        // users who dropped below the threshold go back to being ranked on request
+        precomputed.keySet().retainAll(fresh.keySet());
+        precomputed.putAll(fresh);
+        log.info("refreshHeavyUsers: precomputed suggestions for {} users", fresh.size());
+    }
+
+    /**
+     * Ranks a user's friends of friends and keeps the best.
+     *
+     * @param userId the ID of the user
+     * @param limit  how many suggestions to keep
+     * @return the best suggestions, best first
+     */
+    private Ranking rank(int userId, int limit) {
+        FriendGraphIndex.FriendsOfFriends found = friendGraph.friendsOfFriends(userId);
+        if (found.size() == 0 || limit <= 0) {
+            return new Ranking(List.of(), found.size());
+        }
+        // first pass: only the candidates with the most mutual friends are worth a database round trip
+        PriorityQueue<Suggestion> pool = new PriorityQueue<>(MOST_MUTUAL_FIRST.reversed());
+        for (int i = 0; i < found.size(); i++) {
+            offer(pool, new Suggestion(found.userId(i), found.mutualCount(i)), candidatePool, MOST_MUTUAL_FIRST);
+        }
+        Map<Integer, Suggestion> candidates = new HashMap<>();
+        for (Suggestion suggestion : pool) {
+            suggestion.score = MUTUAL_FRIEND_WEIGHT * suggestion.mutualFriends;
+            candidates.put(suggestion.userId, suggestion);
+        }
+
+        for (Object[] row : eventRepo.countSharedJoinedEvents(userId, candidates.keySet())) {
+            Suggestion suggestion = candidates.get((Integer) row[0]);
+            if (suggestion != null) {
+                suggestion.score += SHARED_EVENT_WEIGHT * ((Number) row[1]).doubleValue();
+            }
+        }
+
+        List<Integer> friendIds = new ArrayList<>();
+        for (int friendId : friendGraph.confirmed(userId)) {
+            friendIds.add(friendId);
+        }
+        Map<Integer, LocalDateTime> latest = new HashMap<>();
+        for (Object[] row : friendRepo.findConfirmedAtBetween(FriendshipStatus.CONFIRMED, candidates.keySet(), friendIds)) {
+            // candidates are never the user's friends, so exactly one side of the row is a candidate
+            Integer candidateId = candidates.containsKey((Integer) row[0]) ? (Integer) row[0] : (Integer) row[1];
+            latest.merge(candidateId, (LocalDateTime) row[2], (a, b) -> a.isAfter(b) ? a : b);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<Integer, LocalDateTime> entry : latest.entrySet()) {
+            double ageDays = Math.max(0, Duration.between(entry.getValue(), now).toMinutes() / (24.0 * 60));
+            candidates.get(entry.getKey()).score += RECENCY_WEIGHT * Math.pow(0.5, ageDays / RECENCY_HALF_LIFE_DAYS);
+        }
+
+        // second pass: keep the best scores
+        PriorityQueue<Suggestion> best = new PriorityQueue<>(BEST_FIRST.reversed());
+        for (Suggestion suggestion : candidates.values()) {
+            offer(best, suggestion, limit, BEST_FIRST);
+        }
+        List<Suggestion> ranked = new ArrayList<>(best);
+        ranked.sort(BEST_FIRST);
+        log.debug("rank: kept {} of {} candidates for user {}", ranked.size(), found.size(), userId);
+        return new Ranking(ranked, found.size());
+    }
+
+    /**
+     * Offers a candidate to a bounded heap whose head is the worst candidate kept so far.
+     *
+     * @param heap      the heap, ordered worst first
+     * @param candidate the candidate to offer
+     * @param capacity  the most candidates to keep
+     * @param order     the order in which candidates are better, best first
+     */
+    private static void offer(PriorityQueue<Suggestion> heap, Suggestion candidate, int capacity,
+                              Comparator<Suggestion> order) {
+        if (heap.size() < capacity) {
+            heap.add(candidate);
+        } else if (order.compare(candidate, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(candidate);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package edu.carroll.doin_backend.web.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * The {@code ImageGarbageCollector} interface provides methods for removing images that nothing refers to anymore,
+ * such as replaced profile pictures, together with their bytes in the
+ * {@link edu.carroll.doin_backend.web.storage.ImageStore}.
+ */
+public interface ImageGarbageCollector {
+
+    /**
+     * Runs one incremental pass of the collector.
+     * <p>
+     * Unreferenced images are found and deleted in small batches, each in its own transaction, with a pause between
+     * batches so foreground queries are not starved. A pass stops after a fixed number of batches and the next pass
+     * resumes where it left off.
+     * </p>
+     *
+     * @param cutoff only images created (and blobs last uploaded) before this are collected
+     * @return the number of bytes reclaimed from the image store in this pass
+     */
+    long collect(LocalDateTime cutoff);
+
+    /**
+     * Gets the total number of bytes reclaimed since the application started.
+     *
+     * @return the reclaimed bytes, summed over every pass
+     */
+    long getReclaimedBytes();
+}
@@ -0,0 +1,178 @@
+package edu.carroll.doin_backend.web.service;
+
+import edu.carroll.doin_backend.web.model.Image;
+import edu.carroll.doin_backend.web.repository.ImageBlobRepository;
+import edu.carroll.doin_backend.web.repository.ImageRepository;
+import edu.carroll.doin_backend.web.storage.ImageStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class ImageGarbageCollectorImpl implements ImageGarbageCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageGarbageCollectorImpl.class);
+
+    private final ImageRepository imageRepository;
+    private final ImageBlobRepository imageBlobRepository;
+    private final ImageStore imageStore;
+    private final TransactionTemplate transactionTemplate;
+    /**
+     * How old an unreferenced image must be before it is collected, so uploads still being linked are left alone
+     */
+    private final Duration gracePeriod;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long pauseMillis;
+    /**
+     * The highest image ID the scan has passed; the next batch starts after it
+     */
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+
+    public ImageGarbageCollectorImpl(ImageRepository imageRepository,
+                                     ImageBlobRepository imageBlobRepository,
+                                     ImageStore imageStore,
+                                     TransactionTemplate transactionTemplate,
+                                     @Value("${doin.images.gc.grace-period:PT24H}") Duration gracePeriod,
+                                     @Value("${doin.images.gc.batch-size:100}") int batchSize,
+                                     @Value("${doin.images.gc.max-batches-per-run:50}") int maxBatchesPerRun,
+                                     @Value("${doin.images.gc.batch-pause-ms:200}") long pauseMillis) {
+        this.imageRepository = imageRepository;
+        this.imageBlobRepository = imageBlobRepository;
+        this.imageStore = imageStore;
+        this.transactionTemplate = transactionTemplate;
+        this.gracePeriod = gracePeriod;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.pauseMillis = pauseMillis;
+    }
+
+    /**
+     * Runs a pass on a fixed delay, collecting images older than the grace period.
+     */
+    @Scheduled(initialDelayString = "${doin.images.gc.initial-delay-ms:600000}",
+            fixedDelayString = "${doin.images.gc.interval-ms:3600000}")
+    public void scheduledCollect() {
+        collect(LocalDateTime.now().minus(gracePeriod));
+    }
+
+    @Override
+    /**
+     * {@inheritDoc}
+     */
+    public long collect(LocalDateTime cutoff) {
+        logger.info("Starting image garbage collection from image ID {} (cutoff {})", cursor.get(), cutoff);
+        long reclaimed = 0;
+        int deleted = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            // Mark and delete the rows in one short transaction per batch
+            List<String> sweptHashes = new ArrayList<>();
+            Integer found = transactionTemplate.execute(status -> markAndDelete(cutoff, sweptHashes));
+            int count = found == null ? 0 : found;
+            deleted += count;
+            // Only touch the store once the rows are gone, so a rolled back batch never loses bytes
+            reclaimed += sweep(sweptHashes, cutoff);
+            if (count < batchSize) {
+                // Reached the end of the table, the next pass starts over
+                cursor.set(0);
+                break;
+            }
+            if (!pause()) {
+                break;
+            }
+        }
+        reclaimedBytes.addAndGet(reclaimed);
+        logger.info("Image garbage collection deleted {} images and reclaimed {} bytes", deleted, reclaimed);
+        return reclaimed;
+    }
+
+    @Override
+    /**
+     * {@inheritDoc}
+     */
+    public long getReclaimedBytes() {
+        return reclaimedBytes.get();
+    }
+
+    /**
+     * Finds the next batch of unreferenced images, deletes them and drops their blob references.
+     *
+     * @param cutoff      only images created before this are collected
+     * @param sweptHashes collects the hashes whose blob may now be unused
+     * @return the number of images deleted
+     */
+    private int markAndDelete(LocalDateTime cutoff, List<String> sweptHashes) {
+        List<Image> orphans = imageRepository.findUnreferenced(cursor.get(), cutoff, PageRequest.of(0, batchSize));
+        if (orphans.isEmpty()) {
+            return 0;
+        }
+        imageRepository.deleteAllInBatch(orphans);
+        Set<String> hashes = new LinkedHashSet<>();
+        for (Image orphan : orphans) {
+            imageBlobRepository.decrementRefCount(orphan.getHash());
+            hashes.add(orphan.getHash());
+        }
+        for (String hash : hashes) {
+            imageBlobRepository.deleteIfUnreferenced(hash);
+        }
+        cursor.set(orphans.get(orphans.size() - 1).getId());
+        sweptHashes.addAll(hashes);
+        logger.debug("Deleted {} unreferenced images up to ID {}", orphans.size(), cursor.get());
+        return orphans.size();
+    }
+
+    /**
+     * Deletes the bytes of every blob no image uses anymore.
+     *
+     * @param hashes the hashes of the images that were just deleted
+     * @param cutoff blobs re-uploaded at or after this are kept
+     * @return the number of bytes reclaimed
+     */
+    private long sweep(List<String> hashes, LocalDateTime cutoff) {
+        long reclaimed = 0;
+        for (String hash : hashes) {
+            if (imageRepository.existsByHash(hash)) {
+                continue;
+            }
+            try {
+                reclaimed += imageStore.delete(hash, cutoff.atZone(ZoneId.systemDefault()).toInstant());
+            } catch (IOException e) {
+                logger.warn("Could not delete blob {}: {}", hash, e.getMessage());
+            }
+        }
+        return reclaimed;
+    }
+
+    /**
+     * Waits between batches so the collector never competes with foreground queries for long.
+     *
+     * @return {@code true} to keep going, {@code false} if the thread was interrupted
+     */
+    private boolean pause() {
+        if (pauseMillis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package edu.carroll.doin_backend.web.service;
 
+import edu.carroll.doin_backend.web.enums.ImageSize;
 import edu.carroll.doin_backend.web.model.Image;
+import edu.carroll.doin_backend.web.storage.ImageHandle;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -14,7 +16,10 @@ public interface ImageService {
     /**
      * Saves the specified image file as a new {@link Image} entity in the data store.
      * <p>
-     * The image data is encoded in Base64 format before being saved. This method also logs
+     * The raw bytes are written once to the {@link edu.carroll.doin_backend.web.storage.ImageStore}, and only
+     * the image's metadata (hash, size, MIME type and dimensions) is saved in the database. If the same bytes were
+     * uploaded before, the existing blob gains a reference instead of being stored again. The renditions in
+     * {@link ImageSize} are then generated in the background. This method also logs
      * the process of saving the image and handles potential I/O exceptions during file processing.
      * </p>
      *
@@ -27,14 +32,36 @@ public interface ImageService {
     Image save(MultipartFile file) throws IOException;
 
     /**
-     * Retrieves an {@link Image} entity by its unique identifier from the data store.
+     * Retrieves a handle to an image by its unique identifier.
      * <p>
-     * If the image with the specified ID is not found, a {@link edu.carroll.doin_backend.web.exception.ResourceNotFoundException}
-     * is thrown.
+     * The handle carries the image's metadata and streams its bytes from the
+     * {@link edu.carroll.doin_backend.web.storage.ImageStore} on demand; the bytes are never loaded into memory
+     * by this method.
      * </p>
      *
      * @param id the unique identifier of the image to retrieve.
-     * @return the {@link Image} object representing the retrieved image entity.
+     * @return the {@link ImageHandle} for the image, or {@code null} if the image or its bytes cannot be found.
      */
-    Image get(Long id);
-}
\ No newline at end of file
+    ImageHandle get(Long id);
+
+    /**
+     * Retrieves a handle to a rendition of an image by its unique identifier.
+     * <p>
+     * If the rendition has not been generated (yet, or because the original is already smaller), the handle
+     * streams the original image instead; {@link ImageHandle#getSize()} tells which one was found.
+     * </p>
+     *
+     * @param id   the unique identifier of the image to retrieve.
+     * @param size the rendition to retrieve, or {@code null} for the original.
+     * @return the {@link ImageHandle} for the image, or {@code null} if the image or its bytes cannot be found.
+     */
+    ImageHandle get(Long id, ImageSize size);
+
+    /**
+     * Gets how many bytes deduplication has saved: the size of every stored blob times the number of extra
+     * references to it.
+     *
+     * @return the number of bytes that were not stored again because identical bytes already existed.
+     */
+    long getDedupSavedBytes();
+}
@@ -1,15 +1,26 @@
 package edu.carroll.doin_backend.web.service;
 
+import edu.carroll.doin_backend.web.enums.ImageSize;
 import edu.carroll.doin_backend.web.model.Image;
+import edu.carroll.doin_backend.web.repository.ImageBlobRepository;
 import edu.carroll.doin_backend.web.repository.ImageRepository;
+import edu.carroll.doin_backend.web.storage.ImageHandle;
+import edu.carroll.doin_backend.web.storage.ImageStore;
+import edu.carroll.doin_backend.web.storage.StoredBlob;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
-import java.util.Base64;
+import java.util.Iterator;
 import java.util.Optional;
 
 @Service
@@ -17,15 +28,23 @@ public class ImageServiceImpl implements ImageService {
 
     private static final Logger logger = LoggerFactory.getLogger(ImageServiceImpl.class);
     private final ImageRepository imageRepository;
+    private final ImageBlobRepository imageBlobRepository;
+    private final ImageStore imageStore;
+    private final ThumbnailService thumbnailService;
 
-    public ImageServiceImpl(ImageRepository imageRepository) {
+    public ImageServiceImpl(ImageRepository imageRepository, ImageBlobRepository imageBlobRepository,
+                            ImageStore imageStore, ThumbnailService thumbnailService) {
         this.imageRepository = imageRepository;
+        this.imageBlobRepository = imageBlobRepository;
+        this.imageStore = imageStore;
+        this.thumbnailService = thumbnailService;
     }
 
     @Override
     /**
      * {@inheritDoc}
      */
+    @Transactional
     public Image save(MultipartFile file) throws IOException {
         logger.info("Starting to save image file with original filename: {}", file.getOriginalFilename());
 
@@ -35,23 +54,46 @@ public class ImageServiceImpl implements ImageService {
             throw new IllegalArgumentException("File is empty");
         }
 
-        // Prepare image entity for saving
+        // Stream the raw bytes into the store, only the metadata goes in the database
         Image img = new Image();
         img.setName(file.getOriginalFilename());
-        try {
-            img.setData(Base64.getEncoder().encodeToString(file.getBytes()));
+        boolean duplicate;
+        try (InputStream in = file.getInputStream()) {
+            StoredBlob blob = imageStore.put(in);
+            img.setHash(blob.getHash());
+            img.setSize(blob.getSize());
+            // Trust the bytes over the client, but keep the client's type for formats we don't recognize
+            img.setContentType(blob.getContentType() != null ? blob.getContentType() : file.getContentType());
+            // Identical bytes share one blob, which just gains another reference; created and counted in one
+            // statement, so two uploads of the same new bytes can't both think they created it
+            imageBlobRepository.addReference(blob.getHash(), blob.getSize(), LocalDateTime.now());
+            Integer refCount = imageBlobRepository.findRefCount(blob.getHash());
+            duplicate = refCount != null && refCount > 1;
+            // the first upload may not have committed yet, in which case its dimensions are read again
+            Optional<Image> existing = duplicate ? imageRepository.findFirstByHash(blob.getHash()) : Optional.empty();
+            if (existing.isPresent()) {
+                logger.info("Image {} is a duplicate of image with ID {}, reusing its blob", img.getName(), existing.get().getId());
+                img.setWidth(existing.get().getWidth());
+                img.setHeight(existing.get().getHeight());
+            } else {
+                readDimensions(imageStore.get(blob.getHash()), img);
+            }
         } catch (IOException e) {
-            logger.error("Error reading file bytes for image: {}", e.getMessage());
+            logger.error("Error storing file bytes for image: {}", e.getMessage());
             throw e;
         }
         img.setCreatedAt(LocalDateTime.now());
 
-        logger.info("Saving new image with details: name={}, createdAt={}", img.getName(), img.getCreatedAt());
+        logger.info("Saving new image with details: name={}, hash={}, size={}, createdAt={}", img.getName(), img.getHash(), img.getSize(), img.getCreatedAt());
 
         // Save image to repository
         try {
             Image image = imageRepository.save(img);
             logger.info("Image saved successfully with ID: {}", image.getId());
+            // A duplicate's renditions were already queued when its blob was first stored
+            if (!duplicate) {
+                thumbnailService.generateAsync(image.getHash(), image.getContentType());
+            }
             return image;
         } catch (Exception e) {
             logger.error("Failed to save image. Error: {}", e.getMessage());
@@ -63,15 +105,77 @@ public class ImageServiceImpl implements ImageService {
     /**
      * {@inheritDoc}
      */
-    public Image get(Long id) {
-        logger.info("Retrieving image with ID: {}", id);
+    public ImageHandle get(Long id) {
+        return get(id, null);
+    }
+
+    @Override
+    /**
+     * {@inheritDoc}
+     */
+    public ImageHandle get(Long id, ImageSize size) {
+        logger.info("Retrieving image with ID: {} (size {})", id, size);
         Optional<Image> imgOpt = imageRepository.findById(id);
-        // Return image if found, otherwise log error and return null
-        if (imgOpt.isPresent()) {
-            return imgOpt.get();
-        } else {
+        // Return a handle if found, otherwise log error and return null
+        if (imgOpt.isEmpty()) {
             logger.error("Image with ID {} not found", id);
             return null;
         }
+        Image img = imgOpt.get();
+        Resource content = imageStore.get(img.getHash());
+        if (content == null) {
+            logger.error("Bytes for image with ID {} (hash {}) are missing from the store", id, img.getHash());
+            return null;
+        }
+        if (size != null) {
+            Resource rendition = imageStore.getRendition(img.getHash(), size);
+            if (rendition != null) {
+                return new ImageHandle(img, rendition, size, thumbnailService.renditionContentType(img.getContentType()));
+            }
+            logger.debug("No {} rendition for image with ID {}, falling back to the original", size, id);
+        }
+        return new ImageHandle(img, content);
+    }
+
+    @Override
+    /**
+     * {@inheritDoc}
+     */
+    public long getDedupSavedBytes() {
+        return imageBlobRepository.sumDedupSavedBytes();
+    }
+
+    /**
+     * Reads the width and height of an image from its header, without decoding the pixels.
+     * <p>
+     * If the bytes are not in a format ImageIO understands, the dimensions are left unset. Also used by the
+     * {@link LegacyImageMigration} for the images it moves into the store.
+     * </p>
+     *
+     * @param content the stored bytes of the image
+     * @param img     the {@link Image} to set the dimensions on
+     */
+    static void readDimensions(Resource content, Image img) {
+        if (content == null) {
+            return;
+        }
+        try (InputStream stored = content.getInputStream();
+             ImageInputStream in = ImageIO.createImageInputStream(stored)) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                logger.debug("No image reader found for {}, leaving dimensions unset", img.getName());
+                return;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                img.setWidth(reader.getWidth(0));
+                img.setHeight(reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            logger.warn("Could not read dimensions of {}: {}", img.getName(), e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
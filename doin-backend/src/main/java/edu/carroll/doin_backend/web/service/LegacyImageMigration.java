@@ -0,0 +1,22 @@
+package edu.carroll.doin_backend.web.service;
+
+/**
+ * The {@code LegacyImageMigration} interface moves images that were saved before the
+ * {@link edu.carroll.doin_backend.web.storage.ImageStore} existed, Base64-encoded into the {@code images.data}
+ * column, into the store.
+ */
+public interface LegacyImageMigration {
+
+    /**
+     * Backfills every image that still only has its bytes in the {@code images.data} column.
+     * <p>
+     * The column is made nullable first, so new uploads, which never write it, can be saved while the backfill runs.
+     * Each legacy image is decoded into the store and gets its hash, size, content type, dimensions and blob
+     * reference in its own transaction. The column is only dropped once no image depends on it anymore; if any image
+     * could not be migrated, it is kept for the next run. Without the column, there is nothing to do.
+     * </p>
+     *
+     * @return the number of images migrated
+     */
+    int migrate();
+}
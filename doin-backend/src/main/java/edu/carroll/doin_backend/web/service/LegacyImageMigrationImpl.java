@@ -0,0 +1,193 @@
+package edu.carroll.doin_backend.web.service;
+
+import edu.carroll.doin_backend.web.model.Image;
+import edu.carroll.doin_backend.web.repository.ImageBlobRepository;
+import edu.carroll.doin_backend.web.storage.ImageStore;
+import edu.carroll.doin_backend.web.storage.StoredBlob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+@Service
+public class LegacyImageMigrationImpl implements LegacyImageMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(LegacyImageMigrationImpl.class);
+    private static final String TABLE = "images";
+    private static final String COLUMN = "data";
+
+    /**
+     * An image that only has its bytes in the legacy column.
+     */
+    private record LegacyImage(long id, String data) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ImageBlobRepository imageBlobRepository;
+    private final ImageStore imageStore;
+    private final ThumbnailService thumbnailService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public LegacyImageMigrationImpl(JdbcTemplate jdbcTemplate,
+                                    ImageBlobRepository imageBlobRepository,
+                                    ImageStore imageStore,
+                                    ThumbnailService thumbnailService,
+                                    TransactionTemplate transactionTemplate,
+                                    @Value("${doin.images.migration.batch-size:50}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.imageBlobRepository = imageBlobRepository;
+        this.imageStore = imageStore;
+        this.thumbnailService = thumbnailService;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Runs the migration once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        migrate();
+    }
+
+    @Override
+    /**
+     * {@inheritDoc}
+     */
+    public int migrate() {
+        if (!hasLegacyColumn()) {
+            logger.debug("No legacy image data column, nothing to migrate");
+            return 0;
+        }
+        // ddl-auto=update never relaxes a constraint, and new uploads don't write the column
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " MODIFY COLUMN " + COLUMN + " LONGTEXT NULL");
+        logger.info("Migrating legacy images from the {}.{} column into the image store", TABLE, COLUMN);
+
+        int migrated = 0;
+        int failed = 0;
+        long afterId = 0;
+        while (true) {
+            // rows are read in small batches by ID, since each one holds a whole Base64-encoded image
+            List<LegacyImage> batch = jdbcTemplate.query(
+                    "SELECT id, " + COLUMN + " FROM " + TABLE + " WHERE id > ? AND " + COLUMN + " IS NOT NULL " +
+                            "AND (hash IS NULL OR hash = '') ORDER BY id LIMIT ?",
+                    (rs, rowNum) -> new LegacyImage(rs.getLong(1), rs.getString(2)), afterId, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (LegacyImage image : batch) {
+                if (backfill(image)) {
+                    migrated++;
+                } else {
+                    failed++;
+                }
+                afterId = image.id();
+            }
+        }
+
+        if (failed > 0) {
+            logger.warn("Migrated {} legacy images, {} could not be migrated; keeping the {}.{} column",
+                    migrated, failed, TABLE, COLUMN);
+            return migrated;
+        }
+        // only now is it safe to drop the bytes of the old rows
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP COLUMN " + COLUMN);
+        logger.info("Migrated {} legacy images and dropped the {}.{} column", migrated, TABLE, COLUMN);
+        return migrated;
+    }
+
+    /**
+     * Moves the bytes of one legacy image into the store and fills in its metadata and blob reference.
+     *
+     * @param legacy the legacy image
+     * @return {@code true} if the image was migrated (or already had been), {@code false} if it could not be
+     */
+    private boolean backfill(LegacyImage legacy) {
+        final StoredBlob blob;
+        try (InputStream in = decode(legacy.data())) {
+            blob = imageStore.put(in);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Could not move the bytes of legacy image {} into the store: {}", legacy.id(), e.getMessage());
+            return false;
+        }
+        Image metadata = new Image();
+        metadata.setName("legacy image " + legacy.id());
+        ImageServiceImpl.readDimensions(imageStore.get(blob.getHash()), metadata);
+
+        Boolean firstReference = transactionTemplate.execute(status -> {
+            int updated = jdbcTemplate.update(
+                    "UPDATE " + TABLE + " SET hash = ?, size_bytes = ?, content_type = ?, width = ?, height = ?, " +
+                            COLUMN + " = NULL WHERE id = ? AND (hash IS NULL OR hash = '')",
+                    blob.getHash(), blob.getSize(), blob.getContentType(), metadata.getWidth(), metadata.getHeight(),
+                    legacy.id());
+            if (updated == 0) {
+                // migrated in the meantime, so it already has its reference
+                return false;
+            }
+            imageBlobRepository.addReference(blob.getHash(), blob.getSize(), LocalDateTime.now());
+            Integer refCount = imageBlobRepository.findRefCount(blob.getHash());
+            return refCount != null && refCount == 1;
+        });
+        if (Boolean.TRUE.equals(firstReference)) {
+            thumbnailService.generateAsync(blob.getHash(), blob.getContentType());
+        }
+        logger.debug("Migrated legacy image {} to blob {}", legacy.id(), blob.getHash());
+        return true;
+    }
+
+    /**
+     * Streams the decoded bytes of a legacy column value, which may have been saved as a data URL.
+     *
+     * @param data the Base64-encoded bytes
+     * @return a stream of the raw bytes
+     */
+    private static InputStream decode(String data) {
+        String encoded = data.startsWith("data:") ? data.substring(data.indexOf(',') + 1) : data;
+        // line breaks are dropped, anything else outside the Base64 alphabet fails the read
+        encoded = encoded.replaceAll("\\s", "");
+        if (encoded.isEmpty()) {
+            throw new IllegalArgumentException("no image data");
+        }
+        return Base64.getDecoder().wrap(new ByteArrayInputStream(encoded.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Checks whether the {@code images} table still has the legacy column.
+     *
+     * @return {@code true} if the column exists
+     */
+    private boolean hasLegacyColumn() {
+        Boolean found = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData meta = connection.getMetaData();
+            // identifiers may be stored in either case, depending on the database
+            for (String table : new String[]{TABLE, TABLE.toUpperCase(Locale.ROOT)}) {
+                try (ResultSet columns = meta.getColumns(connection.getCatalog(), null, table, null)) {
+                    while (columns.next()) {
+                        if (COLUMN.equalsIgnoreCase(columns.getString("COLUMN_NAME"))) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        });
+        return Boolean.TRUE.equals(found);
+    }
+}
@@ -0,0 +1,40 @@
+package edu.carroll.doin_backend.web.service;
+
+import edu.carroll.doin_backend.web.enums.ImageSize;
+
+/**
+ * The {@code ThumbnailService} interface provides methods for generating the scaled-down renditions of an image
+ * listed in {@link ImageSize}, so feeds can show small previews instead of full-size originals.
+ */
+public interface ThumbnailService {
+
+    /**
+     * Queues the renditions of a stored image for generation on a background thread.
+     * <p>
+     * If the queue is full the request is dropped; the original image is served until the renditions exist.
+     * </p>
+     *
+     * @param hash        the hash of the original image in the {@link edu.carroll.doin_backend.web.storage.ImageStore}
+     * @param contentType the MIME type of the original image
+     */
+    void generateAsync(String hash, String contentType);
+
+    /**
+     * Generates and stores every rendition smaller than the original image, on the calling thread.
+     *
+     * @param hash        the hash of the original image in the {@link edu.carroll.doin_backend.web.storage.ImageStore}
+     * @param contentType the MIME type of the original image
+     * @return {@code true} if at least one rendition was written, {@code false} if none was needed or the image
+     * could not be decoded
+     */
+    boolean generate(String hash, String contentType);
+
+    /**
+     * Gets the MIME type a rendition of an image is encoded as. JPEG originals stay JPEG; everything else becomes PNG
+     * so transparency is kept.
+     *
+     * @param originalContentType the MIME type of the original image
+     * @return the MIME type of its renditions
+     */
+    String renditionContentType(String originalContentType);
+}
@@ -0,0 +1,191 @@
+package edu.carroll.doin_backend.web.service;
+
+import edu.carroll.doin_backend.web.enums.ImageSize;
+import edu.carroll.doin_backend.web.storage.ImageStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class ThumbnailServiceImpl implements ThumbnailService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailServiceImpl.class);
+    private static final String JPEG = "image/jpeg";
+    private static final String PNG = "image/png";
+
+    private final ImageStore imageStore;
+    /**
+     * A small, bounded pool so a burst of uploads can never use more than a few threads and a fixed queue
+     */
+    private final ThreadPoolExecutor executor;
+
+    public ThumbnailServiceImpl(ImageStore imageStore,
+                                @Value("${doin.images.thumbnail-threads:2}") int threads,
+                                @Value("${doin.images.thumbnail-queue:64}") int queueSize) {
+        this.imageStore = imageStore;
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread t = new Thread(r, "thumbnail-" + count.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), threadFactory,
+                (task, pool) -> logger.warn("Thumbnail queue is full, dropping rendition task"));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    /**
+     * {@inheritDoc}
+     */
+    public void generateAsync(String hash, String contentType) {
+        logger.debug("Queueing renditions for image {}", hash);
+        executor.execute(() -> generate(hash, contentType));
+    }
+
+    @Override
+    /**
+     * {@inheritDoc}
+     */
+    public boolean generate(String hash, String contentType) {
+        Resource original = imageStore.get(hash);
+        if (original == null) {
+            logger.warn("Cannot generate renditions, image {} is not in the store", hash);
+            return false;
+        }
+        String renditionType = renditionContentType(contentType);
+        try (InputStream stored = original.getInputStream();
+             ImageInputStream in = ImageIO.createImageInputStream(stored)) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                logger.debug("No image reader found for image {}, skipping renditions", hash);
+                return false;
+            }
+            ImageReader reader = readers.next();
+            List<ImageSize> needed;
+            BufferedImage current;
+            try {
+                reader.setInput(in, true, true);
+                needed = neededSizes(hash, Math.max(reader.getWidth(0), reader.getHeight(0)));
+                if (needed.isEmpty()) {
+                    logger.debug("Image {} needs no renditions", hash);
+                    return false;
+                }
+                // Decode at a fraction of the resolution so huge originals never land in memory at full size
+                int originalEdge = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, originalEdge / needed.get(0).getMaxEdge());
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                current = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+
+            // Largest first, so every rendition is scaled down from the one before it
+            for (ImageSize size : needed) {
+                current = scale(current, size.getMaxEdge(), renditionType);
+                ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+                ImageIO.write(current, JPEG.equals(renditionType) ? "jpeg" : "png", encoded);
+                imageStore.putRendition(hash, size, new ByteArrayInputStream(encoded.toByteArray()));
+            }
+            logger.info("Generated {} renditions for image {}", needed.size(), hash);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to generate renditions for image {}: {}", hash, e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    /**
+     * {@inheritDoc}
+     */
+    public String renditionContentType(String originalContentType) {
+        return JPEG.equals(originalContentType) ? JPEG : PNG;
+    }
+
+    /**
+     * Lists the renditions an image still needs, largest first. Renditions at least as large as the original are
+     * never generated; the original is served in their place.
+     *
+     * @param hash         the hash of the original image
+     * @param originalEdge the longest edge of the original image in pixels
+     * @return the sizes to generate, from largest to smallest
+     */
+    private List<ImageSize> neededSizes(String hash, int originalEdge) {
+        List<ImageSize> needed = new ArrayList<>();
+        ImageSize[] sizes = ImageSize.values();
+        for (int i = sizes.length - 1; i >= 0; i--) {
+            if (sizes[i].getMaxEdge() < originalEdge && imageStore.getRendition(hash, sizes[i]) == null) {
+                needed.add(sizes[i]);
+            }
+        }
+        return needed;
+    }
+
+    /**
+     * Scales an image so its longest edge is at most {@code maxEdge}, halving it step by step first so large
+     * reductions stay smooth with bilinear filtering.
+     *
+     * @param source      the image to scale
+     * @param maxEdge     the longest edge of the result in pixels
+     * @param contentType the MIME type the result will be encoded as, which decides whether alpha is kept
+     * @return the scaled image
+     */
+    private static BufferedImage scale(BufferedImage source, int maxEdge, String contentType) {
+        int imageType = JPEG.equals(contentType) ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        int edge = Math.max(source.getWidth(), source.getHeight());
+        double ratio = Math.min(1.0, (double) maxEdge / edge);
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, imageType);
+            Graphics2D g = step.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+}
@@ -1,5 +1,7 @@
 package edu.carroll.doin_backend.web.service;
 
+import edu.carroll.doin_backend.web.cache.UserIdentityCache;
+import edu.carroll.doin_backend.web.cache.UsernameSearchIndex;
 import edu.carroll.doin_backend.web.dto.ForgotPasswordDTO;
 import edu.carroll.doin_backend.web.dto.RegisterDTO;
 import edu.carroll.doin_backend.web.dto.UserDTO;
@@ -9,6 +11,7 @@ import edu.carroll.doin_backend.web.model.SecurityQuestion;
 import edu.carroll.doin_backend.web.model.User;
 import edu.carroll.doin_backend.web.repository.LoginRepository;
 import edu.carroll.doin_backend.web.security.PasswordService;
+import edu.carroll.doin_backend.web.security.TokenService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -39,6 +42,18 @@ public class UserServiceImpl implements UserService {
      * a SecurityQuestionSerivce to interact with the SecurityQuestion JPA-Repository
      */
     private final SecurityQuestionService sqService;
+    /**
+     * a {@link TokenService} to revoke a user's tokens when their password changes
+     */
+    private final TokenService tokenService;
+    /**
+     * a {@link UserIdentityCache} that must forget users whenever they are saved
+     */
+    private final UserIdentityCache identityCache;
+    /**
+     * a {@link UsernameSearchIndex} that must learn about every new user
+     */
+    private final UsernameSearchIndex searchIndex;
 
     /**
      * The constructor of a LoginServiceImpl. It needs a LoginRepository and a PasswordService in order.
@@ -48,15 +63,24 @@ public class UserServiceImpl implements UserService {
      * @param passwordService - the PasswordService to verify user's password
      * @param sqService       - the SecurityQuestionService to handle security questions
      * @param imageService    - the ImageService to handle image uploads
+     * @param tokenService    - the TokenService to revoke tokens with
+     * @param identityCache   - the UserIdentityCache to invalidate when users change
+     * @param searchIndex     - the UsernameSearchIndex to add new users to
      */
     public UserServiceImpl(LoginRepository loginRepo,
                            PasswordService passwordService,
                            SecurityQuestionService sqService,
-                           ImageService imageService) {
+                           ImageService imageService,
+                           TokenService tokenService,
+                           UserIdentityCache identityCache,
+                           UsernameSearchIndex searchIndex) {
         this.loginRepo = loginRepo;
         this.passwordService = passwordService;
         this.sqService = sqService;
         this.imageService = imageService;
+        this.tokenService = tokenService;
+        this.identityCache = identityCache;
+        this.searchIndex = searchIndex;
     }
 
     /**
@@ -95,6 +119,8 @@ public class UserServiceImpl implements UserService {
             log.info("createNewUser: validated and saving new User {}", registerDTO.getUsername());
             User newUser = new User(registerDTO, hashedPassword, userSecurityQuestion);
             loginRepo.save(newUser);
+            identityCache.invalidate(newUser);
+            searchIndex.add(newUser.getId(), newUser.getUsername());
         } catch (Exception e) {
             // make sure no error when saving/creating the user
             log.error("createNewUser: adding new User {} failed\n{}", registerDTO.getUsername(), e.getMessage());
@@ -195,13 +221,42 @@ public class UserServiceImpl implements UserService {
             log.debug("validateCredentials: given password did not match with user's, {}, previously stored password", username);
             return false;
         }
+        // the password is known to be right, so this is the one chance to upgrade an outdated hash
+        if (passwordService.needsRehash(user.getPassword())) {
+            rehashPassword(user, password);
+        }
         // if passed all checks, then finally return true
         log.info("validateCredentials: User {} successfully validated", username);
         return true;
     }
 
+    /**
+     * Replaces a user's password hash with one made with the current algorithm and cost. Only the hash is written,
+     * and only if it is still the one that was verified, so a password reset that landed in the meantime wins. The
+     * login has already succeeded, so a failure here is only logged, and the upgrade is tried again on the next login.
+     *
+     * @param user     the user whose password was just verified
+     * @param password the raw password that was verified
+     */
+    private void rehashPassword(User user, String password) {
+        try {
+            String newHash = passwordService.hashPassword(password);
+            if (loginRepo.replacePasswordHash(user.getId(), user.getPassword(), newHash) == 0) {
+                log.info("rehashPassword: password of user {} changed meanwhile, not upgrading", user.getUsername());
+                return;
+            }
+            log.info("rehashPassword: upgraded the password hash of user {}", user.getUsername());
+        } catch (Exception e) {
+            log.warn("rehashPassword: could not upgrade the password hash of user {}", user.getUsername(), e);
+        }
+    }
+
     /**
      * Finds a user by either their ID or username.
+     * <p>
+     * A {@link UserDTO} only needs what the {@link UserIdentityCache} holds, so warm lookups, such as the one right
+     * after every successful login, never reach the database.
+     * </p>
      *
      * @param id       the unique identifier of the user (optional).
      * @param username the username of the user (optional).
@@ -212,13 +267,17 @@ public class UserServiceImpl implements UserService {
         if (id == null && username == null) {
             return null;
         }
-        Optional<User> user;
-        if (id != null) {
-            user = loginRepo.findById(id);
-        } else {
-            user = loginRepo.findByUsernameIgnoreCase(username).stream().findFirst();
+        UserIdentityCache.Identity identity = id != null
+                ? identityCache.findById(id)
+                : identityCache.findByUsername(username);
+        if (identity == null) {
+            return null;
         }
-        return user.map(UserDTO::new).orElse(null);
+        UserDTO user = new UserDTO();
+        user.setId(identity.getId());
+        user.setUsername(identity.getUsername());
+        user.setProfilePicture(identity.getProfilePicture());
+        return user;
     }
 
     /**
@@ -244,6 +303,8 @@ public class UserServiceImpl implements UserService {
 
         try {
             loginRepo.save(user);
+            // the cached identity still points at the old picture
+            identityCache.invalidate(user);
             return true;
         } catch (Exception e) {
             return false; // Handle user saving error
@@ -359,6 +420,9 @@ public class UserServiceImpl implements UserService {
         }
         // if all tests pass, its good and save changes
         loginRepo.save(user);
+        identityCache.invalidate(user);
+        // anyone holding a token from before the reset is logged out
+        tokenService.revokeUser(user.getId());
         return new ValidateResult(true, "Successfully reset password");
     }
 
@@ -0,0 +1,62 @@
+package edu.carroll.doin_backend.web.storage;
+
+/**
+ * Detects an image's MIME type from its leading "magic" bytes, so the type stored for an image does not depend on
+ * what the uploading client claimed.
+ */
+final class ContentTypeSniffer {
+    /**
+     * The number of leading bytes needed to recognize every supported format
+     */
+    static final int HEADER_LENGTH = 12;
+
+    private ContentTypeSniffer() {
+    }
+
+    /**
+     * Detects the MIME type of an image from its first bytes.
+     *
+     * @param header the first bytes of the image
+     * @param length how many bytes of {@code header} are valid
+     * @return the detected MIME type, or {@code null} if the format was not recognized
+     */
+    static String sniff(byte[] header, int length) {
+        if (startsWith(header, length, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(header, length, 0, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(header, length, 0, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(header, length, 0, 'R', 'I', 'F', 'F') && startsWith(header, length, 8, 'W', 'E', 'B', 'P')) {
+            return "image/webp";
+        }
+        if (startsWith(header, length, 0, 'B', 'M')) {
+            return "image/bmp";
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the header contains the given bytes at an offset.
+     *
+     * @param header the bytes to check
+     * @param length how many bytes of {@code header} are valid
+     * @param offset where in {@code header} the magic should start
+     * @param magic  the expected unsigned byte values
+     * @return {@code true} if every magic byte matches, {@code false} otherwise
+     */
+    private static boolean startsWith(byte[] header, int length, int offset, int... magic) {
+        if (length < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((header[offset + i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
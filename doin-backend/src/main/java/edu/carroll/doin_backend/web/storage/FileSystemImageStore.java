@@ -0,0 +1,234 @@
+package edu.carroll.doin_backend.web.storage;
+
+import edu.carroll.doin_backend.web.enums.ImageSize;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * An {@link ImageStore} that keeps blobs on the local filesystem.
+ * <p>
+ * Blobs are laid out by their SHA-256 hash as {@code <root>/ab/cd/abcd...}, which keeps directories small
+ * no matter how many images are stored. Renditions sit next to their original as {@code abcd....<size>}. Writes go to a temporary file first and are then atomically moved into
+ * place, so readers never see a partially written blob. Uploads are streamed through a single fixed-size buffer,
+ * so writing a blob costs the same amount of heap whatever its size.
+ * </p>
+ */
+@Component
+public class FileSystemImageStore implements ImageStore {
+    /**
+     * A {@link Logger} for logging messages
+     */
+    private static final Logger log = LoggerFactory.getLogger(FileSystemImageStore.class);
+
+    /**
+     * The size of the buffer uploads are copied through
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The directory every blob is stored under
+     */
+    private final Path root;
+
+    /**
+     * Constructs a new {@link FileSystemImageStore}.
+     *
+     * @param root the directory to store blobs under, from the application properties
+     */
+    public FileSystemImageStore(@Value("${doin.images.root:data/images}") String root) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StoredBlob put(InputStream in) throws IOException {
+        if (in == null) {
+            throw new IllegalArgumentException("in cannot be null");
+        }
+        // the hash is only known once every byte has been read, so stream into a temp file first
+        Files.createDirectories(root);
+        final Path temp = Files.createTempFile(root, "upload-", ".tmp");
+        try {
+            final MessageDigest digest = newSha256();
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            final byte[] header = new byte[ContentTypeSniffer.HEADER_LENGTH];
+            int headerLength = 0;
+            long size = 0;
+            try (DigestInputStream digestIn = new DigestInputStream(in, digest);
+                 OutputStream out = Files.newOutputStream(temp)) {
+                int read;
+                while ((read = digestIn.read(buffer)) != -1) {
+                    if (headerLength < header.length) {
+                        int copied = Math.min(read, header.length - headerLength);
+                        System.arraycopy(buffer, 0, header, headerLength, copied);
+                        headerLength += copied;
+                    }
+                    out.write(buffer, 0, read);
+                    size += read;
+                }
+            }
+            final String hash = HexFormat.of().formatHex(digest.digest());
+            final String contentType = ContentTypeSniffer.sniff(header, headerLength);
+            final Path target = pathFor(hash);
+            // content-addressed: if the blob is already there it has these exact bytes
+            if (Files.exists(target)) {
+                // touch it, so the garbage collector sees the blob is in use again
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                log.debug("put: blob {} already stored, skipping write", hash);
+            } else {
+                Files.createDirectories(target.getParent());
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                log.info("put: stored blob {} ({} bytes, {})", hash, size, contentType);
+            }
+            return new StoredBlob(hash, size, contentType);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Resource get(String hash) {
+        if (!exists(hash)) {
+            log.warn("get: no blob found for hash {}", hash);
+            return null;
+        }
+        return new FileSystemResource(pathFor(hash));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean exists(String hash) {
+        return isValidHash(hash) && Files.isRegularFile(pathFor(hash));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void putRendition(String hash, ImageSize size, InputStream in) throws IOException {
+        if (!isValidHash(hash) || size == null || in == null) {
+            throw new IllegalArgumentException("hash, size and in are required");
+        }
+        final Path target = renditionPathFor(hash, size);
+        Files.createDirectories(target.getParent());
+        final Path temp = Files.createTempFile(target.getParent(), hash, ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                in.transferTo(out);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        log.debug("putRendition: stored {} rendition of blob {}", size, hash);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Resource getRendition(String hash, ImageSize size) {
+        if (!isValidHash(hash) || size == null) {
+            return null;
+        }
+        final Path path = renditionPathFor(hash, size);
+        return Files.isRegularFile(path) ? new FileSystemResource(path) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long delete(String hash, Instant cutoff) throws IOException {
+        if (!exists(hash)) {
+            return 0;
+        }
+        final Path path = pathFor(hash);
+        if (!Files.getLastModifiedTime(path).toInstant().isBefore(cutoff)) {
+            log.debug("delete: blob {} was used recently, keeping it", hash);
+            return 0;
+        }
+        long reclaimed = 0;
+        for (ImageSize size : ImageSize.values()) {
+            final Path rendition = renditionPathFor(hash, size);
+            if (Files.isRegularFile(rendition)) {
+                reclaimed += Files.size(rendition);
+                Files.deleteIfExists(rendition);
+            }
+        }
+        reclaimed += Files.size(path);
+        Files.deleteIfExists(path);
+        log.info("delete: removed blob {} ({} bytes with renditions)", hash, reclaimed);
+        return reclaimed;
+    }
+
+    /**
+     * Resolves the path a blob with the given hash is stored at.
+     *
+     * @param hash the hex-encoded SHA-256 hash of the blob
+     * @return the path of the blob under the store's root directory
+     */
+    private Path pathFor(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    /**
+     * Resolves the path a rendition of a blob is stored at, right next to the original.
+     *
+     * @param hash the hex-encoded SHA-256 hash of the original blob
+     * @param size the rendition
+     * @return the path of the rendition under the store's root directory
+     */
+    private Path renditionPathFor(String hash, ImageSize size) {
+        return pathFor(hash).resolveSibling(hash + "." + size.name().toLowerCase());
+    }
+
+    /**
+     * Makes sure a hash is a 64 character lowercase hex string, so it can never be used to escape the root directory.
+     *
+     * @param hash the hash to check
+     * @return {@code true} if the hash is well-formed, {@code false} otherwise
+     */
+    private static boolean isValidHash(String hash) {
+        return hash != null && hash.matches("^[0-9a-f]{64}$");
+    }
+
+    /**
+     * Creates a new SHA-256 digest.
+     *
+     * @return a fresh SHA-256 {@link MessageDigest}
+     */
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM is required to support SHA-256
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
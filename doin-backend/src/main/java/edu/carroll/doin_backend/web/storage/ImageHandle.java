@@ -0,0 +1,105 @@
+package edu.carroll.doin_backend.web.storage;
+
+import edu.carroll.doin_backend.web.enums.ImageSize;
+import edu.carroll.doin_backend.web.model.Image;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A handle to a stored image: its metadata row plus a way to stream its bytes.
+ * <p>
+ * Nothing is read from the {@link ImageStore} until {@link #openStream()} is called (or the {@link Resource}
+ * is used directly), so holding a handle is cheap regardless of the image's size.
+ * </p>
+ */
+public class ImageHandle {
+    /**
+     * The metadata of the image
+     */
+    private final Image image;
+    /**
+     * The stored bytes of the image
+     */
+    private final Resource content;
+    /**
+     * The rendition {@link #content} holds, or {@code null} for the original
+     */
+    private final ImageSize size;
+    /**
+     * The MIME type of {@link #content}
+     */
+    private final String contentType;
+
+    /**
+     * Constructs a new {@link ImageHandle} for the original bytes of an image.
+     *
+     * @param image   the metadata row of the image
+     * @param content the {@link Resource} pointing at the image's bytes in the {@link ImageStore}
+     */
+    public ImageHandle(Image image, Resource content) {
+        this(image, content, null, image.getContentType());
+    }
+
+    /**
+     * Constructs a new {@link ImageHandle}.
+     *
+     * @param image       the metadata row of the image
+     * @param content     the {@link Resource} pointing at the bytes in the {@link ImageStore}
+     * @param size        the rendition {@code content} holds, or {@code null} for the original
+     * @param contentType the MIME type of {@code content}
+     */
+    public ImageHandle(Image image, Resource content, ImageSize size, String contentType) {
+        this.image = image;
+        this.content = content;
+        this.size = size;
+        this.contentType = contentType;
+    }
+
+    /**
+     * Gets the metadata of the image.
+     *
+     * @return the {@link Image} row for this handle
+     */
+    public Image getImage() {
+        return image;
+    }
+
+    /**
+     * Gets the stored bytes of the image as a {@link Resource}.
+     *
+     * @return the {@link Resource} for the image's bytes
+     */
+    public Resource getContent() {
+        return content;
+    }
+
+    /**
+     * Gets the rendition this handle streams.
+     *
+     * @return the {@link ImageSize} of the rendition, or {@code null} if this is the original image
+     */
+    public ImageSize getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the MIME type of the bytes this handle streams.
+     *
+     * @return the MIME type, may be {@code null} if unknown
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Opens a new stream over the image's bytes. The caller is responsible for closing it.
+     *
+     * @return an {@link InputStream} over the image's bytes
+     * @throws IOException if the bytes cannot be read from the store
+     */
+    public InputStream openStream() throws IOException {
+        return content.getInputStream();
+    }
+}
@@ -0,0 +1,96 @@
+package edu.carroll.doin_backend.web.storage;
+
+import edu.carroll.doin_backend.web.enums.ImageSize;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+
+/**
+ * Storage abstraction for raw image bytes.
+ * <p>
+ * Implementations are content-addressed: every blob is identified by the hex-encoded SHA-256 hash of its bytes,
+ * so identical uploads resolve to the same blob and a blob is only ever written once. Metadata about an image
+ * (name, size, MIME type, dimensions) lives in the {@link edu.carroll.doin_backend.web.model.Image} row, never
+ * in the store.
+ * </p>
+ */
+public interface ImageStore {
+
+    /**
+     * Streams bytes into the store, unless a blob with the same content already exists.
+     * <p>
+     * The stream is consumed in fixed-size chunks and is never held in memory as a whole; the hash and the content
+     * type are worked out while the bytes are being written. The caller remains responsible for closing the stream.
+     * </p>
+     *
+     * @param in the raw bytes to store, must not be {@code null}
+     * @return the {@link StoredBlob} describing the stored bytes
+     * @throws IOException if the bytes could not be read or written
+     */
+    StoredBlob put(InputStream in) throws IOException;
+
+    /**
+     * Writes the given bytes to the store, unless a blob with the same content already exists.
+     *
+     * @param data the raw bytes to store, must not be {@code null}
+     * @return the hex-encoded SHA-256 hash that addresses the stored blob
+     * @throws IOException if the bytes could not be written
+     */
+    default String put(byte[] data) throws IOException {
+        if (data == null) {
+            throw new IllegalArgumentException("data cannot be null");
+        }
+        return put(new ByteArrayInputStream(data)).getHash();
+    }
+
+    /**
+     * Retrieves a readable handle to the blob with the given hash.
+     *
+     * @param hash the hex-encoded SHA-256 hash of the blob
+     * @return a {@link Resource} that streams the blob's bytes, or {@code null} if no such blob exists
+     */
+    Resource get(String hash);
+
+    /**
+     * Checks if a blob with the given hash exists in the store.
+     *
+     * @param hash the hex-encoded SHA-256 hash of the blob
+     * @return {@code true} if the blob exists, {@code false} otherwise
+     */
+    boolean exists(String hash);
+
+    /**
+     * Stores a scaled-down rendition of a blob next to it, replacing any previous rendition of that size.
+     *
+     * @param hash the hex-encoded SHA-256 hash of the original blob
+     * @param size the rendition being stored
+     * @param in   the encoded bytes of the rendition, must not be {@code null}
+     * @throws IOException if the rendition could not be written
+     */
+    void putRendition(String hash, ImageSize size, InputStream in) throws IOException;
+
+    /**
+     * Retrieves a readable handle to a rendition of a blob.
+     *
+     * @param hash the hex-encoded SHA-256 hash of the original blob
+     * @param size the rendition to retrieve
+     * @return a {@link Resource} that streams the rendition's bytes, or {@code null} if it has not been generated
+     */
+    Resource getRendition(String hash, ImageSize size);
+
+    /**
+     * Deletes a blob and all of its renditions, unless it was written or re-uploaded at or after {@code cutoff}.
+     * <p>
+     * The cutoff keeps a blob alive while an upload of the same bytes is still linking it to a new image.
+     * </p>
+     *
+     * @param hash   the hex-encoded SHA-256 hash of the blob
+     * @param cutoff blobs stored or re-uploaded at or after this instant are kept
+     * @return the number of bytes reclaimed, or {@code 0} if nothing was deleted
+     * @throws IOException if the blob exists but could not be deleted
+     */
+    long delete(String hash, Instant cutoff) throws IOException;
+}
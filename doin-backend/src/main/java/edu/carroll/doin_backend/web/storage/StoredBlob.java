@@ -0,0 +1,59 @@
+package edu.carroll.doin_backend.web.storage;
+
+/**
+ * The result of writing a blob to an {@link ImageStore}: what was learned about the bytes while they streamed past.
+ */
+public class StoredBlob {
+    /**
+     * The hex-encoded SHA-256 hash that addresses the blob
+     */
+    private final String hash;
+    /**
+     * The number of bytes in the blob
+     */
+    private final long size;
+    /**
+     * The MIME type detected from the blob's leading bytes, or {@code null} if it was not recognized
+     */
+    private final String contentType;
+
+    /**
+     * Constructs a new {@link StoredBlob}.
+     *
+     * @param hash        the hex-encoded SHA-256 hash of the blob
+     * @param size        the number of bytes in the blob
+     * @param contentType the detected MIME type, or {@code null} if unknown
+     */
+    public StoredBlob(String hash, long size, String contentType) {
+        this.hash = hash;
+        this.size = size;
+        this.contentType = contentType;
+    }
+
+    /**
+     * Gets the hash that addresses the blob.
+     *
+     * @return the hex-encoded SHA-256 hash
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Gets the size of the blob.
+     *
+     * @return the number of bytes stored
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the MIME type detected from the blob's magic bytes.
+     *
+     * @return the detected MIME type, or {@code null} if the format was not recognized
+     */
+    public String getContentType() {
+        return contentType;
+    }
+}
@@ -0,0 +1,86 @@
+package edu.carroll.doin_backend.web.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * A position in a feed of events ordered by {@code (time, id)} descending, used for keyset pagination.
+ * <p>
+ * Clients only ever see the {@link #encode() encoded} form, an opaque URL-safe token naming the last event they
+ * were sent; the next slice starts strictly after it. {@link #FIRST} sorts after every real event, so the first
+ * slice uses the same query as every other.
+ * </p>
+ */
+public final class EventCursor {
+    /**
+     * The cursor before the first event of any feed
+     */
+    public static final EventCursor FIRST = new EventCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Integer.MAX_VALUE);
+
+    private static final char SEPARATOR = '|';
+
+    private final LocalDateTime time;
+    private final Integer id;
+
+    /**
+     * Constructs a cursor positioned at an event.
+     *
+     * @param time the time of the event
+     * @param id   the ID of the event
+     */
+    public EventCursor(LocalDateTime time, Integer id) {
+        this.time = time;
+        this.id = id;
+    }
+
+    /**
+     * Decodes a cursor token from a client.
+     *
+     * @param token the token, or {@code null} or blank for the start of the feed
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the token was not made by {@link #encode()}
+     */
+    public static EventCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int split = decoded.lastIndexOf(SEPARATOR);
+            if (split < 0) {
+                throw new IllegalArgumentException("Malformed event cursor");
+            }
+            return new EventCursor(LocalDateTime.parse(decoded.substring(0, split)),
+                    Integer.valueOf(decoded.substring(split + 1)));
+        } catch (DateTimeParseException e) {
+            // NumberFormatException is already an IllegalArgumentException
+            throw new IllegalArgumentException("Malformed event cursor", e);
+        }
+    }
+
+    /**
+     * Encodes the cursor into an opaque token for a client.
+     *
+     * @return the URL-safe token
+     */
+    public String encode() {
+        String raw = time.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the time of the event the cursor is at
+     */
+    public LocalDateTime getTime() {
+        return time;
+    }
+
+    /**
+     * @return the ID of the event the cursor is at
+     */
+    public Integer getId() {
+        return id;
+    }
+}
@@ -0,0 +1,214 @@
+package edu.carroll.doin_backend.web.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of positive {@code int} values backed by a single open-addressing array.
+ * <p>
+ * Unlike a {@code Set<Integer>}, no value is ever boxed, so a set of n IDs costs about 4 to 8 bytes per ID. Slots use
+ * linear probing with {@code 0} marking an empty slot, which is why only positive values (such as database IDs)
+ * can be stored. Removal shifts later entries back instead of leaving tombstones, so lookups never slow down as
+ * values come and go. The class is not thread-safe.
+ * </p>
+ */
+public final class IntHashSet {
+    private static final int EMPTY = 0;
+    private static final int MIN_CAPACITY = 4;
+
+    private int[] slots;
+    private int size;
+
+    /**
+     * Constructs an empty set.
+     */
+    public IntHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty set with room for the given number of values before it has to grow.
+     *
+     * @param expectedSize how many values the set is expected to hold
+     */
+    public IntHashSet(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        // keep the load factor at or below one half
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        slots = new int[capacity];
+    }
+
+    /**
+     * Adds a value to the set.
+     *
+     * @param value the value to add, must be positive
+     * @return {@code true} if the value was added, {@code false} if it was already present
+     */
+    public boolean add(int value) {
+        checkValue(value);
+        if ((size + 1) * 2 > slots.length) {
+            rehash(slots.length << 1);
+        }
+        int mask = slots.length - 1;
+        int i = mix(value) & mask;
+        while (slots[i] != EMPTY) {
+            if (slots[i] == value) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        slots[i] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes a value from the set.
+     *
+     * @param value the value to remove
+     * @return {@code true} if the value was removed, {@code false} if it was not present
+     */
+    public boolean remove(int value) {
+        if (value <= 0) {
+            return false;
+        }
+        int mask = slots.length - 1;
+        int i = mix(value) & mask;
+        while (slots[i] != value) {
+            if (slots[i] == EMPTY) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        // shift back every following entry that would no longer be reachable past the hole
+        int hole = i;
+        int j = (i + 1) & mask;
+        while (slots[j] != EMPTY) {
+            int home = mix(slots[j]) & mask;
+            // move the entry if its home slot is not cyclically within (hole, j]
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                slots[hole] = slots[j];
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        slots[hole] = EMPTY;
+        size--;
+        return true;
+    }
+
+    /**
+     * Checks if a value is in the set.
+     *
+     * @param value the value to look for
+     * @return {@code true} if the value is present, {@code false} otherwise
+     */
+    public boolean contains(int value) {
+        if (value <= 0) {
+            return false;
+        }
+        int mask = slots.length - 1;
+        int i = mix(value) & mask;
+        while (slots[i] != EMPTY) {
+            if (slots[i] == value) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of values in the set.
+     *
+     * @return the size of the set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the set has no values.
+     *
+     * @return {@code true} if the set is empty, {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Calls an action for every value in the set, in no particular order.
+     *
+     * @param action the action to call
+     */
+    public void forEach(IntConsumer action) {
+        for (int slot : slots) {
+            if (slot != EMPTY) {
+                action.accept(slot);
+            }
+        }
+    }
+
+    /**
+     * Copies the values of the set into a new array.
+     *
+     * @return the values, in no particular order
+     */
+    public int[] toArray() {
+        int[] values = new int[size];
+        int n = 0;
+        for (int slot : slots) {
+            if (slot != EMPTY) {
+                values[n++] = slot;
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        int[] values = toArray();
+        Arrays.sort(values);
+        return Arrays.toString(values);
+    }
+
+    /**
+     * Moves every value into a new array of the given capacity.
+     *
+     * @param capacity the new capacity, a power of two
+     */
+    private void rehash(int capacity) {
+        int[] old = slots;
+        slots = new int[capacity];
+        size = 0;
+        for (int value : old) {
+            if (value != EMPTY) {
+                add(value);
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of a value so sequential IDs don't land in sequential slots.
+     *
+     * @param value the value to hash
+     * @return the mixed hash
+     */
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Makes sure a value can be stored.
+     *
+     * @param value the value to check
+     */
+    private static void checkValue(int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("only positive values can be stored: " + value);
+        }
+    }
+}
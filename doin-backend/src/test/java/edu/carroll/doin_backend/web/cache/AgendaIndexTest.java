@@ -0,0 +1,87 @@
+package edu.carroll.doin_backend.web.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+public class AgendaIndexTest {
+    // the index doesn't check that users or events exist, so IDs no test will ever get keep the tests independent
+    private static final int alice = 900001;
+    private static final int bob = 900002;
+
+    @Autowired
+    private AgendaIndex agendaIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void upcoming_SoonestFirstAndBounded() {
+        LocalDateTime base = LocalDateTime.now().plusDays(1);
+        agendaIndex.addEvent(800001, alice, base.plusHours(3));
+        agendaIndex.addEvent(800002, alice, base.plusHours(1));
+        agendaIndex.addEvent(800003, alice, base.plusHours(2));
+
+        assertArrayEquals(new int[]{800002, 800003, 800001}, agendaIndex.upcoming(alice, 10));
+        assertArrayEquals(new int[]{800002, 800003}, agendaIndex.upcoming(alice, 2), "The result should be bounded");
+        assertEquals(0, agendaIndex.upcoming(bob, 10).length);
+    }
+
+    @Test
+    public void addJoiner_PutsEventOnJoinersAgenda() {
+        agendaIndex.addEvent(800001, alice, LocalDateTime.now().plusDays(1));
+
+        agendaIndex.addJoiner(800001, bob);
+
+        assertArrayEquals(new int[]{800001}, agendaIndex.upcoming(bob, 10));
+    }
+
+    @Test
+    public void addEvent_IgnoresPastEvents() {
+        agendaIndex.addEvent(800001, alice, LocalDateTime.now().minusMinutes(1));
+        agendaIndex.addJoiner(800001, bob);
+
+        assertEquals(0, agendaIndex.upcoming(alice, 10).length);
+        assertEquals(0, agendaIndex.upcoming(bob, 10).length);
+    }
+
+    @Test
+    public void evictExpired_TakesStartedEventsOffEveryAgenda() throws InterruptedException {
+        agendaIndex.addEvent(800001, alice, LocalDateTime.now().plusNanos(50_000_000));
+        agendaIndex.addJoiner(800001, bob);
+        agendaIndex.addEvent(800002, alice, LocalDateTime.now().plusDays(1));
+        Thread.sleep(100);
+
+        agendaIndex.evictExpired();
+        agendaIndex.addJoiner(800001, alice);
+
+        assertArrayEquals(new int[]{800002}, agendaIndex.upcoming(alice, 10));
+        assertEquals(0, agendaIndex.upcoming(bob, 10).length, "Started events should leave every agenda");
+    }
+
+    @Test
+    public void rollback_RemovesJoiner() {
+        agendaIndex.addEvent(800001, alice, LocalDateTime.now().plusDays(1));
+        TransactionTemplate inner = new TransactionTemplate(transactionManager);
+        inner.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        inner.executeWithoutResult(status -> {
+            agendaIndex.addJoiner(800001, bob);
+            assertEquals(1, agendaIndex.upcoming(bob, 10).length);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, agendaIndex.upcoming(bob, 10).length, "Rolling back should take the event off the agenda");
+        assertArrayEquals(new int[]{800001}, agendaIndex.upcoming(alice, 10), "The creator should keep the event");
+    }
+}
@@ -0,0 +1,124 @@
+package edu.carroll.doin_backend.web.cache;
+
+import edu.carroll.doin_backend.web.enums.Visibility;
+import edu.carroll.doin_backend.web.repository.EventRepository;
+import edu.carroll.doin_backend.web.util.EventCursor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+public class EventTimelineIndexTest {
+    // the index doesn't check that users or events exist, so IDs no test will ever get keep the tests independent
+    private static final int alice = 900001;
+    private static final int bob = 900002;
+    private static final int carol = 900003;
+    // far in the future, so these events come before any event a test creates through the service
+    private static final LocalDateTime base = LocalDateTime.of(9000, 1, 1, 12, 0);
+
+    @Autowired
+    private EventTimelineIndex timelineIndex;
+
+    @Autowired
+    private FriendGraphIndex friendGraph;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    private List<Integer> feed(int userId, int limit) {
+        return timelineIndex.feed(userId, EventCursor.FIRST, limit).stream().map(EventCursor::getId).toList();
+    }
+
+    @Test
+    public void feed_MergesPublicAndFriendsEventsNewestFirst() {
+        friendGraph.setConfirmed(alice, bob);
+        timelineIndex.add(800001, carol, base.plusHours(1), Visibility.PUBLIC);
+        timelineIndex.add(800002, bob, base.plusHours(3), Visibility.PRIVATE);
+        timelineIndex.add(800003, alice, base.plusHours(2), Visibility.CLOSE_FRIENDS);
+        timelineIndex.add(800004, carol, base.plusHours(4), Visibility.PRIVATE);
+
+        assertEquals(List.of(800002, 800003, 800001), feed(alice, 3), "Alice should see public, her own and Bob's events");
+        assertEquals(List.of(800002, 800003, 800001), feed(bob, 3), "Bob should see Alice's event through the fan-out");
+        assertEquals(List.of(800004, 800001), feed(carol, 2), "Carol should only see public events and her own");
+    }
+
+    @Test
+    public void feed_StartsAfterCursorAndBreaksTiesById() {
+        timelineIndex.add(800001, alice, base, Visibility.PUBLIC);
+        timelineIndex.add(800002, alice, base, Visibility.PRIVATE);
+        timelineIndex.add(800003, alice, base, Visibility.PUBLIC);
+
+        List<EventCursor> first = timelineIndex.feed(alice, EventCursor.FIRST, 2);
+        List<EventCursor> second = timelineIndex.feed(alice, first.get(1), 2);
+
+        assertEquals(List.of(800003, 800002), first.stream().map(EventCursor::getId).toList());
+        assertEquals(800001, second.get(0).getId(), "The next slice should continue after the cursor");
+    }
+
+    @Test
+    public void addFriendship_BackfillsAndRemoveFriendshipPrunes() {
+        timelineIndex.add(800001, bob, base, Visibility.PRIVATE);
+        assertFalse(feed(alice, 10).contains(800001), "Strangers should not see private events");
+
+        timelineIndex.addFriendship(alice, bob);
+        assertEquals(800001, feed(alice, 1).get(0), "A new friend's earlier events should be backfilled");
+
+        timelineIndex.removeFriendship(bob, alice);
+        assertFalse(feed(alice, 10).contains(800001), "A removed friend's events should be pruned");
+        assertEquals(800001, feed(bob, 1).get(0), "The creator should keep their own event");
+    }
+
+    @Test
+    public void rollback_RemovesAddedEvent() {
+        TransactionTemplate inner = new TransactionTemplate(transactionManager);
+        inner.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        inner.executeWithoutResult(status -> {
+            timelineIndex.add(800001, alice, base, Visibility.PUBLIC);
+            assertEquals(800001, feed(bob, 1).get(0));
+            status.setRollbackOnly();
+        });
+
+        assertFalse(feed(bob, 10).contains(800001), "Rolling back should remove the event");
+    }
+
+    @Test
+    public void feed_DefersSlicesPastTheCap() {
+        EventTimelineIndex capped = new EventTimelineIndex(eventRepository, friendGraph, 2);
+        for (int i = 1; i <= 4; i++) {
+            capped.add(800000 + i, carol, base.plusHours(i), Visibility.PUBLIC);
+        }
+
+        List<EventCursor> first = capped.feed(alice, EventCursor.FIRST, 2);
+        assertEquals(List.of(800004, 800003), first.stream().map(EventCursor::getId).toList());
+        assertNull(capped.feed(alice, EventCursor.FIRST, 3), "A slice reaching past the cap should be deferred");
+        assertNull(capped.feed(alice, first.get(1), 1), "A cursor past the cap should be deferred");
+    }
+
+    @Test
+    public void addFriendship_KeepsTheCreatorsCap() {
+        EventTimelineIndex capped = new EventTimelineIndex(eventRepository, friendGraph, 2);
+        for (int i = 1; i <= 3; i++) {
+            capped.add(800000 + i, bob, base.plusHours(i), Visibility.PRIVATE);
+        }
+        assertEquals(List.of(), capped.feed(alice, EventCursor.FIRST, 10), "Strangers should not see private events");
+
+        capped.addFriendship(alice, bob);
+        assertEquals(List.of(800003, 800002),
+                capped.feed(alice, EventCursor.FIRST, 2).stream().map(EventCursor::getId).toList());
+        assertNull(capped.feed(alice, EventCursor.FIRST, 3), "Bob's dropped events should not be missed silently");
+    }
+}
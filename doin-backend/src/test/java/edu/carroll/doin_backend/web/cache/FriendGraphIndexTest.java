@@ -0,0 +1,77 @@
+package edu.carroll.doin_backend.web.cache;
+
+import edu.carroll.doin_backend.web.enums.FriendshipStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+public class FriendGraphIndexTest {
+    // the index doesn't check that users exist, so IDs no test user will ever get keep the tests independent
+    private static final int alice = 900001;
+    private static final int bob = 900002;
+
+    @Autowired
+    private FriendGraphIndex friendGraph;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void setPending_IsDirected() {
+        friendGraph.setPending(alice, bob);
+
+        assertTrue(friendGraph.isPending(alice, bob), "The request should be pending from the sender");
+        assertFalse(friendGraph.isPending(bob, alice), "The request should not be pending the other way");
+        assertEquals(FriendshipStatus.PENDING, friendGraph.statusBetween(bob, alice), "The status should not depend on direction");
+        assertArrayEquals(new int[]{bob}, friendGraph.pendingOut(alice));
+        assertArrayEquals(new int[]{alice}, friendGraph.pendingIn(bob));
+        assertEquals(0, friendGraph.confirmed(alice).length, "Pending requests are not friends");
+    }
+
+    @Test
+    public void setConfirmed_ReplacesPending() {
+        friendGraph.setPending(alice, bob);
+
+        friendGraph.setConfirmed(bob, alice);
+
+        assertEquals(FriendshipStatus.CONFIRMED, friendGraph.statusBetween(alice, bob));
+        assertArrayEquals(new int[]{bob}, friendGraph.confirmed(alice));
+        assertArrayEquals(new int[]{alice}, friendGraph.confirmed(bob));
+        assertEquals(0, friendGraph.pendingIn(bob).length, "The request should no longer be pending");
+    }
+
+    @Test
+    public void remove_ClearsBothSides() {
+        friendGraph.setConfirmed(alice, bob);
+
+        friendGraph.remove(bob, alice);
+
+        assertEquals(FriendshipStatus.NOTADDED, friendGraph.statusBetween(alice, bob));
+        assertEquals(0, friendGraph.confirmed(alice).length);
+        assertEquals(0, friendGraph.confirmed(bob).length);
+    }
+
+    @Test
+    public void rollback_RestoresPreviousEdge() {
+        friendGraph.setPending(bob, alice);
+        TransactionTemplate inner = new TransactionTemplate(transactionManager);
+        inner.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        inner.executeWithoutResult(status -> {
+            friendGraph.setConfirmed(alice, bob);
+            assertEquals(FriendshipStatus.CONFIRMED, friendGraph.statusBetween(alice, bob));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(FriendshipStatus.PENDING, friendGraph.statusBetween(alice, bob), "Rolling back should undo the confirmation");
+        assertTrue(friendGraph.isPending(bob, alice), "The original request direction should be restored");
+    }
+}
@@ -0,0 +1,70 @@
+package edu.carroll.doin_backend.web.cache;
+
+import edu.carroll.doin_backend.web.dto.RegisterDTO;
+import edu.carroll.doin_backend.web.service.SecurityQuestionService;
+import edu.carroll.doin_backend.web.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+public class UserIdentityCacheTest {
+    private static final String username = "CacheUser";
+
+    @Autowired
+    private UserIdentityCache identityCache;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private SecurityQuestionService sqService;
+
+    @BeforeEach
+    public void setUp() {
+        sqService.addSecurityQuestion("pet");
+        userService.createNewUser(new RegisterDTO(username, "password", "pet", "answer"));
+    }
+
+    @Test
+    public void findByUsername_IgnoresCase() {
+        UserIdentityCache.Identity identity = identityCache.findByUsername("cacheuser");
+
+        assertNotNull(identity, "User should be found regardless of case");
+        assertEquals(username, identity.getUsername(), "Username should keep its original case");
+        assertEquals(identity.getId(), identityCache.findByUsername("CACHEUSER").getId(), "Both lookups should find the same user");
+    }
+
+    @Test
+    public void findById_MatchesUsernameLookup() {
+        Integer id = identityCache.findByUsername(username).getId();
+
+        UserIdentityCache.Identity identity = identityCache.findById(id);
+
+        assertNotNull(identity, "User should be found by ID");
+        assertEquals(username, identity.getUsername(), "ID lookup should find the same user");
+    }
+
+    @Test
+    public void find_UnknownUser_ReturnsNull() {
+        assertNull(identityCache.findByUsername("noSuchUser"), "Unknown usernames should not be found");
+        assertNull(identityCache.findById(-1), "Unknown IDs should not be found");
+        assertNull(identityCache.findByUsername(null), "Null usernames should not be found");
+    }
+
+    @Test
+    public void updateProfilePicture_InvalidatesIdentity() {
+        Integer id = identityCache.findByUsername(username).getId();
+        assertNull(identityCache.findById(id).getProfilePicture(), "New users have no profile picture");
+
+        assertTrue(userService.updateProfilePicture(id, new MockMultipartFile("file", "me.png", "image/png", "me".getBytes())));
+
+        assertNotNull(identityCache.findById(id).getProfilePicture(), "The new profile picture should be visible");
+    }
+}
@@ -0,0 +1,90 @@
+package edu.carroll.doin_backend.web.cache;
+
+import edu.carroll.doin_backend.web.dto.RegisterDTO;
+import edu.carroll.doin_backend.web.service.SecurityQuestionService;
+import edu.carroll.doin_backend.web.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+public class UsernameSearchIndexTest {
+
+    @Autowired
+    private UsernameSearchIndex searchIndex;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private SecurityQuestionService sqService;
+
+    private Integer zebra;
+    private Integer zebraFan;
+    private Integer bigZebra;
+
+    @BeforeEach
+    public void setUp() {
+        sqService.addSecurityQuestion("pet");
+        zebra = register("Zebra");
+        zebraFan = register("zebra_fan");
+        bigZebra = register("the_big_ZEBRA");
+    }
+
+    private Integer register(String username) {
+        assertTrue(userService.createNewUser(new RegisterDTO(username, "password", "pet", "answer")));
+        return userService.findUser(null, username).getId();
+    }
+
+    @Test
+    public void search_RanksExactThenPrefixThenInfix() {
+        int[] found = searchIndex.search("zEbRa", 10);
+
+        assertArrayEquals(new int[]{zebra, zebraFan, bigZebra}, found, "Exact, prefix and infix matches in order");
+    }
+
+    @Test
+    public void search_Infix() {
+        assertArrayEquals(new int[]{bigZebra}, searchIndex.search("big_z", 10), "Matches may start mid-username");
+        assertArrayEquals(new int[]{zebraFan}, searchIndex.search("a_f", 10), "Matches may span an underscore");
+    }
+
+    @Test
+    public void search_ShortQuery() {
+        assertArrayEquals(new int[]{zebraFan}, searchIndex.search("fa", 10),
+                "Queries shorter than a trigram should still match");
+        assertArrayEquals(new int[]{zebra, zebraFan, bigZebra}, searchIndex.search("ZE", 10),
+                "Prefix matches should come before the rest");
+        assertArrayEquals(new int[]{bigZebra}, searchIndex.search("G", 10),
+                "Single characters should match mid-username");
+    }
+
+    @Test
+    public void search_ShortQueryFindsUsersAddedLater() {
+        Integer zeal = register("zeal");
+
+        assertArrayEquals(new int[]{zeal, zebra, zebraFan, bigZebra}, searchIndex.search("z", 10),
+                "Shorter usernames should come first, after every prefix match");
+        assertArrayEquals(new int[]{zebra, zebraFan, bigZebra}, searchIndex.search("zeb", 10));
+    }
+
+    @Test
+    public void search_Limit() {
+        assertArrayEquals(new int[]{zebra, zebraFan}, searchIndex.search("zebra", 2), "Only the best matches should return");
+        assertArrayEquals(new int[]{zebra}, searchIndex.search("z", 1));
+        assertEquals(0, searchIndex.search("zebra", 0).length);
+    }
+
+    @Test
+    public void search_NoMatch() {
+        assertEquals(0, searchIndex.search("zebras", 10).length, "Longer than any username should match nothing");
+        assertEquals(0, searchIndex.search("qqq", 10).length, "Unknown trigrams should match nothing");
+        assertEquals(0, searchIndex.search(null, 10).length);
+        assertEquals(0, searchIndex.search("", 10).length);
+    }
+}
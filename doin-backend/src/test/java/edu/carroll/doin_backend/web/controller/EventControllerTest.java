@@ -1,5 +1,6 @@
 package edu.carroll.doin_backend.web.controller;
 
+import edu.carroll.doin_backend.web.dto.CursorSliceDTO;
 import edu.carroll.doin_backend.web.dto.EventDTO;
 import edu.carroll.doin_backend.web.dto.RegisterDTO;
 import edu.carroll.doin_backend.web.dto.UserDTO;
@@ -103,6 +104,13 @@ public class EventControllerTest {
         assertEquals(user1.getId(), createdEvent.getCreator().getId(), "Event creator should match");
     }
 
+    @Test
+    public void createEvent_NoTime() {
+        testEvent.setTime(null);
+
+        assertNull(eventController.create(testEvent, user1Header), "Events without a time should not be created");
+    }
+
     @Test
     public void getById_Success() {
         // First create an event
@@ -220,6 +228,39 @@ public class EventControllerTest {
         assertEquals(0, userEvents.getTotalElements(), "Total elements should be 0 for unauthorized access");
     }
 
+    @Test
+    public void getPublicFeed_Success() {
+        eventController.create(testEvent, user1Header);
+        ResponseEntity<CursorSliceDTO<EventDTO>> response = eventController.getPublicFeed(null, 10);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().getContent().size());
+        assertNull(response.getBody().getNextCursor());
+    }
+
+    @Test
+    public void getPublicFeed_MalformedCursor() {
+        ResponseEntity<CursorSliceDTO<EventDTO>> response = eventController.getPublicFeed("garbage", 10);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    public void getAllFeed_InvalidSize() {
+        ResponseEntity<CursorSliceDTO<EventDTO>> response = eventController.getAllFeed(null, 0, user1Header);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    public void getUserFeed_Success() {
+        eventController.create(testEvent, user1Header);
+        ResponseEntity<CursorSliceDTO<EventDTO>> response = eventController.getUserFeed(user1.getId(), null, 10, user2Header);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().getContent().size());
+    }
+
     // Test for `addImages`
     @Test
     public void addImages_Success() {
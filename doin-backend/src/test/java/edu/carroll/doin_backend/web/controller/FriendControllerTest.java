@@ -11,6 +11,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
@@ -98,6 +99,30 @@ public class FriendControllerTest {
         assertEquals(1, user1Response.getBody().size(), "User1 getFriendsOfFriends should return 1 friend of Friend");
     }
 
+    @Test
+    public void getSuggestions_Success() {
+        // user1 -> user2 -> user3
+        ResponseEntity<Page<FriendshipDTO>> response = friendController.getSuggestions(0, 10, user1Header);
+        assertEquals(HttpStatus.OK, response.getStatusCode(), "User1 getSuggestions should return 'OK' response");
+        assertNotNull(response.getBody(), "User1 getSuggestions should never have a null body");
+        assertEquals(1, response.getBody().getContent().size(), "User1 should have 1 suggestion");
+        assertEquals(username3, response.getBody().getContent().get(0).getUsername(), "User3 should be suggested to User1");
+    }
+
+    @Test
+    public void getSuggestions_InvalidHeader() {
+        ResponseEntity<Page<FriendshipDTO>> response = friendController.getSuggestions(0, 10, invalidAuthHeader);
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode(), "Invalid header getSuggestions should be unauthorized");
+        assertNotNull(response.getBody(), "Invalid header getSuggestions should not be null");
+        assertTrue(response.getBody().isEmpty(), "Invalid header getSuggestions should be empty");
+    }
+
+    @Test
+    public void getSuggestions_InvalidPage() {
+        ResponseEntity<Page<FriendshipDTO>> response = friendController.getSuggestions(-1, 10, user1Header);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "A negative page should be a bad request");
+    }
+
     @Test
     public void getFriendsOfFriends_InvalidUserAuthHeader() {
         ResponseEntity<Set<FriendshipDTO>> invalidUsernameResponse = friendController.getFriendsOfFriends(invalidUserAuthHeader);
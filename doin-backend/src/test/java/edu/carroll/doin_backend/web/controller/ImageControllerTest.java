@@ -0,0 +1,219 @@
+package edu.carroll.doin_backend.web.controller;
+
+import edu.carroll.doin_backend.web.dto.EventDTO;
+import edu.carroll.doin_backend.web.dto.RegisterDTO;
+import edu.carroll.doin_backend.web.dto.UserDTO;
+import edu.carroll.doin_backend.web.enums.Visibility;
+import edu.carroll.doin_backend.web.security.TokenService;
+import edu.carroll.doin_backend.web.service.EventService;
+import edu.carroll.doin_backend.web.service.ImageService;
+import edu.carroll.doin_backend.web.service.SecurityQuestionService;
+import edu.carroll.doin_backend.web.service.ThumbnailService;
+import edu.carroll.doin_backend.web.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+public class ImageControllerTest {
+    private final String username1 = "image_user_1";
+    private final String username2 = "image_user_2";
+    private final byte[] imageBytes = "0123456789".getBytes();
+    private String user1Header;
+    private String user2Header;
+    private Long profilePictureId;
+
+    @Autowired
+    private ImageController imageController;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private SecurityQuestionService sqService;
+
+    @BeforeEach
+    public void setUp() {
+        sqService.addSecurityQuestion("test question");
+        userService.createNewUser(new RegisterDTO(username1, "password", "test question", "answer"));
+        userService.createNewUser(new RegisterDTO(username2, "password", "test question", "answer"));
+
+        Integer user1Id = userService.findUser(null, username1).getId();
+        user1Header = "Bearer " + tokenService.generateToken(username1, user1Id);
+        user2Header = "Bearer " + tokenService.generateToken(username2, userService.findUser(null, username2).getId());
+
+        // Give user1 a profile picture to download
+        MockMultipartFile file = new MockMultipartFile("file", "profile.png", "image/png", imageBytes);
+        assertTrue(userService.updateProfilePicture(user1Id, file));
+        profilePictureId = userService.findUser(user1Id, null).getProfilePicture().getId();
+    }
+
+    @Test
+    public void getImage_Success() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageController.getImage(profilePictureId, null, user2Header, new MockHttpServletRequest(), response);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus(), "Should return OK status");
+        assertArrayEquals(imageBytes, response.getContentAsByteArray(), "Should return the image's bytes");
+        assertEquals("image/png", response.getContentType(), "Should return the image's content type");
+        assertNotNull(response.getHeader(HttpHeaders.ETAG), "Should return an ETag");
+        assertTrue(response.getHeader(HttpHeaders.CACHE_CONTROL).contains("immutable"), "Should be cacheable");
+    }
+
+    @Test
+    public void getImage_IfNoneMatch_NotModified() throws IOException {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        imageController.getImage(profilePictureId, null, user1Header, new MockHttpServletRequest(), first);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, first.getHeader(HttpHeaders.ETAG));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        imageController.getImage(profilePictureId, null, user1Header, request, response);
+
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus(), "Should return NOT_MODIFIED for a matching ETag");
+        assertEquals(0, response.getContentAsByteArray().length, "Should not send the bytes again");
+    }
+
+    @Test
+    public void getImage_Range_PartialContent() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageController.getImage(profilePictureId, null, user1Header, request, response);
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus(), "Should return PARTIAL_CONTENT");
+        assertEquals("bytes 2-5/10", response.getHeader(HttpHeaders.CONTENT_RANGE), "Should describe the range sent");
+        assertArrayEquals("2345".getBytes(), response.getContentAsByteArray(), "Should only send the requested range");
+    }
+
+    @Test
+    public void getImage_UnsatisfiableRange() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=50-60");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageController.getImage(profilePictureId, null, user1Header, request, response);
+
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value(), response.getStatus(), "Should reject a range past the end");
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    public void getImage_Size_ServesRendition() throws IOException {
+        Integer userId = userService.findUser(null, username1).getId();
+        BufferedImage large = new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(large, "png", png);
+        assertTrue(userService.updateProfilePicture(userId, new MockMultipartFile("file", "large.png", "image/png", png.toByteArray())));
+        Long largeId = userService.findUser(userId, null).getProfilePicture().getId();
+        // generate synchronously instead of waiting for the background pool
+        thumbnailService.generate(imageService.get(largeId).getImage().getHash(), "image/png");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        imageController.getImage(largeId, "avatar", user1Header, new MockHttpServletRequest(), response);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus(), "Should return OK status");
+        BufferedImage avatar = ImageIO.read(new ByteArrayInputStream(response.getContentAsByteArray()));
+        assertEquals(64, avatar.getWidth(), "Should return the avatar rendition");
+        assertTrue(response.getHeader(HttpHeaders.ETAG).contains(".avatar"), "Rendition should have its own ETag");
+    }
+
+    @Test
+    public void getImage_Size_SmallOriginalFallsBack() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageController.getImage(profilePictureId, "card", user1Header, new MockHttpServletRequest(), response);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus(), "Should return OK status");
+        assertArrayEquals(imageBytes, response.getContentAsByteArray(), "Should fall back to the original");
+    }
+
+    @Test
+    public void getImage_UnknownSize_BadRequest() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageController.getImage(profilePictureId, "huge", user1Header, new MockHttpServletRequest(), response);
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus(), "Should reject unknown sizes");
+    }
+
+    @Test
+    public void getImage_NotFound() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageController.getImage(999999L, null, user1Header, new MockHttpServletRequest(), response);
+
+        assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus(), "Should return NOT_FOUND for a missing image");
+    }
+
+    @Test
+    public void getImage_PrivateEventImage_HiddenFromStrangers() throws IOException {
+        // user1 attaches an image to a private event
+        EventDTO event = new EventDTO();
+        UserDTO creator = userService.findUser(null, username1);
+        event.setCreator(creator);
+        event.setVisibility(Visibility.PRIVATE);
+        event.setTime(LocalDateTime.now());
+        EventDTO created = eventService.add(event);
+        MockMultipartFile file = new MockMultipartFile("file", "event.png", "image/png", "private bytes".getBytes());
+        assertTrue(eventService.addImage(created.getId(), creator.getId(), file));
+        Long imageId = eventService.getById(created.getId(), creator.getId()).getImages().get(0).getId();
+
+        MockHttpServletResponse ownerResponse = new MockHttpServletResponse();
+        imageController.getImage(imageId, null, user1Header, new MockHttpServletRequest(), ownerResponse);
+        MockHttpServletResponse strangerResponse = new MockHttpServletResponse();
+        imageController.getImage(imageId, null, user2Header, new MockHttpServletRequest(), strangerResponse);
+
+        assertEquals(HttpStatus.OK.value(), ownerResponse.getStatus(), "Creator should see their event's image");
+        assertEquals(HttpStatus.NOT_FOUND.value(), strangerResponse.getStatus(), "Non-friends should not see a private event's image");
+    }
+
+    @Test
+    public void getImage_UnattachedImage_NotFound() throws IOException {
+        // an image that is neither in an event nor anyone's profile picture
+        Long orphanId = imageService.save(new MockMultipartFile("file", "orphan.png", "image/png", "orphan bytes".getBytes())).getId();
+        MockHttpServletResponse orphanResponse = new MockHttpServletResponse();
+        imageController.getImage(orphanId, null, user1Header, new MockHttpServletRequest(), orphanResponse);
+
+        // a replaced profile picture stops being visible
+        Integer user1Id = userService.findUser(null, username1).getId();
+        MockMultipartFile replacement = new MockMultipartFile("file", "new.png", "image/png", "new profile bytes".getBytes());
+        assertTrue(userService.updateProfilePicture(user1Id, replacement));
+        MockHttpServletResponse replacedResponse = new MockHttpServletResponse();
+        imageController.getImage(profilePictureId, null, user2Header, new MockHttpServletRequest(), replacedResponse);
+
+        assertEquals(HttpStatus.NOT_FOUND.value(), orphanResponse.getStatus(), "Unattached images should not be served");
+        assertEquals(HttpStatus.NOT_FOUND.value(), replacedResponse.getStatus(), "Old profile pictures should not be served");
+    }
+}
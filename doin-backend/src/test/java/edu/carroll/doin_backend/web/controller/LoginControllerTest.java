@@ -4,6 +4,7 @@ import edu.carroll.doin_backend.web.dto.ForgotPasswordDTO;
 import edu.carroll.doin_backend.web.dto.LoginDTO;
 import edu.carroll.doin_backend.web.dto.RegisterDTO;
 import edu.carroll.doin_backend.web.dto.TokenDTO;
+import edu.carroll.doin_backend.web.security.LoginThrottle;
 import edu.carroll.doin_backend.web.security.TokenService;
 import edu.carroll.doin_backend.web.service.SecurityQuestionService;
 import edu.carroll.doin_backend.web.service.UserService;
@@ -11,8 +12,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.transaction.annotation.Transactional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -28,6 +31,11 @@ public class LoginControllerTest {
     private final String invalidSQ = "invalid SQ";
     private final String sqQuestion = "security_question";
 
+    /**
+     * Every login comes from the same mock client
+     */
+    private final MockHttpServletRequest request = new MockHttpServletRequest();
+
     @Autowired
     private LoginController loginController;
 
@@ -54,7 +62,7 @@ public class LoginControllerTest {
     @Test
     public void loginAttempt_Success() {
         LoginDTO user1Login = new LoginDTO(username1, password1);
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(user1Login);
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(user1Login, request);
         assertEquals(HttpStatus.OK, loginAttempt.getStatusCode());
         assertNotNull(loginAttempt.getBody());
         final String token = loginAttempt.getBody().getToken();
@@ -66,7 +74,7 @@ public class LoginControllerTest {
     public void loginAttempt_UnusedUsername() {
         final String unusedUsername = "No_user_with_this_username";
         LoginDTO unusedUsernameLogin = new LoginDTO(unusedUsername, password1);
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(unusedUsernameLogin);
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(unusedUsernameLogin, request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -74,7 +82,7 @@ public class LoginControllerTest {
     @Test
     public void loginAttempt_InvalidUsername() {
         LoginDTO invalidUsernameLogin = new LoginDTO(invalidUsername, password1);
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(invalidUsernameLogin);
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(invalidUsernameLogin, request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -83,7 +91,7 @@ public class LoginControllerTest {
     public void loginAttempt_IncorrectPassword() {
         final String unusedPassword = "No_user_with_this_password";
         LoginDTO user1IncorrectPwd = new LoginDTO(username1, unusedPassword);
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(user1IncorrectPwd);
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(user1IncorrectPwd, request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -91,7 +99,7 @@ public class LoginControllerTest {
     @Test
     public void loginAttempt_EmptyUsername() {
         LoginDTO emptyUsernameLogin = new LoginDTO("", password1);
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(emptyUsernameLogin);
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(emptyUsernameLogin, request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -99,7 +107,7 @@ public class LoginControllerTest {
     @Test
     public void loginAttempt_EmptyPassword() {
         LoginDTO emptyPasswordLogin = new LoginDTO(username1, "");
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(emptyPasswordLogin);
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(emptyPasswordLogin, request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -107,7 +115,7 @@ public class LoginControllerTest {
     @Test
     public void loginAttempt_NullUsername() {
         LoginDTO nullUsernameLogin = new LoginDTO(null, password1);
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(nullUsernameLogin);
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(nullUsernameLogin, request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -115,7 +123,7 @@ public class LoginControllerTest {
     @Test
     public void loginAttempt_NullPassword() {
         LoginDTO nullPasswordLogin = new LoginDTO(username1, null);
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(nullPasswordLogin);
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(nullPasswordLogin, request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -123,11 +131,34 @@ public class LoginControllerTest {
     @Test
     public void loginAttempt_NullData() {
         LoginDTO nullData = new LoginDTO(null, null);
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(nullData);
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(nullData, request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
 
+    @Test
+    public void loginAttempt_TooManyAttempts() {
+        // a controller with a strict throttle of its own, so the shared one stays out of the way
+        final LoginController throttled = new LoginController(tokenService, userService, new LoginThrottle(300, 2, 100));
+        for (int i = 0; i < 2; i++) {
+            assertEquals(HttpStatus.UNAUTHORIZED, throttled.loginAttempt(new LoginDTO(username1, "wrong"), request).getStatusCode());
+        }
+        // even the right password is turned away once the username is out of attempts
+        final ResponseEntity<TokenDTO> loginAttempt = throttled.loginAttempt(new LoginDTO(username1.toUpperCase(), password1), request);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, loginAttempt.getStatusCode());
+        assertNotNull(loginAttempt.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertNull(loginAttempt.getBody());
+    }
+
+    @Test
+    public void loginAttempt_SuccessResetsAttempts() {
+        final LoginController throttled = new LoginController(tokenService, userService, new LoginThrottle(300, 2, 100));
+        assertEquals(HttpStatus.UNAUTHORIZED, throttled.loginAttempt(new LoginDTO(username1, "wrong"), request).getStatusCode());
+        assertEquals(HttpStatus.OK, throttled.loginAttempt(new LoginDTO(username1, password1), request).getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, throttled.loginAttempt(new LoginDTO(username1, "wrong"), request).getStatusCode());
+        assertEquals(HttpStatus.OK, throttled.loginAttempt(new LoginDTO(username1, password1), request).getStatusCode());
+    }
+
     @Test
     public void registerUser_Success() {
         RegisterDTO successfulRegister = new RegisterDTO(username2, password2, sqQuestion, "answer");
@@ -136,7 +167,7 @@ public class LoginControllerTest {
         assertNotNull(registerAttempt.getBody());
         assertEquals("{}", registerAttempt.getBody());
 
-        ResponseEntity<TokenDTO> loginTest = loginController.loginAttempt(new LoginDTO(username2, password2));
+        ResponseEntity<TokenDTO> loginTest = loginController.loginAttempt(new LoginDTO(username2, password2), request);
         assertEquals(HttpStatus.OK, loginTest.getStatusCode());
         assertNotNull(loginTest.getBody());
         final String token = loginTest.getBody().getToken();
@@ -151,7 +182,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.BAD_REQUEST, registerAttempt.getStatusCode());
         assertEquals("Invalid data", registerAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(invalidUsername, password2));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(invalidUsername, password2), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -164,7 +195,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.BAD_REQUEST, registerAttempt.getStatusCode());
         assertEquals("Invalid data", registerAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, invalidPassword));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, invalidPassword), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -176,7 +207,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.BAD_REQUEST, registerAttempt.getStatusCode());
         assertEquals("Invalid data", registerAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -188,7 +219,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.BAD_REQUEST, registerAttempt.getStatusCode());
         assertEquals("Invalid data", registerAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO("", password2));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO("", password2), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -200,7 +231,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.BAD_REQUEST, registerAttempt.getStatusCode());
         assertEquals("Invalid data", registerAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, ""));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, ""), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -212,7 +243,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.BAD_REQUEST, registerAttempt.getStatusCode());
         assertEquals("Invalid data", registerAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -224,7 +255,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.BAD_REQUEST, registerAttempt.getStatusCode());
         assertEquals("Invalid data", registerAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -236,7 +267,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.BAD_REQUEST, registerAttempt.getStatusCode());
         assertEquals("Invalid data", registerAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(null, password2));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(null, password2), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -248,7 +279,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.BAD_REQUEST, registerAttempt.getStatusCode());
         assertEquals("Invalid data", registerAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, null));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, null), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -260,7 +291,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.BAD_REQUEST, registerAttempt.getStatusCode());
         assertEquals("Invalid data", registerAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -272,7 +303,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.BAD_REQUEST, registerAttempt.getStatusCode());
         assertEquals("Invalid data", registerAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -284,7 +315,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.BAD_REQUEST, registerAttempt.getStatusCode());
         assertEquals("Invalid data", registerAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(null, null));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(null, null), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -304,7 +335,7 @@ public class LoginControllerTest {
         assertNotNull(resetAttempt.getBody());
         assertEquals("{}", resetAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2), request);
         assertEquals(HttpStatus.OK, loginAttempt.getStatusCode());
         assertNotNull(loginAttempt.getBody());
         assertTrue(tokenService.validateToken(loginAttempt.getBody().getToken()));
@@ -323,7 +354,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.NOT_ACCEPTABLE, resetAttempt.getStatusCode());
         assertEquals("Invalid data", resetAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(invalidUsername, password2));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(invalidUsername, password2), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -341,7 +372,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.NOT_ACCEPTABLE, resetAttempt.getStatusCode());
         assertEquals("Invalid data", resetAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO("", password2));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO("", password2), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -359,7 +390,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.UNAUTHORIZED, resetAttempt.getStatusCode());
         assertEquals("Invalid data", resetAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, ""));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, ""), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -377,7 +408,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.NOT_ACCEPTABLE, resetAttempt.getStatusCode());
         assertEquals("Invalid data", resetAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -395,7 +426,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.NOT_ACCEPTABLE, resetAttempt.getStatusCode());
         assertEquals("Invalid data", resetAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -413,7 +444,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.NOT_ACCEPTABLE, resetAttempt.getStatusCode());
         assertEquals("Invalid data", resetAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -431,7 +462,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.NOT_ACCEPTABLE, resetAttempt.getStatusCode());
         assertEquals("Invalid data", resetAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -449,7 +480,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.NOT_ACCEPTABLE, resetAttempt.getStatusCode());
         assertEquals("Invalid data", resetAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -467,7 +498,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.NOT_ACCEPTABLE, resetAttempt.getStatusCode());
         assertEquals("Invalid data", resetAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -485,7 +516,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.NOT_ACCEPTABLE, resetAttempt.getStatusCode());
         assertEquals("Invalid data", resetAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -503,7 +534,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.NOT_ACCEPTABLE, resetAttempt.getStatusCode());
         assertEquals("Invalid data", resetAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -521,7 +552,7 @@ public class LoginControllerTest {
         assertEquals(HttpStatus.NOT_ACCEPTABLE, resetAttempt.getStatusCode());
         assertEquals("Invalid data", resetAttempt.getBody());
 
-        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2));
+        final ResponseEntity<TokenDTO> loginAttempt = loginController.loginAttempt(new LoginDTO(username2, password2), request);
         assertEquals(HttpStatus.UNAUTHORIZED, loginAttempt.getStatusCode());
         assertNull(loginAttempt.getBody());
     }
@@ -0,0 +1,128 @@
+package edu.carroll.doin_backend.web.metrics;
+
+import edu.carroll.doin_backend.web.cache.UserIdentityCache;
+import edu.carroll.doin_backend.web.dto.RegisterDTO;
+import edu.carroll.doin_backend.web.repository.LoginRepository;
+import edu.carroll.doin_backend.web.security.TokenService;
+import edu.carroll.doin_backend.web.service.ImageGarbageCollector;
+import edu.carroll.doin_backend.web.service.ImageService;
+import edu.carroll.doin_backend.web.service.SecurityQuestionService;
+import edu.carroll.doin_backend.web.service.UserService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+public class MetricsTest {
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RequestStatementsFilter statementsFilter;
+
+    @Autowired
+    private LoginRepository loginRepo;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private SecurityQuestionService sqService;
+
+    @Autowired
+    private UserIdentityCache identityCache;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private ImageGarbageCollector garbageCollector;
+
+    private double gets(String cache, String result) {
+        return meterRegistry.get("cache.gets").tag("cache", cache).tag("result", result).functionCounter().count();
+    }
+
+    @Test
+    public void requestStatements_CountsStatementsPerEndpoint() throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/metrics-test");
+        statementsFilter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            // what a controller does: the pattern is set once the handler is matched
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/metrics-test/{id}");
+            loginRepo.findByUsernameIgnoreCase("nobody");
+            loginRepo.findByUsernameIgnoreCase("nobody else");
+        });
+
+        final DistributionSummary statements = meterRegistry.get("doin.requests.statements")
+                .tag("method", "GET").tag("uri", "/api/metrics-test/{id}").summary();
+        assertEquals(1, statements.count(), "requestStatements: one request should be recorded");
+        assertEquals(2, statements.totalAmount(), "requestStatements: both queries should be counted");
+        assertEquals(0, QueryCounter.stop(), "requestStatements: counting should stop with the request");
+    }
+
+    @Test
+    public void requestStatements_UnmatchedRequestsAreUnknown() throws Exception {
+        statementsFilter.doFilter(new MockHttpServletRequest("POST", "/nowhere"), new MockHttpServletResponse(),
+                (req, res) -> { });
+
+        assertEquals(0, meterRegistry.get("doin.requests.statements")
+                .tag("method", "POST").tag("uri", "UNKNOWN").summary().max());
+    }
+
+    @Test
+    public void cacheGets_CountsHitsAndMisses() {
+        sqService.addSecurityQuestion("pet");
+        assertTrue(userService.createNewUser(new RegisterDTO("metricsUser", "metricsPassword1", "pet", "answer")));
+        final Integer id = loginRepo.findByUsernameIgnoreCase("metricsUser").get(0).getId();
+        identityCache.clear();
+        final double hitsBefore = gets("users", "hit");
+        final double missesBefore = gets("users", "miss");
+
+        identityCache.findById(id);
+        // loaded inside this transaction, so only cached once it commits: a miss again
+        identityCache.findById(id);
+
+        assertEquals(missesBefore + 2, gets("users", "miss"), "cacheGets: lookups of an uncached user should be misses");
+        assertEquals(hitsBefore, gets("users", "hit"));
+
+        final String token = tokenService.generateToken("metricsUser", id);
+        final double tokenHitsBefore = gets("tokens", "hit");
+        assertTrue(tokenService.validateToken(token));
+        assertTrue(tokenService.validateToken(token));
+        assertTrue(gets("tokens", "hit") > tokenHitsBefore, "cacheGets: a token verified before should be a hit");
+        assertTrue(meterRegistry.get("cache.size").tag("cache", "tokens").gauge().value() >= 1);
+        assertNotNull(meterRegistry.get("doin.login.throttle.counters").gauge());
+    }
+
+    @Test
+    public void imageMetrics_PublishDedupAndReclaimedBytes() throws Exception {
+        final byte[] bytes = "metrics duplicate bytes".getBytes();
+        final double savedBefore = meterRegistry.get("doin.images.dedup.saved").gauge().value();
+
+        imageService.save(new MockMultipartFile("file", "a.png", "image/png", bytes));
+        imageService.save(new MockMultipartFile("file", "b.png", "image/png", bytes));
+
+        assertEquals(savedBefore + bytes.length, meterRegistry.get("doin.images.dedup.saved").gauge().value(),
+                "imageMetrics: the duplicate's bytes should be published as saved");
+
+        final double reclaimedBefore = meterRegistry.get("doin.images.gc.reclaimed").functionCounter().count();
+        // neither image is referenced by a user or an event, so both are collected and their blob is reclaimed
+        garbageCollector.collect(LocalDateTime.now().plusSeconds(1));
+        assertTrue(meterRegistry.get("doin.images.gc.reclaimed").functionCounter().count() >= reclaimedBefore + bytes.length,
+                "imageMetrics: the collector's reclaimed bytes should be published");
+    }
+}
@@ -0,0 +1,133 @@
+package edu.carroll.doin_backend.web.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoginThrottleTest {
+    /**
+     * A 100 second window, so each of its slices is 10 seconds long
+     */
+    private static final int windowSeconds = 100;
+    private static final long slice = windowSeconds * 1000L / LoginThrottle.SLOTS;
+    private static final long start = 1_000_000 * slice;
+
+    @Test
+    public void tryAcquire_LimitsUsernameIgnoringCase() {
+        final LoginThrottle throttle = new LoginThrottle(windowSeconds, 3, 100);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(throttle.tryAcquire("Alice", "10.0.0." + i, start), "tryAcquire: attempts under the limit should go ahead");
+        }
+        assertFalse(throttle.tryAcquire(" alice ", "10.0.0.9", start), "tryAcquire: the username should be limited whatever its case");
+        assertTrue(throttle.tryAcquire("bob", "10.0.0.9", start), "tryAcquire: other usernames should not be affected");
+    }
+
+    @Test
+    public void tryAcquire_LimitsAddressAcrossUsernames() {
+        final LoginThrottle throttle = new LoginThrottle(windowSeconds, 100, 2);
+        assertTrue(throttle.tryAcquire("alice", "10.0.0.1", start));
+        assertTrue(throttle.tryAcquire("bob", "10.0.0.1", start));
+        assertFalse(throttle.tryAcquire("carol", "10.0.0.1", start), "tryAcquire: one address should not get around the limit by changing usernames");
+        assertTrue(throttle.tryAcquire("carol", "10.0.0.2", start));
+    }
+
+    @Test
+    public void tryAcquire_WindowSlides() {
+        final LoginThrottle throttle = new LoginThrottle(windowSeconds, 2, 100);
+        assertTrue(throttle.tryAcquire("alice", null, start));
+        assertTrue(throttle.tryAcquire("alice", null, start + 5 * slice));
+        assertFalse(throttle.tryAcquire("alice", null, start + 9 * slice), "tryAcquire: both attempts are still in the window");
+        // the first attempt's slice has left the window, the second's hasn't
+        assertTrue(throttle.tryAcquire("alice", null, start + 10 * slice), "tryAcquire: the oldest attempt should have left the window");
+        assertFalse(throttle.tryAcquire("alice", null, start + 11 * slice));
+    }
+
+    @Test
+    public void tryAcquire_RejectedAttemptsAreNotCounted() {
+        final LoginThrottle throttle = new LoginThrottle(windowSeconds, 1, 100);
+        assertTrue(throttle.tryAcquire("alice", null, start));
+        for (int i = 1; i < 10; i++) {
+            assertFalse(throttle.tryAcquire("alice", null, start + i * slice));
+        }
+        assertTrue(throttle.tryAcquire("alice", null, start + 10 * slice), "tryAcquire: a flood should not push the lockout back");
+    }
+
+    @Test
+    public void tryAcquire_ThrottledAddressCreatesNoCounters() {
+        final LoginThrottle throttle = new LoginThrottle(windowSeconds, 100, 1);
+        assertTrue(throttle.tryAcquire("alice", "10.0.0.1", start));
+        assertEquals(2, throttle.size());
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(throttle.tryAcquire("user" + i, "10.0.0.1", start));
+        }
+        assertEquals(2, throttle.size(), "tryAcquire: rejected attempts should not allocate counters");
+    }
+
+    @Test
+    public void tryAcquire_UsernameRejectionGivesBackAddressAttempt() {
+        final LoginThrottle throttle = new LoginThrottle(windowSeconds, 1, 2);
+        assertTrue(throttle.tryAcquire("alice", "10.0.0.2", start));
+        assertFalse(throttle.tryAcquire("alice", "10.0.0.1", start));
+        assertTrue(throttle.tryAcquire("bob", "10.0.0.1", start));
+        assertTrue(throttle.tryAcquire("carol", "10.0.0.1", start), "tryAcquire: the address should only be charged for admitted attempts");
+    }
+
+    @Test
+    public void reset_ForgetsUsernameButNotAddress() {
+        final LoginThrottle throttle = new LoginThrottle(windowSeconds, 1, 2);
+        assertTrue(throttle.tryAcquire("alice", "10.0.0.1", start));
+        throttle.reset("ALICE");
+        assertTrue(throttle.tryAcquire("alice", "10.0.0.1", start), "reset: the username should have its attempts back");
+        assertFalse(throttle.tryAcquire("bob", "10.0.0.1", start), "reset: the address should keep its count");
+    }
+
+    @Test
+    public void expire_DropsOnlyIdleCounters() {
+        final LoginThrottle throttle = new LoginThrottle(windowSeconds, 100, 100);
+        throttle.tryAcquire("alice", "10.0.0.1", start);
+        throttle.tryAcquire("bob", null, start + 5 * slice);
+        assertEquals(3, throttle.size());
+
+        throttle.expire(start + 9 * slice);
+        assertEquals(3, throttle.size(), "expire: counters used within the window should be kept");
+
+        throttle.expire(start + 10 * slice);
+        assertEquals(1, throttle.size(), "expire: alice's and her address's counters have been idle a whole window");
+
+        throttle.tryAcquire("bob", null, start + 12 * slice);
+        throttle.expire(start + 16 * slice);
+        assertEquals(1, throttle.size(), "expire: bob was used again, so his counter should be filed further on");
+
+        // long after everything, a single run still visits every bucket
+        throttle.expire(start + 1000 * slice);
+        assertEquals(0, throttle.size());
+    }
+
+    @Test
+    public void tryAcquire_CountsConcurrentAttempts() throws Exception {
+        final int limit = 500;
+        final LoginThrottle throttle = new LoginThrottle(windowSeconds, limit, Integer.MAX_VALUE);
+        final ExecutorService pool = Executors.newFixedThreadPool(8);
+        final AtomicInteger allowed = new AtomicInteger();
+        try {
+            for (int i = 0; i < 8; i++) {
+                pool.execute(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        if (throttle.tryAcquire("alice", null, start)) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(limit, allowed.get(), "tryAcquire: concurrent attempts should never go past the limit");
+    }
+}
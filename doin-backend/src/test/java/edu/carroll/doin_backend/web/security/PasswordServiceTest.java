@@ -1,10 +1,23 @@
 package edu.carroll.doin_backend.web.security;
 
+import edu.carroll.doin_backend.web.exception.ServiceBusyException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
@@ -24,9 +37,15 @@ public class PasswordServiceTest {
      */
     private final PasswordService passwordService;
 
+    /**
+     * The registry the password pool publishes its metrics to
+     */
+    private final MeterRegistry meterRegistry;
+
     @Autowired
-    public PasswordServiceTest(PasswordService passwordService) {
+    public PasswordServiceTest(PasswordService passwordService, MeterRegistry meterRegistry) {
         this.passwordService = passwordService;
+        this.meterRegistry = meterRegistry;
     }
 
     /**
@@ -74,4 +93,117 @@ public class PasswordServiceTest {
         // make that the wrong password doesn't match a different hashed password
         assertFalse(passwordService.validatePassword(wrongPassword, hashedPassword), "validatePasswordWrongPassword: two different passwords should not match");
     }
+
+    /**
+     * Makes sure that hashing and verifying are timed, and the queue depth is published
+     */
+    @Test
+    public void hashAndValidateRecordMetrics() {
+        final long hashesBefore = meterRegistry.get("doin.passwords.work").tag("operation", "hash").timer().count();
+        final long verifiesBefore = meterRegistry.get("doin.passwords.work").tag("operation", "verify").timer().count();
+
+        passwordService.validatePassword(password, passwordService.hashPassword(password));
+
+        assertEquals(hashesBefore + 1, meterRegistry.get("doin.passwords.work").tag("operation", "hash").timer().count(),
+                "hashAndValidateRecordMetrics: the hash should be timed");
+        assertEquals(verifiesBefore + 1, meterRegistry.get("doin.passwords.work").tag("operation", "verify").timer().count(),
+                "hashAndValidateRecordMetrics: the verification should be timed");
+        assertEquals(0, meterRegistry.get("doin.passwords.queue.depth").gauge().value(),
+                "hashAndValidateRecordMetrics: nothing should be left waiting");
+    }
+
+    /**
+     * Makes sure that calls are turned away instead of queued once the pool and its queue are full
+     */
+    @Test
+    public void hashPasswordRejectedWhenQueueFull() throws Exception {
+        // one thread and one waiting slot, so at most two of the callers can get in
+        final PasswordBCryptService tiny = new PasswordBCryptService(PasswordBCryptService.BCRYPT, 10, 1, 1, new SimpleMeterRegistry());
+        final int callers = 8;
+        final ExecutorService pool = Executors.newFixedThreadPool(callers);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            final List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return tiny.hashPassword(password);
+                }));
+            }
+            start.countDown();
+
+            final List<String> hashed = new ArrayList<>();
+            int rejected = 0;
+            for (Future<String> result : results) {
+                try {
+                    hashed.add(result.get(10, TimeUnit.SECONDS));
+                } catch (ExecutionException e) {
+                    assertEquals(ServiceBusyException.class, e.getCause().getClass(),
+                            "hashPasswordRejectedWhenQueueFull: a full queue should reject with ServiceBusyException");
+                    rejected++;
+                }
+            }
+            assertFalse(hashed.isEmpty(), "hashPasswordRejectedWhenQueueFull: the first caller should be served");
+            for (String hash : hashed) {
+                assertTrue(tiny.validatePassword(password, hash), "hashPasswordRejectedWhenQueueFull: served callers should get a real hash");
+            }
+            assertTrue(rejected >= 1, "hashPasswordRejectedWhenQueueFull: callers beyond the queue should be rejected");
+        } finally {
+            pool.shutdownNow();
+            tiny.shutdown();
+        }
+    }
+
+    /**
+     * Makes sure that new hashes carry the id of their algorithm and don't need rehashing
+     */
+    @Test
+    public void hashPasswordStoresAlgorithmId() {
+        final String hashedPassword = passwordService.hashPassword(password);
+        assertTrue(hashedPassword.startsWith("{bcrypt}$2a$10$"), "hashPasswordStoresAlgorithmId: the hash should say which algorithm and cost made it");
+        assertFalse(passwordService.needsRehash(hashedPassword), "hashPasswordStoresAlgorithmId: a fresh hash should not need rehashing");
+    }
+
+    /**
+     * Makes sure that hashes stored before algorithm ids were added still validate, but are flagged for rehashing
+     */
+    @Test
+    public void validatePasswordLegacyHash() {
+        final String legacyHash = new BCryptPasswordEncoder().encode(password);
+        assertTrue(passwordService.validatePassword(password, legacyHash), "validatePasswordLegacyHash: a hash without an id should be read as BCrypt");
+        assertFalse(passwordService.validatePassword(wrongPassword, legacyHash));
+        assertTrue(passwordService.needsRehash(legacyHash), "validatePasswordLegacyHash: a hash without an id should be rehashed");
+    }
+
+    /**
+     * Makes sure that a hash made with another cost or algorithm is flagged, and still validates
+     */
+    @Test
+    public void needsRehashOtherCostOrAlgorithm() {
+        final PasswordBCryptService cheaper = new PasswordBCryptService(PasswordBCryptService.BCRYPT, 4, 1, 4, new SimpleMeterRegistry());
+        final PasswordBCryptService pbkdf2 = new PasswordBCryptService(PasswordBCryptService.PBKDF2, 10, 1, 4, new SimpleMeterRegistry());
+        try {
+            final String cheapHash = cheaper.hashPassword(password);
+            assertTrue(passwordService.needsRehash(cheapHash), "needsRehashOtherCostOrAlgorithm: a different BCrypt cost should be rehashed");
+            assertTrue(passwordService.validatePassword(password, cheapHash));
+
+            final String pbkdf2Hash = pbkdf2.hashPassword(password);
+            assertTrue(pbkdf2Hash.startsWith("{pbkdf2}"));
+            assertTrue(passwordService.needsRehash(pbkdf2Hash), "needsRehashOtherCostOrAlgorithm: another algorithm should be rehashed");
+            assertTrue(passwordService.validatePassword(password, pbkdf2Hash), "needsRehashOtherCostOrAlgorithm: hashes of every algorithm should validate");
+            assertFalse(pbkdf2.needsRehash(pbkdf2Hash));
+        } finally {
+            cheaper.shutdown();
+            pbkdf2.shutdown();
+        }
+    }
+
+    /**
+     * Makes sure that an unknown algorithm is refused at startup
+     */
+    @Test
+    public void unknownAlgorithmRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PasswordBCryptService("md5", 10, 1, 4, new SimpleMeterRegistry()));
+    }
 }
@@ -1,5 +1,6 @@
 package edu.carroll.doin_backend.web.security;
 
+import edu.carroll.doin_backend.web.dto.ForgotPasswordDTO;
 import edu.carroll.doin_backend.web.dto.RegisterDTO;
 import edu.carroll.doin_backend.web.service.SecurityQuestionService;
 import edu.carroll.doin_backend.web.service.UserService;
@@ -9,6 +10,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Base64;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -88,4 +91,86 @@ public class TokenServiceTest {
         // Assert that the token is valid
         assertTrue(tokenService.validateToken(token), "Token should be valid");
     }
+
+    /**
+     * Test that a token is still valid when it is checked again, and that its claims are served for the header form.
+     */
+    @Test
+    public void validateToken_Repeated_StaysValid() {
+        Integer id = userService.findUser(null, username).getId();
+        String token = tokenService.generateToken(username, id);
+
+        assertTrue(tokenService.validateToken(token), "Token should be valid the first time");
+        assertTrue(tokenService.validateToken(token), "Token should be valid when checked again");
+        assertEquals(id, tokenService.getUserId("Bearer " + token), "User ID should match the token");
+        assertEquals(username, tokenService.getUsername(token), "Username should match the token");
+    }
+
+    /**
+     * Test that a token whose payload was changed after signing is rejected, even once the original was verified.
+     */
+    @Test
+    public void validateToken_TamperedPayload_Invalid() {
+        String token = tokenService.generateToken(username, 1);
+        assertTrue(tokenService.validateToken(token), "Original token should be valid");
+
+        String[] parts = token.split("\\.");
+        String forgedPayload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("{\"username\":\"someoneElse\",\"iss\":\"doin\"}".getBytes());
+        String forged = parts[0] + "." + forgedPayload + "." + parts[2];
+
+        assertFalse(tokenService.validateToken(forged), "A token reusing a verified signature should not be valid");
+        assertFalse(tokenService.validateToken("not-a-token"), "Garbage should not be valid");
+    }
+
+    /**
+     * Test that authenticating a token builds the principal from its claims.
+     */
+    @Test
+    public void authenticate_ValidToken_ReturnsPrincipal() {
+        Integer id = userService.findUser(null, username).getId();
+        String token = tokenService.generateToken(username, id);
+
+        AuthenticatedUser principal = tokenService.authenticate(token);
+
+        assertNotNull(principal, "A valid token should authenticate");
+        assertEquals(id, principal.getId(), "Principal should carry the token's user ID");
+        assertEquals(username, principal.getUsername(), "Principal should carry the token's username");
+        assertNull(tokenService.authenticate("not-a-token"), "An invalid token should not authenticate");
+    }
+
+    /**
+     * Test that revoking a user rejects their earlier tokens, including ones that were already verified,
+     * while tokens issued afterwards still work.
+     */
+    @Test
+    public void revokeUser_RejectsEarlierTokens() throws InterruptedException {
+        Integer id = userService.findUser(null, username).getId();
+        String oldToken = tokenService.generateToken(username, id);
+        assertTrue(tokenService.validateToken(oldToken), "Token should be valid before revocation");
+
+        Thread.sleep(2);
+        tokenService.revokeUser(id);
+        Thread.sleep(2);
+        String newToken = tokenService.generateToken(username, id);
+
+        assertFalse(tokenService.validateToken(oldToken), "Tokens issued before revocation should be rejected");
+        assertTrue(tokenService.validateToken(newToken), "Tokens issued after revocation should be valid");
+    }
+
+    /**
+     * Test that resetting a password logs out the user's existing tokens.
+     */
+    @Test
+    public void resetPassword_RevokesTokens() throws InterruptedException {
+        Integer id = userService.findUser(null, username).getId();
+        String token = tokenService.generateToken(username, id);
+        assertTrue(tokenService.validateToken(token), "Token should be valid before the reset");
+
+        Thread.sleep(2);
+        assertTrue(userService.resetPassword(new ForgotPasswordDTO(username, null, null, "newPassword123")).isValid(),
+                "Password should be reset");
+
+        assertFalse(tokenService.validateToken(token), "Token from before the reset should be rejected");
+    }
 }
@@ -1,11 +1,23 @@
 package edu.carroll.doin_backend.web.service;
 
+import edu.carroll.doin_backend.web.cache.AgendaIndex;
+import edu.carroll.doin_backend.web.cache.EventTimelineIndex;
+import edu.carroll.doin_backend.web.cache.FriendGraphIndex;
+import edu.carroll.doin_backend.web.dto.CursorSliceDTO;
 import edu.carroll.doin_backend.web.dto.EventDTO;
 import edu.carroll.doin_backend.web.dto.RegisterDTO;
 import edu.carroll.doin_backend.web.dto.UserDTO;
 import edu.carroll.doin_backend.web.enums.Visibility;
 import edu.carroll.doin_backend.web.model.Event;
+import edu.carroll.doin_backend.web.model.Image;
 import edu.carroll.doin_backend.web.model.User;
+import edu.carroll.doin_backend.web.repository.EventRepository;
+import edu.carroll.doin_backend.web.repository.LoginRepository;
+import edu.carroll.doin_backend.web.util.EventCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -17,9 +29,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.TransactionExecution;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -40,6 +57,30 @@ public class EventServiceTest {
     @Autowired
     private FriendService friendService;
 
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private LoginRepository loginRepository;
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private FriendGraphIndex friendGraph;
+
+    @Autowired
+    private AgendaIndex agendaIndex;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     private User user;
     private User user2;
     private Event testEvent;
@@ -650,6 +691,7 @@ public class EventServiceTest {
         event.setVisibility(Visibility.PRIVATE); // Private event
         event.setCreator(user);
         event.setDescription("User's Event");
+        event.setTime(LocalDateTime.now().plusDays(1));
         EventDTO addedEvent = eventService.add(new EventDTO(event));
         assertNotNull(addedEvent);
         // Act
@@ -670,6 +712,7 @@ public class EventServiceTest {
         event.setVisibility(Visibility.PRIVATE); // Private event
         event.setCreator(user);
         event.setDescription("Private Event");
+        event.setTime(LocalDateTime.now().plusDays(1));
         assertNotNull(eventService.add(new EventDTO(event)));
 
         // Act
@@ -688,6 +731,7 @@ public class EventServiceTest {
         event.setVisibility(Visibility.PRIVATE); // Private event
         event.setCreator(user);
         event.setDescription("Private Event with Friend");
+        event.setTime(LocalDateTime.now().plusDays(1));
         EventDTO addedEvent = eventService.add(new EventDTO(event));
         assertNotNull(addedEvent);
         assertNotNull(friendService.addFriend(user.getUsername(), user2.getUsername()));
@@ -722,6 +766,7 @@ public class EventServiceTest {
         event.setVisibility(Visibility.PRIVATE); // Private event
         event.setCreator(user);
         event.setDescription("Private Event - Restricted Access");
+        event.setTime(LocalDateTime.now().plusDays(1));
         assertNotNull(eventService.add(new EventDTO(event)));
 
         User anotherUser = new User();
@@ -744,6 +789,7 @@ public class EventServiceTest {
         event.setVisibility(Visibility.PRIVATE);
         event.setCreator(user);
         event.setDescription("Private Event No Friend Access");
+        event.setTime(LocalDateTime.now().plusDays(1));
         assertNotNull(eventService.add(new EventDTO(event)));
 
         User userWithoutFriendship = new User();
@@ -793,6 +839,16 @@ public class EventServiceTest {
         assertEquals(Visibility.PUBLIC, savedEvent.getVisibility());
     }
 
+    @Test
+    @DisplayName("Should reject events without a time, which the feeds could never reach")
+    void testAddEvent_NullTime() {
+        testEvent.setTime(null);
+
+        assertNull(eventService.add(new EventDTO(testEvent)), "Events without a time should be rejected");
+        assertTrue(eventService.getUserEvents(user.getId(), user.getId(), null, 10).getContent().isEmpty(),
+                "Nothing should have been saved");
+    }
+
     @Test
     @DisplayName("Should handle extremely long text inputs")
     void testAddEvent_LongInputs() {
@@ -902,6 +958,143 @@ public class EventServiceTest {
         assertFalse(eventService.joinUser(savedEvent.getId(), user2.getId()));
     }
 
+    @Test
+    @DisplayName("Should roll back a join that loses the race to a concurrent join")
+    void testJoinUser_ConcurrentDuplicate() {
+        EventDTO savedEvent = eventService.add(new EventDTO(testEvent));
+        // the same user's other join inserts its row right after this one has taken its place
+        EventRepository racing = (EventRepository) Proxy.newProxyInstance(EventRepository.class.getClassLoader(),
+                new Class<?>[]{EventRepository.class}, (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(eventRepository, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (method.getName().equals("reserveJoinerSlot") && Integer.valueOf(1).equals(result))
+                        eventRepository.insertJoiner((Integer) args[0], (Integer) args[1]);
+                    return result;
+                });
+        EventService racingService = new EventServiceImpl(racing, loginRepository, imageService, friendService,
+                new EventTimelineIndex(eventRepository, friendGraph, 1000), agendaIndex, transactionTemplate, 50);
+
+        assertFalse(racingService.joinUser(savedEvent.getId(), user2.getId()), "The losing join should report failure");
+        assertEquals(Boolean.TRUE, transactionTemplate.execute(TransactionExecution::isRollbackOnly),
+                "The losing join should roll back the place it took");
+    }
+
+    @Test
+    @DisplayName("Should count joiners without loading them")
+    void testJoinUser_CountsJoiners() {
+        EventDTO savedEvent = eventService.add(new EventDTO(testEvent));
+        assertEquals(0, savedEvent.getJoinerCount());
+
+        assertTrue(eventService.joinUser(savedEvent.getId(), user2.getId()));
+
+        EventDTO joined = eventService.getById(savedEvent.getId(), user.getId());
+        assertEquals(1, joined.getJoinerCount());
+        assertEquals(List.of(user2.getId()), joined.getJoiners().stream().map(UserDTO::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Should stop users from joining a full event")
+    void testJoinUser_Capacity() {
+        assertTrue(userService.createNewUser(new RegisterDTO("user3", "password", "pet", "answer")));
+        Integer user3 = userService.findUser(null, "user3").getId();
+        EventDTO event = new EventDTO(testEvent);
+        event.setCapacity(1);
+        EventDTO savedEvent = eventService.add(event);
+        assertEquals(1, savedEvent.getCapacity());
+
+        assertTrue(eventService.joinUser(savedEvent.getId(), user2.getId()));
+        assertFalse(eventService.joinUser(savedEvent.getId(), user3), "The event should be full");
+        assertEquals(1, eventService.getById(savedEvent.getId(), user.getId()).getJoinerCount());
+    }
+
+    @Test
+    @DisplayName("Should treat a capacity below one as no limit")
+    void testAddEvent_InvalidCapacity() {
+        EventDTO event = new EventDTO(testEvent);
+        event.setCapacity(0);
+
+        EventDTO savedEvent = eventService.add(event);
+
+        assertNull(savedEvent.getCapacity());
+        assertTrue(eventService.joinUser(savedEvent.getId(), user2.getId()));
+    }
+
+    @Test
+    @DisplayName("Should stop users from joining their own, past or missing events")
+    void testJoinUser_Rejected() {
+        EventDTO savedEvent = eventService.add(new EventDTO(testEvent));
+        testEvent.setTime(LocalDateTime.now().minusDays(1));
+        EventDTO pastEvent = eventService.add(new EventDTO(testEvent));
+
+        assertFalse(eventService.joinUser(savedEvent.getId(), user.getId()), "Creators cannot join their own event");
+        assertFalse(eventService.joinUser(pastEvent.getId(), user2.getId()), "Past events cannot be joined");
+        assertFalse(eventService.joinUser(-1, user2.getId()), "Missing events cannot be joined");
+        assertEquals(0, eventService.getById(savedEvent.getId(), user.getId()).getJoinerCount());
+    }
+
+    @Test
+    @DisplayName("Should put joined events on the joiner's upcoming events")
+    void testGetUpcomingEvents_Joined() {
+        EventDTO savedEvent = eventService.add(new EventDTO(testEvent));
+        assertTrue(eventService.getUpcomingEvents(user2.getId()).isEmpty());
+
+        assertTrue(eventService.joinUser(savedEvent.getId(), user2.getId()));
+
+        assertEquals(List.of(savedEvent.getId()),
+                eventService.getUpcomingEvents(user2.getId()).stream().map(EventDTO::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Should bound the number of upcoming events")
+    void testGetUpcomingEvents_Bounded() {
+        for (int i = 0; i < 55; i++) {
+            testEvent.setTime(LocalDateTime.now().plusDays(i + 1));
+            assertNotNull(eventService.add(new EventDTO(testEvent)));
+        }
+
+        List<EventDTO> upcoming = eventService.getUpcomingEvents(user.getId());
+
+        assertEquals(50, upcoming.size());
+        for (int i = 1; i < upcoming.size(); i++) {
+            assertTrue(upcoming.get(i - 1).getTime().isBefore(upcoming.get(i).getTime()), "Events should be soonest first");
+        }
+    }
+
+    @Test
+    @DisplayName("Should count images and give the slot back when an upload fails")
+    void testAddImage_CountsImages() {
+        testEvent.setTime(LocalDateTime.now().minusDays(1));
+        EventDTO savedEvent = eventService.add(new EventDTO(testEvent));
+        MockMultipartFile empty = new MockMultipartFile("file", "empty.jpg", "image/jpeg", new byte[0]);
+        MockMultipartFile file = new MockMultipartFile("file", "test.jpg", "image/jpeg", "test image content".getBytes());
+
+        assertFalse(eventService.addImage(savedEvent.getId(), user.getId(), empty), "An empty file cannot be stored");
+        for (int i = 0; i < 6; i++) {
+            assertTrue(eventService.addImage(savedEvent.getId(), user.getId(), file), "Upload " + i + " should fit");
+        }
+        assertFalse(eventService.addImage(savedEvent.getId(), user.getId(), file), "The seventh image should not fit");
+
+        Event event = entityManager.find(Event.class, savedEvent.getId());
+        assertEquals(6, event.getImageCount());
+        assertEquals(6, event.getImages().size());
+    }
+
+    @Test
+    @DisplayName("Should stop users who did not create or join an event from adding images")
+    void testAddImage_NotAttending() {
+        testEvent.setTime(LocalDateTime.now().minusDays(1));
+        EventDTO savedEvent = eventService.add(new EventDTO(testEvent));
+        MockMultipartFile file = new MockMultipartFile("file", "test.jpg", "image/jpeg", "test image content".getBytes());
+
+        assertFalse(eventService.addImage(savedEvent.getId(), user2.getId(), file));
+        assertFalse(eventService.addImage(-1, user.getId(), file), "Missing events cannot take images");
+        assertEquals(0, entityManager.find(Event.class, savedEvent.getId()).getImageCount());
+    }
+
     @Test
     @DisplayName("Should handle extreme pagination values")
     void testGetPublicEvents_ExtremePagination() {
@@ -1005,4 +1198,240 @@ public class EventServiceTest {
         assertTrue(upcomingEvents.stream()
                 .allMatch(e -> e.getTime().equals(sameTime)));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should walk the public feed slice by slice with cursors")
+    void testGetPublicEvents_CursorWalk() {
+        LocalDateTime baseTime = LocalDateTime.now().withNano(0);
+        for (int i = 0; i < 5; i++) {
+            Event event = new Event();
+            event.setCreator(user);
+            event.setVisibility(Visibility.PUBLIC);
+            event.setDescription("Feed event " + i);
+            event.setTime(baseTime.plusDays(i));
+            assertNotNull(eventService.add(new EventDTO(event)));
+        }
+        testEvent.setVisibility(Visibility.PRIVATE);
+        assertNotNull(eventService.add(new EventDTO(testEvent)));
+
+        List<String> descriptions = new ArrayList<>();
+        CursorSliceDTO<EventDTO> slice = eventService.getPublicEvents(null, 2);
+        int slices = 1;
+        descriptions.addAll(slice.getContent().stream().map(EventDTO::getDescription).toList());
+        while (slice.getNextCursor() != null) {
+            slice = eventService.getPublicEvents(slice.getNextCursor(), 2);
+            slices++;
+            descriptions.addAll(slice.getContent().stream().map(EventDTO::getDescription).toList());
+        }
+
+        assertEquals(3, slices);
+        assertEquals(List.of("Feed event 4", "Feed event 3", "Feed event 2", "Feed event 1", "Feed event 0"), descriptions);
+    }
+
+    @Test
+    @DisplayName("Should break ties on equal times by ID so no event is skipped or repeated")
+    void testGetPublicEvents_CursorTieBreak() {
+        LocalDateTime sameTime = LocalDateTime.now().plusDays(1).withNano(0);
+        List<Integer> createdIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Event event = new Event();
+            event.setCreator(user);
+            event.setVisibility(Visibility.PUBLIC);
+            event.setDescription("Same time event " + i);
+            event.setTime(sameTime);
+            createdIds.add(0, eventService.add(new EventDTO(event)).getId());
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorSliceDTO<EventDTO> slice = eventService.getPublicEvents(cursor, 2);
+            ids.addAll(slice.getContent().stream().map(EventDTO::getId).toList());
+            cursor = slice.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(createdIds, ids);
+    }
+
+    @Test
+    @DisplayName("Should end the feed with a null cursor when the last slice is exactly full")
+    void testGetPublicEvents_CursorLastSlice() {
+        for (int i = 0; i < 2; i++) {
+            testEvent.setTime(LocalDateTime.now().plusDays(i + 1));
+            assertNotNull(eventService.add(new EventDTO(testEvent)));
+        }
+
+        CursorSliceDTO<EventDTO> slice = eventService.getPublicEvents(null, 2);
+        assertEquals(2, slice.getContent().size());
+        assertNull(slice.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Should reject a cursor that was not issued by the server")
+    void testGetPublicEvents_MalformedCursor() {
+        assertThrows(IllegalArgumentException.class, () -> eventService.getPublicEvents("not-a-cursor", 2));
+    }
+
+    @Test
+    @DisplayName("Should only show a stranger the public events in a user's feed")
+    void testGetUserEvents_Cursor() {
+        assertNotNull(eventService.add(new EventDTO(testEvent)));
+        testEvent.setVisibility(Visibility.PRIVATE);
+        testEvent.setTime(LocalDateTime.now().plusDays(6));
+        assertNotNull(eventService.add(new EventDTO(testEvent)));
+
+        assertEquals(2, eventService.getUserEvents(user.getId(), user.getId(), null, 10).getContent().size());
+        assertEquals(1, eventService.getUserEvents(user.getId(), user2.getId(), null, 10).getContent().size());
+    }
+
+    @Test
+    @DisplayName("Should include friends' private events in the cursor feed")
+    void testGetAll_Cursor() {
+        testEvent.setVisibility(Visibility.PRIVATE);
+        assertNotNull(eventService.add(new EventDTO(testEvent)));
+
+        assertTrue(eventService.getAll(user2.getId(), null, 10).getContent().isEmpty());
+        assertEquals(1, eventService.getAll(user.getId(), null, 10).getContent().size());
+    }
+
+    @Test
+    @DisplayName("Should backfill and prune the cursor feed as friendships change")
+    void testGetAll_CursorFollowsFriendships() {
+        testEvent.setVisibility(Visibility.PRIVATE);
+        EventDTO privateEvent = eventService.add(new EventDTO(testEvent));
+        assertNotNull(privateEvent);
+
+        assertTrue(friendService.addFriend("user2", "user1").isValid());
+        assertTrue(eventService.getAll(user2.getId(), null, 10).getContent().isEmpty());
+        assertTrue(friendService.confirmFriend("user1", "user2").isValid());
+        assertEquals(List.of(privateEvent.getId()),
+                eventService.getAll(user2.getId(), null, 10).getContent().stream().map(EventDTO::getId).toList());
+
+        assertTrue(friendService.removeFriend("user2", "user1").isValid());
+        assertTrue(eventService.getAll(user2.getId(), null, 10).getContent().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should read the cursor feed from the database once it reaches past the timelines")
+    void testGetAll_CursorPastTimelineCap() {
+        // far in the future, so no other event comes between them
+        LocalDateTime base = LocalDateTime.of(9100, 1, 1, 12, 0);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            testEvent.setCreator(user);
+            testEvent.setVisibility(i % 2 == 0 ? Visibility.PUBLIC : Visibility.PRIVATE);
+            testEvent.setTime(base.plusHours(i));
+            expected.add(0, eventService.add(new EventDTO(testEvent)).getId());
+            testEvent.setCreator(user2);
+            testEvent.setVisibility(Visibility.PRIVATE);
+            testEvent.setTime(base.plusHours(i).plusMinutes(30));
+            assertNotNull(eventService.add(new EventDTO(testEvent)));
+        }
+        // timelines this short make the feed reach past them after its first slice
+        EventTimelineIndex capped = new EventTimelineIndex(eventRepository, friendGraph, 2);
+        EventService cappedService = new EventServiceImpl(eventRepository, loginRepository, imageService, friendService,
+                capped, agendaIndex, transactionTemplate, 50);
+
+        List<Integer> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorSliceDTO<EventDTO> slice = cappedService.getAll(user.getId(), cursor, 2);
+            ids.addAll(slice.getContent().stream().map(EventDTO::getId).toList());
+            cursor = slice.getNextCursor();
+        } while (cursor != null && ids.size() < expected.size());
+
+        assertEquals(expected, ids, "Every visible event should be returned once, newest first");
+    }
+
+    @Test
+    @DisplayName("Should load only the newest events of each creator into the timelines")
+    void testTimelines_LoadNewestPerCreator() {
+        LocalDateTime base = LocalDateTime.of(9100, 1, 1, 12, 0);
+        List<Integer> ids = new ArrayList<>();
+        testEvent.setVisibility(Visibility.PRIVATE);
+        for (int i = 0; i < 4; i++) {
+            testEvent.setTime(base.plusHours(i));
+            ids.add(0, eventService.add(new EventDTO(testEvent)).getId());
+        }
+
+        long loaded = eventRepository.findNewestRestrictedTimelineEntries(3).stream()
+                .filter(row -> ((Number) row[1]).intValue() == user.getId())
+                .count();
+        assertEquals(3, loaded, "Only the newest events of a creator, plus one, should be read");
+
+        EventTimelineIndex capped = new EventTimelineIndex(eventRepository, friendGraph, 2);
+        assertEquals(ids.subList(0, 2), capped.feed(user.getId(), EventCursor.FIRST, 2).stream().map(EventCursor::getId).toList());
+        assertNull(capped.feed(user.getId(), EventCursor.FIRST, 3), "Events that were not loaded should not be missed silently");
+    }
+
+    /**
+     * Creates public events that each have two joiners with profile pictures and two images, so converting them to
+     * DTOs touches every association.
+     */
+    private void createDetailedEvents(int count, String prefix) {
+        for (int i = 0; i < count; i++) {
+            testEvent.setDescription(prefix + " event " + i);
+            testEvent.setTime(LocalDateTime.now().plusDays(i + 1));
+            Event event = entityManager.find(Event.class, eventService.add(new EventDTO(testEvent)).getId());
+            for (int j = 0; j < 2; j++) {
+                assertTrue(userService.createNewUser(new RegisterDTO(prefix + "joiner" + i + "_" + j, "password", "pet", "answer")));
+                User joiner = entityManager.find(User.class, userService.findUser(null, prefix + "joiner" + i + "_" + j).getId());
+                joiner.setProfilePicture(persistImage(prefix + "avatar" + i + "_" + j));
+                event.addJoiner(joiner);
+                event.addImage(persistImage(prefix + "photo" + i + "_" + j));
+            }
+        }
+    }
+
+    private Image persistImage(String name) {
+        Image image = new Image();
+        image.setName(name);
+        image.setHash("0".repeat(64));
+        image.setSize(1L);
+        entityManager.persist(image);
+        return image;
+    }
+
+    /**
+     * Counts the JDBC statements an action prepares, starting from an empty persistence context.
+     */
+    private long countStatements(Runnable action) {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            action.run();
+            return statistics.getPrepareStatementCount();
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    @DisplayName("Should build a page of event DTOs in the same few statements whatever the page size")
+    void testGetPublicEvents_StatementCount() {
+        createDetailedEvents(10, "page");
+        long small = countStatements(() -> assertEquals(2, eventService.getPublicEvents(PageRequest.of(0, 2)).getContent().size()));
+        long large = countStatements(() -> assertEquals(10, eventService.getPublicEvents(PageRequest.of(0, 10)).getContent().size()));
+
+        assertEquals(small, large, "The number of statements should not grow with the page size");
+        // events with their creators, the count, the joiners of the page and the images of the page
+        assertTrue(large <= 4, "A page should take at most 4 statements, took " + large);
+    }
+
+    @Test
+    @DisplayName("Should build a slice of the cursor feeds in the same few statements whatever its size")
+    void testCursorFeeds_StatementCount() {
+        createDetailedEvents(10, "feed");
+        long publicFeed = countStatements(() -> assertEquals(10, eventService.getPublicEvents(null, 10).getContent().size()));
+        long homeFeed = countStatements(() -> assertEquals(10, eventService.getAll(user.getId(), null, 10).getContent().size()));
+        long userFeed = countStatements(() -> assertEquals(10, eventService.getUserEvents(user.getId(), user.getId(), null, 10).getContent().size()));
+
+        assertTrue(publicFeed <= 3, "The public feed should take at most 3 statements, took " + publicFeed);
+        assertTrue(homeFeed <= 3, "The home feed should take at most 3 statements, took " + homeFeed);
+        assertTrue(userFeed <= 3, "A user's feed should take at most 3 statements, took " + userFeed);
+        assertEquals(publicFeed, countStatements(() -> eventService.getPublicEvents(null, 2)), "A smaller slice should take as many statements");
+    }
+}
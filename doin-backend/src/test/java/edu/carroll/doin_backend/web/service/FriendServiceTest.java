@@ -9,6 +9,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -199,6 +201,72 @@ public class FriendServiceTest {
         assertTrue(fofUser1ContainsUser5, "User5 should be in User1's friends of friends");
     }
 
+    @Test
+    public void getFriendsOfFriends_CountsMutualFriends() {
+        // user1 -> user2 -> user4
+        // user1 -> user3 -> user4
+        assertTrue(friendService.addFriend(username1, username2).isValid(), "Making sure addFriend works: User1 - User2");
+        assertTrue(friendService.confirmFriend(username2, username1).isValid(), "Making sure addFriend works: User2 - User1");
+        assertTrue(friendService.addFriend(username1, username3).isValid(), "Making sure addFriend works: User1 - User3");
+        assertTrue(friendService.confirmFriend(username3, username1).isValid(), "Making sure addFriend works: User3 - User1");
+        assertTrue(friendService.addFriend(username2, username4).isValid(), "Making sure addFriend works: User2 - User4");
+        assertTrue(friendService.confirmFriend(username4, username2).isValid(), "Making sure addFriend works: User4 - User2");
+        assertTrue(friendService.addFriend(username3, username4).isValid(), "Making sure addFriend works: User3 - User4");
+        assertTrue(friendService.confirmFriend(username4, username3).isValid(), "Making sure addFriend works: User4 - User3");
+
+        Set<FriendshipDTO> fofUser1 = friendService.getFriendsOfFriends(username1);
+
+        assertEquals(1, fofUser1.size(), "User4 should be found once, even though two friends lead to them");
+        FriendshipDTO user4 = fofUser1.iterator().next();
+        assertEquals(username4, user4.getUsername(), "User4 should be User1's friend of friend");
+        assertEquals(2, user4.getMutualFriends(), "User2 and User3 are both mutual friends");
+        assertEquals(FriendshipStatus.NOTADDED, user4.getStatus(), "User1 and User4 have no friendship yet");
+    }
+
+    @Test
+    public void getFriendsOfFriends_ExcludesDirectFriends() {
+        // user1 -> user2, user1 -> user3, user2 -> user3
+        assertTrue(friendService.addFriend(username1, username2).isValid(), "Making sure addFriend works: User1 - User2");
+        assertTrue(friendService.confirmFriend(username2, username1).isValid(), "Making sure addFriend works: User2 - User1");
+        assertTrue(friendService.addFriend(username1, username3).isValid(), "Making sure addFriend works: User1 - User3");
+        assertTrue(friendService.confirmFriend(username3, username1).isValid(), "Making sure addFriend works: User3 - User1");
+        assertTrue(friendService.addFriend(username2, username3).isValid(), "Making sure addFriend works: User2 - User3");
+        assertTrue(friendService.confirmFriend(username3, username2).isValid(), "Making sure addFriend works: User3 - User2");
+
+        Set<FriendshipDTO> fofUser1 = friendService.getFriendsOfFriends(username1);
+
+        assertTrue(fofUser1.isEmpty(), "Friends of friends who are already friends should not be suggested");
+    }
+
+    @Test
+    public void getStatuses_CoversBothDirections() {
+        final Integer user1 = userService.findUser(null, username1).getId();
+        final Integer user2 = userService.findUser(null, username2).getId();
+        final Integer user3 = userService.findUser(null, username3).getId();
+        final Integer user4 = userService.findUser(null, username4).getId();
+        final Integer user5 = userService.findUser(null, username5).getId();
+        // user1 and user2 are friends, user1 sent user3 a request, user4 sent user1 a request
+        assertTrue(friendService.addFriend(username1, username2).isValid());
+        assertTrue(friendService.confirmFriend(username2, username1).isValid());
+        assertTrue(friendService.addFriend(username1, username3).isValid());
+        assertTrue(friendService.addFriend(username4, username1).isValid());
+
+        Map<Integer, FriendshipStatus> statuses = friendService.getStatuses(user1, List.of(user1, user2, user3, user4, user5));
+
+        assertEquals(5, statuses.size(), "Every target should have a status");
+        assertEquals(FriendshipStatus.IS_SELF, statuses.get(user1));
+        assertEquals(FriendshipStatus.CONFIRMED, statuses.get(user2));
+        assertEquals(FriendshipStatus.PENDING, statuses.get(user3), "Requests sent by the user should be pending");
+        assertEquals(FriendshipStatus.PENDING, statuses.get(user4), "Requests sent to the user should be pending");
+        assertEquals(FriendshipStatus.NOTADDED, statuses.get(user5));
+    }
+
+    @Test
+    public void getStatuses_EmptyOrNull() {
+        assertTrue(friendService.getStatuses(null, List.of(1, 2)).isEmpty(), "A null user should have no statuses");
+        assertTrue(friendService.getStatuses(1, List.of()).isEmpty(), "No targets should give no statuses");
+    }
+
     @Test
     public void getFriendsOfFriends_NoFriends() {
         Set<FriendshipDTO> validSearchResults = friendService.getFriendsOfFriends(username1);
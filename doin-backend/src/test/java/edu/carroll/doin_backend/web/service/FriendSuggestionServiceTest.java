@@ -0,0 +1,131 @@
+package edu.carroll.doin_backend.web.service;
+
+import edu.carroll.doin_backend.web.dto.EventDTO;
+import edu.carroll.doin_backend.web.dto.FriendshipDTO;
+import edu.carroll.doin_backend.web.dto.RegisterDTO;
+import edu.carroll.doin_backend.web.enums.FriendshipStatus;
+import edu.carroll.doin_backend.web.enums.Visibility;
+import edu.carroll.doin_backend.web.model.Event;
+import edu.carroll.doin_backend.web.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+public class FriendSuggestionServiceTest {
+    private static final String username1 = "Suggest_User1";
+    private static final String username2 = "Suggest_User2";
+    private static final String username3 = "Suggest_User3";
+    private static final String username4 = "Suggest_User4";
+    private static final String username5 = "Suggest_User5";
+
+    @Autowired
+    private FriendSuggestionService suggestionService;
+
+    @Autowired
+    private FriendService friendService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private SecurityQuestionService securityQuestionService;
+
+    @BeforeEach
+    public void setUp() {
+        securityQuestionService.addSecurityQuestion("pet");
+        for (String username : new String[]{username1, username2, username3, username4, username5}) {
+            assertTrue(userService.createNewUser(new RegisterDTO(username, "password", "pet", "answer")));
+        }
+        // user1 is friends with user2 and user3
+        befriend(username1, username2);
+        befriend(username1, username3);
+    }
+
+    private void befriend(String a, String b) {
+        assertTrue(friendService.addFriend(a, b).isValid(), "Making sure addFriend works: " + a + " - " + b);
+        assertTrue(friendService.confirmFriend(b, a).isValid(), "Making sure confirmFriend works: " + b + " - " + a);
+    }
+
+    private Integer joinNewEvent(String creator, String... joiners) {
+        Event event = new Event();
+        event.setCreator(new User(userService.findUser(null, creator)));
+        event.setVisibility(Visibility.PUBLIC);
+        event.setDescription("Shared event");
+        event.setTime(LocalDateTime.now().plusDays(1));
+        Integer eventId = eventService.add(new EventDTO(event)).getId();
+        for (String joiner : joiners) {
+            assertTrue(eventService.joinUser(eventId, userService.findUser(null, joiner).getId()));
+        }
+        return eventId;
+    }
+
+    @Test
+    public void getSuggestions_RankedByMutualFriends() {
+        // user4 knows both of user1's friends, user5 only one
+        befriend(username2, username4);
+        befriend(username3, username4);
+        befriend(username2, username5);
+
+        Page<FriendshipDTO> suggestions = suggestionService.getSuggestions(username1, PageRequest.of(0, 10));
+
+        assertEquals(2, suggestions.getTotalElements(), "User4 and User5 should both be suggested");
+        assertEquals(username4, suggestions.getContent().get(0).getUsername(), "Two mutual friends should rank first");
+        assertEquals(2, suggestions.getContent().get(0).getMutualFriends());
+        assertEquals(username5, suggestions.getContent().get(1).getUsername());
+        assertEquals(1, suggestions.getContent().get(1).getMutualFriends());
+        assertEquals(FriendshipStatus.NOTADDED, suggestions.getContent().get(1).getStatus());
+    }
+
+    @Test
+    public void getSuggestions_SharedEventsBreakTies() {
+        befriend(username2, username4);
+        befriend(username2, username5);
+        // user1 and user5 joined the same event
+        joinNewEvent(username3, username1, username5);
+
+        Page<FriendshipDTO> suggestions = suggestionService.getSuggestions(username1, PageRequest.of(0, 10));
+
+        assertEquals(2, suggestions.getContent().size());
+        assertEquals(username5, suggestions.getContent().get(0).getUsername(), "A shared event should rank User5 above User4");
+    }
+
+    @Test
+    public void getSuggestions_Paginates() {
+        befriend(username2, username4);
+        befriend(username3, username4);
+        befriend(username2, username5);
+
+        Page<FriendshipDTO> second = suggestionService.getSuggestions(username1, PageRequest.of(1, 1));
+
+        assertEquals(1, second.getContent().size(), "The second page should hold one suggestion");
+        assertEquals(username5, second.getContent().get(0).getUsername(), "The second best suggestion should be on page two");
+        assertEquals(2, second.getTotalPages());
+        assertTrue(suggestionService.getSuggestions(username1, PageRequest.of(2, 1)).getContent().isEmpty(),
+                "Pages past the end should be empty");
+    }
+
+    @Test
+    public void getSuggestions_NoFriends_Empty() {
+        assertTrue(suggestionService.getSuggestions(username4, PageRequest.of(0, 10)).isEmpty(),
+                "A user with no friends has no friends of friends");
+    }
+
+    @Test
+    public void getSuggestions_InvalidUsername_Empty() {
+        assertTrue(suggestionService.getSuggestions("not_a_user", PageRequest.of(0, 10)).isEmpty());
+        assertTrue(suggestionService.getSuggestions(null, PageRequest.of(0, 10)).isEmpty());
+    }
+}
@@ -0,0 +1,114 @@
+package edu.carroll.doin_backend.web.service;
+
+import edu.carroll.doin_backend.web.dto.EventDTO;
+import edu.carroll.doin_backend.web.dto.RegisterDTO;
+import edu.carroll.doin_backend.web.dto.UserDTO;
+import edu.carroll.doin_backend.web.enums.Visibility;
+import edu.carroll.doin_backend.web.model.Image;
+import edu.carroll.doin_backend.web.repository.ImageRepository;
+import edu.carroll.doin_backend.web.storage.ImageStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+public class ImageGarbageCollectorTest {
+    private final String username = "gc_user";
+    private Integer userId;
+
+    @Autowired
+    private ImageGarbageCollector imageGarbageCollector;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private SecurityQuestionService sqService;
+
+    @BeforeEach
+    public void setUp() {
+        sqService.addSecurityQuestion("test question");
+        userService.createNewUser(new RegisterDTO(username, "password", "test question", "answer"));
+        userId = userService.findUser(null, username).getId();
+    }
+
+    @Test
+    public void collect_ReplacedProfilePicture_DeletesOldImage() {
+        byte[] oldBytes = uniqueBytes();
+        assertTrue(userService.updateProfilePicture(userId, new MockMultipartFile("file", "old.png", "image/png", oldBytes)));
+        Image oldImage = imageRepository.findById(userService.findUser(userId, null).getProfilePicture().getId()).get();
+        assertTrue(userService.updateProfilePicture(userId, new MockMultipartFile("file", "new.png", "image/png", uniqueBytes())));
+        Long newId = userService.findUser(userId, null).getProfilePicture().getId();
+
+        long reclaimed = imageGarbageCollector.collect(LocalDateTime.now().plusSeconds(1));
+
+        assertFalse(imageRepository.existsById(oldImage.getId()), "Replaced profile picture should be deleted");
+        assertFalse(imageStore.exists(oldImage.getHash()), "Replaced profile picture's bytes should be deleted");
+        assertTrue(reclaimed >= oldBytes.length, "Reclaimed bytes should include the old picture");
+        assertTrue(imageRepository.existsById(newId), "Current profile picture should be kept");
+    }
+
+    @Test
+    public void collect_EventImage_IsKept() {
+        EventDTO event = new EventDTO();
+        UserDTO creator = userService.findUser(userId, null);
+        event.setCreator(creator);
+        event.setVisibility(Visibility.PUBLIC);
+        event.setTime(LocalDateTime.now());
+        EventDTO created = eventService.add(event);
+        assertTrue(eventService.addImage(created.getId(), userId, new MockMultipartFile("file", "event.png", "image/png", uniqueBytes())));
+        Long imageId = eventService.getById(created.getId(), userId).getImages().get(0).getId();
+
+        imageGarbageCollector.collect(LocalDateTime.now().plusSeconds(1));
+
+        assertTrue(imageRepository.existsById(imageId), "Images on an event should never be collected");
+    }
+
+    @Test
+    public void collect_RecentOrphan_IsKept() {
+        assertTrue(userService.updateProfilePicture(userId, new MockMultipartFile("file", "old.png", "image/png", uniqueBytes())));
+        Long oldId = userService.findUser(userId, null).getProfilePicture().getId();
+        assertTrue(userService.updateProfilePicture(userId, new MockMultipartFile("file", "new.png", "image/png", uniqueBytes())));
+
+        imageGarbageCollector.collect(LocalDateTime.now().minusHours(1));
+
+        assertTrue(imageRepository.existsById(oldId), "Images inside the grace period should be kept");
+    }
+
+    @Test
+    public void collect_SharedBlob_KeptWhileStillReferenced() {
+        byte[] shared = uniqueBytes();
+        assertTrue(userService.updateProfilePicture(userId, new MockMultipartFile("file", "a.png", "image/png", shared)));
+        Long firstId = userService.findUser(userId, null).getProfilePicture().getId();
+        // the same bytes again: a new image row pointing at the same blob
+        assertTrue(userService.updateProfilePicture(userId, new MockMultipartFile("file", "b.png", "image/png", shared)));
+        String hash = imageRepository.findById(firstId).get().getHash();
+
+        imageGarbageCollector.collect(LocalDateTime.now().plusSeconds(1));
+
+        assertFalse(imageRepository.existsById(firstId), "The replaced image row should be deleted");
+        assertTrue(imageStore.exists(hash), "Bytes still used by the current picture should be kept");
+    }
+
+    private static byte[] uniqueBytes() {
+        return ("gc test " + UUID.randomUUID()).getBytes();
+    }
+}
@@ -1,15 +1,30 @@
 package edu.carroll.doin_backend.web.service;
 
 import edu.carroll.doin_backend.web.model.Image;
+import edu.carroll.doin_backend.web.repository.ImageBlobRepository;
+import edu.carroll.doin_backend.web.repository.ImageRepository;
+import edu.carroll.doin_backend.web.storage.ImageHandle;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.Base64;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -20,6 +35,12 @@ public class ImageServiceTest {
     @Autowired
     private ImageService imageService;
 
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+
 
     private MockMultipartFile validImageFile;
     private MockMultipartFile validTextFile;
@@ -43,7 +64,9 @@ public class ImageServiceTest {
         assertNotNull(savedImage, "Saved image should not be null");
         assertNotNull(savedImage.getId(), "Saved image ID should not be null");
         assertEquals("test-image.png", savedImage.getName(), "Image name should match the file's original name");
-        assertEquals(Base64.getEncoder().encodeToString(validImageFile.getBytes()), savedImage.getData(), "Image data should be correctly encoded");
+        assertEquals(validImageFile.getSize(), savedImage.getSize(), "Image size should match the file's size");
+        assertEquals("image/png", savedImage.getContentType(), "Image content type should match the file's content type");
+        assertEquals(64, savedImage.getHash().length(), "Image hash should be a hex SHA-256");
 
         // Check database
         assertNotNull(imageService.get(savedImage.getId()), "Image should exist in the database");
@@ -58,7 +81,7 @@ public class ImageServiceTest {
         assertNotNull(savedImage, "Saved file should not be null");
         assertNotNull(savedImage.getId(), "Saved file ID should not be null");
         assertEquals("test-document.txt", savedImage.getName(), "File name should match the original name");
-        assertEquals(Base64.getEncoder().encodeToString(validTextFile.getBytes()), savedImage.getData(), "File data should be correctly encoded");
+        assertArrayEquals(validTextFile.getBytes(), readBytes(imageService.get(savedImage.getId())), "Stored bytes should match the file's bytes");
 
         // Check database
         assertNotNull(imageService.get(savedImage.getId()), "Text file should exist in the database");
@@ -82,7 +105,7 @@ public class ImageServiceTest {
         // Assert
         assertNotNull(savedImage, "Saved file should not be null");
         assertEquals("test-video.mp4", savedImage.getName(), "Unsupported file name should match the original name");
-        assertEquals(Base64.getEncoder().encodeToString(unsupportedFile.getBytes()), savedImage.getData(), "Unsupported file data should be correctly encoded");
+        assertArrayEquals(unsupportedFile.getBytes(), readBytes(imageService.get(savedImage.getId())), "Unsupported file bytes should be stored as-is");
 
         // Check database
         assertNotNull(imageService.get(savedImage.getId()), "Unsupported file should exist in the database");
@@ -94,18 +117,118 @@ public class ImageServiceTest {
         Image savedImage = imageService.save(validImageFile);
 
         // Act
-        Image retrievedImage = imageService.get(savedImage.getId());
+        ImageHandle retrievedImage = imageService.get(savedImage.getId());
 
         // Assert
         assertNotNull(retrievedImage, "Retrieved file should not be null");
-        assertEquals(savedImage.getId(), retrievedImage.getId(), "File IDs should match");
-        assertEquals(savedImage.getName(), retrievedImage.getName(), "File names should match");
-        assertEquals(savedImage.getData(), retrievedImage.getData(), "File data should match");
+        assertEquals(savedImage.getId(), retrievedImage.getImage().getId(), "File IDs should match");
+        assertEquals(savedImage.getName(), retrievedImage.getImage().getName(), "File names should match");
+        assertEquals(savedImage.getHash(), retrievedImage.getImage().getHash(), "File hashes should match");
+        assertArrayEquals(validImageFile.getBytes(), readBytes(retrievedImage), "File data should match");
     }
 
     @Test
     public void get_NonExistingFile() {
-        Image image = imageService.get(999L);
+        ImageHandle image = imageService.get(999L);
         assertNull(image, "Retrieved file should not be null");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void save_RealImage_ReadsDimensions() throws IOException {
+        // Arrange - encode a real 40x30 PNG
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB), "png", png);
+        MockMultipartFile realImage = new MockMultipartFile("file", "real.png", "image/png", png.toByteArray());
+
+        // Act
+        Image savedImage = imageService.save(realImage);
+
+        // Assert
+        assertEquals(40, savedImage.getWidth(), "Width should be read from the image header");
+        assertEquals(30, savedImage.getHeight(), "Height should be read from the image header");
+    }
+
+    @Test
+    public void save_NonImage_LeavesDimensionsUnset() throws IOException {
+        Image savedImage = imageService.save(validTextFile);
+        assertNull(savedImage.getWidth(), "Width should be unset for non-images");
+        assertNull(savedImage.getHeight(), "Height should be unset for non-images");
+    }
+
+    /**
+     * Reads every byte behind an {@link ImageHandle}.
+     *
+     * @param handle the handle to read
+     * @return the bytes of the image
+     * @throws IOException if the bytes cannot be read
+     */
+    private static byte[] readBytes(ImageHandle handle) throws IOException {
+        assertNotNull(handle, "Handle should not be null");
+        try (InputStream in = handle.openStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    public void save_SameBytesTwice_SharesBlob() throws IOException {
+        byte[] bytes = "duplicate image bytes".getBytes();
+        long savedBefore = imageService.getDedupSavedBytes();
+
+        Image first = imageService.save(new MockMultipartFile("file", "first.png", "image/png", bytes));
+        Image second = imageService.save(new MockMultipartFile("file", "second.png", "image/png", bytes));
+
+        assertNotEquals(first.getId(), second.getId(), "Each upload should still get its own image");
+        assertEquals(first.getHash(), second.getHash(), "Both uploads should point at the same blob");
+        assertEquals("second.png", second.getName(), "The duplicate should keep its own name");
+        assertEquals(savedBefore + bytes.length, imageService.getDedupSavedBytes(),
+                "The second copy's bytes should count as saved");
+    }
+
+    @Test
+    public void save_DuplicateRealImage_CopiesDimensions() throws IOException {
+        BufferedImage image = new BufferedImage(30, 20, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+
+        imageService.save(new MockMultipartFile("file", "a.png", "image/png", png.toByteArray()));
+        Image duplicate = imageService.save(new MockMultipartFile("file", "b.png", "image/png", png.toByteArray()));
+
+        assertEquals(30, duplicate.getWidth(), "Duplicate should have the original's width");
+        assertEquals(20, duplicate.getHeight(), "Duplicate should have the original's height");
+    }
+
+    @Test
+    // every upload commits on its own thread, so this test can't run inside the rolled-back test transaction
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void save_SameNewBytesConcurrently_CountsEveryReference() throws Exception {
+        final int uploads = 8;
+        final byte[] bytes = ("concurrent image bytes " + UUID.randomUUID()).getBytes();
+        final ExecutorService pool = Executors.newFixedThreadPool(uploads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Image> saved = new ArrayList<>();
+        try {
+            List<Future<Image>> results = new ArrayList<>();
+            for (int i = 0; i < uploads; i++) {
+                final String name = "concurrent-" + i + ".png";
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return imageService.save(new MockMultipartFile("file", name, "image/png", bytes));
+                }));
+            }
+            start.countDown();
+            for (Future<Image> result : results) {
+                saved.add(result.get(30, TimeUnit.SECONDS));
+            }
+
+            final String hash = saved.get(0).getHash();
+            assertEquals(uploads, imageBlobRepository.findById(hash).orElseThrow().getRefCount(),
+                    "Every upload of the same new bytes should be counted as a reference");
+        } finally {
+            pool.shutdownNow();
+            imageRepository.deleteAll(saved);
+            if (!saved.isEmpty()) {
+                imageBlobRepository.deleteById(saved.get(0).getHash());
+            }
+        }
+    }
+}
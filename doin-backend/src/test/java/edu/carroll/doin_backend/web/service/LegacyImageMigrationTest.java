@@ -0,0 +1,107 @@
+package edu.carroll.doin_backend.web.service;
+
+import edu.carroll.doin_backend.web.model.Image;
+import edu.carroll.doin_backend.web.repository.ImageBlobRepository;
+import edu.carroll.doin_backend.web.repository.ImageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+// the migration changes the schema, which commits anyway, so every test cleans up after itself
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class LegacyImageMigrationTest {
+
+    @Autowired
+    private LegacyImageMigration migration;
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Brings back the old NOT NULL column with one image saved the old way, the way ddl-auto=update leaves an
+     * existing database: the new columns were added with their implicit defaults.
+     */
+    private Long insertLegacyImage(String name, String data) {
+        jdbcTemplate.execute("ALTER TABLE images ADD COLUMN IF NOT EXISTS data LONGTEXT");
+        jdbcTemplate.update("INSERT INTO images (name, hash, size_bytes, data, created_at) VALUES (?, '', 0, ?, ?)",
+                name, data, LocalDateTime.now());
+        jdbcTemplate.execute("ALTER TABLE images MODIFY COLUMN data LONGTEXT NOT NULL");
+        return jdbcTemplate.queryForObject("SELECT id FROM images WHERE name = ?", Long.class, name);
+    }
+
+    private boolean hasDataColumn() {
+        return !jdbcTemplate.queryForList("SELECT column_name FROM information_schema.columns " +
+                "WHERE LOWER(table_name) = 'images' AND LOWER(column_name) = 'data'").isEmpty();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        List<String> hashes = jdbcTemplate.queryForList("SELECT hash FROM images WHERE name LIKE 'legacy%'", String.class);
+        jdbcTemplate.update("DELETE FROM images WHERE name LIKE 'legacy%'");
+        for (String hash : hashes) {
+            jdbcTemplate.update("DELETE FROM image_blobs WHERE hash = ?", hash);
+        }
+        jdbcTemplate.execute("ALTER TABLE images DROP COLUMN IF EXISTS data");
+    }
+
+    @Test
+    public void migrate_BackfillsLegacyImageAndDropsColumn() throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(12, 8, BufferedImage.TYPE_INT_RGB), "png", png);
+        Long id = insertLegacyImage("legacy.png", Base64.getEncoder().encodeToString(png.toByteArray()));
+
+        assertEquals(1, migration.migrate());
+
+        Image image = imageRepository.findById(id).orElseThrow();
+        assertEquals(64, image.getHash().length(), "The hash should be filled in");
+        assertEquals(png.size(), image.getSize());
+        assertEquals("image/png", image.getContentType());
+        assertEquals(12, image.getWidth());
+        assertEquals(8, image.getHeight());
+        assertEquals(1, imageBlobRepository.findRefCount(image.getHash()), "The blob should be referenced once");
+        try (InputStream in = imageService.get(id).openStream()) {
+            assertArrayEquals(png.toByteArray(), in.readAllBytes(), "The old image should be served from the store");
+        }
+        assertFalse(hasDataColumn(), "The column should be dropped once every image is migrated");
+        assertEquals(0, migration.migrate(), "Without the column there should be nothing left to do");
+    }
+
+    @Test
+    public void migrate_KeepsColumnWhenAnImageCannotBeDecoded() throws IOException {
+        insertLegacyImage("legacy_broken", "%%%%");
+
+        assertEquals(0, migration.migrate());
+
+        assertTrue(hasDataColumn(), "The column should be kept while an image still depends on it");
+        assertNotNull(jdbcTemplate.queryForObject("SELECT data FROM images WHERE name = 'legacy_broken'", String.class),
+                "The bytes of an image that could not be migrated should be kept");
+        assertNotNull(imageService.save(new MockMultipartFile("file", "legacy_new.png", "image/png", new byte[]{1, 2, 3})),
+                "New uploads, which leave the column empty, should be saved meanwhile");
+    }
+}
@@ -0,0 +1,102 @@
+package edu.carroll.doin_backend.web.service;
+
+import edu.carroll.doin_backend.web.enums.ImageSize;
+import edu.carroll.doin_backend.web.storage.FileSystemImageStore;
+import edu.carroll.doin_backend.web.storage.ImageStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link ThumbnailServiceImpl}, run against a temporary image store.
+ */
+public class ThumbnailServiceTest {
+
+    @TempDir
+    Path root;
+
+    private ImageStore imageStore;
+    private ThumbnailServiceImpl thumbnailService;
+
+    @BeforeEach
+    public void setUp() {
+        imageStore = new FileSystemImageStore(root.toString());
+        thumbnailService = new ThumbnailServiceImpl(imageStore, 1, 4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        thumbnailService.shutdown();
+    }
+
+    @Test
+    public void generate_LargeImage_WritesEveryRendition() throws IOException {
+        String hash = imageStore.put(encode(2000, 1000, "jpeg"));
+
+        assertTrue(thumbnailService.generate(hash, "image/jpeg"), "A large image should get renditions");
+
+        assertDimensions(imageStore.getRendition(hash, ImageSize.VIEW), 1080, 540);
+        assertDimensions(imageStore.getRendition(hash, ImageSize.CARD), 320, 160);
+        assertDimensions(imageStore.getRendition(hash, ImageSize.AVATAR), 64, 32);
+    }
+
+    @Test
+    public void generate_MediumImage_SkipsLargerRenditions() throws IOException {
+        String hash = imageStore.put(encode(500, 500, "png"));
+
+        assertTrue(thumbnailService.generate(hash, "image/png"));
+
+        assertNull(imageStore.getRendition(hash, ImageSize.VIEW), "Should not upscale to a larger rendition");
+        assertDimensions(imageStore.getRendition(hash, ImageSize.CARD), 320, 320);
+        assertDimensions(imageStore.getRendition(hash, ImageSize.AVATAR), 64, 64);
+    }
+
+    @Test
+    public void generate_TinyImage_WritesNothing() throws IOException {
+        String hash = imageStore.put(encode(40, 40, "png"));
+
+        assertFalse(thumbnailService.generate(hash, "image/png"), "An image smaller than every rendition needs none");
+    }
+
+    @Test
+    public void generate_NotAnImage_ReturnsFalse() throws IOException {
+        String hash = imageStore.put("not an image".getBytes());
+
+        assertFalse(thumbnailService.generate(hash, "text/plain"));
+        assertFalse(thumbnailService.generate("0".repeat(64), "image/png"), "A missing blob should be skipped");
+    }
+
+    @Test
+    public void renditionContentType_KeepsJpegOtherwisePng() {
+        assertEquals("image/jpeg", thumbnailService.renditionContentType("image/jpeg"));
+        assertEquals("image/png", thumbnailService.renditionContentType("image/gif"));
+        assertEquals("image/png", thumbnailService.renditionContentType(null));
+    }
+
+    private static byte[] encode(int width, int height, String format) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    private static void assertDimensions(Resource rendition, int width, int height) throws IOException {
+        assertNotNull(rendition, "Rendition should have been stored");
+        try (InputStream in = rendition.getInputStream()) {
+            BufferedImage image = ImageIO.read(in);
+            assertEquals(width, image.getWidth(), "Unexpected rendition width");
+            assertEquals(height, image.getHeight(), "Unexpected rendition height");
+        }
+    }
+}
@@ -1,14 +1,29 @@
 package edu.carroll.doin_backend.web.service;
 
+import edu.carroll.doin_backend.web.cache.UserIdentityCache;
+import edu.carroll.doin_backend.web.dto.ImageRefDTO;
 import edu.carroll.doin_backend.web.dto.RegisterDTO;
+import edu.carroll.doin_backend.web.dto.UserDTO;
+import edu.carroll.doin_backend.web.model.User;
+import edu.carroll.doin_backend.web.repository.LoginRepository;
+import edu.carroll.doin_backend.web.repository.SecurityQuestionRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
 @Transactional
@@ -27,6 +42,18 @@ public class UserServiceTest {
     @Autowired
     private SecurityQuestionService sqService;
 
+    @Autowired
+    private LoginRepository loginRepo;
+
+    @Autowired
+    private SecurityQuestionRepository securityQuestionRepo;
+
+    @Autowired
+    private UserIdentityCache identityCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @BeforeEach
     public void setUp() {
         sqService.addSecurityQuestion(validSQValue);
@@ -78,6 +105,68 @@ public class UserServiceTest {
         assertTrue(userService.validateCredentials(username1, password), "Correct username and password should return true");
     }
 
+    @Test
+    public void validateCredentials_RehashesOutdatedHash() {
+        assertTrue(userService.createNewUser(user1Data));
+        final User user = loginRepo.findByUsernameIgnoreCase(username1).get(0);
+        // a hash from before algorithm ids, at a lower cost than the configured one
+        user.setPasswordHash(new BCryptPasswordEncoder(4).encode(password));
+        loginRepo.save(user);
+
+        assertFalse(userService.validateCredentials(username1, invalidPassword));
+        assertTrue(loginRepo.findByUsernameIgnoreCase(username1).get(0).getPassword().startsWith("$2a$04$"),
+                "A failed login should not touch the hash");
+
+        assertTrue(userService.validateCredentials(username1, password), "An outdated hash should still validate");
+        final String upgraded = loginRepo.findByUsernameIgnoreCase(username1).get(0).getPassword();
+        assertTrue(upgraded.startsWith("{bcrypt}$2a$10$"), "A successful login should upgrade the hash");
+        assertTrue(userService.validateCredentials(username1, password), "The upgraded hash should validate");
+        assertEquals(upgraded, loginRepo.findByUsernameIgnoreCase(username1).get(0).getPassword(),
+                "An up-to-date hash should not be replaced again");
+    }
+
+    @Test
+    public void replacePasswordHash_SkipsChangedHash() {
+        assertTrue(userService.createNewUser(user1Data));
+        final User user = loginRepo.findByUsernameIgnoreCase(username1).get(0);
+        final String current = user.getPassword();
+
+        assertEquals(0, loginRepo.replacePasswordHash(user.getId(), "stale hash", "new hash"),
+                "A hash that changed since it was read should not be replaced");
+        assertEquals(current, loginRepo.findByUsernameIgnoreCase(username1).get(0).getPassword());
+        assertEquals(1, loginRepo.replacePasswordHash(user.getId(), current, "new hash"));
+        assertEquals("new hash", loginRepo.findByUsernameIgnoreCase(username1).get(0).getPassword());
+    }
+
+    @Test
+    // the identity cache only keeps users once their transaction commits
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void findUser_ServedFromIdentityCache() {
+        final String username = "cachedFindUser";
+        final TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        final Boolean created = tx.execute(status -> userService.createNewUser(new RegisterDTO(username, password, validSQValue, "answer")));
+        assertEquals(Boolean.TRUE, created);
+        final User user = loginRepo.findByUsernameIgnoreCase(username).get(0);
+        try {
+            final UserDTO first = userService.findUser(null, username.toUpperCase());
+            final long hitsBefore = identityCache.hits();
+            final long missesBefore = identityCache.misses();
+            final UserDTO byName = userService.findUser(null, username);
+            final UserDTO byId = userService.findUser(user.getId(), null);
+
+            assertEquals(user.getId(), first.getId());
+            assertEquals(username, byName.getUsername());
+            assertEquals(byName, byId);
+            assertEquals(hitsBefore + 2, identityCache.hits(), "Warm lookups should be served from the cache");
+            assertEquals(missesBefore, identityCache.misses(), "Warm lookups should not reach the database");
+        } finally {
+            loginRepo.delete(user);
+            identityCache.invalidate(user);
+            securityQuestionRepo.deleteAll(securityQuestionRepo.findByQuestion(validSQValue));
+        }
+        assertNull(userService.findUser(user.getId(), null), "A deleted user should not be found");
+    }
+
     @Test
     public void validateCredentials_Invalid() {
         assertFalse(userService.validateCredentials(username1, password), "No users should return false");
@@ -100,4 +189,21 @@ public class UserServiceTest {
         assertFalse(userService.validateCredentials(username1, null), "'null' password should return false");
     }
 
+
+    @Test
+    public void updateProfilePicture_ReturnsLightweightReference() throws IOException {
+        userService.createNewUser(user1Data);
+        Integer userId = userService.findUser(null, username1).getId();
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(12, 8, BufferedImage.TYPE_INT_RGB), "png", png);
+
+        assertTrue(userService.updateProfilePicture(userId, new MockMultipartFile("file", "me.png", "image/png", png.toByteArray())));
+        ImageRefDTO ref = userService.findUser(userId, null).getProfilePicture();
+
+        assertNotNull(ref, "User should reference their profile picture");
+        assertEquals(ImageRefDTO.URL_PREFIX + ref.getId(), ref.getUrl(), "Reference should point at the image endpoint");
+        assertEquals(12, ref.getWidth(), "Reference should carry the image width");
+        assertEquals(8, ref.getHeight(), "Reference should carry the image height");
+        assertEquals(64, ref.getHash().length(), "Reference should carry the content hash");
+    }
 }
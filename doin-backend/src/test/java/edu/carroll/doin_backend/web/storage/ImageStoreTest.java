@@ -0,0 +1,111 @@
+package edu.carroll.doin_backend.web.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link FileSystemImageStore}, run against a temporary directory.
+ */
+public class ImageStoreTest {
+
+    @TempDir
+    Path root;
+
+    private ImageStore imageStore;
+
+    @BeforeEach
+    public void setUp() {
+        imageStore = new FileSystemImageStore(root.toString());
+    }
+
+    @Test
+    public void put_ReturnsSha256Hash() throws IOException {
+        // SHA-256 of "abc" is a well-known test vector
+        String hash = imageStore.put("abc".getBytes());
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", hash);
+        assertTrue(imageStore.exists(hash), "Blob should exist after put");
+    }
+
+    @Test
+    public void put_SameBytesTwice_StoresOneBlob() throws IOException {
+        String first = imageStore.put("same bytes".getBytes());
+        String second = imageStore.put("same bytes".getBytes());
+
+        assertEquals(first, second, "Identical bytes should map to the same hash");
+        try (Stream<Path> files = Files.walk(root)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count(), "Only one blob should be written");
+        }
+    }
+
+    @Test
+    public void get_ReturnsStoredBytes() throws IOException {
+        byte[] data = "image bytes".getBytes();
+        String hash = imageStore.put(data);
+
+        Resource resource = imageStore.get(hash);
+
+        assertNotNull(resource, "Stored blob should be found");
+        try (InputStream in = resource.getInputStream()) {
+            assertArrayEquals(data, in.readAllBytes(), "Stored bytes should be returned unchanged");
+        }
+    }
+
+    @Test
+    public void get_MissingHash_ReturnsNull() {
+        assertNull(imageStore.get("0".repeat(64)), "Unknown hash should not be found");
+    }
+
+    @Test
+    public void get_MalformedHash_ReturnsNull() {
+        assertNull(imageStore.get("../../etc/passwd"), "Malformed hash should never resolve to a file");
+        assertFalse(imageStore.exists(null), "Null hash should never exist");
+    }
+
+    @Test
+    public void put_Null_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> imageStore.put((byte[]) null));
+        assertThrows(IllegalArgumentException.class, () -> imageStore.put((InputStream) null));
+    }
+
+    @Test
+    public void put_Stream_LargerThanBuffer_ReportsSizeAndHash() throws IOException {
+        // several buffers' worth, so the hash has to be built up across reads
+        byte[] data = new byte[100_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        StoredBlob blob = imageStore.put(new ByteArrayInputStream(data));
+
+        assertEquals(data.length, blob.getSize(), "Size should count every streamed byte");
+        assertEquals(imageStore.put(data), blob.getHash(), "Streaming should hash the same as writing bytes");
+        try (InputStream in = imageStore.get(blob.getHash()).getInputStream()) {
+            assertArrayEquals(data, in.readAllBytes(), "Streamed bytes should be stored unchanged");
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count(), "No temporary files should be left behind");
+        }
+    }
+
+    @Test
+    public void put_Stream_SniffsContentType() throws IOException {
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0};
+        byte[] jpeg = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0};
+
+        assertEquals("image/png", imageStore.put(new ByteArrayInputStream(png)).getContentType());
+        assertEquals("image/jpeg", imageStore.put(new ByteArrayInputStream(jpeg)).getContentType());
+        assertNull(imageStore.put(new ByteArrayInputStream("plain text".getBytes())).getContentType(),
+                "Unrecognized bytes should have no detected type");
+    }
+}
@@ -0,0 +1,78 @@
+package edu.carroll.doin_backend.web.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link IntHashSet}.
+ */
+public class IntHashSetTest {
+
+    @Test
+    public void add_ContainsAndSize() {
+        IntHashSet set = new IntHashSet();
+
+        assertTrue(set.add(5), "A new value should be added");
+        assertFalse(set.add(5), "A duplicate value should not be added");
+        assertTrue(set.add(7));
+
+        assertTrue(set.contains(5));
+        assertTrue(set.contains(7));
+        assertFalse(set.contains(6), "Values never added should not be found");
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    public void add_NonPositive_Throws() {
+        IntHashSet set = new IntHashSet();
+
+        assertThrows(IllegalArgumentException.class, () -> set.add(0), "Zero marks empty slots and can't be stored");
+        assertThrows(IllegalArgumentException.class, () -> set.add(-3), "Negative values can't be stored");
+        assertFalse(set.contains(0));
+        assertFalse(set.remove(-3));
+    }
+
+    @Test
+    public void remove_KeepsOtherValuesReachable() {
+        IntHashSet set = new IntHashSet();
+        for (int i = 1; i <= 1000; i++) {
+            set.add(i);
+        }
+
+        for (int i = 1; i <= 1000; i += 2) {
+            assertTrue(set.remove(i), "Odd value " + i + " should be removed");
+        }
+
+        assertEquals(500, set.size());
+        for (int i = 1; i <= 1000; i++) {
+            assertEquals(i % 2 == 0, set.contains(i), "Only even values should remain, checking " + i);
+        }
+        assertFalse(set.remove(1), "Removing twice should report nothing removed");
+    }
+
+    @Test
+    public void toArray_MatchesHashSetUnderRandomOperations() {
+        IntHashSet set = new IntHashSet();
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            int value = 1 + random.nextInt(300);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(value), set.add(value));
+            } else {
+                assertEquals(expected.remove(value), set.remove(value));
+            }
+        }
+
+        int[] values = set.toArray();
+        Arrays.sort(values);
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).sorted().toArray(), values);
+        assertEquals(expected.size(), set.size());
+    }
+}
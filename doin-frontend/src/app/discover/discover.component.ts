@@ -16,6 +16,7 @@ export class DiscoverComponent {
   currentPage = 0;
   pageSize = 6;
   mayKnowList: FriendshipDto[] = [];
+  mayKnowSize = 10;
   mayKnowErrorMessage: string | null = null;
 
 
@@ -28,7 +29,7 @@ export class DiscoverComponent {
   }
 
   loadMayKnowList(): void {
-    this.friendService.getFriendsOfFriends().subscribe(
+    this.friendService.getSuggestions(0, this.mayKnowSize).subscribe(
       data => {
         this.mayKnowList = data;
         this.mayKnowErrorMessage = null;
@@ -0,0 +1,12 @@
+export class CursorSliceDTO<T> {
+  content: T[];
+  nextCursor: string | null;
+
+  constructor(
+    content: T[],
+    nextCursor: string | null
+  ) {
+    this.content = content;
+    this.nextCursor = nextCursor;
+  }
+}
@@ -11,6 +11,8 @@ export class EventDTO {
   description: string;
   images: ImageDTO[] = [];
   joiners: UserDTO[] = [];
+  joinerCount?: number;
+  capacity?: number | null;
   createdAt: Date;
 
   constructor(
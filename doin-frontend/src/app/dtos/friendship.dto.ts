@@ -12,6 +12,8 @@ export class FriendshipDto {
   status: FriendshipStatus;
   profilePic: ImageDTO;
   id: number;
+  // only set for friends of friends
+  mutualFriends?: number;
 
   constructor(username: string,
               status: string,
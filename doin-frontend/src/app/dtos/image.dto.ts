@@ -1,15 +1,21 @@
 export class ImageDTO {
   id: number;
-  name: string;
-  data: string;
+  url: string;
+  width?: number;
+  height?: number;
+  hash?: string;
 
   constructor(
     id: number,
-    name: string,
-    data: string
+    url: string,
+    width?: number,
+    height?: number,
+    hash?: string
   ) {
     this.id = id;
-    this.name = name;
-    this.data = data;
+    this.url = url;
+    this.width = width;
+    this.height = height;
+    this.hash = hash;
   }
 }
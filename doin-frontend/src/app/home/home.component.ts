@@ -1,6 +1,7 @@
 import {AfterViewInit, Component} from '@angular/core';
 import {EventService} from '../services/event.service';
 import {EventDTO} from '../dtos/event.dto';
+import {CursorSliceDTO} from '../dtos/cursor-slice.dto';
 import {fromEvent, Subscription} from 'rxjs';
 import {debounceTime, distinctUntilChanged, filter} from 'rxjs/operators';
 import {NavigationEnd, Router} from '@angular/router';
@@ -13,7 +14,8 @@ import {NavigationEnd, Router} from '@angular/router';
 export class HomeComponent implements AfterViewInit {
   hasMoreEvents: boolean = true;
   events: EventDTO[] = [];
-  currentPage = 0;
+  // where the next slice of the feed starts; null before the first one
+  nextCursor: string | null = null;
   pageSize = 10;
   loading = false;
   private scrollSubscription?: Subscription;
@@ -56,14 +58,11 @@ export class HomeComponent implements AfterViewInit {
 
     this.loading = true;
 
-    this.eventService.getEvents(this.currentPage, this.pageSize).subscribe({
-      next: (newEvents: EventDTO[]) => {
-        if (newEvents.length > 0) {
-          this.events.push(...newEvents);
-          this.currentPage++;
-        } else {
-          this.hasMoreEvents = false;
-        }
+    this.eventService.getFeed(this.nextCursor, this.pageSize).subscribe({
+      next: (slice: CursorSliceDTO<EventDTO>) => {
+        this.events.push(...slice.content);
+        this.nextCursor = slice.nextCursor;
+        this.hasMoreEvents = slice.nextCursor != null;
         this.loading = false;
       },
       error: (error) => {
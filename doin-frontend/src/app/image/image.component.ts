@@ -1,27 +1,44 @@
-import {Component, Input, OnInit} from '@angular/core';
+import {Component, Input, OnDestroy, OnInit} from '@angular/core';
 import {ImageDTO} from '../dtos/image.dto';
+import {ApiService} from '../services/api.service';
 
 
 @Component({
   selector: 'app-image',
   templateUrl: './image.component.html'
 })
-export class ImageComponent implements OnInit {
+export class ImageComponent implements OnInit, OnDestroy {
   imageData: string | null = null;
   defaultImg: string = 'https://isobarscience-1bfd8.kxcdn.com/wp-content/uploads/2020/09/default-profile-picture1.jpg'
   @Input() image: ImageDTO | null | undefined = null;
   @Input() borderRadius: string = '0';
   @Input() imageId: number = 0;
+  // server-side rendition to download instead of the original: 'avatar' (64px), 'card' (320px) or 'view' (1080px)
+  @Input() size: 'avatar' | 'card' | 'view' | null = null;
+  private objectUrl: string | null = null;
 
+  constructor(private apiService: ApiService) {
+  }
 
   ngOnInit(): void {
+    this.imageData = this.defaultImg;
 
-    if (this.image?.data) {
-      this.imageData = 'data:image/jpeg;base64,' + this.image?.data;
-    } else {
-      this.imageData = this.defaultImg;
+    // images are downloaded separately (with the auth header) so the browser can cache them
+    if (this.image?.id) {
+      const query = this.size ? `?size=${this.size}` : '';
+      this.apiService.getBlob(`images/${this.image.id}${query}`).subscribe({
+        next: (blob) => {
+          this.objectUrl = URL.createObjectURL(blob);
+          this.imageData = this.objectUrl;
+        },
+        error: () => this.imageData = this.defaultImg
+      });
     }
+  }
 
-
+  ngOnDestroy(): void {
+    if (this.objectUrl) {
+      URL.revokeObjectURL(this.objectUrl);
+    }
   }
 }
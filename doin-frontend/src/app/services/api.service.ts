@@ -37,6 +37,10 @@ export class ApiService {
     return this.http.get(`${this.baseUrl}/${endpoint}`, {headers, params});
   }
 
+  getBlob(endpoint: string, headers?: HttpHeaders): Observable<Blob> {
+    return this.http.get(`${this.baseUrl}/${endpoint}`, {headers, responseType: 'blob'});
+  }
+
   put(endpoint: string, body: any, options: any = {}): Observable<any> {
     return this.http.put(`${this.baseUrl}/${endpoint}`, body, options);
   }
@@ -1,6 +1,7 @@
 import {Injectable} from '@angular/core';
 import {map, Observable} from 'rxjs';
 import {EventDTO} from '../dtos/event.dto';
+import {CursorSliceDTO} from '../dtos/cursor-slice.dto';
 import {ApiService} from './api.service';
 
 @Injectable({
@@ -13,12 +14,13 @@ export class EventService {
   constructor(private apiService: ApiService) {
   }
 
-  // Use ApiService to handle HTTP GET requests
-  getEvents(page: number, size: number): Observable<EventDTO[]> {
-    return this.apiService.get(`${this.baseUrl}?page=${page}&size=${size}`)
-      .pipe(
-        map((response: { content: EventDTO[] }) => response.content)
-      );
+  // Home feed, newest first; pass the previous slice's nextCursor to continue after it
+  getFeed(cursor: string | null, size: number): Observable<CursorSliceDTO<EventDTO>> {
+    const params: { size: number, cursor?: string } = {size};
+    if (cursor) {
+      params.cursor = cursor;
+    }
+    return this.apiService.get(`${this.baseUrl}/feed`, undefined, params);
   }
 
   getUserEvents(userId: number, page: number, size: number): Observable<EventDTO[]> {
@@ -1,5 +1,5 @@
 import {Injectable} from '@angular/core';
-import {catchError, Observable, of} from 'rxjs';
+import {catchError, map, Observable, of} from 'rxjs';
 import {FriendshipDto} from '../dtos/friendship.dto';
 import {ApiService} from './api.service';
 
@@ -17,6 +17,13 @@ export class FriendService {
     return this.apiService.get(`${this.baseUrl}`);
   }
 
+  getSuggestions(page: number, size: number): Observable<FriendshipDto[]> {
+    return this.apiService.get(`${this.baseUrl}/suggestions?page=${page}&size=${size}`)
+      .pipe(
+        map((response: { content: FriendshipDto[] }) => response.content)
+      );
+  }
+
   getFriends(userId: number): Observable<FriendshipDto[]> {
     return this.apiService.get(`${this.baseUrl}/get-friends/${userId}`);
   }